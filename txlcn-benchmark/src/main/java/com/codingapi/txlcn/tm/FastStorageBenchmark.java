@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.FastStorage;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import com.codingapi.txlcn.tm.core.storage.journal.JournalStorage;
+import com.codingapi.txlcn.tm.core.storage.memory.MemoryStorage;
+import com.codingapi.txlcn.tm.core.storage.raft.RaftStorage;
+import com.codingapi.txlcn.tm.core.storage.redis.LuaRedisStorage;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisConfiguration;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisKeys;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisStorage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description: lifecycle of a group with three units on every FastStorage.
+ * redis storages need a local redis (127.0.0.1:6379), without it run -p storage=memory,journal,raft.
+ * round trips are counted by a connection proxy, round trips/group is roundTrips divided by groupLifecycle.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FastStorageBenchmark {
+
+    private static final int UNITS_PER_GROUP = 3;
+
+    private static final Set<String> NON_COMMANDS = new HashSet<>(Arrays.asList(
+            "close", "isClosed", "getNativeConnection", "isQueueing", "isPipelined", "openPipeline",
+            "closePipeline", "getSentinelConnection", "toString", "hashCode", "equals"));
+
+    @Param({"redis", "redis-lua", "redis-tag", "redis-lua-tag", "memory", "journal", "raft"})
+    public String storage;
+
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private FastStorage fastStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        TxManagerConfig managerConfig = new TxManagerConfig(serverProperties);
+        if (storage.endsWith("-tag")) {
+            managerConfig.setRedisKeySchema(RedisKeys.HASH_TAG);
+            managerConfig.setRedisLegacyRead(false);
+        }
+        switch (storage) {
+            case "memory":
+                fastStorage = new MemoryStorage(managerConfig);
+                return;
+            case "journal":
+                managerConfig.setJournalDir(Files.createTempDirectory("txlcn-journal").toString());
+                fastStorage = new JournalStorage(managerConfig);
+                return;
+            case "raft":
+                // single member raft group
+                fastStorage = new RaftStorage(managerConfig);
+                return;
+            default:
+        }
+        connectionFactory = new LettuceConnectionFactory("127.0.0.1", 6379);
+        connectionFactory.afterPropertiesSet();
+        RedisConnectionFactory countingFactory = countingFactory(connectionFactory);
+        RedisTemplate<String, Object> redisTemplate =
+                new RedisConfiguration().functionDomainRedisTemplate(countingFactory, managerConfig);
+        redisTemplate.afterPropertiesSet();
+        StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(countingFactory);
+        fastStorage = storage.startsWith("redis-lua") ?
+                new LuaRedisStorage(redisTemplate, stringRedisTemplate, managerConfig) :
+                new RedisStorage(redisTemplate, stringRedisTemplate, managerConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (fastStorage instanceof AutoCloseable) {
+            ((AutoCloseable) fastStorage).close();
+        }
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Benchmark
+    public void groupLifecycle(Counters counters) throws FastStorageException {
+        long before = roundTrips.get();
+        String groupId = UUID.randomUUID().toString();
+        fastStorage.initGroup(groupId);
+        for (int j = 0; j < UNITS_PER_GROUP; j++) {
+            TransactionUnit unit = new TransactionUnit();
+            unit.setUnitId(groupId + j);
+            unit.setModId("mod-" + j);
+            unit.setUnitType("lcn");
+            fastStorage.saveTransactionUnitToGroup(groupId, unit);
+        }
+        fastStorage.saveTransactionState(groupId, 1);
+        fastStorage.findTransactionUnitsFromGroup(groupId);
+        fastStorage.clearGroup(groupId);
+        counters.roundTrips += roundTrips.get() - before;
+    }
+
+    /**
+     * redis round trips, reported next to groupLifecycle
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        public long roundTrips;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            roundTrips = 0;
+        }
+    }
+
+    private RedisConnectionFactory countingFactory(RedisConnectionFactory target) {
+        return (RedisConnectionFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{RedisConnectionFactory.class}, (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (result instanceof RedisConnection) {
+                        return countingConnection((RedisConnection) result);
+                    }
+                    return result;
+                });
+    }
+
+    private RedisConnection countingConnection(RedisConnection target) {
+        return (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{RedisConnection.class}, (proxy, method, args) -> {
+                    if (!NON_COMMANDS.contains(method.getName()) && !method.getName().endsWith("Commands")) {
+                        roundTrips.incrementAndGet();
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
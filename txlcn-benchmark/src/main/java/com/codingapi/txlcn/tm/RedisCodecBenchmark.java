@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.lock.DTXLocks;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import com.codingapi.txlcn.tm.core.storage.redis.CompactRedisSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Description: serialize + deserialize of redis values in both codecs of tx-lcn.manager.redis-codec.
+ * encoded size of the value is reported as valueBytes.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RedisCodecBenchmark {
+
+    @Param({CompactRedisSerializer.JDK, CompactRedisSerializer.COMPACT})
+    public String codec;
+
+    @Param({"TransactionUnit", "LockValue", "String"})
+    public String type;
+
+    private RedisSerializer<Object> serializer;
+
+    private Object value;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = new CompactRedisSerializer(codec);
+        switch (type) {
+            case "TransactionUnit":
+                TransactionUnit unit = new TransactionUnit();
+                unit.setUnitId("2b1d6c3a9e4f5d7c8b0a1e2f3d4c5b6a");
+                unit.setUnitType("txc");
+                unit.setModId("order-service:8080");
+                value = unit;
+                break;
+            case "LockValue":
+                LockValue lockValue = new LockValue();
+                lockValue.setGroupId("5c7f3a2b9e1d4c6a8b0f");
+                lockValue.setLockType(DTXLocks.X_LOCK);
+                lockValue.setFencingToken(System.currentTimeMillis() * 1000);
+                value = lockValue;
+                break;
+            default:
+                value = "1";
+        }
+    }
+
+    @Benchmark
+    public Object roundTrip(Size size) {
+        byte[] bytes = serializer.serialize(value);
+        size.valueBytes = bytes.length;
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * encoded size of the value
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+
+        public long valueBytes;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty;
+
+import com.codingapi.txlcn.common.util.id.RandomUtils;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import com.codingapi.txlcn.txmsg.netty.bean.PendingRequests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description: request registration and completion at 64 concurrent threads.
+ * stringKeyedMap is the registration of the former RpcCmdContext.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Threads(64)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PendingRequestsBenchmark {
+
+    private final Map<String, CompletableFuture<MessageDto>> map = new ConcurrentHashMap<>();
+
+    private final PendingRequests pendingRequests = new PendingRequests(1024);
+
+    private final MessageDto response = response();
+
+    @Benchmark
+    public MessageDto stringKeyedMap() {
+        CompletableFuture<MessageDto> future = new CompletableFuture<>();
+        String key = RandomUtils.randomKey();
+        while (map.putIfAbsent(key, future) != null) {
+            key = RandomUtils.randomKey();
+        }
+        map.remove(key).complete(response);
+        return future.join();
+    }
+
+    @Benchmark
+    public MessageDto async() throws RpcException {
+        CompletableFuture<MessageDto> future = new CompletableFuture<>();
+        long key = pendingRequests.register(future);
+        pendingRequests.complete(key, response);
+        return future.join();
+    }
+
+    @Benchmark
+    public MessageDto sync() throws RpcException {
+        long key = pendingRequests.register(null);
+        pendingRequests.complete(key, response);
+        return pendingRequests.await(key, 1000);
+    }
+
+    private static MessageDto response() {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setState(MessageConstants.STATE_OK);
+        return messageDto;
+    }
+}
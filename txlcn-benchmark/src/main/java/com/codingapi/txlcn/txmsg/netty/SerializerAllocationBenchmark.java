@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty;
+
+import com.codingapi.txlcn.common.exception.SerializerException;
+import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.params.NotifyUnitParams;
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.runtime.RuntimeSchema;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: protostuff encode + decode of a pooled direct frame.
+ * perCallBuffers allocates a LinkedBuffer and a protostuff read buffer per call, as ProtostuffSerializer did.
+ * run with -prof gc and compare gc.alloc.rate.norm (bytes/op).
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializerAllocationBenchmark {
+
+    private static final Schema<NettyRpcCmd> SCHEMA = RuntimeSchema.getSchema(NettyRpcCmd.class);
+
+    private final NettyRpcCmd cmd = cmd();
+
+    private ByteBuf buf;
+
+    @Setup
+    public void setup() {
+        buf = PooledByteBufAllocator.DEFAULT.directBuffer(256);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buf.release();
+    }
+
+    @Benchmark
+    public NettyRpcCmd perCallBuffers() throws IOException {
+        buf.clear();
+        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        ProtostuffIOUtil.writeTo(new ByteBufOutputStream(buf), cmd, SCHEMA, buffer);
+        NettyRpcCmd read = new NettyRpcCmd();
+        ProtostuffIOUtil.mergeFrom(new ByteBufInputStream(buf), read, SCHEMA);
+        return read;
+    }
+
+    @Benchmark
+    public NettyRpcCmd reusedBuffers() throws SerializerException {
+        buf.clear();
+        SerializerContext.getInstance().serialize(cmd, new ByteBufOutputStream(buf));
+        return SerializerContext.getInstance().deSerialize(new ByteBufInputStream(buf), NettyRpcCmd.class);
+    }
+
+    private static NettyRpcCmd cmd() {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction(MessageConstants.ACTION_NOTIFY_UNIT);
+        messageDto.setGroupId("5c7f3a2b9e1d4c6a8b0f");
+        messageDto.setState(MessageConstants.STATE_REQUEST);
+        messageDto.setData(new NotifyUnitParams("5c7f3a2b9e1d4c6a8b0f", "9a8b7c6d5e4f3a2b1c0d", "lcn", 1));
+        NettyRpcCmd cmd = new NettyRpcCmd();
+        cmd.setSeq(123456789L << 10 | 17);
+        cmd.setMsg(messageDto);
+        return cmd;
+    }
+}
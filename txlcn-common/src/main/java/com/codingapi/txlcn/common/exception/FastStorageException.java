@@ -40,6 +40,11 @@ public class FastStorageException extends Exception {
 
     public static final int EX_CODE_NON_MACHINE_ID = 301;
 
+    /**
+     * storage not available, eg. no raft leader
+     */
+    public static final int EX_CODE_UNAVAILABLE = 401;
+
     private int code;
 
 
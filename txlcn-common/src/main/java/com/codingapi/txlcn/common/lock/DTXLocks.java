@@ -24,4 +24,37 @@ package com.codingapi.txlcn.common.lock;
 public abstract class DTXLocks {
     public static final int X_LOCK = 1;
     public static final int S_LOCK = 2;
+
+    /**
+     * separates table and row of a lock id
+     */
+    public static final char TABLE_SEPARATOR = ':';
+
+    /**
+     * lock id of a row, qualified by its table
+     *
+     * @param table table
+     * @param row   row id
+     * @return lock id
+     */
+    public static String lockId(String table, String row) {
+        return table + TABLE_SEPARATOR + row;
+    }
+
+    /**
+     * @param lockId lock id
+     * @return table of lock id, empty when lock id is not qualified
+     */
+    public static String tableOf(String lockId) {
+        int i = lockId.lastIndexOf(TABLE_SEPARATOR);
+        return i < 0 ? "" : lockId.substring(0, i);
+    }
+
+    /**
+     * @param lockId lock id
+     * @return row of lock id, lock id itself when it is not qualified
+     */
+    public static String rowOf(String lockId) {
+        return lockId.substring(lockId.lastIndexOf(TABLE_SEPARATOR) + 1);
+    }
 }
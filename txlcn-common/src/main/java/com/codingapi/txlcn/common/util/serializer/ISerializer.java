@@ -48,6 +48,19 @@ public interface ISerializer {
 
     <T> T deSerialize(byte[] param, Class<T> clazz) throws SerializerException;
 
+    /**
+     * 反序列化对象
+     *
+     * @param param 需要反序列化的byte []
+     * @param offset 起始位置
+     * @param length 长度
+     * @param clazz 反序列化成为的bean对象Class
+     * @param <T>   反序列化成为的bean对象
+     * @return  对象
+     * @throws SerializerException  序列化异常
+     */
+    <T> T deSerialize(byte[] param, int offset, int length, Class<T> clazz) throws SerializerException;
+
 
 
 
@@ -22,7 +22,8 @@ import com.dyuproject.protostuff.Schema;
 import org.objenesis.Objenesis;
 import org.objenesis.ObjenesisStd;
 
-import java.io.*;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * @author lorne 2017/11/11
@@ -33,6 +34,12 @@ import java.io.*;
     private static final SchemaCache SCHEMA_CACHE = SchemaCache.getInstance();
     private static final Objenesis OBJENESIS = new ObjenesisStd(true);
 
+    /**
+     * 每个线程复用的编解码缓冲区, 用后 clear
+     */
+    private static final ThreadLocal<LinkedBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+
     private static <T> Schema<T> getSchema(Class<T> cls) {
         return (Schema<T>) SCHEMA_CACHE.get(cls);
     }
@@ -41,11 +48,10 @@ import java.io.*;
     @Override
     public byte[] serialize(Object obj) throws SerializerException {
         Class cls = obj.getClass();
-        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()){
+        LinkedBuffer buffer = BUFFER.get();
+        try {
             Schema schema = getSchema(cls);
-            ProtostuffIOUtil.writeTo(outputStream, obj, schema, buffer);
-            return outputStream.toByteArray();
+            return ProtostuffIOUtil.toByteArray(obj, schema, buffer);
         } catch (Exception e) {
             throw new SerializerException(e.getMessage(), e);
         } finally {
@@ -57,7 +63,7 @@ import java.io.*;
     @Override
     public void serialize(Object obj, OutputStream outputStream) throws SerializerException {
         Class cls = obj.getClass();
-        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        LinkedBuffer buffer = BUFFER.get();
         try {
             Schema schema = getSchema(cls);
             ProtostuffIOUtil.writeTo(outputStream, obj, schema, buffer);
@@ -71,11 +77,16 @@ import java.io.*;
 
     @Override
     public <T> T deSerialize(byte[] param, Class<T> cls) throws SerializerException {
+        return deSerialize(param, 0, param.length, cls);
+    }
+
+    @Override
+    public <T> T deSerialize(byte[] param, int offset, int length, Class<T> cls) throws SerializerException {
         T object;
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(param)) {
+        try {
             object = OBJENESIS.newInstance(cls);
             Schema schema = getSchema(cls);
-            ProtostuffIOUtil.mergeFrom(inputStream, object, schema);
+            ProtostuffIOUtil.mergeFrom(param, offset, length, object, schema);
             return object;
         } catch (Exception e) {
             throw new SerializerException(e.getMessage(), e);
@@ -85,13 +96,16 @@ import java.io.*;
     @Override
     public <T> T deSerialize(InputStream inputStream, Class<T> cls) throws SerializerException {
         T object;
+        LinkedBuffer buffer = BUFFER.get();
         try{
             object = OBJENESIS.newInstance(cls);
             Schema schema = getSchema(cls);
-            ProtostuffIOUtil.mergeFrom(inputStream, object, schema);
+            ProtostuffIOUtil.mergeFrom(inputStream, object, schema, buffer);
             return object;
         } catch (Exception e) {
             throw new SerializerException(e.getMessage(), e);
+        } finally {
+            buffer.clear();
         }
     }
 }
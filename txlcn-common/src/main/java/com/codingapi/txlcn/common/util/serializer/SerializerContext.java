@@ -56,6 +56,11 @@ public class SerializerContext implements ISerializer {
         return protostuffSerializer.deSerialize(param,clazz);
     }
 
+    @Override
+    public <T> T deSerialize(byte[] param, int offset, int length, Class<T> clazz) throws SerializerException {
+        return protostuffSerializer.deSerialize(param, offset, length, clazz);
+    }
+
     @Override
     public <T> T deSerialize(InputStream inputStream, Class<T> clazz) throws SerializerException {
         return protostuffSerializer.deSerialize(inputStream,clazz);
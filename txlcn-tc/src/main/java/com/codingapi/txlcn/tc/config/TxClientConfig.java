@@ -76,8 +76,29 @@ public class TxClientConfig {
 
     private long tmRpcTimeout;
 
+    /**
+     * TXC锁被占用时在TM排队等待的时间 (ms)，0为立即失败
+     */
+    private long dtxLockWaitTime;
+
+    /**
+     * LCN发起方延迟创建事务组：事务组首次随远程调用传递前创建，未调用远程服务时在本地一阶段提交/回滚.
+     * 仅对LCN发起方生效，TXC与TCC发起方仍预先创建事务组
+     */
+    private boolean lazyGroup;
+
     private int machineId;
 
+    /**
+     * TM的DTX锁租期 (ms)，旧版本TM为0
+     */
+    private long dtxLockTime;
+
+    /**
+     * DTX锁ID是否带表名，由TM的key结构决定，旧版本TM为false
+     */
+    private boolean tableScopedLockId;
+
     private void setMachineId(int machineId) {
         this.machineId = machineId;
     }
@@ -90,6 +111,14 @@ public class TxClientConfig {
         this.tmRpcTimeout = timeout;
     }
 
+    private void setDtxLockTime(long dtxLockTime) {
+        this.dtxLockTime = dtxLockTime;
+    }
+
+    private void setTableScopedLockId(boolean tableScopedLockId) {
+        this.tableScopedLockId = tableScopedLockId;
+    }
+
     public void applyTmRpcTimeout(long timeout) {
         setTmRpcTimeout(timeout);
     }
@@ -101,4 +130,12 @@ public class TxClientConfig {
     public void applyMachineId(int machineId) {
         setMachineId(machineId);
     }
+
+    public void applyDtxLockTime(long dtxLockTime) {
+        setDtxLockTime(dtxLockTime);
+    }
+
+    public void applyTableScopedLockId(boolean tableScopedLockId) {
+        setTableScopedLockId(tableScopedLockId);
+    }
 }
@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -53,6 +54,8 @@ public class DefaultGlobalContext implements TCGlobalContext {
 
     private final TxClientConfig clientConfig;
 
+    private final Set<String> txcLockGroups = ConcurrentHashMap.newKeySet();
+
     @Autowired
     public DefaultGlobalContext(AttachmentCache attachmentCache, TxClientConfig clientConfig,
                                 @Autowired(required = false) List<PrimaryKeysProvider> primaryKeysProviders) {
@@ -93,7 +96,12 @@ public class DefaultGlobalContext implements TCGlobalContext {
 
     @Override
     @SuppressWarnings("unchecked")
-    public void addTxcLockId(String groupId, String unitId, Set<String> lockIdList) {
+    public void addTxcLockId(String groupId, String unitId, Set<String> lockIdList, long fencingToken) {
+        txcLockGroups.add(groupId);
+        String tokenKey = unitId + ".txc.lock.token";
+        if (fencingToken > findTxcLockToken(groupId, unitId)) {
+            attachmentCache.attach(groupId, tokenKey, fencingToken);
+        }
         String lockKey = unitId + ".txc.lock";
         if (attachmentCache.containsKey(groupId, lockKey)) {
             ((Set) attachmentCache.attachment(groupId, lockKey)).addAll(lockIdList);
@@ -112,6 +120,20 @@ public class DefaultGlobalContext implements TCGlobalContext {
         throw new TCGlobalContextException("non exists lock id.");
     }
 
+    @Override
+    public long findTxcLockToken(String groupId, String unitId) {
+        String tokenKey = unitId + ".txc.lock.token";
+        if (attachmentCache.containsKey(groupId, tokenKey)) {
+            return attachmentCache.attachment(groupId, tokenKey);
+        }
+        return 0;
+    }
+
+    @Override
+    public Set<String> txcLockGroups() {
+        return txcLockGroups;
+    }
+
     @Override
     public TableStruct tableStruct(String table, Supplier<TableStruct, SQLException> structSupplier) throws SQLException {
         String tableStructKey = table + ".struct";
@@ -206,5 +228,6 @@ public class DefaultGlobalContext implements TCGlobalContext {
     public void clearGroup(String groupId) {
         // 事务组相关的数据
         this.attachmentCache.removeAll(groupId);
+        this.txcLockGroups.remove(groupId);
     }
 }
@@ -42,10 +42,14 @@ public interface TCGlobalContext {
             throws TransactionException;
 
 
-    void addTxcLockId(String groupId, String unitId, Set<String> lockIdSet);
+    void addTxcLockId(String groupId, String unitId, Set<String> lockIdSet, long fencingToken);
 
     Set<String> findTxcLockSet(String groupId, String unitId) throws TCGlobalContextException;
 
+    long findTxcLockToken(String groupId, String unitId);
+
+    Set<String> txcLockGroups();
+
     TableStruct tableStruct(String table, Supplier<TableStruct, SQLException> structSupplier) throws SQLException;
 
     void clearGroup(String groupId);
@@ -100,6 +100,25 @@ public class TransactionControlTemplate {
         txLogger.transactionInfo(groupId, unitId, "create group over");
     }
 
+    /**
+     * 未创建事务组的发起方一阶段提交/回滚本地事务
+     *
+     * @param groupId         groupId
+     * @param unitId          unitId
+     * @param transactionType transactionType
+     * @param state           transactionState
+     */
+    public void onePhaseLocal(String groupId, String unitId, String transactionType, int state) {
+        txLogger.transactionInfo(groupId, unitId, "one phase local > {} > groupId: {xid}, state: {}.",
+                transactionType, state);
+        try {
+            transactionCleanTemplate.clean(groupId, unitId, transactionType, state);
+        } catch (TransactionClearException e) {
+            log.error("clear exception", e);
+            txLogger.trace(groupId, unitId, Transactions.TE, "clean transaction fail.");
+        }
+    }
+
     /**
      * Client加入事务组操作集合
      *
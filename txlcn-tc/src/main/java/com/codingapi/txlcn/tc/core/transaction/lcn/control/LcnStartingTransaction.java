@@ -19,7 +19,9 @@ import com.codingapi.txlcn.common.exception.TransactionException;
 import com.codingapi.txlcn.tc.core.DTXLocalContext;
 import com.codingapi.txlcn.tc.core.TxTransactionInfo;
 import com.codingapi.txlcn.tc.core.DTXLocalControl;
+import com.codingapi.txlcn.tc.config.TxClientConfig;
 import com.codingapi.txlcn.tc.core.template.TransactionControlTemplate;
+import com.codingapi.txlcn.tracing.TracingContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -33,17 +35,31 @@ public class LcnStartingTransaction implements DTXLocalControl {
 
     private final TransactionControlTemplate transactionControlTemplate;
 
+    private final TxClientConfig clientConfig;
 
     @Autowired
-    public LcnStartingTransaction(TransactionControlTemplate transactionControlTemplate) {
+    public LcnStartingTransaction(TransactionControlTemplate transactionControlTemplate, TxClientConfig clientConfig) {
         this.transactionControlTemplate = transactionControlTemplate;
+        this.clientConfig = clientConfig;
     }
 
     @Override
     public void preBusinessCode(TxTransactionInfo info) throws TransactionException {
-        // create DTX group  创建分布式事务组
-        transactionControlTemplate.createGroup(
-                info.getGroupId(), info.getUnitId(), info.getTransactionInfo(), info.getTransactionType());
+        if (clientConfig.isLazyGroup()) {
+            // 首次远程调用传递事务组前创建
+            TracingContext.tracing().lazyCreateGroup(() -> {
+                try {
+                    transactionControlTemplate.createGroup(
+                            info.getGroupId(), info.getUnitId(), info.getTransactionInfo(), info.getTransactionType());
+                } catch (TransactionException e) {
+                    throw new IllegalStateException("create group fail. groupId: " + info.getGroupId(), e);
+                }
+            });
+        } else {
+            // create DTX group  创建分布式事务组
+            transactionControlTemplate.createGroup(
+                    info.getGroupId(), info.getUnitId(), info.getTransactionInfo(), info.getTransactionType());
+        }
 
         // lcn type need connection proxy
         DTXLocalContext.makeProxy();
@@ -61,6 +77,13 @@ public class LcnStartingTransaction implements DTXLocalControl {
 
     @Override
     public void postBusinessCode(TxTransactionInfo info) {
+        // 未调用远程服务或创建失败，事务组未创建，没有参与方
+        if (TracingContext.tracing().isGroupCreationPending()) {
+            TracingContext.tracing().lazyCreateGroup(null);
+            transactionControlTemplate.onePhaseLocal(
+                    info.getGroupId(), info.getUnitId(), info.getTransactionType(), DTXLocalContext.transactionState());
+            return;
+        }
         // RPC close DTX group
         transactionControlTemplate.notifyGroup(
                 info.getGroupId(), info.getUnitId(), info.getTransactionType(), DTXLocalContext.transactionState());
@@ -18,6 +18,7 @@ package com.codingapi.txlcn.tc.core.transaction.txc.analy;
 import com.codingapi.txlcn.common.exception.TCGlobalContextException;
 import com.codingapi.txlcn.common.exception.TxcLogicException;
 import com.codingapi.txlcn.common.lock.DTXLocks;
+import com.codingapi.txlcn.tc.config.TxClientConfig;
 import com.codingapi.txlcn.tc.core.transaction.txc.analy.def.bean.*;
 import com.codingapi.txlcn.txmsg.exception.RpcException;
 import com.codingapi.txlcn.tc.core.DTXLocalContext;
@@ -61,13 +62,17 @@ public class TxcServiceImpl implements TxcService {
 
     private final TCGlobalContext globalContext;
 
+    private final TxClientConfig clientConfig;
+
     @Autowired
     public TxcServiceImpl(TxcSqlExecutor txcSqlExecutor, TxcLogHelper txcLogHelper,
-                          ReliableMessenger reliableMessenger, TCGlobalContext globalContext) {
+                          ReliableMessenger reliableMessenger, TCGlobalContext globalContext,
+                          TxClientConfig clientConfig) {
         this.txcSqlExecutor = txcSqlExecutor;
         this.txcLogHelper = txcLogHelper;
         this.reliableMessenger = reliableMessenger;
         this.globalContext = globalContext;
+        this.clientConfig = clientConfig;
     }
 
     /**
@@ -81,10 +86,12 @@ public class TxcServiceImpl implements TxcService {
      */
     private void lockDataLine(String groupId, String unitId, Set<String> lockIdSet, boolean isXLock) throws TxcLogicException {
         try {
-            if (!reliableMessenger.acquireLocks(groupId, lockIdSet, isXLock ? DTXLocks.X_LOCK : DTXLocks.S_LOCK)) {
+            long fencingToken = reliableMessenger.acquireFencedLocks(groupId, lockIdSet,
+                    isXLock ? DTXLocks.X_LOCK : DTXLocks.S_LOCK, clientConfig.getDtxLockWaitTime());
+            if (fencingToken < 0) {
                 throw new TxcLogicException("resource is locked! place try again later.");
             }
-            globalContext.addTxcLockId(groupId, unitId, lockIdSet);
+            globalContext.addTxcLockId(groupId, unitId, lockIdSet, fencingToken);
         } catch (RpcException e) {
             throw new TxcLogicException("can't contact to any TM for lock info. default error.");
         }
@@ -122,6 +129,18 @@ public class TxcServiceImpl implements TxcService {
         return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * DTX锁ID. TM为hash-tag key结构时带表名，否则与旧版本TC一致，只有主键的Hex
+     *
+     * @param table       表名
+     * @param primaryKeys 主键
+     * @return lock id
+     */
+    private String lockId(String table, String primaryKeys) {
+        String row = hex(primaryKeys);
+        return clientConfig.isTableScopedLockId() ? DTXLocks.lockId(table, row) : row;
+    }
+
     /**
      * 解决受影响数据
      *
@@ -143,7 +162,7 @@ public class TxcServiceImpl implements TxcService {
 
                 tableRecords.getTableRecords().add(tableRecord);
 
-                lockIdSet.add(hex(tableRecord.getFieldCluster().getPrimaryKeys().toString()));
+                lockIdSet.add(lockId(entry.getKey(), tableRecord.getFieldCluster().getPrimaryKeys().toString()));
             }
         }
 
@@ -172,7 +191,7 @@ public class TxcServiceImpl implements TxcService {
                 for (Map.Entry<String, FieldCluster> entry : modifiedRecord.getFieldClusters().entrySet()) {
                     FieldCluster v = entry.getValue();
                     // key value MD5 HEX to store
-                    lockIdSet.add(hex(v.getPrimaryKeys().toString()));
+                    lockIdSet.add(lockId(entry.getKey(), v.getPrimaryKeys().toString()));
                 }
             }
             lockDataLine(DTXLocalContext.cur().getGroupId(), DTXLocalContext.cur().getUnitId(), lockIdSet, isxLock);
@@ -255,7 +274,8 @@ public class TxcServiceImpl implements TxcService {
     public void cleanTxc(String groupId, String unitId) throws TxcLogicException {
         // 清理事务单元相关锁
         try {
-            reliableMessenger.releaseLocks(globalContext.findTxcLockSet(groupId, unitId));
+            reliableMessenger.releaseLocks(groupId, globalContext.findTxcLockSet(groupId, unitId),
+                    globalContext.findTxcLockToken(groupId, unitId));
         } catch (RpcException e) {
             throw new TxcLogicException(e);
         } catch (TCGlobalContextException e) {
@@ -29,7 +29,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.Serializable;
-import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -85,12 +84,12 @@ public class ClientRpcAnswer implements RpcAnswer, DisposableBean {
             } catch (Throwable e) {
                 e.printStackTrace();
             } finally {
-                if (Objects.nonNull(rpcCmd.getKey())) {
+                if (rpcCmd.hasKey()) {
                     try {
                         rpcCmd.setMsg(messageDto);
                         rpcClient.send(rpcCmd);
                     } catch (RpcException e) {
-                        log.error("response request[{}] error. error message: {}", rpcCmd.getKey(), e.getMessage());
+                        log.error("response request[{}] error. error message: {}", rpcCmd.getSeq(), e.getMessage());
                     }
                 }
             }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tc.txmsg;
+
+import com.codingapi.txlcn.common.runner.TxLcnInitializer;
+import com.codingapi.txlcn.tc.config.TxClientConfig;
+import com.codingapi.txlcn.tc.core.context.TCGlobalContext;
+import com.codingapi.txlcn.txmsg.RpcClient;
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import com.codingapi.txlcn.txmsg.params.HeartbeatParams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: renews TXC locks held by this TC three times per TM lock time. TM heartbeats only
+ * fire on idle connections, so they can not keep the locks of a busy TC.
+ * TMs not negotiated a wire version do not know the renewal, and keep renewing by heartbeats.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Component
+@Slf4j
+public class DTXLockLeaseRenewal implements TxLcnInitializer {
+
+    private static final long MIN_INTERVAL = 500;
+
+    /**
+     * 未获得TM锁租期时的检查间隔
+     */
+    private static final long IDLE_INTERVAL = 1000;
+
+    private final RpcClient rpcClient;
+
+    private final TxClientConfig txClientConfig;
+
+    private final TCGlobalContext globalContext;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("tc-lock-renewal").build());
+
+    @Autowired
+    public DTXLockLeaseRenewal(RpcClient rpcClient, TxClientConfig txClientConfig, TCGlobalContext globalContext) {
+        this.rpcClient = rpcClient;
+        this.txClientConfig = txClientConfig;
+        this.globalContext = globalContext;
+    }
+
+    @Override
+    public void init() {
+        schedule(IDLE_INTERVAL);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(long delay) {
+        try {
+            executor.schedule(this::renew, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // shutdown
+        }
+    }
+
+    private void renew() {
+        long dtxLockTime = txClientConfig.getDtxLockTime();
+        try {
+            if (dtxLockTime > 0 && !globalContext.txcLockGroups().isEmpty()) {
+                HeartbeatParams heartbeatParams = new HeartbeatParams(
+                        txClientConfig.getMachineId(), new HashSet<>(globalContext.txcLockGroups()));
+                for (String remoteKey : rpcClient.loadAllRemoteKey()) {
+                    if (rpcClient.wireVersion(remoteKey) < 1) {
+                        continue;
+                    }
+                    try {
+                        rpcClient.send(remoteKey, MessageCreator.renewLocks(heartbeatParams));
+                    } catch (RpcException e) {
+                        log.debug("renew locks on TM[{}] fail: {}", remoteKey, e.getMessage());
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            log.error("renew locks error.", e);
+        } finally {
+            schedule(dtxLockTime > 0 ? Math.max(MIN_INTERVAL, dtxLockTime / 3) : IDLE_INTERVAL);
+        }
+    }
+}
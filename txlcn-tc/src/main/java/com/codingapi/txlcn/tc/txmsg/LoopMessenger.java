@@ -53,13 +53,34 @@ public class LoopMessenger implements ReliableMessenger {
 
     @Override
     public boolean acquireLocks(String groupId, Set<String> lockIdSet, int type) throws RpcException {
-        MessageDto messageDto = request(MessageCreator.acquireLocks(groupId, lockIdSet, type));
-        return MessageUtils.statusOk(messageDto);
+        return acquireFencedLocks(groupId, lockIdSet, type, 0) >= 0;
+    }
+
+    @Override
+    public long acquireFencedLocks(String groupId, Set<String> lockIdSet, int type, long waitTime) throws RpcException {
+        // 排队等待时响应会推迟到获得锁或等待超时
+        MessageDto messageDto = request0(MessageCreator.acquireLocks(groupId, lockIdSet, type, waitTime),
+                waitTime > 0 ? waitTime + clientConfig.getTmRpcTimeout() : -1);
+        if (!MessageUtils.statusOk(messageDto)) {
+            // 锁被占用、等待超时或作为死锁牺牲者被中止
+            if (messageDto.getData() instanceof Throwable) {
+                log.warn("acquire locks fail. group: {}, cause: {}", groupId,
+                        messageDto.loadBean(Throwable.class).getMessage());
+            }
+            return -1;
+        }
+        // 兼容不提供锁凭证的TM
+        return messageDto.getData() instanceof Long ? messageDto.loadBean(Long.class) : 0;
     }
 
     @Override
     public void releaseLocks(Set<String> lockIdList) throws RpcException {
-        MessageDto messageDto = request(MessageCreator.releaseLocks(lockIdList));
+        releaseLocks(null, lockIdList, 0);
+    }
+
+    @Override
+    public void releaseLocks(String groupId, Set<String> lockIdList, long fencingToken) throws RpcException {
+        MessageDto messageDto = request(MessageCreator.releaseLocks(groupId, lockIdList, fencingToken));
         if (!MessageUtils.statusOk(messageDto)) {
             throw new RpcException("release locks fail.");
         }
@@ -168,8 +189,8 @@ public class LoopMessenger implements ReliableMessenger {
     private MessageDto request(MessageDto messageDto, long timeout, String whenNonManagerMessage) throws RpcException {
         for (int i = 0; i < rpcClient.loadAllRemoteKey().size() + 1; i++) {
             try {
-                String remoteKey = rpcClient.loadRemoteKey();
-                MessageDto result = rpcClient.request(remoteKey, messageDto, timeout);
+                String remoteKey = rpcClient.loadRemoteKey(messageDto.getGroupId());
+                MessageDto result = RpcClient.awaitResponse(rpcClient.requestAsync(remoteKey, messageDto, timeout));
                 log.debug("request action: {}. TM[{}]", messageDto.getAction(), remoteKey);
                 return result;
             } catch (RpcException e) {
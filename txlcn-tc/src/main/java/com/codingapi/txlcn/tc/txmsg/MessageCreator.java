@@ -74,14 +74,16 @@ public class MessageCreator {
      *
      * @param locks    locks
      * @param lockType lockType
+     * @param waitTime 排队等待时间
      * @return message
      */
-    public static MessageDto acquireLocks(String groupId, Set<String> locks, int lockType) {
+    public static MessageDto acquireLocks(String groupId, Set<String> locks, int lockType, long waitTime) {
         DTXLockParams dtxLockParams = new DTXLockParams();
         dtxLockParams.setGroupId(groupId);
         dtxLockParams.setContextId(Transactions.APPLICATION_ID_WHEN_RUNNING);
         dtxLockParams.setLocks(locks);
         dtxLockParams.setLockType(lockType);
+        dtxLockParams.setWaitTime(waitTime);
         MessageDto messageDto = new MessageDto();
         messageDto.setAction(MessageConstants.ACTION_ACQUIRE_DTX_LOCK);
         messageDto.setData(dtxLockParams);
@@ -95,7 +97,21 @@ public class MessageCreator {
      * @return message
      */
     public static MessageDto releaseLocks(Set<String> locks) {
+        return releaseLocks(null, locks, 0);
+    }
+
+    /**
+     * 释放事务组持有的锁消息
+     *
+     * @param groupId      groupId
+     * @param locks        locks
+     * @param fencingToken fencingToken
+     * @return message
+     */
+    public static MessageDto releaseLocks(String groupId, Set<String> locks, long fencingToken) {
         DTXLockParams dtxLockParams = new DTXLockParams();
+        dtxLockParams.setGroupId(groupId);
+        dtxLockParams.setFencingToken(fencingToken);
         dtxLockParams.setContextId(Transactions.APPLICATION_ID_WHEN_RUNNING);
         dtxLockParams.setLocks(locks);
         MessageDto messageDto = new MessageDto();
@@ -104,6 +120,19 @@ public class MessageCreator {
         return messageDto;
     }
 
+    /**
+     * 续租持有的锁消息
+     *
+     * @param heartbeatParams machineId and lock groups
+     * @return message
+     */
+    public static MessageDto renewLocks(HeartbeatParams heartbeatParams) {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction(MessageConstants.ACTION_RENEW_DTX_LOCK);
+        messageDto.setData(heartbeatParams);
+        return messageDto;
+    }
+
     /**
      * 通知事务单元成功
      *
@@ -166,12 +195,14 @@ public class MessageCreator {
     /**
      * 初始化客户端请求
      *
-     * @param appName appName
+     * @param appName     appName
+     * @param wireVersion 支持的最高通讯协议版本
      * @return MessageDto
      */
-    public static MessageDto initClient(String appName) {
+    public static MessageDto initClient(String appName, int wireVersion) {
         InitClientParams initClientParams = new InitClientParams();
         initClientParams.setAppName(appName);
+        initClientParams.setWireVersion(wireVersion);
         MessageDto messageDto = new MessageDto();
         messageDto.setGroupId(MessageConstants.ACTION_INIT_GROUPID);
         messageDto.setData(initClientParams);
@@ -33,7 +33,7 @@ public class MessageParser {
 
     public static TransactionCmd parser(RpcCmd rpcCmd) {
         TransactionCmd cmd = new TransactionCmd();
-        cmd.setRequestKey(rpcCmd.getKey());
+        cmd.setRequestKey(rpcCmd.getSeq());
         cmd.setType(LCNCmdType.parserCmd(rpcCmd.getMsg().getAction()));
         cmd.setGroupId(rpcCmd.getMsg().getGroupId());
 
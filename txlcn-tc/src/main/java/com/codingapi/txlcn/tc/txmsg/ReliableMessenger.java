@@ -40,6 +40,18 @@ public interface ReliableMessenger {
      */
     boolean acquireLocks(String groupId, Set<String> lockIdSet, int type) throws RpcException;
 
+    /**
+     * 申请锁，获得锁凭证
+     *
+     * @param groupId   groupId
+     * @param lockIdSet 锁集合
+     * @param type      锁类型
+     * @param waitTime  锁被占用时在TM排队等待的时间（ms），0为不等待
+     * @return 锁凭证，申请失败为-1，TM未提供凭证为0
+     * @throws RpcException Non TM
+     */
+    long acquireFencedLocks(String groupId, Set<String> lockIdSet, int type, long waitTime) throws RpcException;
+
     /**
      * 释放锁
      *
@@ -48,6 +60,16 @@ public interface ReliableMessenger {
      */
     void releaseLocks(Set<String> lockIdList) throws RpcException;
 
+    /**
+     * 释放事务组持有的锁
+     *
+     * @param groupId      groupId
+     * @param lockIdList   锁集合
+     * @param fencingToken 锁凭证，之后申请的锁不会被释放
+     * @throws RpcException Non TM
+     */
+    void releaseLocks(String groupId, Set<String> lockIdList, long fencingToken) throws RpcException;
+
     /**
      * 通知事务组
      *
@@ -23,8 +23,10 @@ import com.codingapi.txlcn.txmsg.dto.RpcCmd;
 import com.codingapi.txlcn.txmsg.exception.RpcException;
 import com.codingapi.txlcn.txmsg.listener.ClientInitCallBack;
 import com.codingapi.txlcn.txmsg.listener.HeartbeatListener;
+import com.codingapi.txlcn.txmsg.params.HeartbeatParams;
 import com.codingapi.txlcn.txmsg.params.InitClientParams;
 import com.codingapi.txlcn.tc.config.TxClientConfig;
+import com.codingapi.txlcn.tc.core.context.TCGlobalContext;
 import com.codingapi.txlcn.tc.support.listener.RpcEnvStatusListener;
 import com.codingapi.txlcn.txmsg.util.MessageUtils;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +35,7 @@ import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -55,15 +58,18 @@ public class TCSideRpcInitCallBack implements ClientInitCallBack, HeartbeatListe
 
     private final List<RpcEnvStatusListener> rpcEnvStatusListeners;
 
+    private final TCGlobalContext globalContext;
+
     @Autowired
     public TCSideRpcInitCallBack(RpcClient rpcClient, TxClientConfig txClientConfig,
                                  ConfigurableEnvironment environment,
                                  @Autowired(required = false) ServerProperties serverProperties,
-                                 List<RpcEnvStatusListener> rpcEnvStatusListeners) {
+                                 List<RpcEnvStatusListener> rpcEnvStatusListeners, TCGlobalContext globalContext) {
         this.rpcClient = rpcClient;
         this.txClientConfig = txClientConfig;
         this.modId = ApplicationInformation.modId(environment, serverProperties);
         this.rpcEnvStatusListeners = rpcEnvStatusListeners;
+        this.globalContext = globalContext;
     }
 
     @Override
@@ -72,7 +78,7 @@ public class TCSideRpcInitCallBack implements ClientInitCallBack, HeartbeatListe
         new Thread(() -> {
             try {
                 log.info("Send init message to TM[{}]", remoteKey);
-                MessageDto msg = rpcClient.request(remoteKey, MessageCreator.initClient(modId), 5000);
+                MessageDto msg = rpcClient.request(remoteKey, MessageCreator.initClient(modId, rpcClient.wireVersion()), 5000);
                 if (MessageUtils.statusOk(msg)) {
                     //每一次建立连接时将会获取最新的时间
                     InitClientParams resParams = msg.loadBean(InitClientParams.class);
@@ -80,6 +86,13 @@ public class TCSideRpcInitCallBack implements ClientInitCallBack, HeartbeatListe
                     txClientConfig.applyDtxTime(resParams.getDtxTime());
                     txClientConfig.applyTmRpcTimeout(resParams.getTmRpcTimeout());
                     txClientConfig.applyMachineId(resParams.getMachineId());
+                    // 旧TM为0, 由心跳续租
+                    txClientConfig.applyDtxLockTime(resParams.getDtxLockTime());
+                    // 旧TM或legacy key结构下与旧TC一致, 锁ID不带表名
+                    txClientConfig.applyTableScopedLockId(resParams.isTableScopedLockId());
+
+                    // 通讯协议版本，旧TM为0
+                    rpcClient.bindWireVersion(remoteKey, rpcClient.negotiateWireVersion(resParams.getWireVersion()));
 
                     // 2. IdGen 初始化
                     IdGenInit.applyDefaultIdGen(resParams.getSeqLen(), resParams.getMachineId());
@@ -105,6 +118,13 @@ public class TCSideRpcInitCallBack implements ClientInitCallBack, HeartbeatListe
 
     @Override
     public void onTcReceivedHeart(RpcCmd cmd) {
-        cmd.getMsg().setData(txClientConfig.getMachineId());
+        // 旧TM只接受MachineID
+        if (rpcClient.wireVersion(cmd.getRemoteKey()) < 1) {
+            cmd.getMsg().setData(txClientConfig.getMachineId());
+            return;
+        }
+        // 响应MachineID, 并为持有的DTX锁续租
+        cmd.getMsg().setData(
+                new HeartbeatParams(txClientConfig.getMachineId(), new HashSet<>(globalContext.txcLockGroups())));
     }
 }
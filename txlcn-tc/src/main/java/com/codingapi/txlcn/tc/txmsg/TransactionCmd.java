@@ -34,7 +34,7 @@ public class TransactionCmd {
     /**
      * 请求唯一标识
      */
-    private String requestKey;
+    private long requestKey;
 
     /**
      * 事务组id
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tc;
+
+import com.codingapi.txlcn.tc.config.TxClientConfig;
+import com.codingapi.txlcn.tc.core.context.TCGlobalContext;
+import com.codingapi.txlcn.tc.txmsg.DTXLockLeaseRenewal;
+import com.codingapi.txlcn.tc.txmsg.TCSideRpcInitCallBack;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.RpcClient;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.dto.RpcCmd;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.params.HeartbeatParams;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: heartbeat replies by TM wire version, and lock renewal on its own schedule.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class DTXLockLeaseTest {
+
+    private RpcClient rpcClient;
+
+    private TxClientConfig txClientConfig;
+
+    private TCGlobalContext globalContext;
+
+    private final Set<String> lockGroups = ConcurrentHashMap.newKeySet();
+
+    @Before
+    public void setUp() {
+        rpcClient = mock(RpcClient.class);
+        when(rpcClient.wireVersion("/127.0.0.1:8070")).thenReturn(0);
+        when(rpcClient.wireVersion("/127.0.0.1:8071")).thenReturn(1);
+        txClientConfig = new TxClientConfig();
+        txClientConfig.applyMachineId(7);
+        globalContext = mock(TCGlobalContext.class);
+        when(globalContext.txcLockGroups()).thenReturn(lockGroups);
+        lockGroups.add("g1");
+    }
+
+    @Test
+    public void heartbeatByWireVersion() {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(8081);
+        TCSideRpcInitCallBack callBack = new TCSideRpcInitCallBack(rpcClient, txClientConfig,
+                new StandardEnvironment(), serverProperties, Collections.emptyList(), globalContext);
+
+        // 旧TM只接受MachineID
+        RpcCmd cmd = heartbeat("/127.0.0.1:8070");
+        callBack.onTcReceivedHeart(cmd);
+        Assert.assertEquals(7, cmd.getMsg().getData());
+
+        cmd = heartbeat("/127.0.0.1:8071");
+        callBack.onTcReceivedHeart(cmd);
+        Assert.assertEquals(new HeartbeatParams(7, new HashSet<>(lockGroups)), cmd.getMsg().getData());
+    }
+
+    @Test
+    public void renewal() throws Exception {
+        when(rpcClient.loadAllRemoteKey()).thenReturn(Arrays.asList("/127.0.0.1:8070", "/127.0.0.1:8071"));
+        txClientConfig.applyDtxLockTime(1500);
+        DTXLockLeaseRenewal renewal = new DTXLockLeaseRenewal(rpcClient, txClientConfig, globalContext);
+        renewal.init();
+        try {
+            ArgumentCaptor<MessageDto> message = ArgumentCaptor.forClass(MessageDto.class);
+            // 首次在 1s 后, 之后每 500ms
+            verify(rpcClient, timeout(3000).atLeast(3)).send(eq("/127.0.0.1:8071"), message.capture());
+            Assert.assertEquals(MessageConstants.ACTION_RENEW_DTX_LOCK, message.getValue().getAction());
+            Assert.assertEquals(lockGroups, ((HeartbeatParams) message.getValue().getData()).getLockGroups());
+            // 旧TM由心跳续租
+            verify(rpcClient, never()).send(eq("/127.0.0.1:8070"), any(MessageDto.class));
+        } finally {
+            renewal.destroy();
+        }
+    }
+
+    private static RpcCmd heartbeat(String remoteKey) {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction(MessageConstants.ACTION_HEART_CHECK);
+        RpcCmd cmd = new NettyRpcCmd();
+        cmd.setMsg(messageDto);
+        cmd.setRemoteKey(remoteKey);
+        return cmd;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tc;
+
+import com.codingapi.txlcn.common.exception.TransactionException;
+import com.codingapi.txlcn.tc.config.TxClientConfig;
+import com.codingapi.txlcn.tc.core.DTXLocalContext;
+import com.codingapi.txlcn.tc.core.TxTransactionInfo;
+import com.codingapi.txlcn.tc.core.template.TransactionControlTemplate;
+import com.codingapi.txlcn.tc.core.transaction.lcn.control.LcnStartingTransaction;
+import com.codingapi.txlcn.tracing.TracingContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Description: a lazy LCN group is created before it is first propagated, a group never propagated commits locally.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class LazyGroupTest {
+
+    private TransactionControlTemplate transactionControlTemplate;
+
+    private TxClientConfig clientConfig;
+
+    private LcnStartingTransaction startingTransaction;
+
+    private TxTransactionInfo info;
+
+    @Before
+    public void setUp() {
+        transactionControlTemplate = mock(TransactionControlTemplate.class);
+        clientConfig = new TxClientConfig();
+        clientConfig.setLazyGroup(true);
+        startingTransaction = new LcnStartingTransaction(transactionControlTemplate, clientConfig);
+
+        TracingContext.tracing().beginTransactionGroup();
+        info = new TxTransactionInfo();
+        info.setGroupId(TracingContext.tracing().groupId());
+        info.setUnitId("unit-1");
+        info.setTransactionType("lcn");
+        DTXLocalContext.getOrNew();
+    }
+
+    @After
+    public void tearDown() {
+        TracingContext.tracing().destroy();
+        DTXLocalContext.makeNeverAppeared();
+    }
+
+    @Test
+    public void withoutRemoteCallCommitsLocally() throws Exception {
+        startingTransaction.preBusinessCode(info);
+        verify(transactionControlTemplate, never()).createGroup(anyString(), anyString(), any(), anyString());
+
+        startingTransaction.onBusinessCodeSuccess(info, null);
+        startingTransaction.postBusinessCode(info);
+        verify(transactionControlTemplate).onePhaseLocal(info.getGroupId(), "unit-1", "lcn", 1);
+        verify(transactionControlTemplate, never()).createGroup(anyString(), anyString(), any(), anyString());
+        verify(transactionControlTemplate, never()).notifyGroup(anyString(), anyString(), anyString(), anyInt());
+        Assert.assertFalse(TracingContext.tracing().isGroupCreationPending());
+    }
+
+    @Test
+    public void withoutRemoteCallRollsBackLocally() throws Exception {
+        startingTransaction.preBusinessCode(info);
+        startingTransaction.onBusinessCodeError(info, new IllegalStateException());
+        startingTransaction.postBusinessCode(info);
+        verify(transactionControlTemplate).onePhaseLocal(info.getGroupId(), "unit-1", "lcn", 0);
+        verify(transactionControlTemplate, never()).notifyGroup(anyString(), anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    public void createdBeforeFirstPropagation() throws Exception {
+        startingTransaction.preBusinessCode(info);
+        // 远程调用拦截器在传递事务组前调用
+        TracingContext.tracing().beforeGroupPropagation();
+        TracingContext.tracing().beforeGroupPropagation();
+        verify(transactionControlTemplate).createGroup(info.getGroupId(), "unit-1", null, "lcn");
+
+        startingTransaction.onBusinessCodeSuccess(info, null);
+        startingTransaction.postBusinessCode(info);
+        verify(transactionControlTemplate).notifyGroup(info.getGroupId(), "unit-1", "lcn", 1);
+        verify(transactionControlTemplate, never()).onePhaseLocal(anyString(), anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    public void failedCreationFailsPropagation() throws Exception {
+        doThrow(new TransactionException("non TM")).when(transactionControlTemplate)
+                .createGroup(anyString(), anyString(), any(), anyString());
+        startingTransaction.preBusinessCode(info);
+        try {
+            TracingContext.tracing().beforeGroupPropagation();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getCause() instanceof TransactionException);
+        }
+        // 事务组未创建，没有参与方，不通知TM
+        Assert.assertTrue(TracingContext.tracing().isGroupCreationPending());
+        startingTransaction.onBusinessCodeError(info, new IllegalStateException());
+        startingTransaction.postBusinessCode(info);
+        verify(transactionControlTemplate).onePhaseLocal(info.getGroupId(), "unit-1", "lcn", 0);
+        verify(transactionControlTemplate, never()).notifyGroup(anyString(), anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    public void eagerWhenDisabled() throws Exception {
+        clientConfig.setLazyGroup(false);
+        startingTransaction.preBusinessCode(info);
+        verify(transactionControlTemplate).createGroup(info.getGroupId(), "unit-1", null, "lcn");
+        Assert.assertFalse(TracingContext.tracing().isGroupCreationPending());
+
+        startingTransaction.onBusinessCodeSuccess(info, null);
+        startingTransaction.postBusinessCode(info);
+        verify(transactionControlTemplate).notifyGroup(info.getGroupId(), "unit-1", "lcn", 1);
+    }
+}
@@ -21,7 +21,12 @@ import com.codingapi.txlcn.txmsg.MessageConfiguration;
 import com.codingapi.txlcn.tm.config.TxManagerConfig;
 import com.codingapi.txlcn.tm.core.storage.FastStorage;
 import com.codingapi.txlcn.tm.core.storage.FastStorageProvider;
+import com.codingapi.txlcn.tm.core.storage.journal.JournalStorage;
+import com.codingapi.txlcn.tm.core.storage.memory.MemoryStorage;
+import com.codingapi.txlcn.tm.core.storage.raft.RaftStorage;
+import com.codingapi.txlcn.tm.core.storage.redis.LuaRedisStorage;
 import com.codingapi.txlcn.tm.core.storage.redis.RedisStorage;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.ApplicationContext;
@@ -68,11 +73,27 @@ public class TMAutoConfiguration {
         return restTemplateBuilder.build();
     }
 
+    /**
+     * redis templates are resolved only by redis storages, other storages run without redis
+     */
     @Bean
     @ConditionalOnMissingBean
-    public FastStorageProvider fastStorageProvider(RedisTemplate<String, Object> redisTemplate,
-                                                   StringRedisTemplate stringRedisTemplate, TxManagerConfig managerConfig) {
-        return () -> new RedisStorage(redisTemplate, stringRedisTemplate, managerConfig);
+    public FastStorageProvider fastStorageProvider(ObjectProvider<RedisTemplate<String, Object>> redisTemplate,
+                                                   ObjectProvider<StringRedisTemplate> stringRedisTemplate,
+                                                   TxManagerConfig managerConfig) {
+        if ("raft".equals(managerConfig.getStorage())) {
+            return () -> new RaftStorage(managerConfig);
+        }
+        if ("journal".equals(managerConfig.getStorage())) {
+            return () -> new JournalStorage(managerConfig);
+        }
+        if ("memory".equals(managerConfig.getStorage())) {
+            return () -> new MemoryStorage(managerConfig);
+        }
+        if ("redis-lua".equals(managerConfig.getStorage())) {
+            return () -> new LuaRedisStorage(redisTemplate.getObject(), stringRedisTemplate.getObject(), managerConfig);
+        }
+        return () -> new RedisStorage(redisTemplate.getObject(), stringRedisTemplate.getObject(), managerConfig);
     }
 
     @Bean
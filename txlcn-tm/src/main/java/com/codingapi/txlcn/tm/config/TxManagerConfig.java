@@ -21,6 +21,8 @@ import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -66,7 +68,7 @@ public class TxManagerConfig {
     private int concurrentLevel;
 
     /**
-     * 分布式事务锁超时时间
+     * 分布式事务锁超时时间（锁租期，TC心跳时续租）
      */
     private long dtxLockTime = -1;
 
@@ -95,7 +97,100 @@ public class TxManagerConfig {
      */
     private int seqLen = 12;
 
+    /**
+     * FastStorage实现. redis: 默认实现, redis-lua: 事务组操作单次往返, memory: 进程内存储（单TM部署）,
+     * journal: 进程内存储并写入持久化日志（单TM部署，重启可恢复）, raft: 多TM间Raft复制的进程内存储（TM集群部署）
+     */
+    private String storage = "redis";
+
+    /**
+     * journal存储目录
+     */
+    private String journalDir = ".txlcn/journal";
+
+    /**
+     * journal分段大小 (byte)
+     */
+    private int journalSegmentSize = 64 * 1024 * 1024;
+
+    /**
+     * journal刷盘间隔 (ms)，0为只依赖操作系统刷盘
+     */
+    private long journalSyncInterval = 10;
+
+    /**
+     * raft集群成员的raft地址(host:raftPort)，包含本TM，各TM配置一致。为空时为单节点
+     */
+    private List<String> raftMembers = new ArrayList<>();
+
+    /**
+     * 本TM的raft端口，默认为TM端口+100
+     */
+    private int raftPort = -1;
+
+    /**
+     * raft存储操作超时时间 (ms)，含选主期间的重试
+     */
+    private long raftTimeout = 3000;
+
+    /**
+     * raft日志压缩为快照的日志条数阈值
+     */
+    private long raftSnapshotThreshold = 10000;
+
+    /**
+     * redis存储的key结构. legacy: 原key结构, hash-tag: 事务组的key与同一张表的DTX锁各自在同一个slot（Redis Cluster部署）
+     * 升级顺序: 先在legacy结构下逐台升级TM（新旧TM的DTX锁互斥），全部升级后再切换为hash-tag并开启redisLegacyRead
+     * TC的DTX锁ID仅在hash-tag结构下带表名（init-client时下发），legacy结构下与旧版本TC一致
+     */
+    private String redisKeySchema = "legacy";
+
+    /**
+     * hash-tag结构下兼容读取legacy结构的事务组与DTX锁，切换后的在途事务可以完成。Redis Cluster下需关闭
+     */
+    private boolean redisLegacyRead = true;
+
+    /**
+     * redis存储值的编码. jdk: Java序列化, compact: 版本化的紧凑二进制编码. 本版本TM两种编码都可读取，旧版本TM只能读取jdk，所有TM升级后才能切换为compact
+     */
+    private String redisCodec = "jdk";
+
+    /**
+     * 缓存本TM创建的事务组的事务单元与用户回滚状态，通知事务组时不读存储。仅当事务组的所有单元都经本TM加入时开启
+     */
+    private boolean groupCache = false;
+
+    /**
+     * 事务组缓存的最大事务组数
+     */
+    private long groupCacheSize = 10000;
+
+    /**
+     * 事务组独占. TC按事务组ID一致性哈希路由(tx-lcn.message.netty.load-balance=consistent-hash)时开启，
+     * 本TM创建的事务组只保存在本TM内存中（不写存储），事务组操作不再访问存储
+     */
+    private boolean groupAffinity = false;
+
+    /**
+     * 通知事务组的期限 (ms)，事务单元并行通知，期限内未响应的单元按通讯失败处理
+     */
+    private long notifyTimeout = 10 * 1000;
+
+    /**
+     * 异步第二阶段. 事务组的提交/回滚决定写入存储后立即响应发起方，后台通知事务单元，通知失败仍记录补偿
+     */
+    private boolean asyncNotify = false;
+
+    /**
+     * 本TM创建的事务组超时未通知或发起方断开连接时，由TM主动回滚已加入的事务单元
+     */
+    private boolean groupSweep = true;
+
     public long getDtxLockTime() {
         return dtxLockTime == -1 ? dtxTime : dtxLockTime;
     }
+
+    public int getRaftPort() {
+        return raftPort == -1 ? port + PORT_CHANGE_VALUE : raftPort;
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core;
+
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Description: transaction units and user rollback state of a group, as written to FastStorage by this TM.
+ * an owned group (group affinity) lives in this TM only, it is not in FastStorage.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+class CachedGroup {
+
+    final boolean owned;
+
+    /**
+     * unitId -> unit
+     */
+    final ConcurrentMap<String, TransactionUnit> units = new ConcurrentHashMap<>();
+
+    /**
+     * -1 when not set
+     */
+    volatile int state = -1;
+
+    CachedGroup(boolean owned) {
+        this.owned = owned;
+    }
+
+    static boolean isOwned(CachedGroup cachedGroup) {
+        return cachedGroup != null && cachedGroup.owned;
+    }
+}
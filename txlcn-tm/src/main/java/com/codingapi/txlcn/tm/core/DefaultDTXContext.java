@@ -21,10 +21,13 @@ import com.codingapi.txlcn.common.exception.FastStorageException;
 import com.codingapi.txlcn.tm.core.storage.GroupProps;
 import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
- * Description:
+ * Description: DTXContext on FastStorage. writes go through to FastStorage,
+ * reads are served by the cached group when the group is cached on this TM. owned groups are in memory only.
  * Date: 19-1-21 下午2:53
  *
  * @author ujued
@@ -35,31 +38,50 @@ public class DefaultDTXContext implements DTXContext {
 
     private final String groupId;
 
-    DefaultDTXContext(String groupId, FastStorage fastStorage) {
+    /**
+     * null when not cached
+     */
+    private final CachedGroup cachedGroup;
+
+    DefaultDTXContext(String groupId, FastStorage fastStorage, CachedGroup cachedGroup) {
         this.fastStorage = fastStorage;
         this.groupId = groupId;
+        this.cachedGroup = cachedGroup;
     }
 
     @Override
     public void join(TransactionUnit transactionUnit) throws TransactionException {
-        try {
-            fastStorage.saveTransactionUnitToGroup(groupId, transactionUnit);
-        } catch (FastStorageException e) {
-            throw new TransactionException("attempts to join the non-existent transaction group.");
+        if (!CachedGroup.isOwned(cachedGroup)) {
+            try {
+                fastStorage.saveTransactionUnitToGroup(groupId, transactionUnit);
+            } catch (FastStorageException e) {
+                throw new TransactionException("attempts to join the non-existent transaction group.");
+            }
+        }
+        if (Objects.nonNull(cachedGroup)) {
+            cachedGroup.units.put(transactionUnit.getUnitId(), transactionUnit);
         }
     }
 
     @Override
     public void resetTransactionState(int state) throws TransactionException {
-        try {
-            fastStorage.saveTransactionState(groupId, state);
-        } catch (FastStorageException e) {
-            throw new TransactionException(e);
+        if (!CachedGroup.isOwned(cachedGroup)) {
+            try {
+                fastStorage.saveTransactionState(groupId, state);
+            } catch (FastStorageException e) {
+                throw new TransactionException(e);
+            }
+        }
+        if (Objects.nonNull(cachedGroup)) {
+            cachedGroup.state = state;
         }
     }
 
     @Override
     public List<TransactionUnit> transactionUnits() throws TransactionException {
+        if (Objects.nonNull(cachedGroup)) {
+            return new ArrayList<>(cachedGroup.units.values());
+        }
         try {
             return fastStorage.findTransactionUnitsFromGroup(groupId);
         } catch (FastStorageException e) {
@@ -74,6 +96,9 @@ public class DefaultDTXContext implements DTXContext {
 
     @Override
     public int transactionState() {
+        if (Objects.nonNull(cachedGroup)) {
+            return cachedGroup.state;
+        }
         try {
             return fastStorage.getTransactionState(groupId);
         } catch (FastStorageException e) {
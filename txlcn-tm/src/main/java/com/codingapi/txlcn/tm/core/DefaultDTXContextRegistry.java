@@ -18,12 +18,20 @@ package com.codingapi.txlcn.tm.core;
 import com.codingapi.txlcn.common.exception.TransactionException;
 import com.codingapi.txlcn.tm.core.storage.FastStorage;
 import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
 import com.codingapi.txlcn.tm.core.storage.GroupProps;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
 /**
- * Description:
+ * Description: groups created by this TM are cached (tx-lcn.manager.group-cache) until destroyed or expired,
+ * so notifying them reads nothing from FastStorage. other groups, or evicted ones, are read from FastStorage.
+ * with group affinity (tx-lcn.manager.group-affinity) groups created by this TM are owned: kept in memory only.
  * Date: 19-1-21 下午2:59
  *
  * @author ujued
@@ -33,13 +41,30 @@ public class DefaultDTXContextRegistry implements DTXContextRegistry {
 
     private final FastStorage fastStorage;
 
+    /**
+     * null when disabled
+     */
+    private final Cache<String, CachedGroup> groupCache;
+
+    private final boolean groupAffinity;
+
     @Autowired
-    public DefaultDTXContextRegistry(FastStorage fastStorage) {
+    public DefaultDTXContextRegistry(FastStorage fastStorage, TxManagerConfig managerConfig) {
         this.fastStorage = fastStorage;
+        this.groupAffinity = managerConfig.isGroupAffinity();
+        this.groupCache = managerConfig.isGroupCache() || groupAffinity ?
+                CacheBuilder.newBuilder()
+                        .maximumSize(managerConfig.getGroupCacheSize())
+                        .expireAfterWrite(managerConfig.getDtxTime() + 10000, TimeUnit.MILLISECONDS)
+                        .build() : null;
     }
 
     @Override
     public DTXContext create(String groupId) throws TransactionException {
+        if (groupAffinity) {
+            groupCache.asMap().putIfAbsent(groupId, new CachedGroup(true));
+            return get(groupId);
+        }
         try {
             /**
              * redis 存储事务组信息
@@ -50,6 +75,13 @@ public class DefaultDTXContextRegistry implements DTXContextRegistry {
             if (e.getCode() != FastStorageException.EX_CODE_REPEAT_GROUP) {
                 throw new TransactionException(e);
             }
+            // created by another TM
+            return get(groupId);
+        }
+        if (Objects.nonNull(groupCache)) {
+            CachedGroup cachedGroup = new CachedGroup(false);
+            groupCache.put(groupId, cachedGroup);
+            return new DefaultDTXContext(groupId, fastStorage, cachedGroup);
         }
         return get(groupId);
     }
@@ -60,11 +92,22 @@ public class DefaultDTXContextRegistry implements DTXContextRegistry {
 //        if (!fastStorage.containsGroup(groupId)) {
 //            throw new TransactionException("non this transaction group: " + groupId);
 //        }
-        return new DefaultDTXContext(groupId, fastStorage);
+        CachedGroup cachedGroup = cachedGroup(groupId);
+        // not owned by this TM, and not created by a TM without group affinity
+        if (groupAffinity && Objects.isNull(cachedGroup) && !fastStorage.containsGroup(groupId)) {
+            throw new TransactionException("non this transaction group: " + groupId);
+        }
+        return new DefaultDTXContext(groupId, fastStorage, cachedGroup);
     }
 
     @Override
     public void destroyContext(String groupId) {
+        if (Objects.nonNull(groupCache)) {
+            CachedGroup cachedGroup = groupCache.asMap().remove(groupId);
+            if (CachedGroup.isOwned(cachedGroup)) {
+                return;
+            }
+        }
         try {
             fastStorage.clearGroup(groupId);
         } catch (FastStorageException e) {
@@ -82,10 +125,18 @@ public class DefaultDTXContextRegistry implements DTXContextRegistry {
 
     @Override
     public int transactionState(String groupId) {
+        CachedGroup cachedGroup = cachedGroup(groupId);
+        if (Objects.nonNull(cachedGroup)) {
+            return cachedGroup.state;
+        }
         try {
             return fastStorage.getTransactionState(groupId);
         } catch (FastStorageException e) {
             return -1;
         }
     }
+
+    private CachedGroup cachedGroup(String groupId) {
+        return Objects.isNull(groupCache) ? null : groupCache.getIfPresent(groupId);
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core;
+
+import com.codingapi.txlcn.common.exception.TransactionException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.txmsg.RpcClient;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: expiry index of the groups created by this TM, in a timing wheel. a group not notified
+ * in dtx-time, or whose initiator went offline, is rolled back by TM: rollback is saved as the group's
+ * state, so notify-group of it on other TMs rolls back too, then joined units are notified.
+ * groups already committed by async notify-group on other TMs are left alone.
+ * initiator is the module of the TC, which stays online while any of its connections does.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+@Component
+public class GroupTimeoutSweeper implements DisposableBean {
+
+    private final TxManagerConfig managerConfig;
+
+    private final TransactionManager transactionManager;
+
+    private final DTXContextRegistry dtxContextRegistry;
+
+    private final ExecutorService executorService;
+
+    private final RpcClient rpcClient;
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("tm-group-sweeper").build(),
+            100, TimeUnit.MILLISECONDS);
+
+    /**
+     * groupId -> expiry
+     */
+    private final Map<String, OpenGroup> openGroups = new ConcurrentHashMap<>();
+
+    /**
+     * initiator's module -> groupIds
+     */
+    private final Map<String, Set<String>> initiatorGroups = new ConcurrentHashMap<>();
+
+    /**
+     * groups rolled back by sweeper, notify-group of them fails
+     */
+    private final Cache<String, Boolean> sweptGroups;
+
+    @Autowired
+    public GroupTimeoutSweeper(TxManagerConfig managerConfig, TransactionManager transactionManager,
+                               DTXContextRegistry dtxContextRegistry, ExecutorService executorService,
+                               RpcClient rpcClient) {
+        this.managerConfig = managerConfig;
+        this.transactionManager = transactionManager;
+        this.dtxContextRegistry = dtxContextRegistry;
+        this.executorService = executorService;
+        this.rpcClient = rpcClient;
+        this.sweptGroups = CacheBuilder.newBuilder()
+                .expireAfterWrite(managerConfig.getDtxTime() + 10000, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * indexes a group created by this TM
+     *
+     * @param groupId   groupId
+     * @param remoteKey initiator's remoteKey
+     */
+    public void open(String groupId, String remoteKey) {
+        if (!managerConfig.isGroupSweep()) {
+            return;
+        }
+        String initiator = Objects.isNull(remoteKey) ? null : initiator(remoteKey, rpcClient.getAppName(remoteKey));
+        if (Objects.nonNull(initiator)) {
+            initiatorGroups.computeIfAbsent(initiator, k -> ConcurrentHashMap.newKeySet()).add(groupId);
+        }
+        OpenGroup previous = openGroups.put(groupId, new OpenGroup(initiator,
+                timer.newTimeout(t -> sweep(groupId), managerConfig.getDtxTime(), TimeUnit.MILLISECONDS)));
+        if (Objects.nonNull(previous)) {
+            previous.timeout.cancel();
+        }
+    }
+
+    /**
+     * removes group from index before notifying it
+     *
+     * @param groupId groupId
+     * @throws TransactionException group rolled back by sweeper
+     */
+    public void claim(String groupId) throws TransactionException {
+        OpenGroup openGroup = openGroups.remove(groupId);
+        if (Objects.nonNull(openGroup)) {
+            openGroup.close(groupId);
+            return;
+        }
+        if (Objects.nonNull(sweptGroups.getIfPresent(groupId))) {
+            throw new TransactionException("dtx timeout. group rolled back by TM: " + groupId);
+        }
+    }
+
+    /**
+     * rolls back open groups of an initiator gone offline
+     *
+     * @param remoteKey last remoteKey of the initiator
+     * @param appName   initiator's module, null when not bound
+     */
+    public void disconnect(String remoteKey, String appName) {
+        String initiator = initiator(remoteKey, appName);
+        Set<String> groupIds = initiatorGroups.remove(initiator);
+        if (Objects.isNull(groupIds)) {
+            return;
+        }
+        for (String groupId : groupIds) {
+            if (sweep(groupId)) {
+                log.info("initiator {} offline, rollback group {}", initiator, groupId);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        timer.stop();
+    }
+
+    /**
+     * module of the TC, or the connection when its module is unknown
+     */
+    private static String initiator(String remoteKey, String appName) {
+        return Objects.isNull(appName) ? remoteKey : appName;
+    }
+
+    /**
+     * sweeps an open group, exclusive with claim
+     *
+     * @return false when claimed or swept already
+     */
+    private boolean sweep(String groupId) {
+        OpenGroup openGroup = openGroups.remove(groupId);
+        if (Objects.isNull(openGroup)) {
+            return false;
+        }
+        openGroup.close(groupId);
+        sweptGroups.put(groupId, Boolean.TRUE);
+        executorService.submit(() -> rollback(groupId));
+        return true;
+    }
+
+    private void rollback(String groupId) {
+        try {
+            if (dtxContextRegistry.transactionState(groupId) == 1) {
+                // committed by async notify-group on another TM
+                return;
+            }
+            DTXContext dtxContext = dtxContextRegistry.get(groupId);
+            if (dtxContext.transactionUnits().isEmpty()) {
+                // non unit joined, or closed by another TM
+                transactionManager.close(groupId);
+                return;
+            }
+            dtxContext.resetTransactionState(0);
+            log.info("rollback abandoned group {}", groupId);
+            transactionManager.rollback(dtxContext);
+            transactionManager.close(groupId);
+        } catch (TransactionException e) {
+            // group is left to expire in storage, units ask its state
+            log.error("rollback abandoned group error. groupId: " + groupId, e);
+        }
+    }
+
+    private class OpenGroup {
+
+        private final String initiator;
+
+        private final Timeout timeout;
+
+        OpenGroup(String initiator, Timeout timeout) {
+            this.initiator = initiator;
+            this.timeout = timeout;
+        }
+
+        void close(String groupId) {
+            timeout.cancel();
+            if (Objects.nonNull(initiator)) {
+                initiatorGroups.computeIfPresent(initiator, (k, groupIds) -> {
+                    groupIds.remove(groupId);
+                    return groupIds.isEmpty() ? null : groupIds;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core;
+
+import com.codingapi.txlcn.tm.support.restapi.vo.NotifyLatency;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Description: end-to-end latency of notifying transaction groups, keyed by participant count.
+ * latencies go to power-of-two millisecond buckets, percentiles are bucket upper bounds.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Component
+public class NotifyLatencyHistogram {
+
+    /**
+     * groups with more participants are counted as this
+     */
+    static final int MAX_PARTICIPANTS = 64;
+
+    /**
+     * bucket i: (2^(i-1), 2^i] ms, bucket 0: [0, 1] ms, last bucket unbounded
+     */
+    private static final int BUCKETS = 20;
+
+    private final Histogram[] histograms = new Histogram[MAX_PARTICIPANTS + 1];
+
+    public NotifyLatencyHistogram() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    /**
+     * @param participants  transaction units of group
+     * @param elapsedMillis notify time
+     */
+    public void record(int participants, long elapsedMillis) {
+        histograms[Math.min(Math.max(participants, 0), MAX_PARTICIPANTS)].record(Math.max(elapsedMillis, 0));
+    }
+
+    /**
+     * @return latencies of participant counts ever recorded
+     */
+    public List<NotifyLatency> snapshot() {
+        List<NotifyLatency> latencies = new ArrayList<>();
+        for (int i = 0; i < histograms.length; i++) {
+            Histogram histogram = histograms[i];
+            long count = histogram.count.get();
+            if (count > 0) {
+                latencies.add(new NotifyLatency(i, count, histogram.sum.get() / count,
+                        histogram.percentile(count, 0.5), histogram.percentile(count, 0.99), histogram.max.get()));
+            }
+        }
+        return latencies;
+    }
+
+    private static class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong sum = new AtomicLong();
+
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long millis) {
+            int bucket = millis <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(millis - 1);
+            buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+            sum.addAndGet(millis);
+            max.accumulateAndGet(millis, Math::max);
+            count.incrementAndGet();
+        }
+
+        long percentile(long count, double quantile) {
+            long rank = (long) Math.ceil(count * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(1L << i, max.get());
+                }
+            }
+            return max.get();
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.codingapi.txlcn.tm.core;
 import com.codingapi.txlcn.common.exception.TransactionException;
 import com.codingapi.txlcn.common.util.Transactions;
 import com.codingapi.txlcn.logger.TxLogger;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
 import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
 import com.codingapi.txlcn.tm.support.service.TxExceptionService;
 import com.codingapi.txlcn.tm.txmsg.MessageCreator;
@@ -31,11 +32,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Description: 默认事务管理器
+ * Description: 默认事务管理器. 事务组的各事务单元并行通知，共用一个期限(tx-lcn.manager.notify-timeout)
  * Date: 19-1-9 下午5:57
  *
  * @author ujued
@@ -54,14 +57,21 @@ public class SimpleTransactionManager implements TransactionManager {
 
     private final DTXContextRegistry dtxContextRegistry;
 
+    private final TxManagerConfig managerConfig;
+
+    private final NotifyLatencyHistogram notifyLatencyHistogram;
+
     @Autowired
     public SimpleTransactionManager(RpcExceptionHandler rpcExceptionHandler, RpcClient rpcClient, TxLogger txLogger,
-                                    TxExceptionService exceptionService, DTXContextRegistry dtxContextRegistry) {
+                                    TxExceptionService exceptionService, DTXContextRegistry dtxContextRegistry,
+                                    TxManagerConfig managerConfig, NotifyLatencyHistogram notifyLatencyHistogram) {
         this.rpcExceptionHandler = rpcExceptionHandler;
         this.exceptionService = exceptionService;
         this.rpcClient = rpcClient;
         this.txLogger = txLogger;
         this.dtxContextRegistry = dtxContextRegistry;
+        this.managerConfig = managerConfig;
+        this.notifyLatencyHistogram = notifyLatencyHistogram;
     }
 
     @Override
@@ -130,36 +140,61 @@ public class SimpleTransactionManager implements TransactionManager {
     }
 
     private void notifyTransaction(DTXContext dtxContext, int transactionState) throws TransactionException {
-        for (TransactionUnit transUnit : dtxContext.transactionUnits()) {
+        List<TransactionUnit> transactionUnits = dtxContext.transactionUnits();
+        long begin = System.currentTimeMillis();
+        long deadline = begin + managerConfig.getNotifyTimeout();
+        List<NotifyUnitParams> paramsList = new ArrayList<>(transactionUnits.size());
+        List<CompletableFuture<MessageDto>> responses = new ArrayList<>(transactionUnits.size());
+        for (TransactionUnit transUnit : transactionUnits) {
             NotifyUnitParams notifyUnitParams = new NotifyUnitParams();
             notifyUnitParams.setGroupId(dtxContext.getGroupId());
             notifyUnitParams.setUnitId(transUnit.getUnitId());
             notifyUnitParams.setUnitType(transUnit.getUnitType());
             notifyUnitParams.setState(transactionState);
-            txLogger.info(dtxContext.getGroupId(),
-                    notifyUnitParams.getUnitId(), Transactions.TAG_TRANSACTION, "notify %s's unit: %s",
-                    transUnit.getModId(), transUnit.getUnitId());
-            try {
-                List<String> modChannelKeys = rpcClient.remoteKeys(transUnit.getModId());
-                if (modChannelKeys.isEmpty()) {
-                    // record exception
-                    throw new RpcException("offline mod.");
-                }
-                MessageDto respMsg =
-                        rpcClient.request(modChannelKeys.get(0), MessageCreator.notifyUnit(notifyUnitParams));
-                if (!MessageUtils.statusOk(respMsg)) {
-                    // 提交/回滚失败的消息处理
-                    List<Object> params = Arrays.asList(notifyUnitParams, transUnit.getModId());
-                    rpcExceptionHandler.handleNotifyUnitBusinessException(params, respMsg.loadBean(Throwable.class));
-                }
-            } catch (RpcException e) {
-                // 提交/回滚通讯失败
-                List<Object> params = Arrays.asList(notifyUnitParams, transUnit.getModId());
-                rpcExceptionHandler.handleNotifyUnitMessageException(params, e);
-            } finally {
-                txLogger.transactionInfo(dtxContext.getGroupId(), notifyUnitParams.getUnitId(), "notify unit over");
-            }
+            paramsList.add(notifyUnitParams);
+            responses.add(notifyUnit(notifyUnitParams, transUnit, deadline));
+        }
+        // results are handled here, each unit exactly once
+        for (int i = 0; i < responses.size(); i++) {
+            handleNotifyResult(paramsList.get(i), transactionUnits.get(i), responses.get(i));
+        }
+        notifyLatencyHistogram.record(transactionUnits.size(), System.currentTimeMillis() - begin);
+    }
+
+    private CompletableFuture<MessageDto> notifyUnit(NotifyUnitParams notifyUnitParams, TransactionUnit transUnit,
+                                                     long deadline) {
+        txLogger.info(notifyUnitParams.getGroupId(),
+                notifyUnitParams.getUnitId(), Transactions.TAG_TRANSACTION, "notify %s's unit: %s",
+                transUnit.getModId(), transUnit.getUnitId());
+        CompletableFuture<MessageDto> response = new CompletableFuture<>();
+        List<String> modChannelKeys = rpcClient.remoteKeys(transUnit.getModId());
+        if (modChannelKeys.isEmpty()) {
+            // record exception
+            response.completeExceptionally(new RpcException("offline mod."));
+            return response;
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            response.completeExceptionally(new RpcException("notify deadline exceeded."));
+            return response;
         }
+        return rpcClient.requestAsync(modChannelKeys.get(0), MessageCreator.notifyUnit(notifyUnitParams), remaining);
     }
 
+    private void handleNotifyResult(NotifyUnitParams notifyUnitParams, TransactionUnit transUnit,
+                                    CompletableFuture<MessageDto> response) {
+        List<Object> params = Arrays.asList(notifyUnitParams, transUnit.getModId());
+        try {
+            MessageDto respMsg = RpcClient.awaitResponse(response);
+            if (!MessageUtils.statusOk(respMsg)) {
+                // 提交/回滚失败的消息处理
+                rpcExceptionHandler.handleNotifyUnitBusinessException(params, respMsg.loadBean(Throwable.class));
+            }
+        } catch (RpcException e) {
+            // 提交/回滚通讯失败
+            rpcExceptionHandler.handleNotifyUnitMessageException(params, e);
+        } finally {
+            txLogger.transactionInfo(notifyUnitParams.getGroupId(), notifyUnitParams.getUnitId(), "notify unit over");
+        }
+    }
 }
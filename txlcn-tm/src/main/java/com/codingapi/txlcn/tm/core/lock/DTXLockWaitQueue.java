@@ -0,0 +1,478 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.lock;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.common.exception.TxManagerException;
+import com.codingapi.txlcn.tm.core.storage.FastStorage;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.txmsg.MessageCreator;
+import com.codingapi.txlcn.txmsg.RpcClient;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.dto.RpcCmd;
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import com.codingapi.txlcn.txmsg.util.MessageUtils;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Description: 分布式事务锁等待队列. 锁被占用时申请者按锁FIFO排队，不占用RPC线程，
+ * 锁释放时按序重试队首的申请者，获得锁或等待超时后再响应原请求.
+ * 锁上已有等待者时新的申请也须排队，不能越过等待者直接申请；多锁等待者只在其所有锁上都排在队首时才重试，
+ * 所有队列按同一入队顺序排列，最早的等待者总能前进，不会饿死.
+ * 其它TM释放或锁租期到期不会通知本队列，由定时复查兜底.
+ * 排队及定时复查时按锁表和队列构建事务组等待图，检测到死锁时中止环中最年轻的事务组.
+ * 构建等待图时每个 contextId 只批量查询一次锁持有者，等待的事务组少于两个时不查询.
+ * 队列只在单线程中访问.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Component
+@Slf4j
+public class DTXLockWaitQueue implements DisposableBean {
+
+    /**
+     * 定时复查间隔 (ms)
+     */
+    private static final long RECHECK_INTERVAL = 1000;
+
+    private final FastStorage fastStorage;
+
+    private final RpcClient rpcClient;
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * 锁 -> 等待者
+     */
+    private final Map<String, Deque<Waiter>> waitQueues = new HashMap<>();
+
+    /**
+     * 锁 -> 等待者数. 供RPC线程判断是否须排队，入队前即计入
+     */
+    private final ConcurrentMap<String, Integer> waitingLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 检测到的死锁数
+     */
+    private final Counter deadlockCounter;
+
+    /**
+     * 死锁牺牲者从排队到被中止的时间
+     */
+    private final Timer victimTimer;
+
+    @Autowired
+    public DTXLockWaitQueue(FastStorage fastStorage, RpcClient rpcClient, MeterRegistry meterRegistry) {
+        this.fastStorage = fastStorage;
+        this.rpcClient = rpcClient;
+        this.deadlockCounter = meterRegistry.counter("txlcn.tm.dtx.lock.deadlocks");
+        this.victimTimer = meterRegistry.timer("txlcn.tm.dtx.lock.deadlock.victim");
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("tm-dtx-lock-waiter").build());
+        // 异常会取消后续的调度，须在任务内处理. 授予失败不影响死锁检测
+        this.executor.scheduleWithFixedDelay(() -> {
+            try {
+                grant(new ArrayList<>(waitQueues.keySet()));
+            } catch (Throwable e) {
+                log.error("dtx lock waiter recheck fail.", e);
+            }
+            safeDetectDeadlocks();
+        }, RECHECK_INTERVAL, RECHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 排队等待锁，获得锁或等待超时后响应原请求
+     *
+     * @param rpcCmd    原始请求
+     * @param contextId contextId
+     * @param locks     locks
+     * @param lockValue lockValue
+     * @param waitTime  等待时间 (ms)
+     */
+    public void await(RpcCmd rpcCmd, String contextId, Set<String> locks, LockValue lockValue, long waitTime) {
+        Waiter waiter = new Waiter(rpcCmd, contextId, locks, lockValue);
+        waiter.lockKeys.forEach(lockKey -> waitingLocks.merge(lockKey, 1, Integer::sum));
+        executor.execute(() -> {
+            waiter.lockKeys.forEach(lockKey -> waitQueues.computeIfAbsent(lockKey, k -> new ArrayDeque<>()).add(waiter));
+            waiter.timeout = executor.schedule(() -> timeout(waiter), waitTime, TimeUnit.MILLISECONDS);
+            // 入队前锁可能已经释放
+            try {
+                grant(waiter.lockKeys);
+            } catch (Throwable e) {
+                log.error("dtx lock waiter grant fail.", e);
+            }
+            if (!waiter.done) {
+                safeDetectDeadlocks();
+            }
+        });
+    }
+
+    /**
+     * 有等待者的锁. 有等待者时新的申请须排队，保证FIFO
+     *
+     * @param contextId contextId
+     * @param locks     locks
+     * @return 有等待者的锁
+     */
+    public Set<String> waitedLocks(String contextId, Set<String> locks) {
+        if (Objects.isNull(locks) || waitingLocks.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return locks.stream().filter(lock -> waitingLocks.containsKey(contextId + lock)).collect(Collectors.toSet());
+    }
+
+    /**
+     * 锁已释放，唤醒等待者
+     *
+     * @param contextId contextId
+     * @param locks     locks
+     */
+    public void signal(String contextId, Set<String> locks) {
+        List<String> lockKeys = lockKeys(contextId, locks);
+        executor.execute(() -> grant(lockKeys));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void grant(Collection<String> lockKeys) {
+        Deque<String> pending = new ArrayDeque<>(lockKeys);
+        // 自上次有等待者出队以来已重试过的锁
+        Set<String> tried = new HashSet<>();
+        while (!pending.isEmpty()) {
+            String lockKey = pending.pollFirst();
+            Deque<Waiter> queue = waitQueues.get(lockKey);
+            if (Objects.isNull(queue) || queue.isEmpty() || !tried.add(lockKey)) {
+                continue;
+            }
+            Waiter head = queue.peekFirst();
+            if (!atHead(head)) {
+                // 其它锁上有更早的等待者，先重试它们
+                pending.addAll(head.lockKeys);
+                continue;
+            }
+            // 队首未获得锁时后续等待者继续等待，保证FIFO
+            if (tryAcquire(head)) {
+                tried.removeAll(head.lockKeys);
+                pending.addAll(head.lockKeys);
+            }
+        }
+    }
+
+    /**
+     * 等待者是否在其所有锁上都排在队首
+     *
+     * @param waiter waiter
+     * @return 是否可重试
+     */
+    private boolean atHead(Waiter waiter) {
+        return waiter.lockKeys.stream().allMatch(lockKey -> {
+            Deque<Waiter> queue = waitQueues.get(lockKey);
+            return Objects.nonNull(queue) && queue.peekFirst() == waiter;
+        });
+    }
+
+    /**
+     * 重试申请锁
+     *
+     * @param waiter waiter
+     * @return 是否已出队
+     */
+    private boolean tryAcquire(Waiter waiter) {
+        try {
+            long fencingToken = fastStorage.acquireLocks(waiter.contextId, waiter.locks, waiter.lockValue);
+            finish(waiter, MessageCreator.okResponse(fencingToken, waiter.action()));
+            return true;
+        } catch (FastStorageException e) {
+            if (e.getCode() == FastStorageException.EX_CODE_REPEAT_LOCK) {
+                return false;
+            }
+            finish(waiter, MessageCreator.failResponse(new TxManagerException(e), waiter.action()));
+            return true;
+        } catch (RuntimeException e) {
+            // 存储暂不可用，继续等待，由重检或超时处理
+            log.warn("retry dtx locks fail. {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void timeout(Waiter waiter) {
+        // 超时前最后一次尝试，仍不越过更早的等待者
+        if (waiter.done || (atHead(waiter) && tryAcquire(waiter))) {
+            return;
+        }
+        finish(waiter, MessageCreator.failResponse(
+                new TxManagerException("acquire locks timeout. " + waiter.locks + " is locked."), waiter.action()));
+    }
+
+    private void finish(Waiter waiter, MessageDto messageDto) {
+        waiter.done = true;
+        if (Objects.nonNull(waiter.timeout)) {
+            waiter.timeout.cancel(false);
+        }
+        for (String lockKey : waiter.lockKeys) {
+            Deque<Waiter> queue = waitQueues.get(lockKey);
+            if (Objects.nonNull(queue)) {
+                queue.remove(waiter);
+                if (queue.isEmpty()) {
+                    waitQueues.remove(lockKey);
+                }
+            }
+            waitingLocks.computeIfPresent(lockKey, (k, count) -> count > 1 ? count - 1 : null);
+        }
+        RpcCmd rpcCmd = waiter.rpcCmd;
+        messageDto.setGroupId(rpcCmd.getMsg().getGroupId());
+        rpcCmd.setMsg(messageDto);
+        try {
+            rpcClient.send(rpcCmd);
+        } catch (RpcException | RuntimeException e) {
+            log.error("requester:{} dead. dtx lock waiter response fail.", rpcCmd.getRemoteKey());
+            // 申请者已断开，归还锁
+            Serializable data = messageDto.getData();
+            if (MessageUtils.statusOk(messageDto) && data instanceof Long) {
+                waiter.lockValue.setFencingToken((Long) data);
+                try {
+                    fastStorage.releaseLocks(waiter.contextId, waiter.locks, waiter.lockValue);
+                } catch (FastStorageException | RuntimeException e) {
+                    log.warn("release dtx locks of dead requester fail, expire in lease. {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void safeDetectDeadlocks() {
+        try {
+            detectDeadlocks();
+        } catch (Throwable e) {
+            log.error("dtx lock deadlock detection fail.", e);
+        }
+    }
+
+    /**
+     * 检测并解除死锁. 等待图的边: 等待者事务组 -> 锁持有者事务组，以及 -> 同一锁上排在前面的等待者事务组（FIFO）.
+     * 只能看到本TM的等待者，跨TM的等待环由锁等待超时兜底.
+     */
+    private void detectDeadlocks() {
+        while (!waitQueues.isEmpty()) {
+            Map<String, Set<String>> waitFor;
+            try {
+                waitFor = waitForGraph();
+            } catch (FastStorageException e) {
+                log.warn("build dtx lock wait-for graph fail. {}", e.getMessage());
+                return;
+            }
+            List<String> cycle = findCycle(waitFor);
+            if (cycle.isEmpty()) {
+                return;
+            }
+            deadlockCounter.increment();
+            String victim = youngest(cycle);
+            log.warn("dtx lock deadlock detected: {}. abort group: {}", String.join(" -> ", cycle), victim);
+            TxManagerException cause = new TxManagerException(
+                    "dtx lock deadlock detected: " + String.join(" -> ", cycle) + ". group " + victim + " is aborted.");
+            List<Waiter> victims = waiters().stream()
+                    .filter(waiter -> victim.equals(waiter.groupId())).collect(Collectors.toList());
+            if (victims.isEmpty()) {
+                return;
+            }
+            victims.forEach(waiter -> {
+                victimTimer.record(System.nanoTime() - waiter.enqueueTime, TimeUnit.NANOSECONDS);
+                finish(waiter, MessageCreator.failResponse(cause, waiter.action()));
+            });
+        }
+    }
+
+    private Map<String, Set<String>> waitForGraph() throws FastStorageException {
+        Set<Waiter> waiters = waiters();
+        Set<String> waitingGroups = waiters.stream().map(Waiter::groupId).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        // 至少两个事务组等待时才可能成环
+        if (waitingGroups.size() < 2) {
+            return Collections.emptyMap();
+        }
+        // 每个 contextId 一次批量查询锁持有者
+        Map<String, Set<String>> locksByContext = new HashMap<>();
+        waiters.forEach(waiter ->
+                locksByContext.computeIfAbsent(waiter.contextId, k -> new HashSet<>()).addAll(waiter.locks));
+        Map<String, Set<String>> holdersByLockKey = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : locksByContext.entrySet()) {
+            fastStorage.findLockHoldersByLock(entry.getKey(), entry.getValue())
+                    .forEach((lock, holders) -> holdersByLockKey.put(entry.getKey() + lock, holders));
+        }
+        Map<String, Set<String>> waitFor = new HashMap<>();
+        for (Waiter waiter : waiters) {
+            String groupId = waiter.groupId();
+            if (Objects.isNull(groupId)) {
+                continue;
+            }
+            Set<String> edges = waitFor.computeIfAbsent(groupId, k -> new HashSet<>());
+            for (String lockKey : waiter.lockKeys) {
+                // 未在等待的持有者不会在环上
+                holdersByLockKey.getOrDefault(lockKey, Collections.emptySet()).stream()
+                        .filter(waitingGroups::contains).forEach(edges::add);
+                for (Waiter ahead : waitQueues.get(lockKey)) {
+                    if (ahead == waiter) {
+                        break;
+                    }
+                    if (Objects.nonNull(ahead.groupId())) {
+                        edges.add(ahead.groupId());
+                    }
+                }
+            }
+            edges.remove(groupId);
+        }
+        return waitFor;
+    }
+
+    /**
+     * 深度优先查找一个环
+     *
+     * @param waitFor 等待图
+     * @return 环上的事务组，无环时为空
+     */
+    private static List<String> findCycle(Map<String, Set<String>> waitFor) {
+        Set<String> visited = new HashSet<>();
+        for (String start : waitFor.keySet()) {
+            LinkedList<String> path = new LinkedList<>();
+            List<String> cycle = findCycle(waitFor, start, path, new HashSet<>(), visited);
+            if (!cycle.isEmpty()) {
+                return cycle;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<String> findCycle(Map<String, Set<String>> waitFor, String node, LinkedList<String> path,
+                                          Set<String> onPath, Set<String> visited) {
+        if (onPath.contains(node)) {
+            List<String> cycle = new ArrayList<>(path.subList(path.indexOf(node), path.size()));
+            cycle.add(node);
+            return cycle;
+        }
+        if (!visited.add(node)) {
+            return Collections.emptyList();
+        }
+        path.addLast(node);
+        onPath.add(node);
+        for (String next : waitFor.getOrDefault(node, Collections.emptySet())) {
+            List<String> cycle = findCycle(waitFor, next, path, onPath, visited);
+            if (!cycle.isEmpty()) {
+                return cycle;
+            }
+        }
+        path.removeLast();
+        onPath.remove(node);
+        return Collections.emptyList();
+    }
+
+    /**
+     * 环中最年轻的事务组. 环上 groupId 均为时间有序的数字ID（SnowFlake）时取最大者，
+     * 否则取最早排队时间最晚者，相同时取 groupId 最大者
+     *
+     * @param cycle cycle
+     * @return victim groupId
+     */
+    private String youngest(List<String> cycle) {
+        List<String> groupIds = cycle.stream().distinct().collect(Collectors.toList());
+        if (groupIds.stream().allMatch(DTXLockWaitQueue::isNumeric)) {
+            return groupIds.stream().max(Comparator.<String>comparingLong(Long::parseLong)
+                    .thenComparing(Comparator.naturalOrder())).orElseThrow(IllegalStateException::new);
+        }
+        Map<String, Long> enqueueTimes = new HashMap<>();
+        for (Waiter waiter : waiters()) {
+            if (Objects.nonNull(waiter.groupId())) {
+                enqueueTimes.merge(waiter.groupId(), waiter.enqueueTime, Math::min);
+            }
+        }
+        return groupIds.stream()
+                .max(Comparator.<String>comparingLong(groupId -> enqueueTimes.getOrDefault(groupId, Long.MIN_VALUE))
+                        .thenComparing(Comparator.naturalOrder())).orElseThrow(IllegalStateException::new);
+    }
+
+    private static boolean isNumeric(String groupId) {
+        try {
+            Long.parseLong(groupId);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private Set<Waiter> waiters() {
+        Set<Waiter> waiters = new LinkedHashSet<>();
+        waitQueues.values().forEach(waiters::addAll);
+        return waiters;
+    }
+
+    private static List<String> lockKeys(String contextId, Set<String> locks) {
+        return locks.stream().map(lock -> contextId + lock).collect(Collectors.toList());
+    }
+
+    private static class Waiter {
+
+        private final RpcCmd rpcCmd;
+
+        private final String contextId;
+
+        private final Set<String> locks;
+
+        private final LockValue lockValue;
+
+        private final List<String> lockKeys;
+
+        private ScheduledFuture<?> timeout;
+
+        private boolean done;
+
+        private final long enqueueTime = System.nanoTime();
+
+        private Waiter(RpcCmd rpcCmd, String contextId, Set<String> locks, LockValue lockValue) {
+            this.rpcCmd = rpcCmd;
+            this.contextId = contextId;
+            this.locks = locks;
+            this.lockValue = lockValue;
+            this.lockKeys = lockKeys(contextId, locks);
+        }
+
+        private String groupId() {
+            return lockValue.getGroupId();
+        }
+
+        private String action() {
+            return rpcCmd.getMsg().getAction();
+        }
+    }
+}
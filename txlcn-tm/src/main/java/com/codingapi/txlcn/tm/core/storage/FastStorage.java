@@ -19,6 +19,7 @@ import com.codingapi.txlcn.common.exception.FastStorageException;
 import com.codingapi.txlcn.tm.cluster.TMProperties;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -95,23 +96,55 @@ public interface FastStorage {
 
     /**
      * get lock
-     * note: lock info should clean by self after DTX time
+     * note: lock is a lease, should clean by self after DTX lock time unless renewed
      *
      * @param contextId contextId
      * @param locks     locks
      * @param lockValue lockValue
+     * @return fencing token, increases monotonically
      * @throws FastStorageException fastStorageException
      */
-    void acquireLocks(String contextId, Set<String> locks, LockValue lockValue) throws FastStorageException;
+    long acquireLocks(String contextId, Set<String> locks, LockValue lockValue) throws FastStorageException;
 
     /**
      * unlock
+     * note: release lockValue's group holder only, all holders when group not specified.
+     * a holder acquired after lockValue's fencing token is kept.
      *
      * @param contextId contextId
      * @param locks     locks
+     * @param lockValue lockValue
      * @throws FastStorageException fastStorageException
      */
-    void releaseLocks(String contextId, Set<String> locks) throws FastStorageException;
+    void releaseLocks(String contextId, Set<String> locks, LockValue lockValue) throws FastStorageException;
+
+    /**
+     * renew lock lease of groups
+     *
+     * @param groupIds groupIds
+     * @throws FastStorageException fastStorageException
+     */
+    void renewLocks(Set<String> groupIds) throws FastStorageException;
+
+    /**
+     * find groups holding any of the locks. anonymous holders excluded.
+     *
+     * @param contextId contextId
+     * @param locks     locks
+     * @return holder groupIds
+     * @throws FastStorageException fastStorageException
+     */
+    Set<String> findLockHolders(String contextId, Set<String> locks) throws FastStorageException;
+
+    /**
+     * find groups holding each of the locks in one batch. anonymous holders excluded.
+     *
+     * @param contextId contextId
+     * @param locks     locks
+     * @return lock -> holder groupIds, locks not held are absent
+     * @throws FastStorageException fastStorageException
+     */
+    Map<String, Set<String>> findLockHoldersByLock(String contextId, Set<String> locks) throws FastStorageException;
 
 
 
@@ -182,4 +215,13 @@ public interface FastStorage {
      * @throws FastStorageException FastStorageException
      */
     int acquireOrRefreshMachineId(int machineId, long machineMaxSize, long timeout) throws FastStorageException;
+
+    /**
+     * 批量刷新MachineID的租约
+     *
+     * @param machineIds machineIds
+     * @param timeout    超时删除
+     * @throws FastStorageException FastStorageException
+     */
+    void refreshMachineIds(Set<Integer> machineIds, long timeout) throws FastStorageException;
 }
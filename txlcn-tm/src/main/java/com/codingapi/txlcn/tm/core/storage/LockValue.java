@@ -36,4 +36,9 @@ public class LockValue implements Serializable {
      * 锁类型
      */
     private int lockType;
+
+    /**
+     * 锁持有凭证
+     */
+    private long fencingToken;
 }
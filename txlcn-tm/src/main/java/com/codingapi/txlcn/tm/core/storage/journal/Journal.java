@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Description: memory-mapped, segment-rotated write-ahead journal.
+ * record: int length, int crc32, body. a zero length ends the segment (new segment file is zero filled),
+ * a crc mismatch is a torn write and ends the segment too.
+ * a snapshot-N file holds the state of every record before segment N, so segments before N are deleted.
+ * appends always go to a new segment after restart.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+public class Journal implements AutoCloseable {
+
+    private static final String SEGMENT_FORMAT = "journal-%020d.log";
+
+    private static final String SNAPSHOT_FORMAT = "snapshot-%020d.snap";
+
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("journal-(\\d{20})\\.log");
+
+    private static final Pattern SNAPSHOT_PATTERN = Pattern.compile("snapshot-(\\d{20})\\.snap");
+
+    private static final int RECORD_HEADER = 8;
+
+    private final Path dir;
+
+    private final int segmentSize;
+
+    private long segmentSeq;
+
+    private FileChannel channel;
+
+    private volatile MappedByteBuffer buffer;
+
+    public Journal(Path dir, int segmentSize) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * @return seq of latest snapshot, -1 when non snapshot
+     * @throws IOException IOException
+     */
+    public long latestSnapshotSeq() throws IOException {
+        List<Long> seqs = list(SNAPSHOT_PATTERN);
+        return seqs.isEmpty() ? -1 : seqs.get(seqs.size() - 1);
+    }
+
+    public byte[] readSnapshot(long seq) throws IOException {
+        return Files.readAllBytes(dir.resolve(String.format(SNAPSHOT_FORMAT, seq)));
+    }
+
+    /**
+     * replays records of segments from seq in order
+     *
+     * @param fromSeq first segment
+     * @param handler record body handler
+     * @throws IOException IOException
+     */
+    public void replay(long fromSeq, Consumer<ByteBuffer> handler) throws IOException {
+        for (long seq : list(SEGMENT_PATTERN)) {
+            if (seq < fromSeq) {
+                continue;
+            }
+            try (FileChannel segment = FileChannel.open(segmentPath(seq), StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = segment.map(FileChannel.MapMode.READ_ONLY, 0, segment.size());
+                CRC32 crc32 = new CRC32();
+                while (mapped.remaining() >= RECORD_HEADER) {
+                    int length = mapped.getInt();
+                    int crc = mapped.getInt();
+                    if (length <= 0 || length > mapped.remaining()) {
+                        break;
+                    }
+                    ByteBuffer body = mapped.slice();
+                    body.limit(length);
+                    crc32.reset();
+                    crc32.update(body.duplicate());
+                    if ((int) crc32.getValue() != crc) {
+                        log.warn("journal segment {} has a torn record at {}, ignored the rest.", seq,
+                                mapped.position() - RECORD_HEADER);
+                        break;
+                    }
+                    handler.accept(body);
+                    mapped.position(mapped.position() + length);
+                }
+            }
+        }
+    }
+
+    /**
+     * opens a new segment for appending
+     *
+     * @return seq of the segment
+     * @throws IOException IOException
+     */
+    public synchronized long openSegment() throws IOException {
+        List<Long> seqs = list(SEGMENT_PATTERN);
+        long next = Math.max(seqs.isEmpty() ? 0 : seqs.get(seqs.size() - 1) + 1, latestSnapshotSeq());
+        mapSegment(next, segmentSize);
+        return next;
+    }
+
+    public synchronized void append(byte[] body) throws IOException {
+        if (buffer.remaining() < RECORD_HEADER + body.length) {
+            rotate(RECORD_HEADER + body.length);
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(body);
+        // body first, a crash before length is written leaves the record invisible
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER);
+        buffer.put(body);
+        buffer.putInt(start + 4, (int) crc32.getValue());
+        buffer.putInt(start, body.length);
+    }
+
+    /**
+     * seals current segment and opens next
+     *
+     * @return seq of new segment
+     * @throws IOException IOException
+     */
+    public synchronized long rotate() throws IOException {
+        return rotate(0);
+    }
+
+    /**
+     * flushes appended records to disk
+     */
+    public void force() {
+        MappedByteBuffer current = buffer;
+        if (Objects.nonNull(current)) {
+            current.force();
+        }
+    }
+
+    public synchronized long currentSeq() {
+        return segmentSeq;
+    }
+
+    /**
+     * writes snapshot of every record before segment seq, then deletes those segments and older snapshots
+     *
+     * @param seq  first segment not in snapshot
+     * @param data snapshot
+     * @throws IOException IOException
+     */
+    public void writeSnapshot(long seq, byte[] data) throws IOException {
+        Path tmp = dir.resolve(String.format(SNAPSHOT_FORMAT, seq) + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer src = ByteBuffer.wrap(data);
+            while (src.hasRemaining()) {
+                out.write(src);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, dir.resolve(String.format(SNAPSHOT_FORMAT, seq)), StandardCopyOption.ATOMIC_MOVE);
+        for (long old : list(SEGMENT_PATTERN)) {
+            if (old < seq) {
+                Files.deleteIfExists(segmentPath(old));
+            }
+        }
+        for (long old : list(SNAPSHOT_PATTERN)) {
+            if (old < seq) {
+                Files.deleteIfExists(dir.resolve(String.format(SNAPSHOT_FORMAT, old)));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        if (Objects.nonNull(channel)) {
+            channel.close();
+        }
+    }
+
+    private long rotate(int minSize) throws IOException {
+        force();
+        channel.close();
+        mapSegment(segmentSeq + 1, Math.max(segmentSize, minSize));
+        return segmentSeq;
+    }
+
+    private void mapSegment(long seq, int size) throws IOException {
+        channel = FileChannel.open(segmentPath(seq), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segmentSeq = seq;
+    }
+
+    private Path segmentPath(long seq) {
+        return dir.resolve(String.format(SEGMENT_FORMAT, seq));
+    }
+
+    private List<Long> list(Pattern pattern) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> pattern.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
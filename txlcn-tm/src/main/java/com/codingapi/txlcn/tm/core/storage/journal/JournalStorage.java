@@ -0,0 +1,480 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.journal;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import com.codingapi.txlcn.tm.core.storage.memory.MemorySnapshot;
+import com.codingapi.txlcn.tm.core.storage.memory.MemoryStorage;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: crash-safe FastStorage for single TM deployment. state is kept in memory (MemoryStorage),
+ * every group, lock and machine id mutation is appended to a memory-mapped journal before it returns.
+ * startup loads the latest snapshot and replays later segments with the original timestamps,
+ * so expirations survive restart. sealed segments are compacted into a snapshot in background.
+ * records reach disk on process crash at once, on OS crash after the journal sync interval.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+public class JournalStorage extends MemoryStorage {
+
+    private static final byte INIT_GROUP = 1;
+
+    private static final byte JOIN_GROUP = 2;
+
+    private static final byte CLEAR_GROUP = 3;
+
+    private static final byte SAVE_STATE = 4;
+
+    private static final byte ACQUIRE_LOCKS = 5;
+
+    private static final byte RELEASE_LOCKS = 6;
+
+    private static final byte RENEW_LOCKS = 7;
+
+    private static final byte LEASE_MACHINE_IDS = 8;
+
+    private static final long COMPACT_CHECK_INTERVAL = 10000;
+
+    private final TxManagerConfig managerConfig;
+
+    private final Journal journal;
+
+    private final ScheduledExecutorService maintainer;
+
+    /**
+     * mutations are applied and journaled in the same order
+     */
+    private final Object mutex = new Object();
+
+    /**
+     * clock of current mutation, record's timestamp when replay, -1 is wall clock
+     */
+    private volatile long clock = -1;
+
+    private long snapshotSeq;
+
+    public JournalStorage(TxManagerConfig managerConfig) {
+        super(managerConfig);
+        this.managerConfig = managerConfig;
+        try {
+            this.journal = new Journal(Paths.get(managerConfig.getJournalDir()), managerConfig.getJournalSegmentSize());
+            recover();
+        } catch (IOException e) {
+            throw new IllegalStateException("journal recovery fail. dir: " + managerConfig.getJournalDir(), e);
+        }
+        this.maintainer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("tm-storage-journal").build());
+        if (managerConfig.getJournalSyncInterval() > 0) {
+            this.maintainer.scheduleWithFixedDelay(journal::force, managerConfig.getJournalSyncInterval(),
+                    managerConfig.getJournalSyncInterval(), TimeUnit.MILLISECONDS);
+        }
+        this.maintainer.scheduleWithFixedDelay(this::compactIfNecessary, COMPACT_CHECK_INTERVAL,
+                COMPACT_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void initGroup(String groupId) {
+        synchronized (mutex) {
+            try {
+                clock = System.currentTimeMillis();
+                super.initGroup(groupId);
+                append(INIT_GROUP, out -> {
+                    out.writeLong(clock);
+                    out.writeUTF(groupId);
+                });
+            } finally {
+                clock = -1;
+            }
+        }
+    }
+
+    @Override
+    public void saveTransactionUnitToGroup(String groupId, TransactionUnit transactionUnit) throws FastStorageException {
+        synchronized (mutex) {
+            try {
+                clock = System.currentTimeMillis();
+                super.saveTransactionUnitToGroup(groupId, transactionUnit);
+                append(JOIN_GROUP, out -> {
+                    out.writeLong(clock);
+                    out.writeUTF(groupId);
+                    writeNullable(out, transactionUnit.getUnitId());
+                    writeNullable(out, transactionUnit.getModId());
+                    writeNullable(out, transactionUnit.getUnitType());
+                });
+            } finally {
+                clock = -1;
+            }
+        }
+    }
+
+    @Override
+    public void clearGroup(String groupId) {
+        synchronized (mutex) {
+            try {
+                clock = System.currentTimeMillis();
+                super.clearGroup(groupId);
+                append(CLEAR_GROUP, out -> {
+                    out.writeLong(clock);
+                    out.writeUTF(groupId);
+                });
+            } finally {
+                clock = -1;
+            }
+        }
+    }
+
+    @Override
+    public void saveTransactionState(String groupId, int state) {
+        synchronized (mutex) {
+            try {
+                clock = System.currentTimeMillis();
+                super.saveTransactionState(groupId, state);
+                append(SAVE_STATE, out -> {
+                    out.writeLong(clock);
+                    out.writeUTF(groupId);
+                    out.writeInt(state);
+                });
+            } finally {
+                clock = -1;
+            }
+        }
+    }
+
+    @Override
+    public long acquireLocks(String contextId, Set<String> locks, LockValue lockValue) throws FastStorageException {
+        synchronized (mutex) {
+            try {
+                clock = System.currentTimeMillis();
+                long fencingToken = super.acquireLocks(contextId, locks, lockValue);
+                if (fencingToken > 0) {
+                    append(ACQUIRE_LOCKS, out -> {
+                        out.writeLong(clock);
+                        out.writeUTF(contextId);
+                        writeStrings(out, locks);
+                        writeNullable(out, lockValue.getGroupId());
+                        out.writeInt(lockValue.getLockType());
+                        out.writeLong(fencingToken);
+                    });
+                }
+                return fencingToken;
+            } finally {
+                clock = -1;
+            }
+        }
+    }
+
+    @Override
+    public void releaseLocks(String contextId, Set<String> locks, LockValue lockValue) {
+        synchronized (mutex) {
+            try {
+                clock = System.currentTimeMillis();
+                super.releaseLocks(contextId, locks, lockValue);
+                if (Objects.isNull(locks) || locks.isEmpty()) {
+                    return;
+                }
+                append(RELEASE_LOCKS, out -> {
+                    out.writeLong(clock);
+                    out.writeUTF(contextId);
+                    writeStrings(out, locks);
+                    out.writeBoolean(Objects.nonNull(lockValue));
+                    if (Objects.nonNull(lockValue)) {
+                        writeNullable(out, lockValue.getGroupId());
+                        out.writeInt(lockValue.getLockType());
+                        out.writeLong(lockValue.getFencingToken());
+                    }
+                });
+            } finally {
+                clock = -1;
+            }
+        }
+    }
+
+    @Override
+    public void renewLocks(Set<String> groupIds) {
+        synchronized (mutex) {
+            try {
+                clock = System.currentTimeMillis();
+                super.renewLocks(groupIds);
+                if (Objects.isNull(groupIds) || groupIds.isEmpty()) {
+                    return;
+                }
+                append(RENEW_LOCKS, out -> {
+                    out.writeLong(clock);
+                    writeStrings(out, groupIds);
+                });
+            } finally {
+                clock = -1;
+            }
+        }
+    }
+
+    @Override
+    public int acquireOrRefreshMachineId(int machineId, long machineMaxSize, long timeout)
+            throws FastStorageException {
+        synchronized (mutex) {
+            try {
+                clock = System.currentTimeMillis();
+                int acquired = super.acquireOrRefreshMachineId(machineId, machineMaxSize, timeout);
+                // replays the leased id, not the acquire, so the same id comes back
+                int leased = machineId >= 0 ? machineId : acquired;
+                append(LEASE_MACHINE_IDS, out -> {
+                    out.writeLong(clock);
+                    out.writeLong(timeout);
+                    out.writeInt(1);
+                    out.writeInt(leased);
+                });
+                return acquired;
+            } finally {
+                clock = -1;
+            }
+        }
+    }
+
+    @Override
+    public void refreshMachineIds(Set<Integer> machineIds, long timeout) {
+        synchronized (mutex) {
+            try {
+                clock = System.currentTimeMillis();
+                super.refreshMachineIds(machineIds, timeout);
+                if (Objects.isNull(machineIds) || machineIds.isEmpty()) {
+                    return;
+                }
+                append(LEASE_MACHINE_IDS, out -> {
+                    out.writeLong(clock);
+                    out.writeLong(timeout);
+                    out.writeInt(machineIds.size());
+                    for (int machineId : machineIds) {
+                        out.writeInt(machineId);
+                    }
+                });
+            } finally {
+                clock = -1;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        maintainer.shutdownNow();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.error("close journal error.", e);
+        }
+        super.close();
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+        long now = clock;
+        return now < 0 ? System.currentTimeMillis() : now;
+    }
+
+    private void recover() throws IOException {
+        long start = System.currentTimeMillis();
+        snapshotSeq = journal.latestSnapshotSeq();
+        if (snapshotSeq >= 0) {
+            restore(MemorySnapshot.decode(journal.readSnapshot(snapshotSeq)));
+        }
+        long[] replayed = {0};
+        journal.replay(Math.max(snapshotSeq, 0), body -> {
+            replayed[0]++;
+            try {
+                replay(body);
+            } catch (IOException | FastStorageException e) {
+                log.warn("skip journal record. {}", e.getMessage());
+            }
+        });
+        clock = -1;
+        journal.openSegment();
+        log.info("journal recovered. snapshot: {}, records: {}, cost: {}ms",
+                snapshotSeq, replayed[0], System.currentTimeMillis() - start);
+    }
+
+    private void replay(ByteBuffer body) throws IOException, FastStorageException {
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(body));
+        byte type = in.readByte();
+        switch (type) {
+            case INIT_GROUP:
+                clock = in.readLong();
+                super.initGroup(in.readUTF());
+                return;
+            case JOIN_GROUP:
+                clock = in.readLong();
+                String groupId = in.readUTF();
+                TransactionUnit unit = new TransactionUnit();
+                unit.setUnitId(readNullable(in));
+                unit.setModId(readNullable(in));
+                unit.setUnitType(readNullable(in));
+                if (super.containsGroup(groupId)) {
+                    super.saveTransactionUnitToGroup(groupId, unit);
+                }
+                return;
+            case CLEAR_GROUP:
+                clock = in.readLong();
+                super.clearGroup(in.readUTF());
+                return;
+            case SAVE_STATE:
+                clock = in.readLong();
+                String stateGroupId = in.readUTF();
+                super.saveTransactionState(stateGroupId, in.readInt());
+                return;
+            case ACQUIRE_LOCKS:
+                clock = in.readLong();
+                String contextId = in.readUTF();
+                Set<String> locks = readStrings(in);
+                LockValue lockValue = new LockValue();
+                lockValue.setGroupId(readNullable(in));
+                lockValue.setLockType(in.readInt());
+                long fencingToken = in.readLong();
+                // same token as issued, the holder releases with it
+                advanceFencing(fencingToken - 1);
+                super.acquireLocks(contextId, locks, lockValue);
+                advanceFencing(fencingToken);
+                return;
+            case RELEASE_LOCKS:
+                clock = in.readLong();
+                String releaseContextId = in.readUTF();
+                Set<String> releaseLocks = readStrings(in);
+                LockValue releaseLockValue = null;
+                if (in.readBoolean()) {
+                    releaseLockValue = new LockValue();
+                    releaseLockValue.setGroupId(readNullable(in));
+                    releaseLockValue.setLockType(in.readInt());
+                    releaseLockValue.setFencingToken(in.readLong());
+                }
+                super.releaseLocks(releaseContextId, releaseLocks, releaseLockValue);
+                return;
+            case RENEW_LOCKS:
+                clock = in.readLong();
+                super.renewLocks(readStrings(in));
+                return;
+            case LEASE_MACHINE_IDS:
+                clock = in.readLong();
+                long timeout = in.readLong();
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    leaseMachineId(in.readInt(), timeout);
+                }
+                return;
+            default:
+                throw new IOException("unknown journal record type " + type);
+        }
+    }
+
+    private void compactIfNecessary() {
+        try {
+            if (journal.currentSeq() <= Math.max(snapshotSeq, 0)) {
+                return;
+            }
+            long seq;
+            MemorySnapshot snapshot;
+            synchronized (mutex) {
+                seq = journal.rotate();
+                snapshot = snapshot();
+            }
+            journal.writeSnapshot(seq, snapshot.encode());
+            snapshotSeq = seq;
+            log.debug("journal compacted into snapshot {}. groups: {}, locks: {}",
+                    seq, snapshot.getGroups().size(), snapshot.getLocks().size());
+        } catch (Throwable e) {
+            log.error("journal compaction error.", e);
+        }
+    }
+
+    private void append(byte type, RecordWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            writer.write(out);
+            journal.append(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("journal append error.", e);
+        }
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(Objects.nonNull(value));
+        if (Objects.nonNull(value)) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutput out, Set<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static Set<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        Set<String> values = new HashSet<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.memory;
+
+import com.codingapi.txlcn.tm.cluster.TMProperties;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Description: point-in-time copy of MemoryStorage: groups, states, DTX locks, fencing, admin tokens,
+ * TM instances and machine ids.
+ * expire times are absolute (epoch ms). encoded compactly by {@link #encode()}.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Data
+public class MemorySnapshot {
+
+    private long fencing;
+
+    private List<Group> groups = new ArrayList<>();
+
+    private List<State> states = new ArrayList<>();
+
+    private List<DTXLock> locks = new ArrayList<>();
+
+    private List<LockIndex> lockIndexes = new ArrayList<>();
+
+    private List<String> tokens = new ArrayList<>();
+
+    private long tokensExpireAt;
+
+    private List<TMProperties> tmProperties = new ArrayList<>();
+
+    /**
+     * machineId -> expireAt
+     */
+    private Map<Integer, Long> machineIds = new HashMap<>();
+
+    private int curMachineId = -1;
+
+    /**
+     * binary form of snapshot
+     *
+     * @return bytes
+     * @throws IOException IOException
+     */
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes));
+        out.writeLong(fencing);
+        out.writeInt(groups.size());
+        for (Group group : groups) {
+            out.writeUTF(group.getGroupId());
+            out.writeLong(group.getExpireAt());
+            out.writeInt(group.getUnits().size());
+            for (TransactionUnit unit : group.getUnits()) {
+                writeNullable(out, unit.getUnitId());
+                writeNullable(out, unit.getModId());
+                writeNullable(out, unit.getUnitType());
+            }
+        }
+        out.writeInt(states.size());
+        for (State state : states) {
+            out.writeUTF(state.getGroupId());
+            out.writeInt(state.getState());
+            out.writeLong(state.getExpireAt());
+        }
+        out.writeInt(locks.size());
+        for (DTXLock lock : locks) {
+            out.writeUTF(lock.getLockKey());
+            out.writeInt(lock.getMode());
+            out.writeLong(lock.getExpireAt());
+            out.writeInt(lock.getHolders().size());
+            for (Map.Entry<String, Long> holder : lock.getHolders().entrySet()) {
+                out.writeUTF(holder.getKey());
+                out.writeLong(holder.getValue());
+            }
+        }
+        out.writeInt(lockIndexes.size());
+        for (LockIndex index : lockIndexes) {
+            out.writeUTF(index.getGroupId());
+            out.writeLong(index.getExpireAt());
+            writeStrings(out, index.getLockKeys());
+        }
+        writeStrings(out, tokens);
+        out.writeLong(tokensExpireAt);
+        out.writeInt(tmProperties.size());
+        for (TMProperties properties : tmProperties) {
+            out.writeUTF(properties.getHost());
+            out.writeInt(properties.getTransactionPort());
+            out.writeInt(Optional.ofNullable(properties.getHttpPort()).orElse(-1));
+        }
+        out.writeInt(machineIds.size());
+        for (Map.Entry<Integer, Long> machineId : machineIds.entrySet()) {
+            out.writeInt(machineId.getKey());
+            out.writeLong(machineId.getValue());
+        }
+        out.writeInt(curMachineId);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * snapshot of binary form
+     *
+     * @param data bytes of {@link #encode()}
+     * @return snapshot
+     * @throws IOException IOException
+     */
+    public static MemorySnapshot decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        MemorySnapshot snapshot = new MemorySnapshot();
+        snapshot.setFencing(in.readLong());
+        for (int i = in.readInt(); i > 0; i--) {
+            String groupId = in.readUTF();
+            long expireAt = in.readLong();
+            List<TransactionUnit> units = new ArrayList<>();
+            for (int j = in.readInt(); j > 0; j--) {
+                TransactionUnit unit = new TransactionUnit();
+                unit.setUnitId(readNullable(in));
+                unit.setModId(readNullable(in));
+                unit.setUnitType(readNullable(in));
+                units.add(unit);
+            }
+            snapshot.getGroups().add(new Group(groupId, expireAt, units));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            snapshot.getStates().add(new State(in.readUTF(), in.readInt(), in.readLong()));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            String lockKey = in.readUTF();
+            int mode = in.readInt();
+            long expireAt = in.readLong();
+            Map<String, Long> holders = new HashMap<>();
+            for (int j = in.readInt(); j > 0; j--) {
+                holders.put(in.readUTF(), in.readLong());
+            }
+            snapshot.getLocks().add(new DTXLock(lockKey, mode, expireAt, holders));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            snapshot.getLockIndexes().add(new LockIndex(in.readUTF(), in.readLong(), new HashSet<>(readStrings(in))));
+        }
+        snapshot.setTokens(readStrings(in));
+        snapshot.setTokensExpireAt(in.readLong());
+        for (int i = in.readInt(); i > 0; i--) {
+            TMProperties properties = new TMProperties();
+            properties.setHost(in.readUTF());
+            properties.setTransactionPort(in.readInt());
+            int httpPort = in.readInt();
+            properties.setHttpPort(httpPort < 0 ? null : httpPort);
+            snapshot.getTmProperties().add(properties);
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            snapshot.getMachineIds().put(in.readInt(), in.readLong());
+        }
+        snapshot.setCurMachineId(in.readInt());
+        return snapshot;
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(Objects.nonNull(value));
+        if (Objects.nonNull(value)) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Data
+    public static class Group {
+        private String groupId;
+        private long expireAt;
+        private List<TransactionUnit> units;
+    }
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Data
+    public static class State {
+        private String groupId;
+        private int state;
+        private long expireAt;
+    }
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Data
+    public static class DTXLock {
+        private String lockKey;
+        private int mode;
+        private long expireAt;
+        private Map<String, Long> holders;
+    }
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Data
+    public static class LockIndex {
+        private String groupId;
+        private long expireAt;
+        private Set<String> lockKeys;
+    }
+}
@@ -0,0 +1,653 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.memory;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.common.lock.DTXLocks;
+import com.codingapi.txlcn.common.util.ApplicationInformation;
+import com.codingapi.txlcn.tm.cluster.TMProperties;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.FastStorage;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import com.google.common.util.concurrent.Striped;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+/**
+ * Description: in-process FastStorage for single TM deployment, non redis required.
+ * groups, states and DTX locks are concurrent maps, multi-key lock operations are atomic under striped locks.
+ * expirations are the same as RedisStorage, driven by a hierarchical timing wheel and checked lazily on read.
+ * data lost when TM restarts.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+public class MemoryStorage implements FastStorage, AutoCloseable {
+
+    private static final int LOCK_STRIPES = 1024;
+
+    private static final long TOKEN_TTL = TimeUnit.MINUTES.toMillis(20);
+
+    private static final int MAX_TOKENS = 3;
+
+    private final TxManagerConfig managerConfig;
+
+    private final TimingWheel timingWheel = new TimingWheel(10, 64, "tm-storage-expiration");
+
+    private final ConcurrentMap<String, Expiring<ConcurrentMap<String, TransactionUnit>>> groups =
+            new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Expiring<Integer>> states = new ConcurrentHashMap<>();
+
+    /**
+     * contextId + lockId -> lock
+     */
+    private final ConcurrentMap<String, DTXLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * groupId -> lock keys
+     */
+    private final ConcurrentMap<String, Expiring<Set<String>>> groupLocks = new ConcurrentHashMap<>();
+
+    private final Striped<Lock> lockStripes = Striped.lock(LOCK_STRIPES);
+
+    private final AtomicLong fencing = new AtomicLong();
+
+    private final LinkedList<String> tokens = new LinkedList<>();
+
+    private long tokensExpireAt;
+
+    private final ConcurrentMap<String, TMProperties> tmPropertiesMap = new ConcurrentHashMap<>();
+
+    /**
+     * machineId -> lease. guarded by this, leases are never expired by timer but reused in acquiring
+     */
+    private final Map<Integer, MachineLease> machineIds = new HashMap<>();
+
+    /**
+     * leases in expiration order, the first expired one is reused
+     */
+    private final TreeSet<MachineLease> machineLeases = new TreeSet<>();
+
+    /**
+     * largest machine id ever acquired
+     */
+    private int curMachineId = -1;
+
+    public MemoryStorage(TxManagerConfig managerConfig) {
+        this.managerConfig = managerConfig;
+    }
+
+    @Override
+    public void initGroup(String groupId) {
+        Expiring<ConcurrentMap<String, TransactionUnit>> group =
+                new Expiring<>(new ConcurrentHashMap<>(), groupExpireAt());
+        groups.put(groupId, group);
+        expireLater(groups, groupId, group, null);
+    }
+
+    @Override
+    public boolean containsGroup(String groupId) {
+        return Objects.nonNull(alive(groups, groupId));
+    }
+
+    @Override
+    public List<TransactionUnit> findTransactionUnitsFromGroup(String groupId) {
+        Expiring<ConcurrentMap<String, TransactionUnit>> group = alive(groups, groupId);
+        if (Objects.isNull(group)) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(group.value.values());
+    }
+
+    @Override
+    public void saveTransactionUnitToGroup(String groupId, TransactionUnit transactionUnit) throws FastStorageException {
+        Expiring<ConcurrentMap<String, TransactionUnit>> group = alive(groups, groupId);
+        if (Objects.isNull(group)) {
+            throw new FastStorageException("attempts to the non-existent transaction group " + groupId,
+                    FastStorageException.EX_CODE_NON_GROUP);
+        }
+        group.value.put(transactionUnit.getUnitId(), transactionUnit);
+    }
+
+    @Override
+    public void clearGroup(String groupId) {
+        log.debug("remove group:{} from memory.", groupId);
+        groups.remove(groupId);
+    }
+
+    @Override
+    public void saveTransactionState(String groupId, int state) {
+        Expiring<Integer> expiring = new Expiring<>(state, groupExpireAt());
+        states.put(groupId, expiring);
+        expireLater(states, groupId, expiring, null);
+    }
+
+    @Override
+    public int getTransactionState(String groupId) {
+        Expiring<Integer> state = alive(states, groupId);
+        return Objects.isNull(state) ? -1 : state.value;
+    }
+
+    @Override
+    public long acquireLocks(String contextId, Set<String> locks, LockValue lockValue) throws FastStorageException {
+        // 未申请锁则为申请正常
+        if (Objects.isNull(locks) || locks.isEmpty()) {
+            return 0;
+        }
+        String groupId = Optional.ofNullable(lockValue.getGroupId()).orElse("");
+        List<String> lockIds = new ArrayList<>(locks);
+        List<String> lockKeys = lockIds.stream().map(lockId -> contextId + lockId).collect(Collectors.toList());
+        List<Lock> stripes = lockAll(lockKeys);
+        try {
+            // check every key first, then grants all
+            for (int i = 0; i < lockKeys.size(); i++) {
+                DTXLock dtxLock = alive(this.locks, lockKeys.get(i));
+                if (Objects.isNull(dtxLock)) {
+                    continue;
+                }
+                int others = dtxLock.value.size();
+                if (!groupId.isEmpty() && dtxLock.value.containsKey(groupId)) {
+                    others--;
+                }
+                if (others > 0 && (dtxLock.mode == DTXLocks.X_LOCK || lockValue.getLockType() == DTXLocks.X_LOCK)) {
+                    throw new FastStorageException("acquire locks fail. " + lockIds.get(i) + " is locked.",
+                            FastStorageException.EX_CODE_REPEAT_LOCK);
+                }
+            }
+            long token = fencing.incrementAndGet();
+            long leaseExpireAt = currentTimeMillis() + managerConfig.getDtxLockTime();
+            for (String lockKey : lockKeys) {
+                DTXLock dtxLock = alive(this.locks, lockKey);
+                if (Objects.isNull(dtxLock)) {
+                    dtxLock = new DTXLock(leaseExpireAt);
+                    this.locks.put(lockKey, dtxLock);
+                    expireLater(this.locks, lockKey, dtxLock, lockStripes.get(lockKey));
+                }
+                if (lockValue.getLockType() == DTXLocks.X_LOCK || dtxLock.value.isEmpty()) {
+                    dtxLock.mode = lockValue.getLockType();
+                }
+                dtxLock.value.put(groupId, token);
+                dtxLock.extend(leaseExpireAt);
+            }
+            if (!groupId.isEmpty()) {
+                Expiring<Set<String>> index = groupLocks.compute(groupId, (k, old) ->
+                        Objects.isNull(old) || old.expired(currentTimeMillis()) ?
+                                new Expiring<>(ConcurrentHashMap.newKeySet(), leaseExpireAt) : old);
+                index.value.addAll(lockKeys);
+                index.extend(leaseExpireAt);
+                expireLater(groupLocks, groupId, index, null);
+            }
+            return token;
+        } finally {
+            stripes.forEach(Lock::unlock);
+        }
+    }
+
+    @Override
+    public void releaseLocks(String contextId, Set<String> locks, LockValue lockValue) {
+        if (Objects.isNull(locks) || locks.isEmpty()) {
+            return;
+        }
+        List<String> lockKeys = locks.stream().map(lock -> contextId + lock).collect(Collectors.toList());
+        List<Lock> stripes = lockAll(lockKeys);
+        try {
+            // all holders when group not specified
+            if (Objects.isNull(lockValue) || Objects.isNull(lockValue.getGroupId())) {
+                lockKeys.forEach(this.locks::remove);
+                return;
+            }
+            String groupId = lockValue.getGroupId();
+            Expiring<Set<String>> index = groupLocks.get(groupId);
+            for (String lockKey : lockKeys) {
+                DTXLock dtxLock = alive(this.locks, lockKey);
+                if (Objects.isNull(dtxLock)) {
+                    continue;
+                }
+                Long held = dtxLock.value.get(groupId);
+                // a holder acquired after the fencing token is kept
+                if (Objects.nonNull(held) && (lockValue.getFencingToken() == 0 || held <= lockValue.getFencingToken())) {
+                    dtxLock.value.remove(groupId);
+                    if (Objects.nonNull(index)) {
+                        index.value.remove(lockKey);
+                    }
+                    if (dtxLock.value.isEmpty()) {
+                        this.locks.remove(lockKey, dtxLock);
+                    }
+                }
+            }
+        } finally {
+            stripes.forEach(Lock::unlock);
+        }
+    }
+
+    @Override
+    public void renewLocks(Set<String> groupIds) {
+        if (Objects.isNull(groupIds) || groupIds.isEmpty()) {
+            return;
+        }
+        long leaseExpireAt = currentTimeMillis() + managerConfig.getDtxLockTime();
+        for (String groupId : groupIds) {
+            Expiring<Set<String>> index = alive(groupLocks, groupId);
+            if (Objects.isNull(index) || index.value.isEmpty()) {
+                continue;
+            }
+            for (String lockKey : index.value) {
+                DTXLock dtxLock = unexpired(this.locks, lockKey);
+                if (Objects.nonNull(dtxLock)) {
+                    dtxLock.extend(leaseExpireAt);
+                }
+            }
+            index.extend(leaseExpireAt);
+        }
+    }
+
+    @Override
+    public Set<String> findLockHolders(String contextId, Set<String> locks) {
+        if (Objects.isNull(locks) || locks.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> holders = new HashSet<>();
+        for (String lock : locks) {
+            DTXLock dtxLock = unexpired(this.locks, contextId + lock);
+            if (Objects.nonNull(dtxLock)) {
+                holders.addAll(dtxLock.value.keySet());
+            }
+        }
+        // anonymous holder excluded
+        holders.remove("");
+        return holders;
+    }
+
+    @Override
+    public Map<String, Set<String>> findLockHoldersByLock(String contextId, Set<String> locks) {
+        if (Objects.isNull(locks) || locks.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Set<String>> holders = new HashMap<>();
+        for (String lock : locks) {
+            DTXLock dtxLock = unexpired(this.locks, contextId + lock);
+            if (Objects.nonNull(dtxLock)) {
+                Set<String> lockHolders = new HashSet<>(dtxLock.value.keySet());
+                lockHolders.remove("");
+                if (!lockHolders.isEmpty()) {
+                    holders.put(lock, lockHolders);
+                }
+            }
+        }
+        return holders;
+    }
+
+    @Override
+    public synchronized void saveToken(String token) {
+        Objects.requireNonNull(token);
+        if (tokensExpireAt <= currentTimeMillis()) {
+            tokens.clear();
+        }
+        tokens.addFirst(token);
+        tokensExpireAt = currentTimeMillis() + TOKEN_TTL;
+        if (tokens.size() > MAX_TOKENS) {
+            tokens.removeLast();
+        }
+    }
+
+    @Override
+    public synchronized List<String> findTokens() {
+        if (tokensExpireAt <= currentTimeMillis()) {
+            tokens.clear();
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    @Override
+    public synchronized void removeToken(String token) {
+        tokens.clear();
+    }
+
+    @Override
+    public void saveTMProperties(TMProperties tmProperties) {
+        Objects.requireNonNull(tmProperties);
+        tmPropertiesMap.put(tmProperties.getHost() + ":" + tmProperties.getTransactionPort(), tmProperties);
+    }
+
+    @Override
+    public List<TMProperties> findTMProperties() {
+        return tmPropertiesMap.entrySet().stream()
+                .map(entry -> {
+                    String[] args = ApplicationInformation.splitAddress(entry.getKey());
+                    TMProperties tmProperties = new TMProperties();
+                    tmProperties.setHost(args[0]);
+                    tmProperties.setTransactionPort(Integer.valueOf(args[1]));
+                    tmProperties.setHttpPort(entry.getValue().getHttpPort());
+                    return tmProperties;
+                }).collect(Collectors.toList());
+    }
+
+    @Override
+    public void removeTMProperties(String host, int transactionPort) {
+        Objects.requireNonNull(host);
+        tmPropertiesMap.remove(host + ":" + transactionPort);
+        log.debug("removed TM {}:{}", host, transactionPort);
+    }
+
+    @Override
+    public synchronized int acquireOrRefreshMachineId(int machineId, long machineMaxSize, long timeout)
+            throws FastStorageException {
+        if (machineId >= 0) {
+            refreshMachineId(machineId, timeout);
+            return -1;
+        }
+        // reuses the earliest expired, else a never used one
+        int acquired;
+        if (!machineLeases.isEmpty() && machineLeases.first().expireAt <= currentTimeMillis()) {
+            acquired = machineLeases.first().machineId;
+        } else if (curMachineId < machineMaxSize) {
+            acquired = ++curMachineId;
+        } else {
+            throw new FastStorageException("non can used machine id", FastStorageException.EX_CODE_NON_MACHINE_ID);
+        }
+        refreshMachineId(acquired, timeout);
+        return acquired;
+    }
+
+    @Override
+    public synchronized void refreshMachineIds(Set<Integer> machineIds, long timeout) {
+        if (Objects.isNull(machineIds)) {
+            return;
+        }
+        machineIds.forEach(machineId -> refreshMachineId(machineId, timeout));
+    }
+
+    @Override
+    public void close() {
+        timingWheel.close();
+    }
+
+    /**
+     * clock of every expiration
+     *
+     * @return epoch ms
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * wall clock time to check the expiration of entry, when the storage clock is not the wall clock
+     *
+     * @param expireAt expire time of entry
+     * @return epoch ms
+     */
+    protected long expirationDeadline(long expireAt) {
+        return expireAt;
+    }
+
+    /**
+     * fencing token never goes back
+     *
+     * @param fencingToken issued fencing token
+     */
+    protected void advanceFencing(long fencingToken) {
+        fencing.accumulateAndGet(fencingToken, Math::max);
+    }
+
+    /**
+     * copy of unexpired transaction state. consistent only when non mutation runs meanwhile.
+     *
+     * @return snapshot
+     */
+    protected MemorySnapshot snapshot() {
+        MemorySnapshot snapshot = new MemorySnapshot();
+        snapshot.setFencing(fencing.get());
+        groups.forEach((groupId, group) -> {
+            if (!group.expired(currentTimeMillis())) {
+                snapshot.getGroups().add(
+                        new MemorySnapshot.Group(groupId, group.expireAt, new ArrayList<>(group.value.values())));
+            }
+        });
+        states.forEach((groupId, state) -> {
+            if (!state.expired(currentTimeMillis())) {
+                snapshot.getStates().add(new MemorySnapshot.State(groupId, state.value, state.expireAt));
+            }
+        });
+        locks.forEach((lockKey, dtxLock) -> {
+            if (!dtxLock.expired(currentTimeMillis())) {
+                snapshot.getLocks().add(
+                        new MemorySnapshot.DTXLock(lockKey, dtxLock.mode, dtxLock.expireAt, new HashMap<>(dtxLock.value)));
+            }
+        });
+        groupLocks.forEach((groupId, index) -> {
+            if (!index.expired(currentTimeMillis())) {
+                snapshot.getLockIndexes().add(
+                        new MemorySnapshot.LockIndex(groupId, index.expireAt, new HashSet<>(index.value)));
+            }
+        });
+        synchronized (this) {
+            snapshot.setTokens(new ArrayList<>(tokens));
+            snapshot.setTokensExpireAt(tokensExpireAt);
+            machineIds.forEach((machineId, lease) -> snapshot.getMachineIds().put(machineId, lease.expireAt));
+            snapshot.setCurMachineId(curMachineId);
+        }
+        snapshot.setTmProperties(new ArrayList<>(tmPropertiesMap.values()));
+        return snapshot;
+    }
+
+    /**
+     * lease the given machine id, as it was acquired or refreshed at current clock
+     *
+     * @param machineId machine id
+     * @param timeout   lease time
+     */
+    protected synchronized void leaseMachineId(int machineId, long timeout) {
+        refreshMachineId(machineId, timeout);
+        curMachineId = Math.max(curMachineId, machineId);
+    }
+
+    /**
+     * restore transaction state from snapshot
+     *
+     * @param snapshot snapshot
+     */
+    protected void restore(MemorySnapshot snapshot) {
+        advanceFencing(snapshot.getFencing());
+        for (MemorySnapshot.Group group : snapshot.getGroups()) {
+            Expiring<ConcurrentMap<String, TransactionUnit>> expiring =
+                    new Expiring<>(new ConcurrentHashMap<>(), group.getExpireAt());
+            group.getUnits().forEach(unit -> expiring.value.put(unit.getUnitId(), unit));
+            groups.put(group.getGroupId(), expiring);
+            expireLater(groups, group.getGroupId(), expiring, null);
+        }
+        for (MemorySnapshot.State state : snapshot.getStates()) {
+            Expiring<Integer> expiring = new Expiring<>(state.getState(), state.getExpireAt());
+            states.put(state.getGroupId(), expiring);
+            expireLater(states, state.getGroupId(), expiring, null);
+        }
+        for (MemorySnapshot.DTXLock lock : snapshot.getLocks()) {
+            DTXLock dtxLock = new DTXLock(lock.getExpireAt());
+            dtxLock.mode = lock.getMode();
+            dtxLock.value.putAll(lock.getHolders());
+            locks.put(lock.getLockKey(), dtxLock);
+            expireLater(locks, lock.getLockKey(), dtxLock, lockStripes.get(lock.getLockKey()));
+        }
+        for (MemorySnapshot.LockIndex index : snapshot.getLockIndexes()) {
+            Expiring<Set<String>> expiring = new Expiring<>(ConcurrentHashMap.newKeySet(), index.getExpireAt());
+            expiring.value.addAll(index.getLockKeys());
+            groupLocks.put(index.getGroupId(), expiring);
+            expireLater(groupLocks, index.getGroupId(), expiring, null);
+        }
+        synchronized (this) {
+            if (Objects.nonNull(snapshot.getTokens()) && !snapshot.getTokens().isEmpty()) {
+                tokens.clear();
+                tokens.addAll(snapshot.getTokens());
+                tokensExpireAt = snapshot.getTokensExpireAt();
+            }
+            if (Objects.nonNull(snapshot.getMachineIds())) {
+                snapshot.getMachineIds().forEach((machineId, expireAt) -> {
+                    putMachineLease(new MachineLease(machineId, expireAt));
+                    curMachineId = Math.max(curMachineId, machineId);
+                });
+            }
+            curMachineId = Math.max(curMachineId, snapshot.getCurMachineId());
+        }
+        if (Objects.nonNull(snapshot.getTmProperties())) {
+            snapshot.getTmProperties().forEach(this::saveTMProperties);
+        }
+    }
+
+    private void refreshMachineId(int machineId, long timeout) {
+        putMachineLease(new MachineLease(machineId, currentTimeMillis() + timeout));
+    }
+
+    private void putMachineLease(MachineLease lease) {
+        MachineLease old = machineIds.put(lease.machineId, lease);
+        if (Objects.nonNull(old)) {
+            machineLeases.remove(old);
+        }
+        machineLeases.add(lease);
+    }
+
+    private long groupExpireAt() {
+        return currentTimeMillis() + managerConfig.getDtxTime() + 10000;
+    }
+
+    private List<Lock> lockAll(List<String> lockKeys) {
+        // stripes in a consistent order, no deadlock between multi-key operations
+        List<Lock> stripes = new ArrayList<>();
+        lockStripes.bulkGet(lockKeys).forEach(stripes::add);
+        stripes.forEach(Lock::lock);
+        return stripes;
+    }
+
+    /**
+     * value of key, null when absent or expired
+     */
+    private <K, V extends Expiring<?>> V alive(ConcurrentMap<K, V> map, K key) {
+        V value = map.get(key);
+        if (Objects.nonNull(value) && value.expired(currentTimeMillis())) {
+            map.remove(key, value);
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * value of key, null when absent or expired. for locks read without stripe, which are removed under stripe only
+     */
+    private <K, V extends Expiring<?>> V unexpired(ConcurrentMap<K, V> map, K key) {
+        V value = map.get(key);
+        return Objects.nonNull(value) && value.expired(currentTimeMillis()) ? null : value;
+    }
+
+    /**
+     * removes entry when expired. entry extended meanwhile is rescheduled, replaced entry is ignored.
+     */
+    private <K, V extends Expiring<?>> void expireLater(ConcurrentMap<K, V> map, K key, V entry, Lock guard) {
+        if (!entry.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        timingWheel.schedule(expirationDeadline(entry.expireAt), () -> {
+            entry.scheduled.set(false);
+            if (map.get(key) != entry) {
+                return;
+            }
+            if (!entry.expired(currentTimeMillis())) {
+                expireLater(map, key, entry, guard);
+                return;
+            }
+            if (Objects.isNull(guard)) {
+                map.remove(key, entry);
+                return;
+            }
+            guard.lock();
+            try {
+                if (entry.expired(currentTimeMillis())) {
+                    map.remove(key, entry);
+                }
+            } finally {
+                guard.unlock();
+            }
+        });
+    }
+
+    private static class Expiring<T> {
+
+        final T value;
+
+        volatile long expireAt;
+
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Expiring(T value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean expired(long now) {
+            return expireAt <= now;
+        }
+
+        /**
+         * @return true if extended
+         */
+        boolean extend(long expireAt) {
+            if (this.expireAt < expireAt) {
+                this.expireAt = expireAt;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * DTX lock. value is holder groupId -> fencing token, '' is anonymous holder.
+     */
+    private static class DTXLock extends Expiring<ConcurrentMap<String, Long>> {
+
+        private volatile int mode;
+
+        private DTXLock(long expireAt) {
+            super(new ConcurrentHashMap<>(), expireAt);
+        }
+    }
+
+    private static class MachineLease implements Comparable<MachineLease> {
+
+        private final int machineId;
+
+        private final long expireAt;
+
+        private MachineLease(int machineId, long expireAt) {
+            this.machineId = machineId;
+            this.expireAt = expireAt;
+        }
+
+        @Override
+        public int compareTo(MachineLease o) {
+            int c = Long.compare(expireAt, o.expireAt);
+            return c != 0 ? c : Integer.compare(machineId, o.machineId);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Description: hierarchical timing wheel. O(1) schedule, tasks beyond a wheel's interval go to its overflow wheel
+ * and cascade down as the clock advances. only non-empty buckets enter the DelayQueue, so the driver thread
+ * sleeps until the next bucket expires instead of ticking.
+ * tasks run on the driver thread, should be short.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+public class TimingWheel implements AutoCloseable {
+
+    private final DelayQueue<Bucket> delayQueue = new DelayQueue<>();
+
+    private final ReadWriteLock clockLock = new ReentrantReadWriteLock();
+
+    private final Wheel wheel;
+
+    private final Thread driver;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param tickMs    tick of the lowest wheel (ms)
+     * @param wheelSize buckets per wheel
+     * @param name      driver thread name
+     */
+    public TimingWheel(long tickMs, int wheelSize, String name) {
+        this.wheel = new Wheel(tickMs, wheelSize, System.currentTimeMillis(), delayQueue, true);
+        this.driver = new Thread(this::drive, name);
+        this.driver.setDaemon(true);
+        this.driver.start();
+    }
+
+    /**
+     * run task at deadline
+     *
+     * @param deadline deadline (epoch ms)
+     * @param task     task
+     */
+    public void schedule(long deadline, Runnable task) {
+        TimerTask timerTask = new TimerTask(deadline, task);
+        clockLock.readLock().lock();
+        try {
+            if (wheel.add(timerTask)) {
+                return;
+            }
+        } finally {
+            clockLock.readLock().unlock();
+        }
+        run(timerTask);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        driver.interrupt();
+    }
+
+    private void drive() {
+        while (running) {
+            try {
+                Bucket bucket = delayQueue.poll(200, TimeUnit.MILLISECONDS);
+                if (Objects.isNull(bucket)) {
+                    continue;
+                }
+                List<TimerTask> expired = new ArrayList<>();
+                clockLock.writeLock().lock();
+                try {
+                    while (Objects.nonNull(bucket)) {
+                        wheel.advanceClock(bucket.getExpiration());
+                        bucket.flush(task -> {
+                            // cascade to lower wheel, or run when due
+                            if (!wheel.add(task)) {
+                                expired.add(task);
+                            }
+                        });
+                        bucket = delayQueue.poll();
+                    }
+                } finally {
+                    clockLock.writeLock().unlock();
+                }
+                expired.forEach(this::run);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void run(TimerTask timerTask) {
+        try {
+            timerTask.task.run();
+        } catch (Throwable e) {
+            log.error("timing wheel task error.", e);
+        }
+    }
+
+    private static class TimerTask {
+
+        private final long deadline;
+
+        private final Runnable task;
+
+        private TimerTask(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+    }
+
+    private static class Bucket implements Delayed {
+
+        private final AtomicLong expiration = new AtomicLong(-1);
+
+        private final List<TimerTask> tasks = new ArrayList<>();
+
+        synchronized void add(TimerTask task) {
+            tasks.add(task);
+        }
+
+        synchronized void flush(Consumer<TimerTask> consumer) {
+            List<TimerTask> flushed = new ArrayList<>(tasks);
+            tasks.clear();
+            expiration.set(-1);
+            flushed.forEach(consumer);
+        }
+
+        /**
+         * @return true if expiration changed, bucket should be (re)queued
+         */
+        boolean setExpiration(long expiration) {
+            return this.expiration.getAndSet(expiration) != expiration;
+        }
+
+        long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(getExpiration(), ((Bucket) o).getExpiration());
+        }
+    }
+
+    private static class Wheel {
+
+        private final long tickMs;
+
+        private final int wheelSize;
+
+        private final long interval;
+
+        private final Bucket[] buckets;
+
+        private final DelayQueue<Bucket> delayQueue;
+
+        private volatile long currentTime;
+
+        private final boolean lowest;
+
+        private volatile Wheel overflowWheel;
+
+        private Wheel(long tickMs, int wheelSize, long startMs, DelayQueue<Bucket> delayQueue, boolean lowest) {
+            this.tickMs = tickMs;
+            this.lowest = lowest;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.delayQueue = delayQueue;
+            this.currentTime = startMs - (startMs % tickMs);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        /**
+         * @return false when task is already due
+         */
+        private boolean add(TimerTask task) {
+            if (task.deadline <= currentTime) {
+                return false;
+            }
+            // lowest wheel's bucket expires at the tick not before deadline so task never runs early,
+            // overflow wheel's bucket expires at its start so tasks cascade down in time
+            long virtualId = lowest ? (task.deadline + tickMs - 1) / tickMs : task.deadline / tickMs;
+            if (lowest ? virtualId * tickMs <= currentTime + interval : task.deadline < currentTime + interval) {
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(task);
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            return overflowWheel().add(task);
+        }
+
+        private Wheel overflowWheel() {
+            if (Objects.isNull(overflowWheel)) {
+                synchronized (this) {
+                    if (Objects.isNull(overflowWheel)) {
+                        overflowWheel = new Wheel(interval, wheelSize, currentTime, delayQueue, false);
+                    }
+                }
+            }
+            return overflowWheel;
+        }
+
+        private void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                if (Objects.nonNull(overflowWheel)) {
+                    overflowWheel.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import com.codingapi.txlcn.common.exception.SerializerException;
+import com.codingapi.txlcn.common.util.ApplicationInformation;
+import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.codec.bytes.ByteArrayDecoder;
+import io.netty.handler.codec.bytes.ByteArrayEncoder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Description: one-way messages between raft members over netty. every member connects to its peers lazily,
+ * inbound connections are read only. messages to an unconnected peer are dropped, raft retries them.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+class NettyRaftTransport implements RaftTransport {
+
+    private static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    private static final long RECONNECT_INTERVAL = 1000;
+
+    private final int id;
+
+    private final List<String> members;
+
+    private final Consumer<RaftMessage> handler;
+
+    private final Channel[] channels;
+
+    private final AtomicLongArray connectTimes;
+
+    private final NioEventLoopGroup bossGroup = new NioEventLoopGroup(1);
+
+    private final NioEventLoopGroup workerGroup = new NioEventLoopGroup(2);
+
+    private final Bootstrap bootstrap;
+
+    private Channel serverChannel;
+
+    NettyRaftTransport(int id, List<String> members, Consumer<RaftMessage> handler) {
+        this.id = id;
+        this.members = members;
+        this.handler = handler;
+        this.channels = new Channel[members.size()];
+        this.connectTimes = new AtomicLongArray(members.size());
+        this.bootstrap = new Bootstrap()
+                .group(workerGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 1000)
+                .handler(initializer());
+    }
+
+    @Override
+    public void start() throws InterruptedException {
+        int port = Integer.parseInt(ApplicationInformation.splitAddress(members.get(id))[1]);
+        serverChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(initializer())
+                .bind(port).sync().channel();
+        log.info("raft member {} listening on port {}", members.get(id), port);
+    }
+
+    @Override
+    public void send(int peer, RaftMessage message) {
+        Channel channel = channels[peer];
+        if (Objects.isNull(channel) || !channel.isActive()) {
+            connect(peer);
+            return;
+        }
+        try {
+            channel.writeAndFlush(SerializerContext.getInstance().serialize(message), channel.voidPromise());
+        } catch (SerializerException e) {
+            log.error("serialize raft message error.", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (Objects.nonNull(serverChannel)) {
+            serverChannel.close();
+        }
+        workerGroup.shutdownGracefully();
+        bossGroup.shutdownGracefully();
+    }
+
+    private void connect(int peer) {
+        long last = connectTimes.get(peer);
+        long now = System.currentTimeMillis();
+        if (now - last < RECONNECT_INTERVAL || !connectTimes.compareAndSet(peer, last, now)) {
+            return;
+        }
+        String[] address = ApplicationInformation.splitAddress(members.get(peer));
+        bootstrap.connect(address[0], Integer.parseInt(address[1])).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                channels[peer] = future.channel();
+                log.info("connected raft member {}", members.get(peer));
+            } else {
+                log.debug("connect raft member {} fail. {}", members.get(peer), future.cause().getMessage());
+            }
+        });
+    }
+
+    private ChannelInitializer<SocketChannel> initializer() {
+        return new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                ch.pipeline()
+                        .addLast(new LengthFieldBasedFrameDecoder(MAX_FRAME, 0, 4, 0, 4))
+                        .addLast(new LengthFieldPrepender(4))
+                        .addLast(new ByteArrayDecoder())
+                        .addLast(new ByteArrayEncoder())
+                        .addLast(new SimpleChannelInboundHandler<byte[]>() {
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext ctx, byte[] msg) throws Exception {
+                                handler.accept(SerializerContext.getInstance().deSerialize(msg, RaftMessage.class));
+                            }
+
+                            @Override
+                            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                                log.debug("raft channel error. {}", cause.getMessage());
+                                ctx.close();
+                            }
+                        });
+            }
+        };
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import com.codingapi.txlcn.tm.cluster.TMProperties;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import lombok.Data;
+
+import java.util.Set;
+
+/**
+ * Description: one FastStorage operation. mutations are replicated in log entries, reads run on the leader.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Data
+public class RaftCommand {
+
+    /**
+     * mutations
+     */
+    public static final int INIT_GROUP = 1;
+    public static final int JOIN_GROUP = 2;
+    public static final int CLEAR_GROUP = 3;
+    public static final int SAVE_STATE = 4;
+    public static final int ACQUIRE_LOCKS = 5;
+    public static final int RELEASE_LOCKS = 6;
+    public static final int RENEW_LOCKS = 7;
+    public static final int SAVE_TOKEN = 8;
+    public static final int REMOVE_TOKEN = 9;
+    public static final int SAVE_TM_PROPERTIES = 10;
+    public static final int REMOVE_TM_PROPERTIES = 11;
+    public static final int ACQUIRE_MACHINE_ID = 12;
+    public static final int REFRESH_MACHINE_IDS = 13;
+
+    /**
+     * reads
+     */
+    public static final int CONTAINS_GROUP = 101;
+    public static final int FIND_UNITS = 102;
+    public static final int GET_STATE = 103;
+    public static final int FIND_LOCK_HOLDERS = 104;
+    public static final int FIND_TOKENS = 105;
+    public static final int FIND_TM_PROPERTIES = 106;
+    public static final int FIND_LOCK_HOLDERS_BY_LOCK = 107;
+
+    private int type;
+
+    /**
+     * groupId, contextId, token or host
+     */
+    private String key;
+
+    /**
+     * locks, groupIds or machineIds
+     */
+    private Set<String> keys;
+
+    private TransactionUnit transactionUnit;
+
+    private LockValue lockValue;
+
+    private TMProperties tmProperties;
+
+    /**
+     * state, transactionPort or machineId
+     */
+    private long value;
+
+    private long machineMaxSize;
+
+    private long timeout;
+
+    public boolean isRead() {
+        return type > 100;
+    }
+
+    public static RaftCommand of(int type, String key) {
+        RaftCommand command = new RaftCommand();
+        command.setType(type);
+        command.setKey(key);
+        return command;
+    }
+}
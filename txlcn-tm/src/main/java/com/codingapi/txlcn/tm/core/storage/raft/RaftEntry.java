@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Description: raft log entry. a batch of commands proposed together, applied with the leader's timestamp
+ * so expirations are the same on every member. non commands is the no-op of a new leader.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RaftEntry {
+
+    private long index;
+
+    private long term;
+
+    private long timestamp;
+
+    private List<RaftCommand> commands;
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import com.codingapi.txlcn.common.exception.SerializerException;
+import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import com.codingapi.txlcn.tm.core.storage.journal.Journal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Description: raft log and persistent state (term, votedFor) of a member, persisted in a Journal.
+ * records: ENTRY, TRUNCATE (entries from index removed) and META. snapshot: last included entry,
+ * META and state machine snapshot. entries after the snapshot are re-appended to the new segment on compaction.
+ * not thread safe, used in the raft loop only.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+class RaftLog implements AutoCloseable {
+
+    private static final byte ENTRY = 1;
+
+    private static final byte TRUNCATE = 2;
+
+    private static final byte META = 3;
+
+    private final Journal journal;
+
+    /**
+     * entries after snapshot
+     */
+    private final List<RaftEntry> entries = new ArrayList<>();
+
+    private long snapshotIndex;
+
+    private long snapshotTerm;
+
+    private long snapshotSeq = -1;
+
+    /**
+     * last entry flushed to disk
+     */
+    private long syncedIndex;
+
+    private long term;
+
+    private int votedFor = -1;
+
+    RaftLog(Path dir, int segmentSize) throws IOException {
+        this.journal = new Journal(dir, segmentSize);
+    }
+
+    /**
+     * loads persistent state
+     *
+     * @return latest snapshot, null when non snapshot
+     * @throws IOException IOException
+     */
+    Snapshot load() throws IOException {
+        Snapshot snapshot = null;
+        snapshotSeq = journal.latestSnapshotSeq();
+        if (snapshotSeq >= 0) {
+            snapshot = Snapshot.decode(journal.readSnapshot(snapshotSeq));
+            snapshotIndex = snapshot.index;
+            snapshotTerm = snapshot.term;
+            term = snapshot.currentTerm;
+            votedFor = snapshot.votedFor;
+        }
+        journal.replay(Math.max(snapshotSeq, 0), this::replay);
+        journal.openSegment();
+        syncedIndex = lastIndex();
+        log.info("raft log loaded. term: {}, snapshot: {}, last index: {}", term, snapshotIndex, lastIndex());
+        return snapshot;
+    }
+
+    long term() {
+        return term;
+    }
+
+    int votedFor() {
+        return votedFor;
+    }
+
+    long snapshotIndex() {
+        return snapshotIndex;
+    }
+
+    long lastIndex() {
+        return snapshotIndex + entries.size();
+    }
+
+    long syncedIndex() {
+        return syncedIndex;
+    }
+
+    long lastTerm() {
+        return entries.isEmpty() ? snapshotTerm : entries.get(entries.size() - 1).getTerm();
+    }
+
+    long lastTimestamp() {
+        return entries.isEmpty() ? 0 : entries.get(entries.size() - 1).getTimestamp();
+    }
+
+    /**
+     * @param index index
+     * @return term of entry, -1 when compacted or absent
+     */
+    long termOf(long index) {
+        if (index == snapshotIndex) {
+            return snapshotTerm;
+        }
+        RaftEntry entry = entry(index);
+        return Objects.isNull(entry) ? -1 : entry.getTerm();
+    }
+
+    RaftEntry entry(long index) {
+        if (index <= snapshotIndex || index > lastIndex()) {
+            return null;
+        }
+        return entries.get((int) (index - snapshotIndex - 1));
+    }
+
+    List<RaftEntry> entriesFrom(long index, int maxCount) {
+        if (index <= snapshotIndex || index > lastIndex()) {
+            return Collections.emptyList();
+        }
+        int from = (int) (index - snapshotIndex - 1);
+        return new ArrayList<>(entries.subList(from, Math.min(entries.size(), from + maxCount)));
+    }
+
+    void saveMeta(long term, int votedFor) throws IOException {
+        this.term = term;
+        this.votedFor = votedFor;
+        append(META, out -> {
+            out.writeLong(term);
+            out.writeInt(votedFor);
+        });
+    }
+
+    void append(RaftEntry entry) throws IOException {
+        entries.add(entry);
+        append(ENTRY, out -> out.write(serialize(entry)));
+    }
+
+    /**
+     * removes entries from index
+     *
+     * @param index first removed
+     * @throws IOException IOException
+     */
+    void truncateFrom(long index) throws IOException {
+        if (index > lastIndex()) {
+            return;
+        }
+        truncate(index);
+        append(TRUNCATE, out -> out.writeLong(index));
+    }
+
+    /**
+     * flushes appended records, once for every batch
+     */
+    void sync() {
+        journal.force();
+        syncedIndex = lastIndex();
+    }
+
+    /**
+     * compacts entries to index into snapshot
+     *
+     * @param index         last applied
+     * @param timestamp     state machine clock
+     * @param stateSnapshot state machine snapshot
+     * @throws IOException IOException
+     */
+    void compact(long index, long timestamp, byte[] stateSnapshot) throws IOException {
+        long indexTerm = termOf(index);
+        entries.subList(0, (int) (index - snapshotIndex)).clear();
+        snapshotIndex = index;
+        snapshotTerm = indexTerm;
+        writeSnapshot(timestamp, stateSnapshot);
+    }
+
+    /**
+     * replaces log by snapshot of leader
+     *
+     * @param snapshot snapshot
+     * @throws IOException IOException
+     */
+    void install(Snapshot snapshot) throws IOException {
+        entries.clear();
+        snapshotIndex = snapshot.index;
+        snapshotTerm = snapshot.term;
+        writeSnapshot(snapshot.timestamp, snapshot.state);
+    }
+
+    /**
+     * @return latest snapshot for followers
+     * @throws IOException IOException
+     */
+    byte[] readSnapshot() throws IOException {
+        return snapshotSeq < 0 ? null : journal.readSnapshot(snapshotSeq);
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    private void writeSnapshot(long timestamp, byte[] stateSnapshot) throws IOException {
+        long seq = journal.rotate();
+        // records after the snapshot go to the new segment, older segments are deleted with the snapshot
+        saveMeta(term, votedFor);
+        for (RaftEntry entry : entries) {
+            append(ENTRY, out -> out.write(serialize(entry)));
+        }
+        sync();
+        Snapshot snapshot = new Snapshot(snapshotIndex, snapshotTerm, timestamp, term, votedFor, stateSnapshot);
+        journal.writeSnapshot(seq, snapshot.encode());
+        snapshotSeq = seq;
+    }
+
+    private void replay(ByteBuffer body) {
+        try {
+            byte type = body.get();
+            switch (type) {
+                case ENTRY:
+                    byte[] bytes = new byte[body.remaining()];
+                    body.get(bytes);
+                    RaftEntry entry = SerializerContext.getInstance().deSerialize(bytes, RaftEntry.class);
+                    if (entry.getIndex() <= snapshotIndex) {
+                        return;
+                    }
+                    // re-appended by compaction, or rewritten after a crash of compaction
+                    truncate(entry.getIndex());
+                    if (entry.getIndex() == lastIndex() + 1) {
+                        entries.add(entry);
+                    }
+                    return;
+                case TRUNCATE:
+                    truncate(body.getLong());
+                    return;
+                case META:
+                    term = body.getLong();
+                    votedFor = body.getInt();
+                    return;
+                default:
+                    log.warn("skip raft log record, unknown type {}", type);
+            }
+        } catch (SerializerException e) {
+            log.warn("skip raft log record. {}", e.getMessage());
+        }
+    }
+
+    private void truncate(long index) {
+        if (index > snapshotIndex && index <= lastIndex()) {
+            entries.subList((int) (index - snapshotIndex - 1), entries.size()).clear();
+            syncedIndex = Math.min(syncedIndex, index - 1);
+        }
+    }
+
+    private void append(byte type, RecordWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        writer.write(out);
+        journal.append(bytes.toByteArray());
+    }
+
+    private static byte[] serialize(RaftEntry entry) throws IOException {
+        try {
+            return SerializerContext.getInstance().serialize(entry);
+        } catch (SerializerException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * snapshot file: last included entry, clock and META at the snapshot, then state machine snapshot
+     */
+    static class Snapshot {
+
+        final long index;
+
+        final long term;
+
+        final long timestamp;
+
+        final long currentTerm;
+
+        final int votedFor;
+
+        final byte[] state;
+
+        Snapshot(long index, long term, long timestamp, long currentTerm, int votedFor, byte[] state) {
+            this.index = index;
+            this.term = term;
+            this.timestamp = timestamp;
+            this.currentTerm = currentTerm;
+            this.votedFor = votedFor;
+            this.state = state;
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(state.length + 40);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(index);
+            out.writeLong(term);
+            out.writeLong(timestamp);
+            out.writeLong(currentTerm);
+            out.writeInt(votedFor);
+            out.writeInt(state.length);
+            out.write(state);
+            return bytes.toByteArray();
+        }
+
+        static Snapshot decode(byte[] data) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            long index = in.readLong();
+            long term = in.readLong();
+            long timestamp = in.readLong();
+            long currentTerm = in.readLong();
+            int votedFor = in.readInt();
+            byte[] state = new byte[in.readInt()];
+            in.readFully(state);
+            return new Snapshot(index, term, timestamp, currentTerm, votedFor, state);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Description: one-way message between raft members. responses are messages too.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Data
+public class RaftMessage {
+
+    public static final int REQUEST_VOTE = 1;
+    public static final int REQUEST_VOTE_RESP = 2;
+    public static final int APPEND_ENTRIES = 3;
+    public static final int APPEND_ENTRIES_RESP = 4;
+
+    /**
+     * answered by APPEND_ENTRIES_RESP
+     */
+    public static final int INSTALL_SNAPSHOT = 5;
+
+    /**
+     * command forwarded to leader
+     */
+    public static final int CLIENT_REQUEST = 6;
+    public static final int CLIENT_RESP = 7;
+
+    private int type;
+
+    /**
+     * sender's member id
+     */
+    private int from;
+
+    private long term;
+
+    /**
+     * vote: candidate's last log. append: previous entry of entries. snapshot: last included entry
+     */
+    private long logIndex;
+
+    private long logTerm;
+
+    private List<RaftEntry> entries;
+
+    private long leaderCommit;
+
+    /**
+     * responses
+     */
+    private boolean success;
+
+    private long matchIndex;
+
+    /**
+     * leader's send time (nanos), echoed by followers for leader lease
+     */
+    private long sendTime;
+
+    private byte[] snapshot;
+
+    private long requestId;
+
+    private RaftCommand command;
+
+    private RaftResult result;
+
+    public static RaftMessage of(int type, int from, long term) {
+        RaftMessage message = new RaftMessage();
+        message.setType(type);
+        message.setFrom(from);
+        message.setTerm(term);
+        return message;
+    }
+}
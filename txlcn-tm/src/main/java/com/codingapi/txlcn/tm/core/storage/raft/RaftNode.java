@@ -0,0 +1,749 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Description: raft member. every state change runs in one loop thread.
+ * leader batches pending commands into one entry and syncs the log once per batch (group commit),
+ * appends are pipelined to followers. reads run on the leader's state machine while its lease is valid:
+ * a majority acked heartbeats sent within the minimum election timeout, and followers never vote
+ * while they hear from a leader.
+ * membership is static.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+class RaftNode implements AutoCloseable {
+
+    private static final long HEARTBEAT_INTERVAL = 50;
+
+    private static final long ELECTION_TIMEOUT_MIN = 300;
+
+    private static final long ELECTION_TIMEOUT_MAX = 600;
+
+    /**
+     * leader lease, less than minimum election timeout for clock drift
+     */
+    private static final long LEASE_NANOS = TimeUnit.MILLISECONDS.toNanos(ELECTION_TIMEOUT_MIN * 9 / 10);
+
+    /**
+     * leader appends a no-op entry when idle, which moves the clock of state machines
+     */
+    private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long RETRANSMIT_NANOS = TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_INTERVAL * 4);
+
+    private static final long SNAPSHOT_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final int MAX_BATCH = 1024;
+
+    private static final int MAX_ENTRIES_PER_APPEND = 256;
+
+    private static final long COMPACT_CHECK_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int id;
+
+    private final List<String> members;
+
+    private final int quorum;
+
+    private final TxManagerConfig managerConfig;
+
+    private final RaftLog raftLog;
+
+    private final RaftTransport transport;
+
+    private final RaftScheduler loop;
+
+    private volatile RaftStateMachine stateMachine;
+
+    private volatile Role role = Role.FOLLOWER;
+
+    private volatile int leaderId = -1;
+
+    private long commitIndex;
+
+    private long lastApplied;
+
+    private final long[] nextIndex;
+
+    private final long[] matchIndex;
+
+    /**
+     * last index sent, entries after it are sent without waiting acks
+     */
+    private final long[] sentIndex;
+
+    private final long[] sentTime;
+
+    private final long[] ackTime;
+
+    private final long[] snapshotSentTime;
+
+    private final Set<Integer> votes = new HashSet<>();
+
+    private long electionDeadline;
+
+    private long lastLeaderContact;
+
+    private long lastAppendTime;
+
+    private long lastCompactCheck;
+
+    private long noopIndex;
+
+    private volatile boolean readable;
+
+    private volatile long leaseDeadline;
+
+    private final Queue<Proposal> proposals = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * entry index -> proposals of entry, leader only
+     */
+    private final Map<Long, List<Proposal>> inflight = new HashMap<>();
+
+    /**
+     * request id -> commands forwarded to leader
+     */
+    private final Map<Long, Forwarded> forwarded = new HashMap<>();
+
+    private long requestIds;
+
+    RaftNode(int id, List<String> members, TxManagerConfig managerConfig, Path dir) throws IOException {
+        this(id, members, managerConfig, dir, handler -> new NettyRaftTransport(id, members, handler),
+                RaftScheduler.threaded());
+    }
+
+    /**
+     * @param transports transport of this member by its message handler
+     * @param loop       loop and clock of this member
+     */
+    RaftNode(int id, List<String> members, TxManagerConfig managerConfig, Path dir,
+             Function<Consumer<RaftMessage>, RaftTransport> transports, RaftScheduler loop) throws IOException {
+        this.id = id;
+        this.members = members;
+        this.quorum = members.size() / 2 + 1;
+        this.managerConfig = managerConfig;
+        this.raftLog = new RaftLog(dir, managerConfig.getJournalSegmentSize());
+        this.transport = transports.apply(message -> loop().execute(() -> handle(message)));
+        this.loop = loop;
+        this.nextIndex = new long[members.size()];
+        this.matchIndex = new long[members.size()];
+        this.sentIndex = new long[members.size()];
+        this.sentTime = new long[members.size()];
+        this.ackTime = new long[members.size()];
+        this.snapshotSentTime = new long[members.size()];
+    }
+
+    void start() throws IOException, InterruptedException {
+        RaftLog.Snapshot snapshot = raftLog.load();
+        stateMachine = new RaftStateMachine(managerConfig);
+        if (Objects.nonNull(snapshot)) {
+            stateMachine.installSnapshot(snapshot.state, snapshot.timestamp);
+            commitIndex = lastApplied = snapshot.index;
+        }
+        transport.start();
+        resetElectionDeadline();
+        lastCompactCheck = loop.nanoTime();
+        loop.scheduleTick(() -> run(this::tick), HEARTBEAT_INTERVAL);
+    }
+
+    /**
+     * submits a command. result NOT_LEADER when the command is not applied, caller retries it.
+     *
+     * @param command command
+     * @return result future
+     */
+    CompletableFuture<RaftResult> submit(RaftCommand command) {
+        CompletableFuture<RaftResult> future = new CompletableFuture<>();
+        if (command.isRead() && leaseValid()) {
+            future.complete(stateMachine.execute(command));
+            return future;
+        }
+        if (!command.isRead() && role == Role.LEADER) {
+            proposals.add(new Proposal(command, future::complete));
+            if (flushScheduled.compareAndSet(false, true)) {
+                loop.execute(() -> run(this::flush));
+            }
+            return future;
+        }
+        loop.execute(() -> run(() -> handleCommand(command, future::complete)));
+        return future;
+    }
+
+    @Override
+    public void close() {
+        loop.close();
+        transport.close();
+        try {
+            raftLog.close();
+        } catch (IOException e) {
+            log.error("close raft log error.", e);
+        }
+        stateMachine.close();
+    }
+
+    boolean isLeader() {
+        return role == Role.LEADER;
+    }
+
+    /**
+     * loop thread only
+     *
+     * @return index of last applied entry
+     */
+    long lastApplied() {
+        return lastApplied;
+    }
+
+    /**
+     * loop thread only
+     *
+     * @return raft log
+     */
+    RaftLog raftLog() {
+        return raftLog;
+    }
+
+    RaftStateMachine stateMachine() {
+        return stateMachine;
+    }
+
+    private RaftScheduler loop() {
+        return loop;
+    }
+
+    private void handle(RaftMessage message) {
+        run(() -> {
+            switch (message.getType()) {
+                case RaftMessage.REQUEST_VOTE:
+                    handleRequestVote(message);
+                    return;
+                case RaftMessage.REQUEST_VOTE_RESP:
+                    handleRequestVoteResp(message);
+                    return;
+                case RaftMessage.APPEND_ENTRIES:
+                    handleAppendEntries(message);
+                    return;
+                case RaftMessage.APPEND_ENTRIES_RESP:
+                    handleAppendEntriesResp(message);
+                    return;
+                case RaftMessage.INSTALL_SNAPSHOT:
+                    handleInstallSnapshot(message);
+                    return;
+                case RaftMessage.CLIENT_REQUEST:
+                    handleClientRequest(message);
+                    return;
+                case RaftMessage.CLIENT_RESP:
+                    Forwarded request = forwarded.remove(message.getRequestId());
+                    if (Objects.nonNull(request)) {
+                        request.callback.accept(Optional.ofNullable(message.getResult()).orElseGet(RaftNode::notLeader));
+                    }
+                    return;
+                default:
+                    log.warn("unknown raft message type {}", message.getType());
+            }
+        });
+    }
+
+    private void tick() throws IOException {
+        long now = loop.nanoTime();
+        if (role == Role.LEADER) {
+            if (now - lastAppendTime > IDLE_NANOS) {
+                appendEntry(Collections.emptyList());
+                raftLog.sync();
+            }
+            for (int peer = 0; peer < members.size(); peer++) {
+                if (peer != id) {
+                    replicate(peer, true);
+                }
+            }
+            advanceCommitIndex();
+        } else if (now - electionDeadline >= 0) {
+            startElection();
+        }
+        forwarded.entrySet().removeIf(entry -> {
+            if (now - entry.getValue().deadline < 0) {
+                return false;
+            }
+            entry.getValue().callback.accept(notLeader());
+            return true;
+        });
+        if (now - lastCompactCheck >= COMPACT_CHECK_NANOS) {
+            lastCompactCheck = now;
+            compactIfNecessary();
+        }
+    }
+
+    private void handleCommand(RaftCommand command, Consumer<RaftResult> callback) {
+        if (role == Role.LEADER) {
+            if (command.isRead()) {
+                callback.accept(leaseValid() ? stateMachine.execute(command) : notLeader());
+                return;
+            }
+            proposals.add(new Proposal(command, callback));
+            run(this::flush);
+            return;
+        }
+        if (leaderId < 0) {
+            callback.accept(notLeader());
+            return;
+        }
+        long requestId = ++requestIds;
+        forwarded.put(requestId, new Forwarded(callback,
+                loop.nanoTime() + TimeUnit.MILLISECONDS.toNanos(managerConfig.getRaftTimeout())));
+        RaftMessage request = message(RaftMessage.CLIENT_REQUEST);
+        request.setRequestId(requestId);
+        request.setCommand(command);
+        transport.send(leaderId, request);
+    }
+
+    private void handleClientRequest(RaftMessage message) {
+        Consumer<RaftResult> callback = result -> {
+            RaftMessage resp = message(RaftMessage.CLIENT_RESP);
+            resp.setRequestId(message.getRequestId());
+            resp.setResult(result);
+            transport.send(message.getFrom(), resp);
+        };
+        // forwarded once only
+        if (role != Role.LEADER) {
+            callback.accept(notLeader());
+            return;
+        }
+        handleCommand(message.getCommand(), callback);
+    }
+
+    private void flush() throws IOException {
+        flushScheduled.set(false);
+        if (proposals.isEmpty()) {
+            return;
+        }
+        if (role != Role.LEADER) {
+            for (Proposal proposal = proposals.poll(); Objects.nonNull(proposal); proposal = proposals.poll()) {
+                proposal.callback.accept(notLeader());
+            }
+            return;
+        }
+        while (!proposals.isEmpty()) {
+            List<Proposal> batch = new ArrayList<>();
+            for (Proposal proposal = proposals.poll(); Objects.nonNull(proposal); proposal = proposals.poll()) {
+                batch.add(proposal);
+                if (batch.size() == MAX_BATCH) {
+                    break;
+                }
+            }
+            appendEntry(batch);
+        }
+        raftLog.sync();
+        for (int peer = 0; peer < members.size(); peer++) {
+            if (peer != id) {
+                replicate(peer, false);
+            }
+        }
+        advanceCommitIndex();
+    }
+
+    private void appendEntry(List<Proposal> batch) throws IOException {
+        long index = raftLog.lastIndex() + 1;
+        // entry timestamps never go back, even if clocks of members differ
+        long timestamp = Math.max(System.currentTimeMillis(), Math.max(raftLog.lastTimestamp(), stateMachine.clock()));
+        List<RaftCommand> commands = batch.stream().map(proposal -> proposal.command).collect(Collectors.toList());
+        try {
+            raftLog.append(new RaftEntry(index, raftLog.term(), timestamp, commands));
+        } catch (IOException e) {
+            batch.forEach(proposal -> proposal.callback.accept(
+                    RaftResult.fail(FastStorageException.EX_CODE_UNAVAILABLE, "raft log append error.")));
+            throw e;
+        }
+        if (!batch.isEmpty()) {
+            inflight.put(index, batch);
+        }
+        lastAppendTime = loop.nanoTime();
+    }
+
+    private void replicate(int peer, boolean heartbeat) {
+        long now = loop.nanoTime();
+        if (nextIndex[peer] <= raftLog.snapshotIndex()) {
+            sendSnapshot(peer, now);
+            return;
+        }
+        long from = Math.max(nextIndex[peer], sentIndex[peer] + 1);
+        if (heartbeat && sentIndex[peer] >= nextIndex[peer] && now - sentTime[peer] > RETRANSMIT_NANOS) {
+            // acks are late, the connection may have dropped them
+            from = nextIndex[peer];
+        }
+        if (!heartbeat && from > raftLog.lastIndex()) {
+            return;
+        }
+        List<RaftEntry> entries = raftLog.entriesFrom(from, MAX_ENTRIES_PER_APPEND);
+        RaftMessage request = message(RaftMessage.APPEND_ENTRIES);
+        request.setLogIndex(from - 1);
+        request.setLogTerm(raftLog.termOf(from - 1));
+        request.setEntries(entries);
+        request.setLeaderCommit(commitIndex);
+        request.setSendTime(now);
+        if (!entries.isEmpty()) {
+            sentIndex[peer] = from - 1 + entries.size();
+            sentTime[peer] = now;
+        }
+        transport.send(peer, request);
+    }
+
+    private void sendSnapshot(int peer, long now) {
+        if (now - snapshotSentTime[peer] < SNAPSHOT_RETRY_NANOS) {
+            return;
+        }
+        snapshotSentTime[peer] = now;
+        try {
+            RaftMessage request = message(RaftMessage.INSTALL_SNAPSHOT);
+            request.setSnapshot(raftLog.readSnapshot());
+            request.setSendTime(now);
+            transport.send(peer, request);
+            log.info("send snapshot {} to raft member {}", raftLog.snapshotIndex(), members.get(peer));
+        } catch (IOException e) {
+            log.error("read raft snapshot error.", e);
+        }
+    }
+
+    private void handleAppendEntries(RaftMessage message) throws IOException {
+        RaftMessage resp = message(RaftMessage.APPEND_ENTRIES_RESP);
+        resp.setSendTime(message.getSendTime());
+        if (message.getTerm() < raftLog.term()) {
+            resp.setMatchIndex(raftLog.lastIndex());
+            transport.send(message.getFrom(), resp);
+            return;
+        }
+        becomeFollower(message.getTerm(), message.getFrom());
+        long prev = message.getLogIndex();
+        if (prev > raftLog.lastIndex()) {
+            resp.setMatchIndex(raftLog.lastIndex());
+        } else if (prev > raftLog.snapshotIndex() && raftLog.termOf(prev) != message.getLogTerm()) {
+            // committed entries are the same as leader's
+            resp.setMatchIndex(Math.min(commitIndex, prev - 1));
+        } else {
+            List<RaftEntry> entries = Optional.ofNullable(message.getEntries()).orElse(Collections.emptyList());
+            boolean appended = false;
+            for (RaftEntry entry : entries) {
+                if (entry.getIndex() <= raftLog.snapshotIndex()) {
+                    continue;
+                }
+                if (entry.getIndex() <= raftLog.lastIndex()) {
+                    if (raftLog.termOf(entry.getIndex()) == entry.getTerm()) {
+                        continue;
+                    }
+                    raftLog.truncateFrom(entry.getIndex());
+                }
+                raftLog.append(entry);
+                appended = true;
+            }
+            if (appended) {
+                raftLog.sync();
+            }
+            long match = Math.max(prev + entries.size(), raftLog.snapshotIndex());
+            long commit = Math.min(message.getLeaderCommit(), match);
+            if (commit > commitIndex) {
+                commitIndex = commit;
+                apply();
+            }
+            resp.setSuccess(true);
+            resp.setMatchIndex(match);
+        }
+        transport.send(message.getFrom(), resp);
+    }
+
+    private void handleAppendEntriesResp(RaftMessage message) throws IOException {
+        if (message.getTerm() > raftLog.term()) {
+            becomeFollower(message.getTerm(), -1);
+            return;
+        }
+        if (role != Role.LEADER || message.getTerm() != raftLog.term()) {
+            return;
+        }
+        int peer = message.getFrom();
+        ackTime[peer] = Math.max(ackTime[peer], message.getSendTime());
+        updateLease();
+        if (message.isSuccess()) {
+            matchIndex[peer] = Math.max(matchIndex[peer], message.getMatchIndex());
+            nextIndex[peer] = Math.max(nextIndex[peer], matchIndex[peer] + 1);
+            sentIndex[peer] = Math.max(sentIndex[peer], matchIndex[peer]);
+            advanceCommitIndex();
+        } else {
+            nextIndex[peer] = Math.max(matchIndex[peer], message.getMatchIndex()) + 1;
+            sentIndex[peer] = nextIndex[peer] - 1;
+        }
+        replicate(peer, false);
+    }
+
+    private void handleInstallSnapshot(RaftMessage message) throws IOException {
+        RaftMessage resp = message(RaftMessage.APPEND_ENTRIES_RESP);
+        resp.setSendTime(message.getSendTime());
+        if (message.getTerm() < raftLog.term() || Objects.isNull(message.getSnapshot())) {
+            resp.setMatchIndex(raftLog.lastIndex());
+            transport.send(message.getFrom(), resp);
+            return;
+        }
+        becomeFollower(message.getTerm(), message.getFrom());
+        RaftLog.Snapshot snapshot = RaftLog.Snapshot.decode(message.getSnapshot());
+        if (snapshot.index > lastApplied) {
+            raftLog.install(snapshot);
+            RaftStateMachine installed = new RaftStateMachine(managerConfig);
+            installed.installSnapshot(snapshot.state, snapshot.timestamp);
+            RaftStateMachine old = stateMachine;
+            stateMachine = installed;
+            old.close();
+            commitIndex = lastApplied = snapshot.index;
+            log.info("installed snapshot {} from raft leader {}", snapshot.index, members.get(message.getFrom()));
+        }
+        resp.setSuccess(true);
+        resp.setMatchIndex(snapshot.index);
+        transport.send(message.getFrom(), resp);
+    }
+
+    private void handleRequestVote(RaftMessage message) throws IOException {
+        RaftMessage resp = message(RaftMessage.REQUEST_VOTE_RESP);
+        // a member hearing from leader never votes, which keeps the leader lease
+        boolean leaderAlive = role == Role.LEADER || (leaderId >= 0 &&
+                loop.nanoTime() - lastLeaderContact < TimeUnit.MILLISECONDS.toNanos(ELECTION_TIMEOUT_MIN));
+        if (message.getTerm() < raftLog.term() || leaderAlive) {
+            resp.setTerm(raftLog.term());
+            transport.send(message.getFrom(), resp);
+            return;
+        }
+        if (message.getTerm() > raftLog.term()) {
+            becomeFollower(message.getTerm(), -1);
+        }
+        boolean upToDate = message.getLogTerm() > raftLog.lastTerm() ||
+                (message.getLogTerm() == raftLog.lastTerm() && message.getLogIndex() >= raftLog.lastIndex());
+        int votedFor = raftLog.votedFor();
+        if (upToDate && (votedFor == -1 || votedFor == message.getFrom())) {
+            raftLog.saveMeta(raftLog.term(), message.getFrom());
+            raftLog.sync();
+            resetElectionDeadline();
+            resp.setSuccess(true);
+        }
+        resp.setTerm(raftLog.term());
+        transport.send(message.getFrom(), resp);
+    }
+
+    private void handleRequestVoteResp(RaftMessage message) throws IOException {
+        if (message.getTerm() > raftLog.term()) {
+            becomeFollower(message.getTerm(), -1);
+            return;
+        }
+        if (role == Role.CANDIDATE && message.getTerm() == raftLog.term() && message.isSuccess()) {
+            votes.add(message.getFrom());
+            if (votes.size() >= quorum) {
+                becomeLeader();
+            }
+        }
+    }
+
+    private void startElection() throws IOException {
+        role = Role.CANDIDATE;
+        leaderId = -1;
+        raftLog.saveMeta(raftLog.term() + 1, id);
+        raftLog.sync();
+        votes.clear();
+        votes.add(id);
+        resetElectionDeadline();
+        log.debug("raft member {} starts election of term {}", members.get(id), raftLog.term());
+        if (votes.size() >= quorum) {
+            becomeLeader();
+            return;
+        }
+        RaftMessage request = message(RaftMessage.REQUEST_VOTE);
+        request.setLogIndex(raftLog.lastIndex());
+        request.setLogTerm(raftLog.lastTerm());
+        for (int peer = 0; peer < members.size(); peer++) {
+            if (peer != id) {
+                transport.send(peer, request);
+            }
+        }
+    }
+
+    private void becomeLeader() throws IOException {
+        role = Role.LEADER;
+        leaderId = id;
+        readable = false;
+        leaseDeadline = 0;
+        for (int peer = 0; peer < members.size(); peer++) {
+            nextIndex[peer] = raftLog.lastIndex() + 1;
+            matchIndex[peer] = 0;
+            sentIndex[peer] = raftLog.lastIndex();
+            ackTime[peer] = 0;
+            snapshotSentTime[peer] = 0;
+        }
+        // commits entries of previous terms, and reads wait for it
+        appendEntry(Collections.emptyList());
+        raftLog.sync();
+        noopIndex = raftLog.lastIndex();
+        log.info("raft member {} is leader of term {}", members.get(id), raftLog.term());
+        for (int peer = 0; peer < members.size(); peer++) {
+            if (peer != id) {
+                replicate(peer, true);
+            }
+        }
+        advanceCommitIndex();
+    }
+
+    private void becomeFollower(long term, int leader) throws IOException {
+        if (term > raftLog.term()) {
+            raftLog.saveMeta(term, -1);
+            raftLog.sync();
+        }
+        if (role == Role.LEADER) {
+            log.info("raft member {} steps down in term {}", members.get(id), raftLog.term());
+            // may be committed by next leader, commands of TM are idempotent
+            inflight.values().forEach(batch -> batch.forEach(proposal -> proposal.callback.accept(notLeader())));
+            inflight.clear();
+        }
+        role = Role.FOLLOWER;
+        readable = false;
+        leaseDeadline = 0;
+        leaderId = leader;
+        if (leader >= 0) {
+            lastLeaderContact = loop.nanoTime();
+            resetElectionDeadline();
+        }
+    }
+
+    private void advanceCommitIndex() {
+        if (role != Role.LEADER) {
+            return;
+        }
+        // entries of leader count once they are on its disk
+        matchIndex[id] = raftLog.syncedIndex();
+        long[] sorted = matchIndex.clone();
+        Arrays.sort(sorted);
+        long majority = sorted[members.size() - quorum];
+        // entries of previous terms are committed by an entry of current term
+        if (majority > commitIndex && raftLog.termOf(majority) == raftLog.term()) {
+            commitIndex = majority;
+            apply();
+        }
+    }
+
+    private void apply() {
+        while (lastApplied < commitIndex) {
+            RaftEntry entry = raftLog.entry(lastApplied + 1);
+            if (Objects.isNull(entry)) {
+                break;
+            }
+            List<RaftResult> results = stateMachine.apply(entry);
+            lastApplied = entry.getIndex();
+            List<Proposal> batch = inflight.remove(entry.getIndex());
+            if (Objects.nonNull(batch)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).callback.accept(results.get(i));
+                }
+            }
+            if (role == Role.LEADER && lastApplied >= noopIndex) {
+                readable = true;
+            }
+        }
+    }
+
+    private void updateLease() {
+        long[] sorted = ackTime.clone();
+        sorted[id] = loop.nanoTime();
+        Arrays.sort(sorted);
+        leaseDeadline = sorted[members.size() - quorum] + LEASE_NANOS;
+    }
+
+    private boolean leaseValid() {
+        return role == Role.LEADER && readable && (quorum == 1 || loop.nanoTime() - leaseDeadline < 0);
+    }
+
+    private void compactIfNecessary() throws IOException {
+        if (lastApplied - raftLog.snapshotIndex() < managerConfig.getRaftSnapshotThreshold()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        raftLog.compact(lastApplied, stateMachine.clock(), stateMachine.takeSnapshot());
+        log.debug("raft log compacted to {}, cost: {}ms", lastApplied, System.currentTimeMillis() - start);
+    }
+
+    private void resetElectionDeadline() {
+        long timeout = loop.electionTimeout(ELECTION_TIMEOUT_MIN, ELECTION_TIMEOUT_MAX);
+        electionDeadline = loop.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    private RaftMessage message(int type) {
+        return RaftMessage.of(type, id, raftLog.term());
+    }
+
+    private static RaftResult notLeader() {
+        return RaftResult.fail(RaftResult.NOT_LEADER, "not raft leader");
+    }
+
+    private static void run(LoopTask task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            log.error("raft loop error.", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LoopTask {
+        void run() throws Exception;
+    }
+
+    private enum Role {
+        FOLLOWER, CANDIDATE, LEADER
+    }
+
+    private static class Proposal {
+
+        private final RaftCommand command;
+
+        private final Consumer<RaftResult> callback;
+
+        private Proposal(RaftCommand command, Consumer<RaftResult> callback) {
+            this.command = command;
+            this.callback = callback;
+        }
+    }
+
+    private static class Forwarded {
+
+        private final Consumer<RaftResult> callback;
+
+        private final long deadline;
+
+        private Forwarded(Consumer<RaftResult> callback, long deadline) {
+            this.callback = callback;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import com.codingapi.txlcn.tm.cluster.TMProperties;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Description: result of RaftCommand. code 0 is ok, FastStorageException's code when the operation fails.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Data
+public class RaftResult {
+
+    public static final int OK = 0;
+
+    /**
+     * not applied, retry on leader
+     */
+    public static final int NOT_LEADER = -1;
+
+    private int code;
+
+    private String message;
+
+    private long value;
+
+    private List<String> strings;
+
+    private List<TransactionUnit> units;
+
+    private List<TMProperties> tmProperties;
+
+    public static RaftResult ok(long value) {
+        RaftResult result = new RaftResult();
+        result.setValue(value);
+        return result;
+    }
+
+    public static RaftResult fail(int code, String message) {
+        RaftResult result = new RaftResult();
+        result.setCode(code);
+        result.setMessage(message);
+        return result;
+    }
+}
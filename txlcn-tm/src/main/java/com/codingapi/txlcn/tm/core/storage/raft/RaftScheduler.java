@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: loop of a raft member. runs its tasks one at a time and its heartbeat tick,
+ * and is the clock of elections, heartbeats and the leader lease.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+interface RaftScheduler extends Executor, AutoCloseable {
+
+    /**
+     * runs tick in the loop with fixed delay
+     *
+     * @param tick     tick
+     * @param interval delay (ms)
+     */
+    void scheduleTick(Runnable tick, long interval);
+
+    /**
+     * @return monotonic time (nanos)
+     */
+    long nanoTime();
+
+    /**
+     * @param min inclusive (ms)
+     * @param max exclusive (ms)
+     * @return random election timeout (ms)
+     */
+    long electionTimeout(long min, long max);
+
+    @Override
+    void close();
+
+    /**
+     * @return loop on a daemon thread with the system clock
+     */
+    static RaftScheduler threaded() {
+        ScheduledExecutorService loop = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("tm-raft").build());
+        return new RaftScheduler() {
+            @Override
+            public void execute(Runnable task) {
+                loop.execute(task);
+            }
+
+            @Override
+            public void scheduleTick(Runnable tick, long interval) {
+                loop.scheduleWithFixedDelay(tick, interval, interval, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public long electionTimeout(long min, long max) {
+                return ThreadLocalRandom.current().nextLong(min, max);
+            }
+
+            @Override
+            public void close() {
+                loop.shutdown();
+                try {
+                    loop.awaitTermination(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
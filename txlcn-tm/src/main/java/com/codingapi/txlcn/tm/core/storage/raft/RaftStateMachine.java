@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.memory.MemorySnapshot;
+import com.codingapi.txlcn.tm.core.storage.memory.MemoryStorage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Description: replicated state of RaftStorage. its clock is the timestamp of the applying (or last applied) entry,
+ * entry timestamps never go back, so every member expires groups and locks at the same log position.
+ * leader appends a no-op entry when idle, which moves the clock of an idle cluster.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+class RaftStateMachine extends MemoryStorage {
+
+    /**
+     * recheck interval of expiration when the clock falls behind wall clock
+     */
+    private static final long RECHECK_INTERVAL = 100;
+
+    private volatile long clock;
+
+    RaftStateMachine(TxManagerConfig managerConfig) {
+        super(managerConfig);
+    }
+
+    /**
+     * applies an entry, commands are applied in order
+     *
+     * @param entry committed entry
+     * @return result of every command
+     */
+    List<RaftResult> apply(RaftEntry entry) {
+        clock = Math.max(clock, entry.getTimestamp());
+        if (Objects.isNull(entry.getCommands())) {
+            return new ArrayList<>(0);
+        }
+        List<RaftResult> results = new ArrayList<>(entry.getCommands().size());
+        for (RaftCommand command : entry.getCommands()) {
+            results.add(execute(command));
+        }
+        return results;
+    }
+
+    /**
+     * executes a command on this member
+     *
+     * @param command command
+     * @return result
+     */
+    RaftResult execute(RaftCommand command) {
+        try {
+            switch (command.getType()) {
+                case RaftCommand.INIT_GROUP:
+                    initGroup(command.getKey());
+                    return RaftResult.ok(0);
+                case RaftCommand.JOIN_GROUP:
+                    saveTransactionUnitToGroup(command.getKey(), command.getTransactionUnit());
+                    return RaftResult.ok(0);
+                case RaftCommand.CLEAR_GROUP:
+                    clearGroup(command.getKey());
+                    return RaftResult.ok(0);
+                case RaftCommand.SAVE_STATE:
+                    saveTransactionState(command.getKey(), (int) command.getValue());
+                    return RaftResult.ok(0);
+                case RaftCommand.ACQUIRE_LOCKS:
+                    return RaftResult.ok(acquireLocks(command.getKey(), command.getKeys(), command.getLockValue()));
+                case RaftCommand.RELEASE_LOCKS:
+                    releaseLocks(command.getKey(), command.getKeys(), command.getLockValue());
+                    return RaftResult.ok(0);
+                case RaftCommand.RENEW_LOCKS:
+                    renewLocks(command.getKeys());
+                    return RaftResult.ok(0);
+                case RaftCommand.SAVE_TOKEN:
+                    saveToken(command.getKey());
+                    return RaftResult.ok(0);
+                case RaftCommand.REMOVE_TOKEN:
+                    removeToken(command.getKey());
+                    return RaftResult.ok(0);
+                case RaftCommand.SAVE_TM_PROPERTIES:
+                    saveTMProperties(command.getTmProperties());
+                    return RaftResult.ok(0);
+                case RaftCommand.REMOVE_TM_PROPERTIES:
+                    removeTMProperties(command.getKey(), (int) command.getValue());
+                    return RaftResult.ok(0);
+                case RaftCommand.ACQUIRE_MACHINE_ID:
+                    return RaftResult.ok(acquireOrRefreshMachineId((int) command.getValue(),
+                            command.getMachineMaxSize(), command.getTimeout()));
+                case RaftCommand.REFRESH_MACHINE_IDS:
+                    refreshMachineIds(command.getKeys().stream().map(Integer::valueOf).collect(Collectors.toSet()),
+                            command.getTimeout());
+                    return RaftResult.ok(0);
+                case RaftCommand.CONTAINS_GROUP:
+                    return RaftResult.ok(containsGroup(command.getKey()) ? 1 : 0);
+                case RaftCommand.FIND_UNITS:
+                    RaftResult units = RaftResult.ok(0);
+                    units.setUnits(findTransactionUnitsFromGroup(command.getKey()));
+                    return units;
+                case RaftCommand.GET_STATE:
+                    return RaftResult.ok(getTransactionState(command.getKey()));
+                case RaftCommand.FIND_LOCK_HOLDERS:
+                    RaftResult holders = RaftResult.ok(0);
+                    holders.setStrings(new ArrayList<>(findLockHolders(command.getKey(), command.getKeys())));
+                    return holders;
+                case RaftCommand.FIND_LOCK_HOLDERS_BY_LOCK:
+                    // lock, holder pairs
+                    List<String> pairs = new ArrayList<>();
+                    findLockHoldersByLock(command.getKey(), command.getKeys()).forEach((lock, lockHolders) ->
+                            lockHolders.forEach(holder -> {
+                                pairs.add(lock);
+                                pairs.add(holder);
+                            }));
+                    RaftResult holdersByLock = RaftResult.ok(0);
+                    holdersByLock.setStrings(pairs);
+                    return holdersByLock;
+                case RaftCommand.FIND_TOKENS:
+                    RaftResult tokens = RaftResult.ok(0);
+                    tokens.setStrings(findTokens());
+                    return tokens;
+                case RaftCommand.FIND_TM_PROPERTIES:
+                    RaftResult tmProperties = RaftResult.ok(0);
+                    tmProperties.setTmProperties(findTMProperties());
+                    return tmProperties;
+                default:
+                    return RaftResult.fail(FastStorageException.EX_CODE_UNAVAILABLE,
+                            "unknown raft command " + command.getType());
+            }
+        } catch (FastStorageException e) {
+            return RaftResult.fail(e.getCode(), e.getMessage());
+        } catch (RuntimeException e) {
+            return RaftResult.fail(FastStorageException.EX_CODE_UNAVAILABLE, e.toString());
+        }
+    }
+
+    /**
+     * @return snapshot at clock
+     * @throws IOException IOException
+     */
+    byte[] takeSnapshot() throws IOException {
+        return snapshot().encode();
+    }
+
+    void installSnapshot(byte[] data, long timestamp) throws IOException {
+        clock = Math.max(clock, timestamp);
+        restore(MemorySnapshot.decode(data));
+    }
+
+    long clock() {
+        return clock;
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+        return clock;
+    }
+
+    @Override
+    protected long expirationDeadline(long expireAt) {
+        if (expireAt <= clock) {
+            return expireAt;
+        }
+        return Math.max(expireAt, System.currentTimeMillis() + RECHECK_INTERVAL);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.cluster.TMProperties;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.FastStorage;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Description: FastStorage replicated by raft among TMs (tx-lcn.manager.raft-members), non redis required.
+ * every member keeps the whole state in memory (MemoryStorage) and a raft log under journal dir.
+ * mutations are committed by a majority before they return, reads are served by the leader.
+ * a member forwards commands to the leader. available while a majority of members is up.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+public class RaftStorage implements FastStorage, AutoCloseable {
+
+    private static final long RETRY_INTERVAL = 20;
+
+    private final TxManagerConfig managerConfig;
+
+    private final RaftNode raftNode;
+
+    public RaftStorage(TxManagerConfig managerConfig) {
+        this.managerConfig = managerConfig;
+        String self = managerConfig.getHost() + ":" + managerConfig.getRaftPort();
+        List<String> members = managerConfig.getRaftMembers().isEmpty() ?
+                Collections.singletonList(self) : new ArrayList<>(managerConfig.getRaftMembers());
+        int id = members.indexOf(self);
+        if (id < 0) {
+            throw new IllegalStateException("raft members " + members + " not contains this TM " + self);
+        }
+        try {
+            this.raftNode = new RaftNode(id, members, managerConfig,
+                    Paths.get(managerConfig.getJournalDir(), "raft-" + managerConfig.getRaftPort()));
+            this.raftNode.start();
+        } catch (IOException e) {
+            throw new IllegalStateException("raft storage start fail. dir: " + managerConfig.getJournalDir(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("raft storage start interrupted.", e);
+        }
+    }
+
+    @Override
+    public void initGroup(String groupId) throws FastStorageException {
+        call(RaftCommand.of(RaftCommand.INIT_GROUP, groupId));
+    }
+
+    @Override
+    public boolean containsGroup(String groupId) {
+        try {
+            return call(RaftCommand.of(RaftCommand.CONTAINS_GROUP, groupId)).getValue() == 1;
+        } catch (FastStorageException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<TransactionUnit> findTransactionUnitsFromGroup(String groupId) throws FastStorageException {
+        RaftResult result = call(RaftCommand.of(RaftCommand.FIND_UNITS, groupId));
+        return Objects.isNull(result.getUnits()) ? new ArrayList<>() : result.getUnits();
+    }
+
+    @Override
+    public void saveTransactionUnitToGroup(String groupId, TransactionUnit transactionUnit) throws FastStorageException {
+        RaftCommand command = RaftCommand.of(RaftCommand.JOIN_GROUP, groupId);
+        command.setTransactionUnit(transactionUnit);
+        call(command);
+    }
+
+    @Override
+    public void clearGroup(String groupId) throws FastStorageException {
+        call(RaftCommand.of(RaftCommand.CLEAR_GROUP, groupId));
+    }
+
+    @Override
+    public void saveTransactionState(String groupId, int state) throws FastStorageException {
+        RaftCommand command = RaftCommand.of(RaftCommand.SAVE_STATE, groupId);
+        command.setValue(state);
+        call(command);
+    }
+
+    @Override
+    public int getTransactionState(String groupId) throws FastStorageException {
+        return (int) call(RaftCommand.of(RaftCommand.GET_STATE, groupId)).getValue();
+    }
+
+    @Override
+    public long acquireLocks(String contextId, Set<String> locks, LockValue lockValue) throws FastStorageException {
+        RaftCommand command = RaftCommand.of(RaftCommand.ACQUIRE_LOCKS, contextId);
+        command.setKeys(locks);
+        command.setLockValue(lockValue);
+        return call(command).getValue();
+    }
+
+    @Override
+    public void releaseLocks(String contextId, Set<String> locks, LockValue lockValue) throws FastStorageException {
+        RaftCommand command = RaftCommand.of(RaftCommand.RELEASE_LOCKS, contextId);
+        command.setKeys(locks);
+        command.setLockValue(lockValue);
+        call(command);
+    }
+
+    @Override
+    public void renewLocks(Set<String> groupIds) throws FastStorageException {
+        if (Objects.isNull(groupIds) || groupIds.isEmpty()) {
+            return;
+        }
+        RaftCommand command = RaftCommand.of(RaftCommand.RENEW_LOCKS, null);
+        command.setKeys(groupIds);
+        call(command);
+    }
+
+    @Override
+    public Set<String> findLockHolders(String contextId, Set<String> locks) throws FastStorageException {
+        RaftCommand command = RaftCommand.of(RaftCommand.FIND_LOCK_HOLDERS, contextId);
+        command.setKeys(locks);
+        RaftResult result = call(command);
+        return Objects.isNull(result.getStrings()) ? new HashSet<>() : new HashSet<>(result.getStrings());
+    }
+
+    @Override
+    public Map<String, Set<String>> findLockHoldersByLock(String contextId, Set<String> locks)
+            throws FastStorageException {
+        RaftCommand command = RaftCommand.of(RaftCommand.FIND_LOCK_HOLDERS_BY_LOCK, contextId);
+        command.setKeys(locks);
+        RaftResult result = call(command);
+        Map<String, Set<String>> holders = new HashMap<>();
+        List<String> pairs = Objects.isNull(result.getStrings()) ? Collections.emptyList() : result.getStrings();
+        for (int i = 0; i + 1 < pairs.size(); i += 2) {
+            holders.computeIfAbsent(pairs.get(i), k -> new HashSet<>()).add(pairs.get(i + 1));
+        }
+        return holders;
+    }
+
+    @Override
+    public void saveToken(String token) throws FastStorageException {
+        call(RaftCommand.of(RaftCommand.SAVE_TOKEN, token));
+    }
+
+    @Override
+    public List<String> findTokens() throws FastStorageException {
+        RaftResult result = call(RaftCommand.of(RaftCommand.FIND_TOKENS, null));
+        return Objects.isNull(result.getStrings()) ? new ArrayList<>() : result.getStrings();
+    }
+
+    @Override
+    public void removeToken(String token) throws FastStorageException {
+        call(RaftCommand.of(RaftCommand.REMOVE_TOKEN, token));
+    }
+
+    @Override
+    public void saveTMProperties(TMProperties tmProperties) throws FastStorageException {
+        RaftCommand command = RaftCommand.of(RaftCommand.SAVE_TM_PROPERTIES, null);
+        command.setTmProperties(tmProperties);
+        call(command);
+    }
+
+    @Override
+    public List<TMProperties> findTMProperties() throws FastStorageException {
+        RaftResult result = call(RaftCommand.of(RaftCommand.FIND_TM_PROPERTIES, null));
+        return Objects.isNull(result.getTmProperties()) ? new ArrayList<>() : result.getTmProperties();
+    }
+
+    @Override
+    public void removeTMProperties(String host, int transactionPort) throws FastStorageException {
+        RaftCommand command = RaftCommand.of(RaftCommand.REMOVE_TM_PROPERTIES, host);
+        command.setValue(transactionPort);
+        call(command);
+    }
+
+    @Override
+    public int acquireOrRefreshMachineId(int machineId, long machineMaxSize, long timeout) throws FastStorageException {
+        RaftCommand command = RaftCommand.of(RaftCommand.ACQUIRE_MACHINE_ID, null);
+        command.setValue(machineId);
+        command.setMachineMaxSize(machineMaxSize);
+        command.setTimeout(timeout);
+        return (int) call(command).getValue();
+    }
+
+    @Override
+    public void refreshMachineIds(Set<Integer> machineIds, long timeout) throws FastStorageException {
+        if (Objects.isNull(machineIds) || machineIds.isEmpty()) {
+            return;
+        }
+        RaftCommand command = RaftCommand.of(RaftCommand.REFRESH_MACHINE_IDS, null);
+        command.setKeys(machineIds.stream().map(String::valueOf).collect(Collectors.toSet()));
+        command.setTimeout(timeout);
+        call(command);
+    }
+
+    @Override
+    public void close() {
+        raftNode.close();
+    }
+
+    /**
+     * submits command to raft, retries while leader is unknown or changing
+     */
+    private RaftResult call(RaftCommand command) throws FastStorageException {
+        long deadline = System.currentTimeMillis() + managerConfig.getRaftTimeout();
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new FastStorageException("raft storage unavailable, non leader responds in " +
+                        managerConfig.getRaftTimeout() + "ms", FastStorageException.EX_CODE_UNAVAILABLE);
+            }
+            RaftResult result;
+            try {
+                result = raftNode.submit(command).get(remaining, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FastStorageException(e, FastStorageException.EX_CODE_UNAVAILABLE);
+            } catch (ExecutionException | TimeoutException e) {
+                continue;
+            }
+            if (result.getCode() == RaftResult.NOT_LEADER) {
+                try {
+                    Thread.sleep(Math.min(RETRY_INTERVAL, remaining));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new FastStorageException(e, FastStorageException.EX_CODE_UNAVAILABLE);
+                }
+                continue;
+            }
+            if (result.getCode() != RaftResult.OK) {
+                throw new FastStorageException(result.getMessage(), result.getCode());
+            }
+            return result;
+        }
+    }
+}
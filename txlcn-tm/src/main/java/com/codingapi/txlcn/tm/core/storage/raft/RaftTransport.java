@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+/**
+ * Description: one-way messages between raft members. a message may be dropped, never duplicated,
+ * raft retries it. received messages go to the handler given by the member.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+interface RaftTransport extends AutoCloseable {
+
+    void start() throws InterruptedException;
+
+    /**
+     * sends a message, dropped when the peer is unreachable
+     *
+     * @param peer    member id
+     * @param message message
+     */
+    void send(int peer, RaftMessage message);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.redis;
+
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Description: redis value serializer of RedisStorage (tx-lcn.manager.redis-codec).
+ * compact layout: version byte, type byte, then fields. strings are varint(length + 1) and UTF-8 bytes, 0 is null.
+ * numbers are varint. String values are raw UTF-8 after the header. other types are java serialization.
+ * this serializer reads values of both layouts, java serialization stream starts with 0xAC which is never a version.
+ * TMs of previous version read java serialization only, so switch to compact only after every TM is upgraded.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    public static final String JDK = "jdk";
+
+    public static final String COMPACT = "compact";
+
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_STRING = 1;
+
+    private static final byte TYPE_TRANSACTION_UNIT = 2;
+
+    private static final byte TYPE_LOCK_VALUE = 3;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    private final boolean compact;
+
+    /**
+     * @param codec values written in, jdk or compact
+     */
+    public CompactRedisSerializer(String codec) {
+        if (!JDK.equals(codec) && !COMPACT.equals(codec)) {
+            throw new IllegalStateException("unknown redis codec: " + codec);
+        }
+        this.compact = COMPACT.equals(codec);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (Objects.isNull(value)) {
+            return EMPTY;
+        }
+        if (!compact) {
+            return jdkSerializer.serialize(value);
+        }
+        if (value instanceof String) {
+            byte[] string = ((String) value).getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = new byte[string.length + 2];
+            bytes[0] = VERSION;
+            bytes[1] = TYPE_STRING;
+            System.arraycopy(string, 0, bytes, 2, string.length);
+            return bytes;
+        }
+        if (value instanceof TransactionUnit) {
+            TransactionUnit unit = (TransactionUnit) value;
+            Output out = new Output(TYPE_TRANSACTION_UNIT);
+            out.writeString(unit.getUnitId());
+            out.writeString(unit.getUnitType());
+            out.writeString(unit.getModId());
+            return out.toByteArray();
+        }
+        if (value instanceof LockValue) {
+            LockValue lockValue = (LockValue) value;
+            Output out = new Output(TYPE_LOCK_VALUE);
+            out.writeString(lockValue.getGroupId());
+            out.writeVarLong(lockValue.getLockType());
+            out.writeVarLong(lockValue.getFencingToken());
+            return out.toByteArray();
+        }
+        return jdkSerializer.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (Objects.isNull(bytes) || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != VERSION) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        if (bytes.length < 2) {
+            throw new SerializationException("truncated redis value.");
+        }
+        Input in = new Input(bytes, 2);
+        try {
+            switch (bytes[1]) {
+                case TYPE_STRING:
+                    return new String(bytes, 2, bytes.length - 2, StandardCharsets.UTF_8);
+                case TYPE_TRANSACTION_UNIT:
+                    TransactionUnit unit = new TransactionUnit();
+                    unit.setUnitId(in.readString());
+                    unit.setUnitType(in.readString());
+                    unit.setModId(in.readString());
+                    return unit;
+                case TYPE_LOCK_VALUE:
+                    LockValue lockValue = new LockValue();
+                    lockValue.setGroupId(in.readString());
+                    lockValue.setLockType((int) in.readVarLong());
+                    lockValue.setFencingToken(in.readVarLong());
+                    return lockValue;
+                default:
+                    throw new SerializationException("unknown redis value type " + bytes[1]);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("truncated redis value.", e);
+        }
+    }
+
+    private static class Output extends ByteArrayOutputStream {
+
+        Output(byte type) {
+            super(32);
+            write(VERSION);
+            write(type);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeString(String value) {
+            if (Objects.isNull(value)) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] string = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(string.length + 1);
+            write(string, 0, string.length);
+        }
+    }
+
+    private static class Input {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        Input(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("malformed varint.");
+        }
+
+        String readString() {
+            int length = (int) readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (position + length > bytes.length) {
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
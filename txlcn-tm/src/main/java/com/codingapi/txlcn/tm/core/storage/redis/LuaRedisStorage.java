@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.redis;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: RedisStorage which every group operation costs one round trip.
+ * group init and join are Lua scripts (EVALSHA), other operations are single redis commands.
+ * a join falls back to legacy group key when legacy read enabled.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+public class LuaRedisStorage extends RedisStorage {
+
+    /**
+     * KEYS[1] group key, ARGV[1] root value, ARGV[2] ttl(ms)
+     */
+    private static final RedisLuaScript INIT_GROUP = new RedisLuaScript(
+            "redis.call('HSET', KEYS[1], 'root', ARGV[1]) " +
+                    "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+                    "return 1");
+
+    /**
+     * KEYS[1] group key, ARGV[1] unitId, ARGV[2] unit. 0 when group non exists.
+     */
+    private static final RedisLuaScript JOIN_GROUP = new RedisLuaScript(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+                    "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) " +
+                    "return 1");
+
+    public LuaRedisStorage(RedisTemplate<String, Object> redisTemplate, StringRedisTemplate stringRedisTemplate,
+                           TxManagerConfig managerConfig) {
+        super(redisTemplate, stringRedisTemplate, managerConfig);
+        loadScripts();
+    }
+
+    @Override
+    public void initGroup(String groupId) {
+        INIT_GROUP.execute(getRedisTemplate(), ReturnType.INTEGER, 1,
+                key(keys().group(groupId)),
+                hashValue(""),
+                String.valueOf(getManagerConfig().getDtxTime() + 10000).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void saveTransactionUnitToGroup(String groupId, TransactionUnit transactionUnit) throws FastStorageException {
+        Long joined = joinGroup(keys().group(groupId), transactionUnit);
+        if ((Objects.isNull(joined) || joined == 0) && legacyRead()) {
+            joined = joinGroup(RedisKeys.LEGACY_KEYS.group(groupId), transactionUnit);
+        }
+        if (Objects.isNull(joined) || joined == 0) {
+            throw new FastStorageException("attempts to the non-existent transaction group " + groupId,
+                    FastStorageException.EX_CODE_NON_GROUP);
+        }
+    }
+
+    @Override
+    public void saveTransactionState(String groupId, int state) throws FastStorageException {
+        getRedisTemplate().opsForValue().set(keys().groupState(groupId), String.valueOf(state),
+                getManagerConfig().getDtxTime() + 10000, TimeUnit.MILLISECONDS);
+    }
+
+    private Long joinGroup(String groupKey, TransactionUnit transactionUnit) {
+        return JOIN_GROUP.execute(getRedisTemplate(), ReturnType.INTEGER, 1,
+                key(groupKey),
+                key(transactionUnit.getUnitId()),
+                hashValue(transactionUnit));
+    }
+
+    private void loadScripts() {
+        try {
+            getRedisTemplate().execute((RedisCallback<Object>) connection -> {
+                INIT_GROUP.load(connection);
+                JOIN_GROUP.load(connection);
+                return null;
+            });
+        } catch (Exception e) {
+            // loaded on first use
+            log.warn("preload redis scripts fail. {}", e.getMessage());
+        }
+    }
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] hashValue(Object value) {
+        return ((RedisSerializer<Object>) getRedisTemplate().getHashValueSerializer()).serialize(value);
+    }
+}
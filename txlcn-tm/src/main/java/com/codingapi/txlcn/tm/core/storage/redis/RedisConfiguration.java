@@ -15,16 +15,26 @@
  */
 package com.codingapi.txlcn.tm.core.storage.redis;
 
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+
 /**
- * Description:
+ * Description: redis template of RedisStorage. redis cluster is enabled by spring.redis.cluster.nodes,
+ * used with tx-lcn.manager.redis-key-schema=hash-tag and tx-lcn.manager.redis-legacy-read=false.
+ * values are written by tx-lcn.manager.redis-codec, both codecs are read.
+ * created on first use by a redis storage only.
  * Date: 19-1-22 上午11:53
  *
  * @author ujued
@@ -35,9 +45,11 @@ public class RedisConfiguration {
     //default configuration redis template when have RedisConnectionFactory
     
     @Bean
+    @Lazy
     @ConditionalOnClass(name = "org.springframework.data.redis.connection.RedisConnectionFactory")
-    public RedisTemplate<String, Object> functionDomainRedisTemplate(RedisConnectionFactory redisConnectionFactory) {
-        JdkSerializationRedisSerializer serializationRedisSerializer = new JdkSerializationRedisSerializer();
+    public RedisTemplate<String, Object> functionDomainRedisTemplate(RedisConnectionFactory redisConnectionFactory,
+                                                                     TxManagerConfig managerConfig) {
+        CompactRedisSerializer serializationRedisSerializer = new CompactRedisSerializer(managerConfig.getRedisCodec());
         StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
         RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
         redisTemplate.setKeySerializer(stringRedisSerializer);
@@ -47,4 +59,23 @@ public class RedisConfiguration {
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         return redisTemplate;
     }
+
+    /**
+     * cluster topology refreshed periodically and on MOVED/ASK redirects or reconnects,
+     * a failed over master is found without restart.
+     *
+     * @return lettuce client customizer
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.redis.cluster", name = "nodes")
+    @ConditionalOnClass(name = "io.lettuce.core.cluster.ClusterClientOptions")
+    public LettuceClientConfigurationBuilderCustomizer clusterTopologyRefreshCustomizer() {
+        ClusterTopologyRefreshOptions refreshOptions = ClusterTopologyRefreshOptions.builder()
+                .enablePeriodicRefresh(Duration.ofSeconds(30))
+                .enableAllAdaptiveRefreshTriggers()
+                .build();
+        return builder -> builder.clientOptions(ClusterClientOptions.builder()
+                .topologyRefreshOptions(refreshOptions)
+                .build());
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.redis;
+
+import com.codingapi.txlcn.common.lock.DTXLocks;
+
+/**
+ * Description: redis key schema of RedisStorage (tx-lcn.manager.redis-key-schema).
+ * legacy: keys of a group and DTX locks hash to arbitrary slots of a redis cluster.
+ * hash-tag: keys of a group share hash tag {groupId}, DTX locks of a table share hash tag {contextId:table},
+ * so scripts over them touch one slot only, as redis cluster requires.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class RedisKeys {
+
+    public static final String LEGACY = "legacy";
+
+    public static final String HASH_TAG = "hash-tag";
+
+    static final RedisKeys LEGACY_KEYS = new RedisKeys(false);
+
+    static final RedisKeys HASH_TAG_KEYS = new RedisKeys(true);
+
+    private final boolean hashTag;
+
+    private RedisKeys(boolean hashTag) {
+        this.hashTag = hashTag;
+    }
+
+    public static RedisKeys of(String schema) {
+        if (HASH_TAG.equals(schema)) {
+            return HASH_TAG_KEYS;
+        }
+        if (LEGACY.equals(schema)) {
+            return LEGACY_KEYS;
+        }
+        throw new IllegalStateException("unknown redis key schema: " + schema);
+    }
+
+    public boolean isHashTag() {
+        return hashTag;
+    }
+
+    /**
+     * @param groupId groupId
+     * @return hash. field 'root' and a field for every unit
+     */
+    public String group(String groupId) {
+        return hashTag ? "tm:{" + groupId + "}:group" : "tm:group:" + groupId;
+    }
+
+    public String groupState(String groupId) {
+        return hashTag ? "tm:{" + groupId + "}:state" : "tm:group:transactionState:" + groupId;
+    }
+
+    /**
+     * @param groupId groupId
+     * @return set of lock tags the group holds locks in. hash-tag schema only
+     */
+    public String groupLockTags(String groupId) {
+        return "tm:{" + groupId + "}:lock-tags";
+    }
+
+    /**
+     * locks with the same tag are in one slot, and are acquired atomically
+     *
+     * @param contextId contextId
+     * @param lockId    lockId
+     * @return lock tag
+     */
+    public String lockTag(String contextId, String lockId) {
+        return hashTag ? contextId + DTXLocks.TABLE_SEPARATOR + DTXLocks.tableOf(lockId) : "";
+    }
+
+    /**
+     * legacy lock key has no table, as TCs send it in legacy schema. so legacy read finds the lock
+     * of a row whatever the lock id sent after switching to hash-tag schema
+     *
+     * @param contextId contextId
+     * @param lockId    lockId
+     * @return hash. field 'mode' is lock type, field 'h:{groupId}' is holder's fencing token
+     */
+    public String lock(String contextId, String lockId) {
+        return hashTag ? "tm:lock:{" + lockTag(contextId, lockId) + "}:" + lockId : contextId + DTXLocks.rowOf(lockId);
+    }
+
+    public String lockFencing(String lockTag) {
+        return hashTag ? "tm:lock:{" + lockTag + "}:fencing" : "tm.dtx.lock.fencing";
+    }
+
+    /**
+     * @param lockTag lock tag
+     * @param groupId groupId
+     * @return set of lock keys the group holds with the tag
+     */
+    public String groupLocks(String lockTag, String groupId) {
+        return hashTag ? "tm:lock:{" + lockTag + "}:group:" + groupId : "tm:dtx.lock.group:" + groupId;
+    }
+
+    /**
+     * @return sorted set. member is machine id, score is lease expire time (ms)
+     */
+    public String machineIdLeases() {
+        return hashTag ? "tm:{machine-id}:leases" : "tm.machine.id.leases";
+    }
+
+    /**
+     * @return largest machine id ever acquired
+     */
+    public String machineIdCounter() {
+        return hashTag ? "tm:{machine-id}:cur" : "tm.machine.id.gen:cur_id";
+    }
+
+    /**
+     * lease key of every machine id, read by TMs before the sorted set leases. legacy schema only,
+     * also honored in hash-tag schema while legacy keys are read
+     *
+     * @return key prefix, empty in hash-tag schema
+     */
+    public String machineIdLeasePrefix() {
+        return hashTag ? "" : "tm.machine.id.gen:";
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.redis;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Description: Lua script of redis. executed by EVALSHA, when redis script cache miss (restart or SCRIPT FLUSH)
+ * falls back to EVAL once, which loads it again.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class RedisLuaScript {
+
+    private final byte[] script;
+
+    private final String sha1;
+
+    public RedisLuaScript(String script) {
+        Objects.requireNonNull(script);
+        this.script = script.getBytes(StandardCharsets.UTF_8);
+        this.sha1 = new DefaultRedisScript<>(script, Object.class).getSha1();
+    }
+
+    /**
+     * load script into redis script cache.
+     *
+     * @param connection connection
+     */
+    public void load(RedisConnection connection) {
+        connection.scriptLoad(script);
+    }
+
+    /**
+     * execute script. one round trip.
+     *
+     * @param redisOperations redis operations
+     * @param returnType      script return type
+     * @param numKeys         num of keys
+     * @param keysAndArgs     keys then args, serialized
+     * @param <T>             result type
+     * @return result
+     */
+    public <T> T execute(RedisOperations<String, ?> redisOperations, ReturnType returnType, int numKeys,
+                         byte[]... keysAndArgs) {
+        return redisOperations.execute((RedisCallback<T>) connection -> {
+            try {
+                return connection.evalSha(sha1, returnType, numKeys, keysAndArgs);
+            } catch (RuntimeException e) {
+                if (!isNoScript(e)) {
+                    throw e;
+                }
+                return connection.eval(script, returnType, numKeys, keysAndArgs);
+            }
+        });
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        Throwable cur = e;
+        while (Objects.nonNull(cur)) {
+            if (Objects.nonNull(cur.getMessage()) && cur.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+            cur = cur.getCause();
+        }
+        return false;
+    }
+}
@@ -23,18 +23,30 @@ import com.codingapi.txlcn.tm.config.TxManagerConfig;
 import com.codingapi.txlcn.tm.core.storage.FastStorage;
 import com.codingapi.txlcn.tm.core.storage.LockValue;
 import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
-import com.google.common.collect.Sets;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.types.Expiration;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
- * Description:
+ * Description: FastStorage on redis, key schema is RedisKeys (tx-lcn.manager.redis-key-schema).
+ * in hash-tag schema DTX locks are acquired per lock tag (table), a script for each.
+ * DTX locks of previous version are LockValue strings at legacy lock keys. they are read as exclusive locks
+ * of their group and released by that group, so old and new TMs can run together in legacy schema.
+ * old TMs fail on locks in hash format, so both sides keep exclusion while upgrading.
+ * upgrade order: upgrade all TMs in legacy schema, then switch to hash-tag schema with legacy read on,
+ * turn legacy read off after in-flight transactions ended.
  * Date: 19-1-21 下午3:22
  *
  * @author ujued
@@ -43,15 +55,141 @@ import java.util.stream.Collectors;
 @Data
 public class RedisStorage implements FastStorage {
 
-    private static final String REDIS_GROUP_PREFIX = "tm:group:";
-
-    private static final String REDIS_GROUP_STATE = REDIS_GROUP_PREFIX + "transactionState:";
-
     private static final String REDIS_TOKEN_PREFIX = "tm.token";
 
     private static final String REDIS_TM_LIST = "tm.instances";
 
-    private static final String REDIS_MACHINE_ID_MAP_PREFIX = "tm.machine.id.gen:";
+    /**
+     * DTX lock table. lock key is a hash: field 'mode' is lock type, field 'h:{groupId}' is holder's fencing token.
+     * KEYS lock keys of one lock tag, fencing counter, group lock index. ARGV[1] groupId ('' is anonymous),
+     * ARGV[2] lock type, ARGV[3] lease(ms), ARGV[4] least fencing token.
+     * checks every key first, then grants all. returns fencing token when granted, else -index(1 based) of conflict key.
+     */
+    private static final RedisLuaScript ACQUIRE_LOCKS = new RedisLuaScript(
+            "local n = #KEYS - 2 " +
+                    "local holder = 'h:' .. ARGV[1] " +
+                    "local lease = tonumber(ARGV[3]) " +
+                    "for i = 1, n do " +
+                    "  if redis.call('TYPE', KEYS[i]).ok == 'string' then return -i end " +
+                    "  local mode = redis.call('HGET', KEYS[i], 'mode') " +
+                    "  if mode then " +
+                    "    local others = redis.call('HLEN', KEYS[i]) - 1 " +
+                    "    if ARGV[1] ~= '' and redis.call('HEXISTS', KEYS[i], holder) == 1 then others = others - 1 end " +
+                    "    if others > 0 and (mode == '" + DTXLocks.X_LOCK + "' or ARGV[2] == '" + DTXLocks.X_LOCK + "') then " +
+                    "      return -i " +
+                    "    end " +
+                    "  end " +
+                    "end " +
+                    "local token = math.max(tonumber(redis.call('GET', KEYS[n + 1]) or '0') + 1, tonumber(ARGV[4])) " +
+                    "token = string.format('%.0f', token) " +
+                    "redis.call('SET', KEYS[n + 1], token) " +
+                    "for i = 1, n do " +
+                    "  if ARGV[2] == '" + DTXLocks.X_LOCK + "' or redis.call('HEXISTS', KEYS[i], 'mode') == 0 then " +
+                    "    redis.call('HSET', KEYS[i], 'mode', ARGV[2]) " +
+                    "  end " +
+                    "  redis.call('HSET', KEYS[i], holder, token) " +
+                    "  if redis.call('PTTL', KEYS[i]) < lease then redis.call('PEXPIRE', KEYS[i], lease) end " +
+                    "  if ARGV[1] ~= '' then redis.call('SADD', KEYS[n + 2], KEYS[i]) end " +
+                    "end " +
+                    "if ARGV[1] ~= '' and redis.call('PTTL', KEYS[n + 2]) < lease then " +
+                    "  redis.call('PEXPIRE', KEYS[n + 2], lease) " +
+                    "end " +
+                    "return tonumber(token)");
+
+    /**
+     * KEYS lock keys, group lock index. ARGV[1] groupId, ARGV[2] fencing token (0 is any).
+     * removes the holder whose token not newer than ARGV[2], deletes lock when non holder.
+     * returns indexes(1 based) of locks in previous version's format, left to the caller.
+     */
+    private static final RedisLuaScript RELEASE_LOCKS = new RedisLuaScript(
+            "local n = #KEYS - 1 " +
+                    "local holder = 'h:' .. ARGV[1] " +
+                    "local token = tonumber(ARGV[2]) " +
+                    "local previous = {} " +
+                    "for i = 1, n do " +
+                    "  if redis.call('TYPE', KEYS[i]).ok == 'string' then " +
+                    "    previous[#previous + 1] = tostring(i) " +
+                    "  else " +
+                    "    local held = redis.call('HGET', KEYS[i], holder) " +
+                    "    if held and (token == 0 or tonumber(held) <= token) then " +
+                    "      redis.call('HDEL', KEYS[i], holder) " +
+                    "      redis.call('SREM', KEYS[n + 1], KEYS[i]) " +
+                    "      if redis.call('HLEN', KEYS[i]) <= 1 then redis.call('DEL', KEYS[i]) end " +
+                    "    end " +
+                    "  end " +
+                    "end " +
+                    "return previous");
+
+    /**
+     * KEYS[1] lock key in previous version's format. ARGV[1] value read before.
+     * deletes the lock when it is not changed.
+     */
+    private static final RedisLuaScript RELEASE_PREVIOUS_LOCK = new RedisLuaScript(
+            "if redis.call('TYPE', KEYS[1]).ok == 'string' and redis.call('GET', KEYS[1]) == ARGV[1] then " +
+                    "  return redis.call('DEL', KEYS[1]) " +
+                    "end " +
+                    "return 0");
+
+    /**
+     * KEYS group lock indexes then lock keys they hold. ARGV[1] lease(ms).
+     * extends lease of every key, missing keys are skipped.
+     */
+    private static final RedisLuaScript RENEW_LOCKS = new RedisLuaScript(
+            "local lease = tonumber(ARGV[1]) " +
+                    "for i = 1, #KEYS do " +
+                    "  local ttl = redis.call('PTTL', KEYS[i]) " +
+                    "  if ttl ~= -2 and ttl < lease then redis.call('PEXPIRE', KEYS[i], lease) end " +
+                    "end " +
+                    "return 1");
+
+    /**
+     * KEYS[1] lock tags of group. ARGV[1] lease(ms), ARGV[2..] lock tags to add.
+     * extends the lease, returns lock tags of group.
+     */
+    private static final RedisLuaScript GROUP_LOCK_TAGS = new RedisLuaScript(
+            "for i = 2, #ARGV do redis.call('SADD', KEYS[1], ARGV[i]) end " +
+                    "if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[1]) then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end " +
+                    "return redis.call('SMEMBERS', KEYS[1])");
+
+    /**
+     * KEYS lock keys. returns (index of lock key, groupId of holder) pairs, anonymous holder excluded.
+     * a lock in previous version's format is ('p' .. index, LockValue serialized) pair.
+     */
+    private static final RedisLuaScript FIND_LOCK_HOLDERS = new RedisLuaScript(
+            "local holders = {} " +
+                    "for i = 1, #KEYS do " +
+                    "  if redis.call('TYPE', KEYS[i]).ok == 'string' then " +
+                    "    holders[#holders + 1] = 'p' .. i " +
+                    "    holders[#holders + 1] = redis.call('GET', KEYS[i]) " +
+                    "  else " +
+                    "    local fields = redis.call('HKEYS', KEYS[i]) " +
+                    "    for j = 1, #fields do " +
+                    "      if #fields[j] > 2 and string.sub(fields[j], 1, 2) == 'h:' then " +
+                    "        holders[#holders + 1] = tostring(i) " +
+                    "        holders[#holders + 1] = string.sub(fields[j], 3) " +
+                    "      end " +
+                    "    end " +
+                    "  end " +
+                    "end " +
+                    "return holders");
+
+    /**
+     * KEYS[1] machine id leases, KEYS[2] machine id counter. ARGV[1] now(ms), ARGV[2] lease(ms),
+     * ARGV[3] max machine id.
+     * reuses the earliest expired machine id, else a never used one. returns -1 when non can be used.
+     */
+    private static final RedisLuaScript ACQUIRE_MACHINE_ID = new RedisLuaScript(
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, 1) " +
+                    "local id " +
+                    "if #expired > 0 then " +
+                    "  id = tonumber(expired[1]) " +
+                    "else " +
+                    "  redis.call('SETNX', KEYS[2], -1) " +
+                    "  if tonumber(redis.call('GET', KEYS[2])) >= tonumber(ARGV[3]) then return -1 end " +
+                    "  id = redis.call('INCR', KEYS[2]) " +
+                    "end " +
+                    "redis.call('ZADD', KEYS[1], string.format('%.0f', tonumber(ARGV[1]) + tonumber(ARGV[2])), id) " +
+                    "return id");
 
     private RedisTemplate<String, Object> redisTemplate;
 
@@ -67,22 +205,28 @@ public class RedisStorage implements FastStorage {
         this.redisTemplate = redisTemplate;
         this.managerConfig = managerConfig;
         this.stringRedisTemplate = stringRedisTemplate;
+        // fails fast on unknown key schema
+        RedisKeys.of(managerConfig.getRedisKeySchema());
     }
 
     @Override
     public void initGroup(String groupId) {
-        redisTemplate.opsForHash().put(REDIS_GROUP_PREFIX + groupId, "root", "");
-        redisTemplate.expire(REDIS_GROUP_PREFIX + groupId, managerConfig.getDtxTime() + 10000, TimeUnit.MILLISECONDS);
+        String groupKey = keys().group(groupId);
+        redisTemplate.opsForHash().put(groupKey, "root", "");
+        redisTemplate.expire(groupKey, managerConfig.getDtxTime() + 10000, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public boolean containsGroup(String groupId) {
-        return Optional.ofNullable(redisTemplate.hasKey(REDIS_GROUP_PREFIX + groupId)).orElse(false);
+        return Objects.nonNull(existingGroupKey(groupId));
     }
 
     @Override
     public List<TransactionUnit> findTransactionUnitsFromGroup(String groupId) throws FastStorageException {
-        Map<Object, Object> units = redisTemplate.opsForHash().entries(REDIS_GROUP_PREFIX + groupId);
+        Map<Object, Object> units = redisTemplate.opsForHash().entries(keys().group(groupId));
+        if (units.isEmpty() && legacyRead()) {
+            units = redisTemplate.opsForHash().entries(RedisKeys.LEGACY_KEYS.group(groupId));
+        }
         return units.entrySet().stream()
                 .filter(objectObjectEntry -> !objectObjectEntry.getKey().equals("root"))
                 .map(objectObjectEntry -> (TransactionUnit) objectObjectEntry.getValue()).collect(Collectors.toList());
@@ -93,12 +237,12 @@ public class RedisStorage implements FastStorage {
         /**
          * 这是加入事务组到Redis 缓存中
          */
-
-        if (Optional.ofNullable(redisTemplate.hasKey(REDIS_GROUP_PREFIX + groupId)).orElse(false)) {
+        String groupKey = existingGroupKey(groupId);
+        if (Objects.nonNull(groupKey)) {
             /**
              * 很机智 可以看出 采用hash存储 域为groupId key:事务单元Id value 事务单元
              */
-            redisTemplate.opsForHash().put(REDIS_GROUP_PREFIX + groupId, transactionUnit.getUnitId(), transactionUnit);
+            redisTemplate.opsForHash().put(groupKey, transactionUnit.getUnitId(), transactionUnit);
             return;
         }
         throw new FastStorageException("attempts to the non-existent transaction group " + groupId,
@@ -108,18 +252,31 @@ public class RedisStorage implements FastStorage {
     @Override
     public void clearGroup(String groupId) {
         log.debug("remove group:{} from redis.", groupId);
-        redisTemplate.delete(REDIS_GROUP_PREFIX + groupId);
+        RedisKeys keys = keys();
+        if (keys.isHashTag()) {
+            // same slot, one command
+            redisTemplate.delete(Arrays.asList(keys.group(groupId), keys.groupLockTags(groupId)));
+        } else {
+            redisTemplate.delete(keys.group(groupId));
+        }
+        if (legacyRead()) {
+            redisTemplate.delete(RedisKeys.LEGACY_KEYS.group(groupId));
+        }
     }
 
     @Override
     public void saveTransactionState(String groupId, int state) throws FastStorageException {
-        redisTemplate.opsForValue().set(REDIS_GROUP_STATE + groupId, String.valueOf(state));
-        redisTemplate.expire(REDIS_GROUP_STATE + groupId, managerConfig.getDtxTime() + 10000, TimeUnit.MILLISECONDS);
+        String stateKey = keys().groupState(groupId);
+        redisTemplate.opsForValue().set(stateKey, String.valueOf(state));
+        redisTemplate.expire(stateKey, managerConfig.getDtxTime() + 10000, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public int getTransactionState(String groupId) throws FastStorageException {
-        Object state = redisTemplate.opsForValue().get(REDIS_GROUP_STATE + groupId);
+        Object state = redisTemplate.opsForValue().get(keys().groupState(groupId));
+        if (Objects.isNull(state) && legacyRead()) {
+            state = redisTemplate.opsForValue().get(RedisKeys.LEGACY_KEYS.groupState(groupId));
+        }
         if (Objects.isNull(state)) {
             return -1;
         }
@@ -132,33 +289,130 @@ public class RedisStorage implements FastStorage {
     }
 
     @Override
-    public void acquireLocks(String contextId, Set<String> locks, LockValue lockValue) throws FastStorageException {
+    public long acquireLocks(String contextId, Set<String> locks, LockValue lockValue) throws FastStorageException {
         // 未申请锁则为申请正常
         if (Objects.isNull(locks) || locks.isEmpty()) {
-            return;
+            return 0;
+        }
+        String groupId = Optional.ofNullable(lockValue.getGroupId()).orElse("");
+        if (legacyRead()) {
+            checkLegacyLocks(contextId, locks, groupId);
         }
-        Map<String, LockValue> lockIds = locks.stream().collect(Collectors.toMap(lock -> contextId + lock, lock -> lockValue));
-        String firstLockId = contextId + new ArrayList<>(locks).get(0);
-        Boolean result = redisTemplate.opsForValue().multiSetIfAbsent(lockIds);
-        if (!Optional.ofNullable(result).orElse(false)) {
-            LockValue hasLockValue = (LockValue) redisTemplate.opsForValue().get(firstLockId);
-            if (Objects.isNull(hasLockValue)) {
-                throw new FastStorageException("acquire locks fail.", FastStorageException.EX_CODE_REPEAT_LOCK);
+        RedisKeys keys = keys();
+        Map<String, List<String>> lockIdsByTag = lockIdsByTag(keys, contextId, locks);
+        if (keys.isHashTag() && !groupId.isEmpty()) {
+            // renew finds locks of the group by its lock tags
+            groupLockTags(groupId, lockIdsByTag.keySet());
+        }
+
+        // locks of a tag are granted atomically, tags in order, granted tags are released when one fails
+        long fencingToken = 0;
+        Map<String, Long> granted = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : lockIdsByTag.entrySet()) {
+            long result;
+            try {
+                result = acquireLocks(keys, contextId, entry.getKey(), entry.getValue(), groupId, lockValue.getLockType());
+            } catch (FastStorageException e) {
+                rollbackLocks(keys, contextId, lockIdsByTag, granted, groupId);
+                throw e;
             }
             // 不在同一个DTX下，已存在的锁是排它锁 或者 新请求的不是共享锁时， 获取锁失败
-            if (Objects.isNull(lockValue.getGroupId()) || !lockValue.getGroupId().equals(hasLockValue.getGroupId())) {
-                if (hasLockValue.getLockType() == DTXLocks.X_LOCK || lockValue.getLockType() != DTXLocks.S_LOCK) {
-                    throw new FastStorageException("acquire locks fail.", FastStorageException.EX_CODE_REPEAT_LOCK);
+            if (result < 0) {
+                rollbackLocks(keys, contextId, lockIdsByTag, granted, groupId);
+                throw new FastStorageException("acquire locks fail. " +
+                        entry.getValue().get(Math.toIntExact(-result) - 1) + " is locked.",
+                        FastStorageException.EX_CODE_REPEAT_LOCK);
+            }
+            granted.put(entry.getKey(), result);
+            fencingToken = Math.max(fencingToken, result);
+        }
+        return fencingToken;
+    }
+
+    @Override
+    public void releaseLocks(String cate, Set<String> locks, LockValue lockValue) {
+        if (Objects.isNull(locks) || locks.isEmpty()) {
+            return;
+        }
+        RedisKeys keys = keys();
+        // 未指明事务组时释放锁的所有持有者
+        if (Objects.isNull(lockValue) || Objects.isNull(lockValue.getGroupId())) {
+            Set<String> lockKeys = locks.stream().map(lock -> keys.lock(cate, lock)).collect(Collectors.toSet());
+            if (legacyRead()) {
+                locks.forEach(lock -> lockKeys.add(RedisKeys.LEGACY_KEYS.lock(cate, lock)));
+            }
+            redisTemplate.delete(lockKeys);
+            return;
+        }
+        lockIdsByTag(keys, cate, locks).forEach((lockTag, lockIds) ->
+                releaseLocks(keys, cate, lockTag, lockIds, lockValue.getGroupId(), lockValue.getFencingToken()));
+        if (legacyRead()) {
+            releaseLocks(RedisKeys.LEGACY_KEYS, cate, "", new ArrayList<>(locks),
+                    lockValue.getGroupId(), lockValue.getFencingToken());
+        }
+    }
+
+    @Override
+    public void renewLocks(Set<String> groupIds) throws FastStorageException {
+        if (Objects.isNull(groupIds) || groupIds.isEmpty()) {
+            return;
+        }
+        RedisKeys keys = keys();
+        try {
+            // indexes of a lock tag are in one slot
+            Map<String, List<String>> indexesByTag = new TreeMap<>();
+            if (keys.isHashTag()) {
+                List<String> groupIdList = new ArrayList<>(groupIds);
+                List<Set<String>> lockTags = groupLockTags(groupIdList);
+                for (int i = 0; i < groupIdList.size(); i++) {
+                    for (String lockTag : lockTags.get(i)) {
+                        indexesByTag.computeIfAbsent(lockTag, k -> new ArrayList<>())
+                                .add(keys.groupLocks(lockTag, groupIdList.get(i)));
+                    }
                 }
+            } else {
+                indexesByTag.put("", groupIds.stream().map(groupId -> keys.groupLocks("", groupId))
+                        .collect(Collectors.toList()));
             }
-            redisTemplate.opsForValue().multiSet(lockIds);
+            if (legacyRead()) {
+                indexesByTag.put("", groupIds.stream().map(groupId -> RedisKeys.LEGACY_KEYS.groupLocks("", groupId))
+                        .collect(Collectors.toList()));
+            }
+            renewLocks(indexesByTag);
+        } catch (Exception e) {
+            throw new FastStorageException("renew locks error.", e, FastStorageException.EX_CODE_ACQUIRE_ERROR);
         }
+    }
 
+    @Override
+    public Set<String> findLockHolders(String contextId, Set<String> locks) throws FastStorageException {
+        if (Objects.isNull(locks) || locks.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> holders = new HashSet<>();
+        findLockHoldersByLock(contextId, locks).values().forEach(holders::addAll);
+        return holders;
     }
 
     @Override
-    public void releaseLocks(String cate, Set<String> locks) {
-        redisTemplate.delete(locks.stream().map(lock -> (cate + lock)).collect(Collectors.toSet()));
+    public Map<String, Set<String>> findLockHoldersByLock(String contextId, Set<String> locks)
+            throws FastStorageException {
+        if (Objects.isNull(locks) || locks.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        RedisKeys keys = keys();
+        Map<String, Set<String>> holders = new HashMap<>();
+        // one script per lock tag
+        for (List<String> lockIds : lockIdsByTag(keys, contextId, locks).values()) {
+            findLockHolders(keys, contextId, lockIds, holders);
+        }
+        if (legacyRead()) {
+            findLockHolders(RedisKeys.LEGACY_KEYS, contextId, new ArrayList<>(locks), holders);
+        }
+        // anonymous holders of previous version's locks excluded
+        holders.values().forEach(lockHolders -> lockHolders.remove(""));
+        holders.values().removeIf(Set::isEmpty);
+        return holders;
     }
 
     @Override
@@ -216,53 +470,376 @@ public class RedisStorage implements FastStorage {
         log.debug("removed TM {}:{}", host, transactionPort);
     }
 
-    private static final String GLOBAL_CONTEXT = "root";
-    private static final String GLOBAL_LOCK_ID = "global.lock";
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return key schema in use
+     */
+    protected RedisKeys keys() {
+        return RedisKeys.of(managerConfig.getRedisKeySchema());
+    }
+
+    /**
+     * groups and locks written before switching to hash-tag schema are still read
+     *
+     * @return legacy read enabled
+     */
+    protected boolean legacyRead() {
+        return managerConfig.isRedisLegacyRead() && keys().isHashTag();
+    }
+
+    /**
+     * @param groupId groupId
+     * @return key of the group, null when non exists
+     */
+    protected String existingGroupKey(String groupId) {
+        String groupKey = keys().group(groupId);
+        if (Optional.ofNullable(redisTemplate.hasKey(groupKey)).orElse(false)) {
+            return groupKey;
+        }
+        if (legacyRead() &&
+                Optional.ofNullable(redisTemplate.hasKey(RedisKeys.LEGACY_KEYS.group(groupId))).orElse(false)) {
+            return RedisKeys.LEGACY_KEYS.group(groupId);
+        }
+        return null;
+    }
+
+    private static Map<String, List<String>> lockIdsByTag(RedisKeys keys, String contextId, Set<String> locks) {
+        Map<String, List<String>> lockIdsByTag = new TreeMap<>();
+        for (String lock : locks) {
+            lockIdsByTag.computeIfAbsent(keys.lockTag(contextId, lock), k -> new ArrayList<>()).add(lock);
+        }
+        return lockIdsByTag;
+    }
+
+    private long acquireLocks(RedisKeys keys, String contextId, String lockTag, List<String> lockIds,
+                              String groupId, int lockType) throws FastStorageException {
+        byte[][] keysAndArgs = new byte[lockIds.size() + 6][];
+        for (int i = 0; i < lockIds.size(); i++) {
+            keysAndArgs[i] = bytes(keys.lock(contextId, lockIds.get(i)));
+        }
+        keysAndArgs[lockIds.size()] = bytes(keys.lockFencing(lockTag));
+        keysAndArgs[lockIds.size() + 1] = bytes(keys.groupLocks(lockTag, groupId));
+        keysAndArgs[lockIds.size() + 2] = bytes(groupId);
+        keysAndArgs[lockIds.size() + 3] = bytes(String.valueOf(lockType));
+        keysAndArgs[lockIds.size() + 4] = bytes(String.valueOf(managerConfig.getDtxLockTime()));
+        // tokens of different lock tags are ordered by time
+        keysAndArgs[lockIds.size() + 5] = bytes(String.valueOf(keys.isHashTag() ? System.currentTimeMillis() * 1000 : 0));
+
+        Long result;
+        try {
+            result = ACQUIRE_LOCKS.execute(redisTemplate, ReturnType.INTEGER, lockIds.size() + 2, keysAndArgs);
+        } catch (Exception e) {
+            throw new FastStorageException("acquire locks error.", e, FastStorageException.EX_CODE_ACQUIRE_ERROR);
+        }
+        if (Objects.isNull(result)) {
+            throw new FastStorageException("acquire locks fail.", FastStorageException.EX_CODE_ACQUIRE_ERROR);
+        }
+        return result;
+    }
 
-    private void acquireGlobalXLock() {
-        LockValue lockValue = new LockValue();
-        lockValue.setLockType(DTXLocks.X_LOCK);
-        while (true) {
+    private void rollbackLocks(RedisKeys keys, String contextId, Map<String, List<String>> lockIdsByTag,
+                               Map<String, Long> granted, String groupId) {
+        granted.forEach((lockTag, fencingToken) -> {
             try {
-                acquireLocks(GLOBAL_CONTEXT, Sets.newHashSet(GLOBAL_LOCK_ID), lockValue);
-                break;
-            } catch (FastStorageException ignored) {
+                releaseLocks(keys, contextId, lockTag, lockIdsByTag.get(lockTag), groupId, fencingToken);
+            } catch (Exception e) {
+                log.error("rollback locks of {} error, released on lease expired. {}", lockTag, e.getMessage());
+            }
+        });
+    }
+
+    private void releaseLocks(RedisKeys keys, String contextId, String lockTag, List<String> lockIds,
+                              String groupId, long fencingToken) {
+        byte[][] keysAndArgs = new byte[lockIds.size() + 3][];
+        int i = 0;
+        for (String lock : lockIds) {
+            keysAndArgs[i++] = bytes(keys.lock(contextId, lock));
+        }
+        keysAndArgs[i++] = bytes(keys.groupLocks(lockTag, groupId));
+        keysAndArgs[i++] = bytes(groupId);
+        keysAndArgs[i] = bytes(String.valueOf(fencingToken));
+        List<byte[]> previous = RELEASE_LOCKS.execute(redisTemplate, ReturnType.MULTI, lockIds.size() + 1, keysAndArgs);
+        if (Objects.isNull(previous)) {
+            return;
+        }
+        for (byte[] index : previous) {
+            String lockId = lockIds.get(Integer.parseInt(new String(index, StandardCharsets.UTF_8)) - 1);
+            releasePreviousLock(keys.lock(contextId, lockId), groupId);
+        }
+    }
+
+    /**
+     * a lock in previous version's format is a LockValue without lease, deleted when the group holds it
+     *
+     * @param lockKey lock key
+     * @param groupId groupId
+     */
+    private void releasePreviousLock(String lockKey, String groupId) {
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(bytes(lockKey)));
+        if (Objects.nonNull(value) && groupId.equals(previousHolder(value))) {
+            RELEASE_PREVIOUS_LOCK.execute(redisTemplate, ReturnType.INTEGER, 1, bytes(lockKey), value);
+        }
+    }
+
+    /**
+     * @param value LockValue serialized by a TM of previous version
+     * @return groupId of holder, empty when anonymous or unreadable
+     */
+    private String previousHolder(byte[] value) {
+        Object lockValue;
+        try {
+            lockValue = redisTemplate.getValueSerializer().deserialize(value);
+        } catch (Exception e) {
+            return "";
+        }
+        return lockValue instanceof LockValue ? Optional.ofNullable(((LockValue) lockValue).getGroupId()).orElse("") : "";
+    }
+
+    /**
+     * reads lock keys of all indexes in one pipelined round trip, then extends their lease with a script
+     * per lock tag, every key declared.
+     *
+     * @param indexesByTag lock tag -> group lock indexes
+     */
+    private void renewLocks(Map<String, List<String>> indexesByTag) {
+        List<String> indexes = indexesByTag.values().stream().flatMap(List::stream).collect(Collectors.toList());
+        List<Set<String>> lockKeys = members(indexes, false);
+        int offset = 0;
+        for (List<String> tagIndexes : indexesByTag.values()) {
+            List<String> keysToRenew = new ArrayList<>();
+            for (int i = 0; i < tagIndexes.size(); i++) {
+                Set<String> held = lockKeys.get(offset + i);
+                if (!held.isEmpty()) {
+                    keysToRenew.add(tagIndexes.get(i));
+                    keysToRenew.addAll(held);
+                }
             }
+            offset += tagIndexes.size();
+            if (keysToRenew.isEmpty()) {
+                continue;
+            }
+            byte[][] keysAndArgs = new byte[keysToRenew.size() + 1][];
+            int i = 0;
+            for (String key : keysToRenew) {
+                keysAndArgs[i++] = bytes(key);
+            }
+            keysAndArgs[i] = bytes(String.valueOf(managerConfig.getDtxLockTime()));
+            RENEW_LOCKS.execute(redisTemplate, ReturnType.INTEGER, keysToRenew.size(), keysAndArgs);
         }
     }
 
-    private void releaseGlobalXLock() {
-        releaseLocks(GLOBAL_CONTEXT, Sets.newHashSet(GLOBAL_LOCK_ID));
+    /**
+     * lock tags of the groups in one pipelined round trip, extends their lease
+     *
+     * @param groupIds groupIds
+     * @return lock tags of every group, in order
+     */
+    private List<Set<String>> groupLockTags(List<String> groupIds) {
+        return members(groupIds.stream().map(groupId -> keys().groupLockTags(groupId)).collect(Collectors.toList()),
+                true);
+    }
+
+    /**
+     * members of sets. single key commands pipelined, so the sets may be in any slot.
+     *
+     * @param setKeys set keys
+     * @param extend  extends lease of the sets
+     * @return members of every set, in order
+     */
+    @SuppressWarnings("unchecked")
+    private List<Set<String>> members(List<String> setKeys, boolean extend) {
+        if (setKeys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long lease = managerConfig.getDtxLockTime();
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String setKey : setKeys) {
+                connection.sMembers(bytes(setKey));
+                if (extend) {
+                    connection.pExpire(bytes(setKey), lease);
+                }
+            }
+            return null;
+        });
+        int step = extend ? 2 : 1;
+        List<Set<String>> members = new ArrayList<>(setKeys.size());
+        for (int i = 0; i < setKeys.size(); i++) {
+            Object result = results.get(i * step);
+            members.add(result instanceof Set ? (Set<String>) result : Collections.emptySet());
+        }
+        return members;
+    }
+
+    /**
+     * adds lock tags to the group and extends their lease
+     *
+     * @param groupId  groupId
+     * @param lockTags lock tags to add
+     * @return lock tags of the group
+     */
+    private List<String> groupLockTags(String groupId, Set<String> lockTags) throws FastStorageException {
+        byte[][] keysAndArgs = new byte[lockTags.size() + 2][];
+        keysAndArgs[0] = bytes(keys().groupLockTags(groupId));
+        keysAndArgs[1] = bytes(String.valueOf(managerConfig.getDtxLockTime()));
+        int i = 2;
+        for (String lockTag : lockTags) {
+            keysAndArgs[i++] = bytes(lockTag);
+        }
+        List<byte[]> result;
+        try {
+            result = GROUP_LOCK_TAGS.execute(redisTemplate, ReturnType.MULTI, 1, keysAndArgs);
+        } catch (Exception e) {
+            throw new FastStorageException("save lock tags error.", e, FastStorageException.EX_CODE_ACQUIRE_ERROR);
+        }
+        if (Objects.isNull(result)) {
+            return Collections.emptyList();
+        }
+        return result.stream().map(lockTag -> new String(lockTag, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+
+    private void findLockHolders(RedisKeys keys, String contextId, List<String> lockIds,
+                                 Map<String, Set<String>> holders) throws FastStorageException {
+        byte[][] lockKeys = lockIds.stream().map(lock -> bytes(keys.lock(contextId, lock))).toArray(byte[][]::new);
+        List<byte[]> result;
+        try {
+            result = FIND_LOCK_HOLDERS.execute(redisTemplate, ReturnType.MULTI, lockKeys.length, lockKeys);
+        } catch (Exception e) {
+            throw new FastStorageException("find lock holders error.", e, FastStorageException.EX_CODE_ACQUIRE_ERROR);
+        }
+        if (Objects.isNull(result)) {
+            return;
+        }
+        for (int i = 0; i + 1 < result.size(); i += 2) {
+            String index = new String(result.get(i), StandardCharsets.UTF_8);
+            String holder;
+            if (index.startsWith("p")) {
+                index = index.substring(1);
+                holder = previousHolder(result.get(i + 1));
+            } else {
+                holder = new String(result.get(i + 1), StandardCharsets.UTF_8);
+            }
+            holders.computeIfAbsent(lockIds.get(Integer.parseInt(index) - 1), k -> new HashSet<>()).add(holder);
+        }
+    }
+
+    /**
+     * locks held in legacy schema by other groups conflict, shared or not
+     */
+    private void checkLegacyLocks(String contextId, Set<String> locks, String groupId) throws FastStorageException {
+        Map<String, Set<String>> lockHolders = new HashMap<>();
+        findLockHolders(RedisKeys.LEGACY_KEYS, contextId, new ArrayList<>(locks), lockHolders);
+        Set<String> holders = new HashSet<>();
+        lockHolders.values().forEach(holders::addAll);
+        holders.remove(groupId);
+        if (!holders.isEmpty()) {
+            throw new FastStorageException("acquire locks fail. locked by " + holders + " before key schema switched.",
+                    FastStorageException.EX_CODE_REPEAT_LOCK);
+        }
     }
 
     @Override
     public int acquireOrRefreshMachineId(int machineId, long machineMaxSize, long timeout) throws FastStorageException {
+        if (machineId >= 0) {
+            refreshMachineIds(Collections.singleton(machineId), timeout);
+            return -1;
+        }
+        RedisKeys keys = keys();
+        String leasePrefix = machineIdLeasePrefix();
+        // ids held by TMs of previous version are deferred, so every id is tried once at most
+        for (long i = 0; i <= machineMaxSize; i++) {
+            int acquired = acquireMachineId(keys, machineMaxSize, timeout);
+            if (leasePrefix.isEmpty() || claimMachineIdLease(leasePrefix + acquired, timeout)) {
+                return acquired;
+            }
+            deferMachineId(keys, acquired, leasePrefix + acquired, timeout);
+        }
+        throw new FastStorageException("non can used machine id", FastStorageException.EX_CODE_NON_MACHINE_ID);
+    }
+
+    @Override
+    public void refreshMachineIds(Set<Integer> machineIds, long timeout) throws FastStorageException {
+        if (Objects.isNull(machineIds) || machineIds.isEmpty()) {
+            return;
+        }
+        double expireAt = System.currentTimeMillis() + timeout;
+        Set<ZSetOperations.TypedTuple<String>> leases = machineIds.stream()
+                .map(machineId -> new DefaultTypedTuple<>(String.valueOf(machineId), expireAt))
+                .collect(Collectors.toSet());
+        String leasePrefix = machineIdLeasePrefix();
         try {
-            acquireGlobalXLock();
-            if (machineId < 0) {
-                stringRedisTemplate.opsForValue().setIfAbsent(REDIS_MACHINE_ID_MAP_PREFIX + "cur_id", "-1");
-                for (int i = 0; i < machineMaxSize; i++) {
-                    int curId = Math.toIntExact(
-                            Objects.requireNonNull(
-                                    stringRedisTemplate.opsForValue().increment(REDIS_MACHINE_ID_MAP_PREFIX + "cur_id", 1)));
-                    if (curId > machineMaxSize) {
-                        stringRedisTemplate.opsForValue().set(REDIS_MACHINE_ID_MAP_PREFIX + "cur_id", "0");
-                        curId = 0;
-                    }
-                    if (Optional
-                            .ofNullable(stringRedisTemplate.hasKey(REDIS_MACHINE_ID_MAP_PREFIX + curId))
-                            .orElse(true)) {
-                        continue;
+            stringRedisTemplate.opsForZSet().add(keys().machineIdLeases(), leases);
+            if (!leasePrefix.isEmpty()) {
+                // single key commands, pipelined
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Integer machineId : machineIds) {
+                        connection.pSetEx(bytes(leasePrefix + machineId), timeout, new byte[0]);
                     }
-                    stringRedisTemplate.opsForValue().set(REDIS_MACHINE_ID_MAP_PREFIX + curId, "", timeout, TimeUnit.MILLISECONDS);
-                    return curId;
-                }
-                throw new FastStorageException("non can used machine id", FastStorageException.EX_CODE_NON_MACHINE_ID);
+                    return null;
+                });
             }
-            stringRedisTemplate.opsForValue().set(REDIS_MACHINE_ID_MAP_PREFIX + machineId, "", timeout, TimeUnit.MILLISECONDS);
-            return -1;
-        } finally {
-            releaseGlobalXLock();
+        } catch (Exception e) {
+            throw new FastStorageException("refresh machine ids error.", e, FastStorageException.EX_CODE_NON_MACHINE_ID);
+        }
+    }
+
+    /**
+     * lease keys of every machine id, written and honored in legacy schema, and in hash-tag schema when reading
+     * legacy keys, so TMs of previous version and new TMs never share an id while the key schema is switched.
+     *
+     * @return key prefix, empty when lease keys are not used
+     */
+    private String machineIdLeasePrefix() {
+        return keys().isHashTag() && !legacyRead() ? "" : RedisKeys.LEGACY_KEYS.machineIdLeasePrefix();
+    }
+
+    private int acquireMachineId(RedisKeys keys, long machineMaxSize, long timeout) throws FastStorageException {
+        Long acquired;
+        try {
+            acquired = ACQUIRE_MACHINE_ID.execute(redisTemplate, ReturnType.INTEGER, 2,
+                    bytes(keys.machineIdLeases()),
+                    bytes(keys.machineIdCounter()),
+                    bytes(String.valueOf(System.currentTimeMillis())),
+                    bytes(String.valueOf(timeout)),
+                    bytes(String.valueOf(machineMaxSize)));
+        } catch (Exception e) {
+            throw new FastStorageException("acquire machine id error.", e, FastStorageException.EX_CODE_NON_MACHINE_ID);
+        }
+        if (Objects.isNull(acquired) || acquired < 0) {
+            throw new FastStorageException("non can used machine id", FastStorageException.EX_CODE_NON_MACHINE_ID);
+        }
+        return Math.toIntExact(acquired);
+    }
+
+    /**
+     * @param leaseKey lease key of the machine id
+     * @param timeout  lease (ms)
+     * @return false when a TM of previous version holds the id
+     */
+    private boolean claimMachineIdLease(String leaseKey, long timeout) throws FastStorageException {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.set(bytes(leaseKey), new byte[0], Expiration.milliseconds(timeout),
+                            RedisStringCommands.SetOption.ifAbsent())));
+        } catch (Exception e) {
+            throw new FastStorageException("acquire machine id error.", e, FastStorageException.EX_CODE_NON_MACHINE_ID);
+        }
+    }
+
+    /**
+     * an id held by a TM of previous version is leased in sorted set until its lease key expires
+     */
+    private void deferMachineId(RedisKeys keys, int machineId, String leaseKey, long timeout)
+            throws FastStorageException {
+        try {
+            Long ttl = stringRedisTemplate.getExpire(leaseKey, TimeUnit.MILLISECONDS);
+            long lease = Objects.nonNull(ttl) && ttl > 0 ? ttl : timeout;
+            stringRedisTemplate.opsForZSet().add(keys.machineIdLeases(), String.valueOf(machineId),
+                    System.currentTimeMillis() + lease);
+        } catch (Exception e) {
+            throw new FastStorageException("acquire machine id error.", e, FastStorageException.EX_CODE_NON_MACHINE_ID);
         }
     }
 }
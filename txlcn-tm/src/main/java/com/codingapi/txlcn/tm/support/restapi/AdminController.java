@@ -20,6 +20,7 @@ import com.codingapi.txlcn.common.exception.FastStorageException;
 import com.codingapi.txlcn.common.exception.TransactionStateException;
 import com.codingapi.txlcn.common.exception.TxManagerException;
 import com.codingapi.txlcn.tm.cluster.TMProperties;
+import com.codingapi.txlcn.tm.core.NotifyLatencyHistogram;
 import com.codingapi.txlcn.tm.core.storage.FastStorage;
 import com.codingapi.txlcn.tm.support.restapi.vo.*;
 import com.codingapi.txlcn.tm.support.service.AdminService;
@@ -43,11 +44,15 @@ public class AdminController {
 
     private final TxExceptionService txExceptionService;
 
+    private final NotifyLatencyHistogram notifyLatencyHistogram;
+
     @Autowired
-    public AdminController(AdminService adminService, TxExceptionService txExceptionService, FastStorage fastStorage) {
+    public AdminController(AdminService adminService, TxExceptionService txExceptionService, FastStorage fastStorage,
+                           NotifyLatencyHistogram notifyLatencyHistogram) {
         this.adminService = adminService;
         this.txExceptionService = txExceptionService;
         this.fastStorage = fastStorage;
+        this.notifyLatencyHistogram = notifyLatencyHistogram;
     }
 
     @PostMapping("/login")
@@ -160,6 +165,16 @@ public class AdminController {
         return adminService.getTxManagerInfo();
     }
 
+    /**
+     * 按事务单元数量统计的事务组通知耗时
+     *
+     * @return NotifyLatency list
+     */
+    @GetMapping("/notify-latency")
+    public List<NotifyLatency> notifyLatency() {
+        return notifyLatencyHistogram.snapshot();
+    }
+
     private final FastStorage fastStorage;
 
     @GetMapping("/tm-cluster")
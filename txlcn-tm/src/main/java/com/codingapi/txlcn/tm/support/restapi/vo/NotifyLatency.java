@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.support.restapi.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Description:
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class NotifyLatency {
+
+    /**
+     * 事务组的事务单元数量
+     */
+    private int participants;
+
+    /**
+     * 通知事务组次数
+     */
+    private long count;
+
+    /**
+     * 平均耗时 (ms)
+     */
+    private long mean;
+
+    /**
+     * 耗时中位数上界 (ms)
+     */
+    private long p50;
+
+    /**
+     * 99分位耗时上界 (ms)
+     */
+    private long p99;
+
+    /**
+     * 最大耗时 (ms)
+     */
+    private long max;
+}
@@ -19,6 +19,8 @@ import com.codingapi.txlcn.common.exception.TxManagerException;
 import com.codingapi.txlcn.txmsg.params.NotifyConnectParams;
 import com.codingapi.txlcn.txmsg.exception.RpcException;
 
+import java.util.Set;
+
 /**
  * Description:
  * Company: CodingApi
@@ -33,4 +35,8 @@ public interface ManagerService {
     int machineIdSync() throws TxManagerException;
 
     void refreshMachineId(int machineId) throws TxManagerException;
+
+    void refreshMachineIds(Set<Integer> machineIds) throws TxManagerException;
+
+    void renewDTXLocks(Set<String> groupIds) throws TxManagerException;
 }
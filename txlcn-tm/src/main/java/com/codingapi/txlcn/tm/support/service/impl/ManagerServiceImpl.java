@@ -29,6 +29,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Description:
@@ -90,4 +91,22 @@ public class ManagerServiceImpl implements ManagerService {
             throw new TxManagerException(e);
         }
     }
+
+    @Override
+    public void refreshMachineIds(Set<Integer> machineIds) throws TxManagerException {
+        try {
+            fastStorage.refreshMachineIds(machineIds, managerConfig.getHeartTime() + 2000);
+        } catch (FastStorageException e) {
+            throw new TxManagerException(e);
+        }
+    }
+
+    @Override
+    public void renewDTXLocks(Set<String> groupIds) throws TxManagerException {
+        try {
+            fastStorage.renewLocks(groupIds);
+        } catch (FastStorageException e) {
+            throw new TxManagerException(e);
+        }
+    }
 }
@@ -41,6 +41,8 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * Description:
@@ -146,17 +148,25 @@ public class TxExceptionServiceImpl implements TxExceptionService {
         if (remoteKeys.isEmpty()) {
             throw new TransactionStateException("non mod found", TransactionStateException.NON_MOD);
         }
-        try {
-            for (String remoteKey : remoteKeys) {
-                MessageDto messageDto = rpcClient.request(remoteKey, MessageCreator.getAspectLog(groupId, unitId), 5000);
+        // 同时询问模块的所有实例
+        List<CompletableFuture<MessageDto>> responses = remoteKeys.stream()
+                .map(remoteKey -> rpcClient.requestAsync(remoteKey, MessageCreator.getAspectLog(groupId, unitId), 5000))
+                .collect(Collectors.toList());
+        RpcException rpcException = null;
+        for (CompletableFuture<MessageDto> response : responses) {
+            try {
+                MessageDto messageDto = RpcClient.awaitResponse(response);
                 if (MessageUtils.statusOk(messageDto)) {
                     return messageDto.loadBean(JSONObject.class);
                 }
+            } catch (RpcException e) {
+                rpcException = e;
             }
-            throw new TransactionStateException("non exists aspect log", TransactionStateException.NON_ASPECT);
-        } catch (RpcException e) {
-            throw new TransactionStateException(e, TransactionStateException.RPC_ERR);
         }
+        if (Objects.nonNull(rpcException)) {
+            throw new TransactionStateException(rpcException, TransactionStateException.RPC_ERR);
+        }
+        throw new TransactionStateException("non exists aspect log", TransactionStateException.NON_ASPECT);
     }
 
     @Override
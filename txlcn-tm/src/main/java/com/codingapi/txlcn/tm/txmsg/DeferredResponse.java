@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.txmsg;
+
+import java.io.Serializable;
+
+/**
+ * Description: RpcExecuteService 返回此值时不立即响应请求，
+ * 由业务稍后通过 TransactionCmd#getRpcCmd 响应
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public final class DeferredResponse implements Serializable {
+
+    public static final DeferredResponse INSTANCE = new DeferredResponse();
+
+    private DeferredResponse() {
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+}
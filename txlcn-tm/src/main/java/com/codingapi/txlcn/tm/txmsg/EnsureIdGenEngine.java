@@ -6,17 +6,30 @@ import com.codingapi.txlcn.common.util.Transactions;
 import com.codingapi.txlcn.common.util.id.IdGenInit;
 import com.codingapi.txlcn.logger.TxLogger;
 import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.GroupTimeoutSweeper;
 import com.codingapi.txlcn.tm.support.service.ManagerService;
 import com.codingapi.txlcn.txmsg.dto.RpcCmd;
 import com.codingapi.txlcn.txmsg.listener.HeartbeatListener;
 import com.codingapi.txlcn.txmsg.listener.RpcConnectionListener;
+import com.codingapi.txlcn.txmsg.params.HeartbeatParams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
- * Description:
+ * Description: machine id of TM and TCs. leases refreshed by heartbeats and lock renewals of TCs
+ * are collected and extended in a batch every second, so are DTX locks of them.
  * Date: 19-1-31 上午11:18
  *
  * @author ujued
@@ -34,14 +47,27 @@ public class EnsureIdGenEngine implements RpcConnectionListener, HeartbeatListen
 
     private final ServerProperties serverProperties;
 
+    private final GroupTimeoutSweeper groupTimeoutSweeper;
+
+    private static final long LEASE_BATCH_INTERVAL = 1000;
+
+    private final Set<Integer> heartbeatMachineIds = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> heartbeatLockGroups = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService leaseExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("tm-lease-renewal").build());
+
     @Autowired
     public EnsureIdGenEngine(ManagerService managerService, TxManagerConfig managerConfig, TxLogger txLogger,
-                             ConfigurableEnvironment environment, ServerProperties serverProperties) {
+                             ConfigurableEnvironment environment, ServerProperties serverProperties,
+                             GroupTimeoutSweeper groupTimeoutSweeper) {
         this.managerService = managerService;
         this.managerConfig = managerConfig;
         this.txLogger = txLogger;
         this.environment = environment;
         this.serverProperties = serverProperties;
+        this.groupTimeoutSweeper = groupTimeoutSweeper;
     }
 
     @Override
@@ -51,6 +77,7 @@ public class EnsureIdGenEngine implements RpcConnectionListener, HeartbeatListen
 
     @Override
     public void disconnect(String remoteKey, String appName) {
+        groupTimeoutSweeper.disconnect(remoteKey, appName);
     }
 
     @Override
@@ -58,15 +85,64 @@ public class EnsureIdGenEngine implements RpcConnectionListener, HeartbeatListen
         IdGenInit.applyDefaultIdGen(managerConfig.getSeqLen(), managerService.machineIdSync());
 
         Transactions.setApplicationIdWhenRunning(ApplicationInformation.modId(environment, serverProperties));
+
+        leaseExecutor.scheduleWithFixedDelay(this::renewLeases,
+                LEASE_BATCH_INTERVAL, LEASE_BATCH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        leaseExecutor.shutdown();
+        renewLeases();
     }
 
     @Override
     public void onTmReceivedHeart(RpcCmd cmd) {
         try {
-            int machineId = cmd.getMsg().loadBean(Integer.class);
-            managerService.refreshMachineId(machineId);
+            // 兼容只响应MachineID的TC
+            if (cmd.getMsg().getData() instanceof Integer) {
+                heartbeatMachineIds.add(cmd.getMsg().loadBean(Integer.class));
+                return;
+            }
+            renew(cmd.getMsg().loadBean(HeartbeatParams.class));
         } catch (Exception e) {
             txLogger.error("onTmReceivedHeart", e.getMessage());
         }
     }
+
+    /**
+     * collects machine id and DTX locks to renew in next batch
+     *
+     * @param heartbeatParams machine id and lock groups of TC
+     */
+    public void renew(HeartbeatParams heartbeatParams) {
+        heartbeatMachineIds.add(heartbeatParams.getMachineId());
+        if (Objects.nonNull(heartbeatParams.getLockGroups())) {
+            heartbeatLockGroups.addAll(heartbeatParams.getLockGroups());
+        }
+    }
+
+    private void renewLeases() {
+        try {
+            Set<Integer> machineIds = drain(heartbeatMachineIds);
+            if (!machineIds.isEmpty()) {
+                managerService.refreshMachineIds(machineIds);
+            }
+            Set<String> lockGroups = drain(heartbeatLockGroups);
+            if (!lockGroups.isEmpty()) {
+                managerService.renewDTXLocks(lockGroups);
+            }
+        } catch (Exception e) {
+            txLogger.error("renewLeases", e.getMessage());
+        }
+    }
+
+    private static <T> Set<T> drain(Set<T> source) {
+        Set<T> drained = new HashSet<>();
+        for (Iterator<T> iterator = source.iterator(); iterator.hasNext(); ) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
 }
@@ -28,7 +28,7 @@ public interface RpcExecuteService {
     /**
      * 执行业务
      * @param transactionCmd  transactionCmd
-     * @return  Object
+     * @return  Object, DeferredResponse.INSTANCE 时稍后响应
      * @throws TxManagerException TxManagerException
      */
     Serializable execute(TransactionCmd transactionCmd) throws TxManagerException;
@@ -71,14 +71,17 @@ public class ServerRpcAnswer implements RpcAnswer, DisposableBean {
                 MessageDto messageDto = null;
                 try {
                     Serializable message = rpcExecuteService.execute(transactionCmd); //当cmd为create-group
+                    // 延迟响应的请求由业务自行响应
+                    if (message instanceof DeferredResponse) {
+                        return;
+                    }
                     messageDto = MessageCreator.okResponse(message, action);
                 } catch (Throwable e) {
                     log.error("rpc execute service error. action: " + action, e);
                     messageDto = MessageCreator.failResponse(e, action);
                 } finally {
-                    // 对需要响应信息的请求做出响应
-                    if (rpcCmd.getKey() != null) {
-                        assert Objects.nonNull(messageDto);
+                    // 对需要响应信息的请求做出响应（延迟响应时messageDto为空）
+                    if (rpcCmd.hasKey() && Objects.nonNull(messageDto)) {
                         try {
                             messageDto.setGroupId(rpcCmd.getMsg().getGroupId());
                             rpcCmd.setMsg(messageDto);
@@ -88,7 +91,7 @@ public class ServerRpcAnswer implements RpcAnswer, DisposableBean {
                     }
                 }
             } catch (Throwable e) {
-                if (rpcCmd.getKey() != null) {
+                if (rpcCmd.hasKey()) {
                     log.info("send response.");
                     String action = rpcCmd.getMsg().getAction();
                     // 事务协调器业务未处理的异常响应服务器失败
@@ -112,11 +115,12 @@ public class ServerRpcAnswer implements RpcAnswer, DisposableBean {
 
     private TransactionCmd parser(RpcCmd rpcCmd) {
         TransactionCmd cmd = new TransactionCmd();
-        cmd.setRequestKey(rpcCmd.getKey());
+        cmd.setRequestKey(rpcCmd.getSeq());
         cmd.setRemoteKey(rpcCmd.getRemoteKey());
         cmd.setType(LCNCmdType.parserCmd(rpcCmd.getMsg().getAction()));
         cmd.setGroupId(rpcCmd.getMsg().getGroupId());
         cmd.setMsg(rpcCmd.getMsg());
+        cmd.setRpcCmd(rpcCmd);
         return cmd;
     }
 
@@ -18,6 +18,7 @@ package com.codingapi.txlcn.tm.txmsg;
 
 import com.codingapi.txlcn.txmsg.LCNCmdType;
 import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.dto.RpcCmd;
 import lombok.Data;
 
 /**
@@ -34,7 +35,7 @@ public class TransactionCmd {
     /**
      * 请求唯一标识
      */
-    private String requestKey;
+    private long requestKey;
 
     /**
      * 事务组id
@@ -51,4 +52,9 @@ public class TransactionCmd {
      */
     private MessageDto msg;
 
+    /**
+     * 原始请求，延迟响应时使用
+     */
+    private RpcCmd rpcCmd;
+
 }
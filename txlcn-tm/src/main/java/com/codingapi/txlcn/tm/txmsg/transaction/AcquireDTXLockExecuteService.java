@@ -16,6 +16,9 @@
 package com.codingapi.txlcn.tm.txmsg.transaction;
 
 import com.codingapi.txlcn.common.exception.TxManagerException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.lock.DTXLockWaitQueue;
+import com.codingapi.txlcn.tm.txmsg.DeferredResponse;
 import com.codingapi.txlcn.tm.txmsg.RpcExecuteService;
 import com.codingapi.txlcn.tm.txmsg.TransactionCmd;
 import com.codingapi.txlcn.tm.core.storage.FastStorage;
@@ -26,6 +29,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
+import java.util.Set;
 
 /**
  * Description:
@@ -38,21 +42,43 @@ public class AcquireDTXLockExecuteService implements RpcExecuteService {
 
     private final FastStorage fastStorage;
 
+    private final DTXLockWaitQueue dtxLockWaitQueue;
+
+    private final TxManagerConfig managerConfig;
+
     @Autowired
-    public AcquireDTXLockExecuteService(FastStorage fastStorage) {
+    public AcquireDTXLockExecuteService(FastStorage fastStorage, DTXLockWaitQueue dtxLockWaitQueue,
+                                        TxManagerConfig managerConfig) {
         this.fastStorage = fastStorage;
+        this.dtxLockWaitQueue = dtxLockWaitQueue;
+        this.managerConfig = managerConfig;
     }
 
     @Override
     public Serializable execute(TransactionCmd transactionCmd) throws TxManagerException {
         DTXLockParams dtxLockParams = transactionCmd.getMsg().loadBean(DTXLockParams.class);
+        LockValue lockValue = new LockValue();
+        lockValue.setGroupId(dtxLockParams.getGroupId());
+        lockValue.setLockType(dtxLockParams.getLockType());
+        // 锁被占用且申请者愿意等待时排队，获得锁或超时后再响应
+        boolean waitable = dtxLockParams.getWaitTime() > 0 && transactionCmd.getRpcCmd().hasKey();
         try {
-            LockValue lockValue = new LockValue();
-            lockValue.setGroupId(dtxLockParams.getGroupId());
-            lockValue.setLockType(dtxLockParams.getLockType());
-            fastStorage.acquireLocks(dtxLockParams.getContextId(), dtxLockParams.getLocks(), lockValue);
-            return true;
+            // 锁上已有等待者时不越过它们直接申请，已持有锁的事务组重入除外
+            Set<String> waitedLocks = dtxLockWaitQueue.waitedLocks(dtxLockParams.getContextId(), dtxLockParams.getLocks());
+            if (!waitedLocks.isEmpty() && !fastStorage.findLockHolders(dtxLockParams.getContextId(), waitedLocks)
+                    .contains(dtxLockParams.getGroupId())) {
+                throw new FastStorageException("acquire locks fail. " + waitedLocks + " has waiters.",
+                        FastStorageException.EX_CODE_REPEAT_LOCK);
+            }
+            // 响应锁凭证
+            return fastStorage.acquireLocks(dtxLockParams.getContextId(), dtxLockParams.getLocks(), lockValue);
         } catch (FastStorageException e) {
+            if (e.getCode() == FastStorageException.EX_CODE_REPEAT_LOCK && waitable) {
+                dtxLockWaitQueue.await(transactionCmd.getRpcCmd(), dtxLockParams.getContextId(),
+                        dtxLockParams.getLocks(), lockValue,
+                        Math.min(dtxLockParams.getWaitTime(), managerConfig.getDtxTime()));
+                return DeferredResponse.INSTANCE;
+            }
             throw new TxManagerException(e);
         }
     }
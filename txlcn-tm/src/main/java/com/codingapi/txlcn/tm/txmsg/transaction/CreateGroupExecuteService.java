@@ -19,6 +19,7 @@ import com.codingapi.txlcn.common.exception.TransactionException;
 import com.codingapi.txlcn.common.exception.TxManagerException;
 import com.codingapi.txlcn.common.util.Transactions;
 import com.codingapi.txlcn.logger.TxLogger;
+import com.codingapi.txlcn.tm.core.GroupTimeoutSweeper;
 import com.codingapi.txlcn.tm.core.TransactionManager;
 import com.codingapi.txlcn.tm.txmsg.RpcExecuteService;
 import com.codingapi.txlcn.tm.txmsg.TransactionCmd;
@@ -40,10 +41,14 @@ public class CreateGroupExecuteService implements RpcExecuteService {
 
     private final TransactionManager transactionManager;
 
+    private final GroupTimeoutSweeper groupTimeoutSweeper;
+
     @Autowired
-    public CreateGroupExecuteService(TxLogger txLogger, TransactionManager transactionManager) {
+    public CreateGroupExecuteService(TxLogger txLogger, TransactionManager transactionManager,
+                                     GroupTimeoutSweeper groupTimeoutSweeper) {
         this.txLogger = txLogger;
         this.transactionManager = transactionManager;
+        this.groupTimeoutSweeper = groupTimeoutSweeper;
     }
 
     @Override
@@ -53,6 +58,7 @@ public class CreateGroupExecuteService implements RpcExecuteService {
              * 开始创建事务组
              */
             transactionManager.begin(transactionCmd.getGroupId());
+            groupTimeoutSweeper.open(transactionCmd.getGroupId(), transactionCmd.getRemoteKey());
         } catch (TransactionException e) {
             throw new TxManagerException(e);
         }
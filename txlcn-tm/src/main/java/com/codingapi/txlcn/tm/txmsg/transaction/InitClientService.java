@@ -18,6 +18,7 @@ package com.codingapi.txlcn.tm.txmsg.transaction;
 import com.codingapi.txlcn.common.exception.TxManagerException;
 import com.codingapi.txlcn.common.util.ApplicationInformation;
 import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisKeys;
 import com.codingapi.txlcn.tm.support.service.ManagerService;
 import com.codingapi.txlcn.tm.txmsg.RpcExecuteService;
 import com.codingapi.txlcn.tm.txmsg.TransactionCmd;
@@ -73,12 +74,20 @@ public class InitClientService implements RpcExecuteService {
         log.info("init client - >{}", transactionCmd);
         InitClientParams initClientParams = transactionCmd.getMsg().loadBean(InitClientParams.class);
         rpcClient.bindAppName(transactionCmd.getRemoteKey(), initClientParams.getAppName());
+        // 通讯协议版本，旧TC为0
+        int wireVersion = rpcClient.negotiateWireVersion(initClientParams.getWireVersion());
+        rpcClient.bindWireVersion(transactionCmd.getRemoteKey(), wireVersion);
+        initClientParams.setWireVersion(wireVersion);
         // Machine len and id
         initClientParams.setSeqLen(txManagerConfig.getSeqLen());
         initClientParams.setMachineId(managerService.machineIdSync());
         // DTX Time and TM timeout.
         initClientParams.setDtxTime(txManagerConfig.getDtxTime());
         initClientParams.setTmRpcTimeout(rpcConfig.getWaitTime());
+        // DTX lock lease, renewed by TC in it
+        initClientParams.setDtxLockTime(txManagerConfig.getDtxLockTime());
+        // DTX lock id of TC, qualified by table in hash-tag schema only
+        initClientParams.setTableScopedLockId(RedisKeys.HASH_TAG.equals(txManagerConfig.getRedisKeySchema()));
         // TM Name
         initClientParams.setAppName(ApplicationInformation.modId(environment, serverProperties));
         return initClientParams;
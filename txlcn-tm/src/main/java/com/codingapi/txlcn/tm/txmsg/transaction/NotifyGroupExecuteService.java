@@ -21,8 +21,10 @@ import com.codingapi.txlcn.common.exception.TxManagerException;
 import com.codingapi.txlcn.common.exception.UserRollbackException;
 import com.codingapi.txlcn.common.util.Transactions;
 import com.codingapi.txlcn.logger.TxLogger;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
 import com.codingapi.txlcn.tm.core.DTXContext;
 import com.codingapi.txlcn.tm.core.DTXContextRegistry;
+import com.codingapi.txlcn.tm.core.GroupTimeoutSweeper;
 import com.codingapi.txlcn.tm.core.TransactionManager;
 import com.codingapi.txlcn.tm.txmsg.RpcExecuteService;
 import com.codingapi.txlcn.tm.txmsg.TransactionCmd;
@@ -32,9 +34,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.Serializable;
+import java.util.concurrent.ExecutorService;
 
 /**
- * Description:
+ * Description: 通知事务组. tx-lcn.manager.async-notify 开启时，提交/回滚决定写入存储后即响应发起方，
+ * 事务单元在后台通知，通知失败的单元照常记录补偿(t_tx_exception)
  * Date: 2018/12/11
  *
  * @author ujued
@@ -49,12 +53,22 @@ public class NotifyGroupExecuteService implements RpcExecuteService {
 
     private final DTXContextRegistry dtxContextRegistry;
 
+    private final TxManagerConfig managerConfig;
+
+    private final ExecutorService executorService;
+
+    private final GroupTimeoutSweeper groupTimeoutSweeper;
+
     @Autowired
     public NotifyGroupExecuteService(TxLogger txLogger, TransactionManager transactionManager,
-                                     DTXContextRegistry dtxContextRegistry) {
+                                     DTXContextRegistry dtxContextRegistry, TxManagerConfig managerConfig,
+                                     ExecutorService executorService, GroupTimeoutSweeper groupTimeoutSweeper) {
         this.txLogger = txLogger;
         this.transactionManager = transactionManager;
         this.dtxContextRegistry = dtxContextRegistry;
+        this.managerConfig = managerConfig;
+        this.executorService = executorService;
+        this.groupTimeoutSweeper = groupTimeoutSweeper;
     }
 
     /**
@@ -65,6 +79,13 @@ public class NotifyGroupExecuteService implements RpcExecuteService {
      */
     @Override
     public Serializable execute(TransactionCmd transactionCmd) throws TxManagerException {
+        try {
+            // 已被TM超时回滚的事务组不再通知
+            groupTimeoutSweeper.claim(transactionCmd.getGroupId());
+        } catch (TransactionException e) {
+            throw new TxManagerException(e);
+        }
+        boolean async = false;
         try {
 
             DTXContext dtxContext = dtxContextRegistry.get(transactionCmd.getGroupId());
@@ -85,10 +106,13 @@ public class NotifyGroupExecuteService implements RpcExecuteService {
             txLogger.transactionInfo(
                     transactionCmd.getGroupId(), "", "notify group state: %d", notifyGroupParams.getState());
 
-            if (commitState == 1) {
-                transactionManager.commit(dtxContext);
-            } else if (commitState == 0) {
-                transactionManager.rollback(dtxContext);
+            if (managerConfig.isAsyncNotify()) {
+                // 决定写入存储后，询问事务状态的事务单元可得到此决定
+                dtxContext.resetTransactionState(commitState);
+                notifyAsync(dtxContext, commitState);
+                async = true;
+            } else {
+                notifyGroup(dtxContext, commitState);
             }
             if (hasThrow) {
                 throw new UserRollbackException("user mandatory rollback");
@@ -96,10 +120,37 @@ public class NotifyGroupExecuteService implements RpcExecuteService {
         } catch (TransactionException e) {
             throw new TxManagerException(e);
         } finally {
-            transactionManager.close(transactionCmd.getGroupId());
-            // 系统日志
-            txLogger.transactionInfo(transactionCmd.getGroupId(), "", "notify group over");
+            if (!async) {
+                close(transactionCmd.getGroupId());
+            }
         }
         return null;
     }
+
+    private void notifyGroup(DTXContext dtxContext, int commitState) throws TransactionException {
+        if (commitState == 1) {
+            transactionManager.commit(dtxContext);
+        } else if (commitState == 0) {
+            transactionManager.rollback(dtxContext);
+        }
+    }
+
+    private void notifyAsync(DTXContext dtxContext, int commitState) {
+        executorService.submit(() -> {
+            try {
+                notifyGroup(dtxContext, commitState);
+            } catch (Throwable e) {
+                // 事务组保留到超时，事务单元仍可询问到决定
+                log.error("async notify group error. groupId: " + dtxContext.getGroupId(), e);
+                return;
+            }
+            close(dtxContext.getGroupId());
+        });
+    }
+
+    private void close(String groupId) {
+        transactionManager.close(groupId);
+        // 系统日志
+        txLogger.transactionInfo(groupId, "", "notify group over");
+    }
 }
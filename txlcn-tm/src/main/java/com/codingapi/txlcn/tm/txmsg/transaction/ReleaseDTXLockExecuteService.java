@@ -16,11 +16,13 @@
 package com.codingapi.txlcn.tm.txmsg.transaction;
 
 import com.codingapi.txlcn.common.exception.TxManagerException;
+import com.codingapi.txlcn.tm.core.lock.DTXLockWaitQueue;
 import com.codingapi.txlcn.txmsg.params.DTXLockParams;
 import com.codingapi.txlcn.tm.txmsg.RpcExecuteService;
 import com.codingapi.txlcn.tm.txmsg.TransactionCmd;
 import com.codingapi.txlcn.tm.core.storage.FastStorage;
 import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -37,16 +39,25 @@ public class ReleaseDTXLockExecuteService implements RpcExecuteService {
 
     private final FastStorage fastStorage;
 
+    private final DTXLockWaitQueue dtxLockWaitQueue;
+
     @Autowired
-    public ReleaseDTXLockExecuteService(FastStorage fastStorage) {
+    public ReleaseDTXLockExecuteService(FastStorage fastStorage, DTXLockWaitQueue dtxLockWaitQueue) {
         this.fastStorage = fastStorage;
+        this.dtxLockWaitQueue = dtxLockWaitQueue;
     }
 
     @Override
     public Serializable execute(TransactionCmd transactionCmd) throws TxManagerException {
         DTXLockParams dtxLockParams = transactionCmd.getMsg().loadBean(DTXLockParams.class);
         try {
-            fastStorage.releaseLocks(dtxLockParams.getContextId(), dtxLockParams.getLocks());
+            LockValue lockValue = new LockValue();
+            lockValue.setGroupId(dtxLockParams.getGroupId());
+            lockValue.setLockType(dtxLockParams.getLockType());
+            lockValue.setFencingToken(dtxLockParams.getFencingToken());
+            fastStorage.releaseLocks(dtxLockParams.getContextId(), dtxLockParams.getLocks(), lockValue);
+            // 唤醒排队的申请者
+            dtxLockWaitQueue.signal(dtxLockParams.getContextId(), dtxLockParams.getLocks());
             return true;
         } catch (FastStorageException e) {
             throw new TxManagerException(e);
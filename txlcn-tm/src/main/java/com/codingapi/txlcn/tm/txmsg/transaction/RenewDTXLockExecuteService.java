@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.txmsg.transaction;
+
+import com.codingapi.txlcn.common.exception.TxManagerException;
+import com.codingapi.txlcn.tm.txmsg.EnsureIdGenEngine;
+import com.codingapi.txlcn.tm.txmsg.RpcExecuteService;
+import com.codingapi.txlcn.tm.txmsg.TransactionCmd;
+import com.codingapi.txlcn.txmsg.params.HeartbeatParams;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+
+/**
+ * Description: DTX locks renewed by TC within lock time, independent of TM heartbeats which
+ * only fire on idle connections.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Component("rpc_renew-dtx-lock")
+public class RenewDTXLockExecuteService implements RpcExecuteService {
+
+    private final EnsureIdGenEngine ensureIdGenEngine;
+
+    @Autowired
+    public RenewDTXLockExecuteService(EnsureIdGenEngine ensureIdGenEngine) {
+        this.ensureIdGenEngine = ensureIdGenEngine;
+    }
+
+    @Override
+    public Serializable execute(TransactionCmd transactionCmd) throws TxManagerException {
+        ensureIdGenEngine.renew(transactionCmd.getMsg().loadBean(HeartbeatParams.class));
+        return true;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.lock.DTXLocks;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import com.codingapi.txlcn.tm.core.storage.redis.CompactRedisSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Description: every value type round-trips in the compact codec, varints at their byte boundaries,
+ * and values of one codec are read by the other.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class CompactRedisSerializerTest {
+
+    private final RedisSerializer<Object> jdk = new CompactRedisSerializer(CompactRedisSerializer.JDK);
+
+    private final RedisSerializer<Object> compact = new CompactRedisSerializer(CompactRedisSerializer.COMPACT);
+
+    @Test
+    public void strings() {
+        for (String value : Arrays.asList("", "1", "事务组-1", repeat('a', 200))) {
+            byte[] bytes = compact.serialize(value);
+            Assert.assertEquals(1, bytes[0]);
+            Assert.assertEquals(value, compact.deserialize(bytes));
+        }
+    }
+
+    @Test
+    public void transactionUnits() {
+        assertUnit(unit("2b1d6c3a9e4f5d7c8b0a1e2f3d4c5b6a", "txc", "order-service:8080"));
+        assertUnit(unit("", "", ""));
+        assertUnit(unit("u1", null, null));
+        assertUnit(unit("单元", "tcc", "订单服务"));
+        // string length varint(length + 1) crosses 1 and 2 bytes
+        for (int length : new int[]{126, 127, 128, 16382, 16383, 16384}) {
+            assertUnit(unit(repeat('u', length), "lcn", repeat('m', length)));
+        }
+    }
+
+    @Test
+    public void lockValues() {
+        long[] fencingTokens = {0, 1, 127, 128, 16383, 16384, (1L << 21) - 1, 1L << 21, Integer.MAX_VALUE,
+                System.currentTimeMillis() * 1000, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+        for (long fencingToken : fencingTokens) {
+            for (int lockType : new int[]{DTXLocks.S_LOCK, DTXLocks.X_LOCK, -1}) {
+                LockValue lockValue = new LockValue();
+                lockValue.setGroupId("5c7f3a2b9e1d4c6a8b0f");
+                lockValue.setLockType(lockType);
+                lockValue.setFencingToken(fencingToken);
+                Assert.assertEquals(lockValue, compact.deserialize(compact.serialize(lockValue)));
+            }
+        }
+        LockValue empty = new LockValue();
+        Assert.assertEquals(empty, compact.deserialize(compact.serialize(empty)));
+    }
+
+    @Test
+    public void varintLength() {
+        LockValue lockValue = new LockValue();
+        lockValue.setFencingToken(127);
+        int oneByte = compact.serialize(lockValue).length;
+        lockValue.setFencingToken(128);
+        Assert.assertEquals(oneByte + 1, compact.serialize(lockValue).length);
+        lockValue.setFencingToken(16384);
+        Assert.assertEquals(oneByte + 2, compact.serialize(lockValue).length);
+        lockValue.setFencingToken(-1);
+        Assert.assertEquals(oneByte + 9, compact.serialize(lockValue).length);
+    }
+
+    @Test
+    public void otherTypesAreJavaSerialized() {
+        Object value = Collections.singletonMap("k", 1);
+        Assert.assertArrayEquals(jdk.serialize(value), compact.serialize(value));
+        Assert.assertEquals(value, compact.deserialize(compact.serialize(value)));
+    }
+
+    @Test
+    public void nullValue() {
+        Assert.assertEquals(0, compact.serialize(null).length);
+        Assert.assertNull(compact.deserialize(compact.serialize(null)));
+        Assert.assertNull(compact.deserialize(null));
+        Assert.assertNull(jdk.deserialize(compact.serialize(null)));
+    }
+
+    @Test
+    public void valuesOfTheOtherCodec() {
+        TransactionUnit unit = unit("2b1d6c3a9e4f5d7c8b0a1e2f3d4c5b6a", "txc", "order-service:8080");
+        LockValue lockValue = new LockValue();
+        lockValue.setGroupId("5c7f3a2b9e1d4c6a8b0f");
+        lockValue.setLockType(DTXLocks.X_LOCK);
+        lockValue.setFencingToken(System.currentTimeMillis() * 1000);
+
+        // 升级前写入的值
+        for (Object value : new Object[]{unit, lockValue, "1", ""}) {
+            byte[] bytes = jdk.serialize(value);
+            Assert.assertEquals((byte) 0xAC, bytes[0]);
+            Assert.assertEquals(value, compact.deserialize(bytes));
+            Assert.assertEquals(value, jdk.deserialize(compact.serialize(value)));
+        }
+        TransactionUnit read = (TransactionUnit) compact.deserialize(jdk.serialize(unit));
+        Assert.assertEquals(unit.getModId(), read.getModId());
+        Assert.assertEquals(unit.getUnitType(), read.getUnitType());
+    }
+
+    @Test(expected = SerializationException.class)
+    public void truncatedValue() {
+        byte[] bytes = compact.serialize(unit("2b1d6c3a9e4f5d7c8b0a1e2f3d4c5b6a", "txc", "order-service:8080"));
+        compact.deserialize(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void unknownType() {
+        compact.deserialize(new byte[]{1, 99});
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownCodec() {
+        new CompactRedisSerializer("kryo");
+    }
+
+    private void assertUnit(TransactionUnit unit) {
+        TransactionUnit read = (TransactionUnit) compact.deserialize(compact.serialize(unit));
+        Assert.assertEquals(unit.getUnitId(), read.getUnitId());
+        Assert.assertEquals(unit.getUnitType(), read.getUnitType());
+        Assert.assertEquals(unit.getModId(), read.getModId());
+    }
+
+    private static TransactionUnit unit(String unitId, String unitType, String modId) {
+        TransactionUnit unit = new TransactionUnit();
+        unit.setUnitId(unitId);
+        unit.setUnitType(unitType);
+        unit.setModId(modId);
+        return unit;
+    }
+
+    private static String repeat(char c, int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
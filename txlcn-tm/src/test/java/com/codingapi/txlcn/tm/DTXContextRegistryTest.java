@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.common.exception.TransactionException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.DTXContext;
+import com.codingapi.txlcn.tm.core.DefaultDTXContextRegistry;
+import com.codingapi.txlcn.tm.core.storage.FastStorage;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: groups created by this TM are served from the group cache, writes still go through to FastStorage.
+ * with group affinity the groups created by this TM never touch FastStorage.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class DTXContextRegistryTest {
+
+    private TxManagerConfig managerConfig;
+
+    private FastStorage fastStorage;
+
+    @Before
+    public void setUp() {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        managerConfig = new TxManagerConfig(serverProperties);
+        managerConfig.setGroupCache(true);
+        fastStorage = mock(FastStorage.class);
+    }
+
+    @Test
+    public void createdGroupIsReadFromCache() throws Exception {
+        DefaultDTXContextRegistry registry = new DefaultDTXContextRegistry(fastStorage, managerConfig);
+        DTXContext created = registry.create("g1");
+        created.join(unit("u1"));
+        DTXContext notified = registry.get("g1");
+        notified.join(unit("u2"));
+        notified.resetTransactionState(1);
+
+        Assert.assertEquals(2, registry.get("g1").transactionUnits().size());
+        Assert.assertEquals(1, registry.transactionState("g1"));
+        verify(fastStorage).initGroup("g1");
+        verify(fastStorage).saveTransactionUnitToGroup("g1", unit("u1"));
+        verify(fastStorage).saveTransactionUnitToGroup("g1", unit("u2"));
+        verify(fastStorage).saveTransactionState("g1", 1);
+        verify(fastStorage, never()).findTransactionUnitsFromGroup(anyString());
+        verify(fastStorage, never()).getTransactionState(anyString());
+    }
+
+    @Test
+    public void failedWriteIsNotCached() throws Exception {
+        doThrow(new FastStorageException("non group", FastStorageException.EX_CODE_NON_GROUP))
+                .when(fastStorage).saveTransactionUnitToGroup(anyString(), any());
+        DefaultDTXContextRegistry registry = new DefaultDTXContextRegistry(fastStorage, managerConfig);
+        DTXContext context = registry.create("g1");
+        try {
+            context.join(unit("u1"));
+            Assert.fail();
+        } catch (TransactionException ignored) {
+        }
+        Assert.assertTrue(registry.get("g1").transactionUnits().isEmpty());
+    }
+
+    @Test
+    public void groupOfAnotherTMIsReadFromStorage() throws Exception {
+        doThrow(new FastStorageException("repeat group", FastStorageException.EX_CODE_REPEAT_GROUP))
+                .when(fastStorage).initGroup("g1");
+        when(fastStorage.findTransactionUnitsFromGroup("g1")).thenReturn(Collections.singletonList(unit("u1")));
+        when(fastStorage.getTransactionState("g1")).thenReturn(1);
+        DefaultDTXContextRegistry registry = new DefaultDTXContextRegistry(fastStorage, managerConfig);
+
+        Assert.assertEquals(1, registry.create("g1").transactionUnits().size());
+        Assert.assertEquals(1, registry.transactionState("g1"));
+        verify(fastStorage).findTransactionUnitsFromGroup("g1");
+    }
+
+    @Test
+    public void destroyedGroupLeavesCache() throws Exception {
+        DefaultDTXContextRegistry registry = new DefaultDTXContextRegistry(fastStorage, managerConfig);
+        registry.create("g1").join(unit("u1"));
+        registry.destroyContext("g1");
+        verify(fastStorage).clearGroup("g1");
+
+        Assert.assertTrue(registry.get("g1").transactionUnits().isEmpty());
+        verify(fastStorage).findTransactionUnitsFromGroup("g1");
+    }
+
+    @Test
+    public void disabledCacheReadsStorage() throws Exception {
+        managerConfig.setGroupCache(false);
+        DefaultDTXContextRegistry registry = new DefaultDTXContextRegistry(fastStorage, managerConfig);
+        registry.create("g1").join(unit("u1"));
+        registry.get("g1").transactionUnits();
+        registry.transactionState("g1");
+        verify(fastStorage).findTransactionUnitsFromGroup("g1");
+        verify(fastStorage).getTransactionState("g1");
+    }
+
+    @Test
+    public void ownedGroupStaysInMemory() throws Exception {
+        managerConfig.setGroupCache(false);
+        managerConfig.setGroupAffinity(true);
+        DefaultDTXContextRegistry registry = new DefaultDTXContextRegistry(fastStorage, managerConfig);
+        registry.create("g1").join(unit("u1"));
+        DTXContext notified = registry.get("g1");
+        notified.join(unit("u2"));
+        notified.resetTransactionState(1);
+
+        Assert.assertEquals(2, registry.get("g1").transactionUnits().size());
+        Assert.assertEquals(1, registry.transactionState("g1"));
+        registry.destroyContext("g1");
+        verifyZeroInteractions(fastStorage);
+    }
+
+    @Test
+    public void unknownGroupIsRejectedWithAffinity() throws Exception {
+        managerConfig.setGroupAffinity(true);
+        DefaultDTXContextRegistry registry = new DefaultDTXContextRegistry(fastStorage, managerConfig);
+        try {
+            registry.get("g1");
+            Assert.fail();
+        } catch (TransactionException ignored) {
+        }
+        verify(fastStorage).containsGroup("g1");
+    }
+
+    @Test
+    public void groupOfTMWithoutAffinityIsReadFromStorage() throws Exception {
+        // 滚动升级时, 未开启 affinity 的 TM 创建的事务组仍在 FastStorage 中
+        managerConfig.setGroupAffinity(true);
+        when(fastStorage.containsGroup("g1")).thenReturn(true);
+        when(fastStorage.findTransactionUnitsFromGroup("g1")).thenReturn(Collections.singletonList(unit("u1")));
+        DefaultDTXContextRegistry registry = new DefaultDTXContextRegistry(fastStorage, managerConfig);
+        DTXContext context = registry.get("g1");
+        context.join(unit("u2"));
+
+        Assert.assertEquals(1, context.transactionUnits().size());
+        verify(fastStorage).saveTransactionUnitToGroup("g1", unit("u2"));
+        registry.destroyContext("g1");
+        verify(fastStorage).clearGroup("g1");
+    }
+
+    private static TransactionUnit unit(String unitId) {
+        TransactionUnit unit = new TransactionUnit();
+        unit.setUnitId(unitId);
+        unit.setModId("mod");
+        unit.setUnitType("lcn");
+        return unit;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.TxManagerException;
+import com.codingapi.txlcn.common.lock.DTXLocks;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.lock.DTXLockWaitQueue;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.memory.MemoryStorage;
+import com.codingapi.txlcn.tm.txmsg.DeferredResponse;
+import com.codingapi.txlcn.tm.txmsg.TransactionCmd;
+import com.codingapi.txlcn.tm.txmsg.transaction.AcquireDTXLockExecuteService;
+import com.codingapi.txlcn.txmsg.RpcClient;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.dto.RpcCmd;
+import com.codingapi.txlcn.txmsg.params.DTXLockParams;
+import com.codingapi.txlcn.txmsg.util.MessageUtils;
+import com.google.common.collect.Sets;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Description: DTX lock waiters are granted in enqueue order, fresh acquires queue behind them and
+ * a multi-lock waiter never jumps an earlier waiter on one of its locks. a wait-for cycle aborts the
+ * youngest group, found with one batched holder lookup. a storage failure leaves waiters queued.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class DTXLockWaitQueueTest {
+
+    private static final String CONTEXT = "ctx";
+
+    private static final long WAIT_TIME = 10000;
+
+    private static final AtomicLong REQUEST_KEYS = new AtomicLong();
+
+    private final BlockingQueue<MessageDto> responses = new LinkedBlockingQueue<>();
+
+    private MemoryStorage fastStorage;
+
+    private DTXLockWaitQueue waitQueue;
+
+    private AcquireDTXLockExecuteService acquireService;
+
+    @Before
+    public void setUp() throws Exception {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        TxManagerConfig managerConfig = new TxManagerConfig(serverProperties);
+        managerConfig.setDtxTime(60000);
+        fastStorage = spy(new MemoryStorage(managerConfig));
+        RpcClient rpcClient = mock(RpcClient.class);
+        doAnswer(invocation -> {
+            responses.add(invocation.<RpcCmd>getArgument(0).getMsg());
+            return null;
+        }).when(rpcClient).send(any(RpcCmd.class));
+        waitQueue = new DTXLockWaitQueue(fastStorage, rpcClient, new SimpleMeterRegistry());
+        acquireService = new AcquireDTXLockExecuteService(fastStorage, waitQueue, managerConfig);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        waitQueue.destroy();
+        fastStorage.close();
+    }
+
+    @Test
+    public void grantInEnqueueOrder() throws Exception {
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("a"), lockValue("g0"));
+        await("g1", "a");
+        await("g2", "a");
+        Assert.assertEquals(Sets.newHashSet("a"), waitQueue.waitedLocks(CONTEXT, Sets.newHashSet("a", "b")));
+
+        release("g0", "a");
+        assertGranted("g1");
+        assertNoResponse();
+
+        release("g1", "a");
+        assertGranted("g2");
+        Assert.assertTrue(waitQueue.waitedLocks(CONTEXT, Sets.newHashSet("a")).isEmpty());
+    }
+
+    @Test
+    public void freshAcquireQueuesBehindWaiters() throws Exception {
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("b"), lockValue("g0"));
+        await("g1", "a", "b");
+
+        // a 空闲，但 g1 正在等待 a
+        Assert.assertSame(DeferredResponse.INSTANCE, acquireService.execute(acquireCmd("g2", WAIT_TIME, "a")));
+        Assert.assertTrue(fastStorage.findLockHolders(CONTEXT, Sets.newHashSet("a")).isEmpty());
+        try {
+            acquireService.execute(acquireCmd("g3", 0, "a"));
+            Assert.fail("acquired ahead of waiters");
+        } catch (TxManagerException ignored) {
+        }
+
+        release("g0", "b");
+        assertGranted("g1");
+        assertNoResponse();
+
+        release("g1", "a", "b");
+        assertGranted("g2");
+    }
+
+    @Test
+    public void holderReacquiresAheadOfWaiters() throws Exception {
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("a"), lockValue("g0"));
+        await("g1", "a");
+        Assert.assertTrue(acquireService.execute(acquireCmd("g0", 0, "a")) instanceof Long);
+        assertNoResponse();
+    }
+
+    @Test
+    public void multiLockWaiterNotAheadOfEarlierWaiter() throws Exception {
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("b"), lockValue("g0"));
+        await("g2", "b");
+        await("g1", "a", "b");
+
+        // b 被释放但只通知了 a，g1 在 b 上排在 g2 之后
+        fastStorage.releaseLocks(CONTEXT, Sets.newHashSet("b"), lockValue("g0"));
+        waitQueue.signal(CONTEXT, Sets.newHashSet("a"));
+        assertGranted("g2");
+        assertNoResponse();
+
+        release("g2", "b");
+        assertGranted("g1");
+    }
+
+    @Test
+    public void abortYoungestNumericGroupInCycle() throws Exception {
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("a"), lockValue("1001"));
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("b"), lockValue("1002"));
+        await("1002", "a");
+        await("1001", "b");
+
+        assertAborted("1002");
+        verify(fastStorage, times(1)).findLockHoldersByLock(anyString(), anySet());
+        verify(fastStorage, never()).findLockHolders(anyString(), anySet());
+
+        release("1002", "b");
+        assertGranted("1001");
+    }
+
+    @Test
+    public void abortLastEnqueuedGroupInCycle() throws Exception {
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("a"), lockValue("gb"));
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("b"), lockValue("ga"));
+        // gb 在字典序上更大，ga 更晚排队
+        await("gb", "b");
+        await("ga", "a");
+
+        assertAborted("ga");
+        assertNoResponse();
+    }
+
+    @Test
+    public void detectDeadlockWhileAcquireFails() throws Exception {
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("a"), lockValue("1001"));
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("b"), lockValue("1002"));
+        doThrow(new IllegalStateException("storage down")).when(fastStorage).acquireLocks(anyString(), anySet(), any());
+        await("1002", "a");
+        await("1001", "b");
+
+        assertAborted("1002");
+    }
+
+    @Test
+    public void storageFailureKeepsWaiting() throws Exception {
+        fastStorage.acquireLocks(CONTEXT, Sets.newHashSet("a"), lockValue("g0"));
+        doThrow(new IllegalStateException("storage down")).doThrow(new IllegalStateException("storage down"))
+                .doCallRealMethod().when(fastStorage).acquireLocks(anyString(), anySet(), any());
+        await("g1", "a");
+        release("g0", "a");
+
+        // 重检仍在运行，存储恢复后授予
+        MessageDto response = responses.poll(3, TimeUnit.SECONDS);
+        Assert.assertNotNull("no response for g1", response);
+        Assert.assertEquals("g1", response.getGroupId());
+        Assert.assertTrue(MessageUtils.statusOk(response));
+    }
+
+    private void await(String groupId, String... locks) {
+        DTXLockParams params = new DTXLockParams(groupId, CONTEXT, Sets.newHashSet(locks), DTXLocks.X_LOCK, 0, WAIT_TIME);
+        waitQueue.await(rpcCmd(params), CONTEXT, params.getLocks(), lockValue(groupId), WAIT_TIME);
+    }
+
+    private void release(String groupId, String... locks) throws Exception {
+        Set<String> lockSet = Sets.newHashSet(locks);
+        fastStorage.releaseLocks(CONTEXT, lockSet, lockValue(groupId));
+        waitQueue.signal(CONTEXT, lockSet);
+    }
+
+    private void assertGranted(String groupId) throws InterruptedException {
+        MessageDto response = responses.poll(2, TimeUnit.SECONDS);
+        Assert.assertNotNull("no response for " + groupId, response);
+        Assert.assertEquals(groupId, response.getGroupId());
+        Assert.assertTrue(MessageUtils.statusOk(response));
+    }
+
+    private void assertAborted(String groupId) throws InterruptedException {
+        MessageDto response = responses.poll(2, TimeUnit.SECONDS);
+        Assert.assertNotNull("no response for " + groupId, response);
+        Assert.assertEquals(groupId, response.getGroupId());
+        Assert.assertFalse(MessageUtils.statusOk(response));
+        Assert.assertTrue(String.valueOf(response.getData()).contains("deadlock"));
+    }
+
+    private void assertNoResponse() throws InterruptedException {
+        Assert.assertNull(responses.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    private static TransactionCmd acquireCmd(String groupId, long waitTime, String... locks) {
+        DTXLockParams params = new DTXLockParams(groupId, CONTEXT, Sets.newHashSet(locks), DTXLocks.X_LOCK, 0, waitTime);
+        TransactionCmd transactionCmd = new TransactionCmd();
+        transactionCmd.setGroupId(groupId);
+        transactionCmd.setRpcCmd(rpcCmd(params));
+        transactionCmd.setMsg(transactionCmd.getRpcCmd().getMsg());
+        return transactionCmd;
+    }
+
+    private static RpcCmd rpcCmd(DTXLockParams params) {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction("acquire-dtx-lock");
+        messageDto.setGroupId(params.getGroupId());
+        messageDto.setData(params);
+        RpcCmd rpcCmd = new RpcCmd() {
+            @Override
+            public MessageDto loadResult() {
+                return null;
+            }
+        };
+        rpcCmd.setSeq(REQUEST_KEYS.incrementAndGet());
+        rpcCmd.setMsg(messageDto);
+        return rpcCmd;
+    }
+
+    private static LockValue lockValue(String groupId) {
+        LockValue lockValue = new LockValue();
+        lockValue.setGroupId(groupId);
+        lockValue.setLockType(DTXLocks.X_LOCK);
+        return lockValue;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.FastStorage;
+import com.codingapi.txlcn.tm.core.storage.journal.JournalStorage;
+import com.codingapi.txlcn.tm.core.storage.memory.MemoryStorage;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisStorage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: redis templates are resolved by redis storages only, so other storages start without redis.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class FastStorageProviderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TxManagerConfig managerConfig;
+
+    private ObjectProvider<RedisTemplate<String, Object>> redisTemplate;
+
+    private ObjectProvider<StringRedisTemplate> stringRedisTemplate;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        managerConfig = new TxManagerConfig(serverProperties);
+        redisTemplate = mock(ObjectProvider.class);
+        stringRedisTemplate = mock(ObjectProvider.class);
+    }
+
+    @Test
+    public void memoryWithoutRedis() {
+        managerConfig.setStorage("memory");
+        FastStorage fastStorage = provide();
+        Assert.assertTrue(fastStorage instanceof MemoryStorage);
+        ((MemoryStorage) fastStorage).close();
+        verifyZeroInteractions(redisTemplate, stringRedisTemplate);
+    }
+
+    @Test
+    public void journalWithoutRedis() throws Exception {
+        managerConfig.setStorage("journal");
+        managerConfig.setJournalDir(folder.newFolder("journal").getAbsolutePath());
+        FastStorage fastStorage = provide();
+        Assert.assertTrue(fastStorage instanceof JournalStorage);
+        ((JournalStorage) fastStorage).close();
+        verifyZeroInteractions(redisTemplate, stringRedisTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void redisResolvesTemplates() {
+        managerConfig.setStorage("redis");
+        when(redisTemplate.getObject()).thenReturn(mock(RedisTemplate.class));
+        when(stringRedisTemplate.getObject()).thenReturn(mock(StringRedisTemplate.class));
+        Assert.assertTrue(provide() instanceof RedisStorage);
+        verify(redisTemplate).getObject();
+        verify(stringRedisTemplate).getObject();
+    }
+
+    private FastStorage provide() {
+        return new TMAutoConfiguration().fastStorageProvider(redisTemplate, stringRedisTemplate, managerConfig)
+                .provide();
+    }
+}
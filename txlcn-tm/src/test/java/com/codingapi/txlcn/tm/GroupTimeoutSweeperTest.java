@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.TransactionException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.DTXContext;
+import com.codingapi.txlcn.tm.core.DTXContextRegistry;
+import com.codingapi.txlcn.tm.core.GroupTimeoutSweeper;
+import com.codingapi.txlcn.tm.core.TransactionManager;
+import com.codingapi.txlcn.txmsg.RpcClient;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: open groups are rolled back when their initiator module goes offline, not when one
+ * of its connections does.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class GroupTimeoutSweeperTest {
+
+    private TransactionManager transactionManager;
+
+    private GroupTimeoutSweeper sweeper;
+
+    @Before
+    public void setUp() throws Exception {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        TxManagerConfig managerConfig = new TxManagerConfig(serverProperties);
+        managerConfig.setDtxTime(60000);
+        transactionManager = mock(TransactionManager.class);
+        DTXContext dtxContext = mock(DTXContext.class);
+        when(dtxContext.transactionUnits()).thenReturn(Collections.emptyList());
+        DTXContextRegistry dtxContextRegistry = mock(DTXContextRegistry.class);
+        when(dtxContextRegistry.get(anyString())).thenReturn(dtxContext);
+        RpcClient rpcClient = mock(RpcClient.class);
+        when(rpcClient.getAppName("/127.0.0.1:41001")).thenReturn("order-service:8081");
+        when(rpcClient.getAppName("/127.0.0.1:41002")).thenReturn("order-service:8081");
+        sweeper = new GroupTimeoutSweeper(managerConfig, transactionManager, dtxContextRegistry,
+                MoreExecutors.newDirectExecutorService(), rpcClient);
+    }
+
+    @After
+    public void tearDown() {
+        sweeper.destroy();
+    }
+
+    @Test
+    public void initiatorModuleOffline() {
+        sweeper.open("g1", "/127.0.0.1:41001");
+        // 同一模块的最后一个连接经另一个 remoteKey 断开
+        sweeper.disconnect("/127.0.0.1:41002", "order-service:8081");
+        verify(transactionManager).close("g1");
+        try {
+            sweeper.claim("g1");
+            Assert.fail("swept group claimed");
+        } catch (TransactionException ignored) {
+        }
+    }
+
+    @Test
+    public void otherModuleOffline() throws Exception {
+        sweeper.open("g2", "/127.0.0.1:41001");
+        sweeper.disconnect("/127.0.0.1:42001", "pay-service:8082");
+        sweeper.claim("g2");
+        verify(transactionManager, never()).close("g2");
+    }
+
+    @Test
+    public void unboundInitiator() {
+        sweeper.open("g3", "/127.0.0.1:43001");
+        sweeper.disconnect("/127.0.0.1:43001", null);
+        verify(transactionManager).close("g3");
+    }
+}
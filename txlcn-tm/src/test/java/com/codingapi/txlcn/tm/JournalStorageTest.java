@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.common.lock.DTXLocks;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import com.codingapi.txlcn.tm.core.storage.journal.JournalStorage;
+import com.codingapi.txlcn.tm.core.storage.memory.MemorySnapshot;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Description: a JournalStorage reopened on the journal of a crashed one (never closed, never compacted)
+ * has the same groups, locks, fencing and machine ids, with the original expire times.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class JournalStorageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TxManagerConfig managerConfig;
+
+    private final List<JournalStorage> storages = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        managerConfig = new TxManagerConfig(serverProperties);
+        managerConfig.setDtxTime(60000);
+        managerConfig.setJournalDir(folder.newFolder("journal").getAbsolutePath());
+        managerConfig.setJournalSyncInterval(0);
+    }
+
+    @After
+    public void tearDown() {
+        storages.forEach(JournalStorage::close);
+    }
+
+    @Test
+    public void groupsAndLocksSurviveCrash() throws Exception {
+        SnapshotJournalStorage crashed = open();
+        crashed.initGroup("g1");
+        crashed.saveTransactionUnitToGroup("g1", unit("u1"));
+        crashed.saveTransactionUnitToGroup("g1", unit("u2"));
+        crashed.initGroup("g2");
+        crashed.saveTransactionState("g2", 1);
+        crashed.clearGroup("g2");
+        long token = crashed.acquireLocks("ctx", Sets.newHashSet("a", "b"), lockValue("g1"));
+        long released = crashed.acquireLocks("ctx", Collections.singleton("c"), lockValue("g3"));
+        LockValue release = lockValue("g3");
+        release.setFencingToken(released);
+        crashed.releaseLocks("ctx", Collections.singleton("c"), release);
+        MemorySnapshot before = crashed.snapshot();
+
+        SnapshotJournalStorage recovered = open();
+        // expire times are from the journaled timestamps, not the replay time
+        MemorySnapshot after = recovered.snapshot();
+        Assert.assertEquals(before.getGroups(), after.getGroups());
+        Assert.assertEquals(before.getStates(), after.getStates());
+        Assert.assertEquals(before.getLocks(), after.getLocks());
+        Assert.assertEquals(before.getLockIndexes(), after.getLockIndexes());
+        Assert.assertEquals(before.getFencing(), after.getFencing());
+
+        Assert.assertEquals(2, recovered.findTransactionUnitsFromGroup("g1").size());
+        Assert.assertFalse(recovered.containsGroup("g2"));
+        Assert.assertEquals(1, recovered.getTransactionState("g2"));
+        Assert.assertEquals(Collections.singleton("g1"), recovered.findLockHolders("ctx", Sets.newHashSet("a", "b", "c")));
+        // the holder releases with the token it was issued before the crash
+        LockValue holder = lockValue("g1");
+        holder.setFencingToken(token);
+        recovered.releaseLocks("ctx", Sets.newHashSet("a", "b"), holder);
+        Assert.assertTrue(recovered.findLockHolders("ctx", Sets.newHashSet("a", "b")).isEmpty());
+        Assert.assertTrue(recovered.acquireLocks("ctx", Collections.singleton("d"), lockValue("g4")) > released);
+    }
+
+    @Test
+    public void machineIdsSurviveCrash() throws Exception {
+        SnapshotJournalStorage crashed = open();
+        int first = crashed.acquireOrRefreshMachineId(-1, 8, 60000);
+        int second = crashed.acquireOrRefreshMachineId(-1, 8, 60000);
+        Assert.assertNotEquals(first, second);
+        crashed.refreshMachineIds(Collections.singleton(first), 120000);
+        MemorySnapshot before = crashed.snapshot();
+
+        SnapshotJournalStorage recovered = open();
+        MemorySnapshot after = recovered.snapshot();
+        Assert.assertEquals(before.getMachineIds(), after.getMachineIds());
+        // leased ids are not handed out again
+        int third = recovered.acquireOrRefreshMachineId(-1, 8, 60000);
+        Assert.assertNotEquals(first, third);
+        Assert.assertNotEquals(second, third);
+    }
+
+    @Test(expected = FastStorageException.class)
+    public void machineIdsExhaustedAfterCrash() throws Exception {
+        SnapshotJournalStorage crashed = open();
+        crashed.acquireOrRefreshMachineId(-1, 1, 60000);
+        crashed.acquireOrRefreshMachineId(-1, 1, 60000);
+        open().acquireOrRefreshMachineId(-1, 1, 60000);
+    }
+
+    private SnapshotJournalStorage open() {
+        SnapshotJournalStorage storage = new SnapshotJournalStorage(managerConfig);
+        storages.add(storage);
+        return storage;
+    }
+
+    private static TransactionUnit unit(String unitId) {
+        TransactionUnit unit = new TransactionUnit();
+        unit.setUnitId(unitId);
+        unit.setModId("mod");
+        unit.setUnitType("lcn");
+        return unit;
+    }
+
+    private static LockValue lockValue(String groupId) {
+        LockValue lockValue = new LockValue();
+        lockValue.setGroupId(groupId);
+        lockValue.setLockType(DTXLocks.X_LOCK);
+        return lockValue;
+    }
+
+    private static class SnapshotJournalStorage extends JournalStorage {
+
+        private SnapshotJournalStorage(TxManagerConfig managerConfig) {
+            super(managerConfig);
+        }
+
+        @Override
+        protected MemorySnapshot snapshot() {
+            return super.snapshot();
+        }
+    }
+}
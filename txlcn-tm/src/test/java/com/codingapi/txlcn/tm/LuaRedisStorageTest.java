@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import com.codingapi.txlcn.tm.core.storage.redis.LuaRedisStorage;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisConfiguration;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisKeys;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: group scripts of LuaRedisStorage against an in-memory redis connection.
+ * the connection understands the commands and the two group scripts the storage sends.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class LuaRedisStorageTest {
+
+    private final Map<String, Map<String, byte[]>> hashes = new HashMap<>();
+
+    private final Map<String, byte[]> values = new HashMap<>();
+
+    private final Map<String, Long> ttls = new HashMap<>();
+
+    private final Map<String, String> scripts = new HashMap<>();
+
+    private final Set<String> failingCommands = new HashSet<>();
+
+    private int evals;
+
+    private TxManagerConfig managerConfig;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Before
+    public void setUp() {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        managerConfig = new TxManagerConfig(serverProperties);
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenAnswer(invocation -> connection());
+        redisTemplate = new RedisConfiguration().functionDomainRedisTemplate(connectionFactory, managerConfig);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @Test
+    public void unitsAndStateRoundTrip() throws Exception {
+        LuaRedisStorage storage = storage();
+        storage.initGroup("g1");
+        Assert.assertEquals(managerConfig.getDtxTime() + 10000, (long) ttls.get("tm:group:g1"));
+
+        storage.saveTransactionUnitToGroup("g1", unit("u1", "mod-a", "lcn"));
+        storage.saveTransactionUnitToGroup("g1", unit("u2", "mod-b", "txc"));
+        Map<String, TransactionUnit> units = new HashMap<>();
+        storage.findTransactionUnitsFromGroup("g1").forEach(unit -> units.put(unit.getUnitId(), unit));
+        Assert.assertEquals(2, units.size());
+        Assert.assertEquals("mod-a", units.get("u1").getModId());
+        Assert.assertEquals("lcn", units.get("u1").getUnitType());
+        Assert.assertEquals("mod-b", units.get("u2").getModId());
+        Assert.assertEquals("txc", units.get("u2").getUnitType());
+
+        Assert.assertEquals(-1, storage.getTransactionState("g1"));
+        storage.saveTransactionState("g1", 1);
+        Assert.assertEquals(1, storage.getTransactionState("g1"));
+        Assert.assertEquals(managerConfig.getDtxTime() + 10000, (long) ttls.get("tm:group:transactionState:g1"));
+    }
+
+    @Test
+    public void joinNonExistentGroup() {
+        LuaRedisStorage storage = storage();
+        try {
+            storage.saveTransactionUnitToGroup("g1", unit("u1", "mod-a", "lcn"));
+            Assert.fail("joined a non-existent group");
+        } catch (FastStorageException e) {
+            Assert.assertEquals(FastStorageException.EX_CODE_NON_GROUP, e.getCode());
+        }
+        // 加入失败不会创建事务组
+        Assert.assertFalse(hashes.containsKey("tm:group:g1"));
+    }
+
+    @Test
+    public void joinGroupOfPreviousKeySchema() throws Exception {
+        managerConfig.setRedisKeySchema(RedisKeys.HASH_TAG);
+        LuaRedisStorage storage = storage();
+        // 切换前由旧结构创建的事务组
+        hashes.put("tm:group:g1", new LinkedHashMap<>(Collections.singletonMap("root", hashValue(""))));
+
+        storage.saveTransactionUnitToGroup("g1", unit("u1", "mod-a", "lcn"));
+        Assert.assertFalse(hashes.containsKey("tm:{g1}:group"));
+        Assert.assertEquals(Collections.singletonList(unit("u1", "mod-a", "lcn")),
+                storage.findTransactionUnitsFromGroup("g1"));
+
+        managerConfig.setRedisLegacyRead(false);
+        try {
+            storage.saveTransactionUnitToGroup("g1", unit("u2", "mod-b", "lcn"));
+            Assert.fail("joined a group of previous key schema without legacy read");
+        } catch (FastStorageException e) {
+            Assert.assertEquals(FastStorageException.EX_CODE_NON_GROUP, e.getCode());
+        }
+    }
+
+    @Test
+    public void scriptCacheMiss() throws Exception {
+        // 预加载失败
+        failingCommands.add("scriptLoad");
+        LuaRedisStorage storage = storage();
+        Assert.assertTrue(scripts.isEmpty());
+
+        storage.initGroup("g1");
+        storage.saveTransactionUnitToGroup("g1", unit("u1", "mod-a", "lcn"));
+        Assert.assertEquals(2, evals);
+        // EVAL 载入后使用 EVALSHA
+        storage.initGroup("g2");
+        storage.saveTransactionUnitToGroup("g2", unit("u2", "mod-a", "lcn"));
+        Assert.assertEquals(2, evals);
+
+        // redis 重启或 SCRIPT FLUSH
+        scripts.clear();
+        storage.saveTransactionUnitToGroup("g1", unit("u3", "mod-b", "lcn"));
+        Assert.assertEquals(3, evals);
+        Assert.assertEquals(2, storage.findTransactionUnitsFromGroup("g1").size());
+    }
+
+    private LuaRedisStorage storage() {
+        return new LuaRedisStorage(redisTemplate, mock(StringRedisTemplate.class), managerConfig);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] hashValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(value);
+    }
+
+    private static TransactionUnit unit(String unitId, String modId, String unitType) {
+        TransactionUnit unit = new TransactionUnit();
+        unit.setUnitId(unitId);
+        unit.setModId(modId);
+        unit.setUnitType(unitType);
+        return unit;
+    }
+
+    private RedisConnection connection() {
+        return (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{RedisConnection.class}, (proxy, method, args) -> {
+                    if (failingCommands.contains(method.getName())) {
+                        throw new RedisSystemException("connection refused", null);
+                    }
+                    switch (method.getName()) {
+                        case "isPipelined":
+                        case "isQueueing":
+                        case "isClosed":
+                            return false;
+                        case "close":
+                            return null;
+                        case "toString":
+                            return "in-memory redis connection";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "scriptLoad":
+                            return load(string((byte[]) args[0]));
+                        case "evalSha":
+                            String script = scripts.get((String) args[0]);
+                            if (script == null) {
+                                throw new RedisSystemException("NOSCRIPT No matching script. Please use EVAL.", null);
+                            }
+                            return eval(script, (byte[][]) args[3]);
+                        case "eval":
+                            evals++;
+                            return eval(scripts.get(load(string((byte[]) args[0]))), (byte[][]) args[3]);
+                        case "hGetAll":
+                            Map<byte[], byte[]> entries = new LinkedHashMap<>();
+                            hashes.getOrDefault(string((byte[]) args[0]), Collections.emptyMap())
+                                    .forEach((field, value) -> entries.put(bytes(field), value));
+                            return entries;
+                        case "get":
+                            return values.get(string((byte[]) args[0]));
+                        case "pSetEx":
+                            values.put(string((byte[]) args[0]), (byte[]) args[2]);
+                            ttls.put(string((byte[]) args[0]), (Long) args[1]);
+                            return true;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private String load(String script) {
+        String sha1 = new DefaultRedisScript<>(script, Object.class).getSha1();
+        scripts.put(sha1, script);
+        return sha1;
+    }
+
+    private Long eval(String script, byte[][] keysAndArgs) {
+        String key = string(keysAndArgs[0]);
+        if (script.contains("'root'")) {
+            hashes.computeIfAbsent(key, k -> new LinkedHashMap<>()).put("root", keysAndArgs[1]);
+            ttls.put(key, Long.valueOf(string(keysAndArgs[2])));
+            return 1L;
+        }
+        if (script.contains("EXISTS")) {
+            if (!hashes.containsKey(key)) {
+                return 0L;
+            }
+            hashes.get(key).put(string(keysAndArgs[1]), keysAndArgs[2]);
+            return 1L;
+        }
+        throw new UnsupportedOperationException(Arrays.toString(keysAndArgs));
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
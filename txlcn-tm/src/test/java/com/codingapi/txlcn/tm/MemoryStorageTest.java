@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.common.lock.DTXLocks;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import com.codingapi.txlcn.tm.core.storage.memory.MemoryStorage;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Description: MemoryStorage behaves as RedisStorage: group lifecycle, S/X lock compatibility,
+ * lock leases with renewal and fencing, machine id leases. expirations run on a manual clock.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class MemoryStorageTest {
+
+    private ClockedMemoryStorage storage;
+
+    @Before
+    public void setUp() {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        TxManagerConfig managerConfig = new TxManagerConfig(serverProperties);
+        managerConfig.setDtxTime(5000);
+        managerConfig.setDtxLockTime(1000);
+        storage = new ClockedMemoryStorage(managerConfig);
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    public void groupLifecycle() throws FastStorageException {
+        storage.initGroup("g1");
+        Assert.assertTrue(storage.containsGroup("g1"));
+        storage.saveTransactionUnitToGroup("g1", unit("u1"));
+        storage.saveTransactionUnitToGroup("g1", unit("u2"));
+        storage.saveTransactionUnitToGroup("g1", unit("u1"));
+        Assert.assertEquals(2, storage.findTransactionUnitsFromGroup("g1").size());
+        storage.saveTransactionState("g1", 1);
+        Assert.assertEquals(1, storage.getTransactionState("g1"));
+
+        storage.clearGroup("g1");
+        Assert.assertFalse(storage.containsGroup("g1"));
+        Assert.assertTrue(storage.findTransactionUnitsFromGroup("g1").isEmpty());
+        Assert.assertEquals(-1, storage.getTransactionState("g2"));
+    }
+
+    @Test
+    public void groupExpires() {
+        storage.initGroup("g1");
+        // dtx time + 10s
+        storage.now += 14000;
+        Assert.assertTrue(storage.containsGroup("g1"));
+        storage.now += 2000;
+        Assert.assertFalse(storage.containsGroup("g1"));
+    }
+
+    @Test
+    public void joinMissingGroupFails() {
+        try {
+            storage.saveTransactionUnitToGroup("g1", unit("u1"));
+            Assert.fail();
+        } catch (FastStorageException e) {
+            Assert.assertEquals(FastStorageException.EX_CODE_NON_GROUP, e.getCode());
+        }
+    }
+
+    @Test
+    public void sharedLocksAreCompatible() throws FastStorageException {
+        Assert.assertTrue(storage.acquireLocks("ctx", Collections.singleton("a"), lockValue("g1", DTXLocks.S_LOCK)) > 0);
+        Assert.assertTrue(storage.acquireLocks("ctx", Collections.singleton("a"), lockValue("g2", DTXLocks.S_LOCK)) > 0);
+        Assert.assertEquals(Sets.newHashSet("g1", "g2"), storage.findLockHolders("ctx", Collections.singleton("a")));
+        assertLocked(Sets.newHashSet("a", "b"), lockValue("g3", DTXLocks.X_LOCK));
+        // nothing granted by a failed acquire
+        Assert.assertTrue(storage.findLockHolders("ctx", Collections.singleton("b")).isEmpty());
+        // the only holder upgrades
+        storage.releaseLocks("ctx", Collections.singleton("a"), lockValue("g2", DTXLocks.S_LOCK));
+        Assert.assertTrue(storage.acquireLocks("ctx", Collections.singleton("a"), lockValue("g1", DTXLocks.X_LOCK)) > 0);
+        assertLocked(Collections.singleton("a"), lockValue("g2", DTXLocks.S_LOCK));
+    }
+
+    @Test
+    public void lockLeaseExpiresUnlessRenewed() throws FastStorageException {
+        storage.acquireLocks("ctx", Collections.singleton("a"), lockValue("g1", DTXLocks.X_LOCK));
+        storage.now += 600;
+        storage.renewLocks(Collections.singleton("g1"));
+        storage.now += 600;
+        assertLocked(Collections.singleton("a"), lockValue("g2", DTXLocks.X_LOCK));
+        storage.now += 500;
+        Assert.assertTrue(storage.findLockHolders("ctx", Collections.singleton("a")).isEmpty());
+        Assert.assertTrue(storage.acquireLocks("ctx", Collections.singleton("a"), lockValue("g2", DTXLocks.X_LOCK)) > 0);
+    }
+
+    @Test
+    public void staleReleaseKeepsNewerHold() throws FastStorageException {
+        long first = storage.acquireLocks("ctx", Collections.singleton("a"), lockValue("g1", DTXLocks.X_LOCK));
+        long second = storage.acquireLocks("ctx", Collections.singleton("a"), lockValue("g1", DTXLocks.X_LOCK));
+        Assert.assertTrue(second > first);
+        LockValue stale = lockValue("g1", DTXLocks.X_LOCK);
+        stale.setFencingToken(first);
+        storage.releaseLocks("ctx", Collections.singleton("a"), stale);
+        Assert.assertEquals(Collections.singleton("g1"), storage.findLockHolders("ctx", Collections.singleton("a")));
+        LockValue current = lockValue("g1", DTXLocks.X_LOCK);
+        current.setFencingToken(second);
+        storage.releaseLocks("ctx", Collections.singleton("a"), current);
+        Assert.assertTrue(storage.findLockHolders("ctx", Collections.singleton("a")).isEmpty());
+    }
+
+    @Test
+    public void anonymousHolderIsNotReported() throws FastStorageException {
+        storage.acquireLocks("ctx", Collections.singleton("a"), lockValue(null, DTXLocks.S_LOCK));
+        storage.acquireLocks("ctx", Collections.singleton("a"), lockValue("g1", DTXLocks.S_LOCK));
+        Assert.assertEquals(Collections.singletonMap("a", Collections.singleton("g1")),
+                storage.findLockHoldersByLock("ctx", Sets.newHashSet("a", "b")));
+    }
+
+    @Test
+    public void machineIdLeases() throws FastStorageException {
+        int first = storage.acquireOrRefreshMachineId(-1, 1, 1000);
+        int second = storage.acquireOrRefreshMachineId(-1, 1, 1000);
+        Assert.assertNotEquals(first, second);
+        try {
+            storage.acquireOrRefreshMachineId(-1, 1, 1000);
+            Assert.fail();
+        } catch (FastStorageException e) {
+            Assert.assertEquals(FastStorageException.EX_CODE_NON_MACHINE_ID, e.getCode());
+        }
+        storage.now += 600;
+        Assert.assertEquals(-1, storage.acquireOrRefreshMachineId(second, 1, 1000));
+        storage.now += 600;
+        // the expired one is reused, the refreshed one is kept
+        Assert.assertEquals(first, storage.acquireOrRefreshMachineId(-1, 1, 1000));
+    }
+
+    private void assertLocked(Set<String> locks, LockValue lockValue) {
+        try {
+            storage.acquireLocks("ctx", locks, lockValue);
+            Assert.fail();
+        } catch (FastStorageException e) {
+            Assert.assertEquals(FastStorageException.EX_CODE_REPEAT_LOCK, e.getCode());
+        }
+    }
+
+    private static TransactionUnit unit(String unitId) {
+        TransactionUnit unit = new TransactionUnit();
+        unit.setUnitId(unitId);
+        unit.setModId("mod");
+        unit.setUnitType("lcn");
+        return unit;
+    }
+
+    private static LockValue lockValue(String groupId, int lockType) {
+        LockValue lockValue = new LockValue();
+        lockValue.setGroupId(groupId);
+        lockValue.setLockType(lockType);
+        return lockValue;
+    }
+
+    private static class ClockedMemoryStorage extends MemoryStorage {
+
+        private volatile long now = System.currentTimeMillis();
+
+        private ClockedMemoryStorage(TxManagerConfig managerConfig) {
+            super(managerConfig);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.TransactionException;
+import com.codingapi.txlcn.common.exception.TxManagerException;
+import com.codingapi.txlcn.logger.TxLogger;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.DTXContext;
+import com.codingapi.txlcn.tm.core.DTXContextRegistry;
+import com.codingapi.txlcn.tm.core.GroupTimeoutSweeper;
+import com.codingapi.txlcn.tm.core.TransactionManager;
+import com.codingapi.txlcn.tm.txmsg.TransactionCmd;
+import com.codingapi.txlcn.tm.txmsg.transaction.NotifyGroupExecuteService;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.params.NotifyGroupParams;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: with async notify the decision is stored and the initiator answered before units are notified,
+ * the group is closed after a successful background notification only.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class NotifyGroupExecuteServiceTest {
+
+    private TxManagerConfig managerConfig;
+
+    private TransactionManager transactionManager;
+
+    private DTXContext dtxContext;
+
+    private ExecutorService executorService;
+
+    private NotifyGroupExecuteService executeService;
+
+    @Before
+    public void setUp() throws Exception {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        managerConfig = new TxManagerConfig(serverProperties);
+        managerConfig.setAsyncNotify(true);
+        transactionManager = mock(TransactionManager.class);
+        when(transactionManager.transactionStateFromFastStorage(anyString())).thenReturn(-1);
+        dtxContext = mock(DTXContext.class);
+        when(dtxContext.getGroupId()).thenReturn("g1");
+        DTXContextRegistry dtxContextRegistry = mock(DTXContextRegistry.class);
+        when(dtxContextRegistry.get("g1")).thenReturn(dtxContext);
+        executorService = mock(ExecutorService.class);
+        executeService = new NotifyGroupExecuteService(mock(TxLogger.class), transactionManager, dtxContextRegistry,
+                managerConfig, executorService, mock(GroupTimeoutSweeper.class));
+    }
+
+    @Test
+    public void answersBeforeNotifying() throws Exception {
+        executeService.execute(notifyCmd(1));
+        verify(dtxContext).resetTransactionState(1);
+        verify(transactionManager, never()).commit(any());
+        verify(transactionManager, never()).close(anyString());
+
+        backgroundTask().run();
+        InOrder order = inOrder(transactionManager);
+        order.verify(transactionManager).commit(dtxContext);
+        order.verify(transactionManager).close("g1");
+    }
+
+    @Test
+    public void failedNotificationKeepsGroup() throws Exception {
+        doThrow(new TransactionException("notify fail")).when(transactionManager).commit(dtxContext);
+        executeService.execute(notifyCmd(1));
+        backgroundTask().run();
+        verify(transactionManager, never()).close(anyString());
+    }
+
+    @Test
+    public void userRollbackIsReported() throws Exception {
+        when(transactionManager.transactionStateFromFastStorage("g1")).thenReturn(0);
+        try {
+            executeService.execute(notifyCmd(1));
+            Assert.fail();
+        } catch (TxManagerException ignored) {
+        }
+        verify(dtxContext).resetTransactionState(0);
+        backgroundTask().run();
+        verify(transactionManager).rollback(dtxContext);
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    public void syncNotifyClosesGroupAtOnce() throws Exception {
+        managerConfig.setAsyncNotify(false);
+        executeService.execute(notifyCmd(0));
+        verify(transactionManager).rollback(dtxContext);
+        verify(transactionManager).close("g1");
+        verify(dtxContext, never()).resetTransactionState(0);
+        verify(executorService, never()).submit(any(Runnable.class));
+    }
+
+    private Runnable backgroundTask() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executorService).submit(task.capture());
+        return task.getValue();
+    }
+
+    private static TransactionCmd notifyCmd(int state) {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setGroupId("g1");
+        messageDto.setData(new NotifyGroupParams("g1", state));
+        TransactionCmd transactionCmd = new TransactionCmd();
+        transactionCmd.setGroupId("g1");
+        transactionCmd.setMsg(messageDto);
+        return transactionCmd;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.tm.core.storage.redis.RedisKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: a row is locked by the same legacy key whether or not its lock id has the table,
+ * so TCs of either version exclude each other, and legacy read finds locks taken before the switch.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class RedisKeysTest {
+
+    @Test
+    public void legacyLockKeyHasNoTable() {
+        RedisKeys keys = RedisKeys.of(RedisKeys.LEGACY);
+        Assert.assertEquals("ctxa1b2", keys.lock("ctx", "a1b2"));
+        Assert.assertEquals("ctxa1b2", keys.lock("ctx", "t_order:a1b2"));
+    }
+
+    @Test
+    public void hashTagLockKeyHasTable() {
+        RedisKeys keys = RedisKeys.of(RedisKeys.HASH_TAG);
+        Assert.assertEquals("tm:lock:{ctx:t_order}:t_order:a1b2", keys.lock("ctx", "t_order:a1b2"));
+        Assert.assertEquals("tm:lock:{ctx:}:a1b2", keys.lock("ctx", "a1b2"));
+    }
+}
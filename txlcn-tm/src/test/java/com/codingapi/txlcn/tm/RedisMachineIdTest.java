@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisKeys;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisStorage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.doubleThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: machine ids held by TMs of previous version under legacy lease keys are never handed out.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class RedisMachineIdTest {
+
+    private static final long LEASE = 10000;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private ZSetOperations<String, String> leases;
+
+    private TxManagerConfig managerConfig;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        managerConfig = new TxManagerConfig(serverProperties);
+        redisTemplate = mock(RedisTemplate.class);
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        leases = mock(ZSetOperations.class);
+        when(stringRedisTemplate.opsForZSet()).thenReturn(leases);
+        when(stringRedisTemplate.getExpire("tm.machine.id.gen:0", TimeUnit.MILLISECONDS)).thenReturn(5000L);
+        // script hands out ids in order
+        AtomicLong nextId = new AtomicLong();
+        when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(invocation -> nextId.getAndIncrement());
+    }
+
+    @Test
+    public void skipIdHeldUnderLegacyLeaseKey() throws Exception {
+        // 0 is held by a TM of previous version
+        when(stringRedisTemplate.execute(any(RedisCallback.class))).thenReturn(false, true);
+        RedisStorage redisStorage = new RedisStorage(redisTemplate, stringRedisTemplate, managerConfig);
+
+        Assert.assertEquals(1, redisStorage.acquireOrRefreshMachineId(-1, 1023, LEASE));
+        long now = System.currentTimeMillis();
+        verify(leases).add(eq("tm.machine.id.leases"), eq("0"),
+                doubleThat(score -> score > now + 4000 && score <= now + 5000));
+    }
+
+    @Test
+    public void noLeaseKeysInHashTagSchema() throws Exception {
+        managerConfig.setRedisKeySchema(RedisKeys.HASH_TAG);
+        managerConfig.setRedisLegacyRead(false);
+        RedisStorage redisStorage = new RedisStorage(redisTemplate, stringRedisTemplate, managerConfig);
+
+        Assert.assertEquals(0, redisStorage.acquireOrRefreshMachineId(-1, 1023, LEASE));
+        verify(stringRedisTemplate, never()).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    public void everyIdHeld() {
+        when(stringRedisTemplate.execute(any(RedisCallback.class))).thenReturn(false);
+        RedisStorage redisStorage = new RedisStorage(redisTemplate, stringRedisTemplate, managerConfig);
+        try {
+            redisStorage.acquireOrRefreshMachineId(-1, 3, LEASE);
+            Assert.fail("acquired a held machine id");
+        } catch (FastStorageException e) {
+            Assert.assertEquals(FastStorageException.EX_CODE_NON_MACHINE_ID, e.getCode());
+        }
+        verify(redisTemplate, times(4)).execute(any(RedisCallback.class));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.common.exception.FastStorageException;
+import com.codingapi.txlcn.common.lock.DTXLocks;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.LockValue;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisStorage;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: DTX locks written by TMs of previous version (LockValue strings) are read and released
+ * by the lock table scripts instead of failing with WRONGTYPE.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class RedisPreviousLockTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private RedisStorage redisStorage;
+
+    private byte[] previousLock;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        TxManagerConfig managerConfig = new TxManagerConfig(serverProperties);
+        redisTemplate = mock(RedisTemplate.class);
+        RedisSerializer<Object> serializer = new JdkSerializationRedisSerializer();
+        doReturn(serializer).when(redisTemplate).getValueSerializer();
+        redisStorage = new RedisStorage(redisTemplate, mock(StringRedisTemplate.class), managerConfig);
+        previousLock = serializer.serialize(lockValue("g1"));
+    }
+
+    @Test
+    public void findPreviousLockHolder() throws Exception {
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenReturn(Arrays.asList("p1".getBytes(StandardCharsets.UTF_8), previousLock));
+        Assert.assertEquals(Collections.singletonMap("row1", Sets.newHashSet("g1")),
+                redisStorage.findLockHoldersByLock("ctx", Sets.newHashSet("row1")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void releasePreviousLockOfGroup() throws Exception {
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenReturn(Collections.singletonList("1".getBytes(StandardCharsets.UTF_8)), previousLock, 1L);
+        redisStorage.releaseLocks("ctx", Sets.newHashSet("row1"), lockValue("g1"));
+
+        ArgumentCaptor<RedisCallback> callbacks = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate, times(3)).execute(callbacks.capture());
+        RedisConnection connection = mock(RedisConnection.class);
+        callbacks.getAllValues().get(2).doInRedis(connection);
+        ArgumentCaptor<byte[]> keysAndArgs = ArgumentCaptor.forClass(byte[].class);
+        verify(connection).evalSha(anyString(), eq(ReturnType.INTEGER), eq(1), keysAndArgs.capture());
+        List<byte[]> released = keysAndArgs.getAllValues();
+        Assert.assertEquals("ctxrow1", new String(released.get(0), StandardCharsets.UTF_8));
+        Assert.assertArrayEquals(previousLock, released.get(1));
+    }
+
+    @Test
+    public void keepPreviousLockOfOtherGroup() throws FastStorageException {
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenReturn(Collections.singletonList("1".getBytes(StandardCharsets.UTF_8)), previousLock);
+        redisStorage.releaseLocks("ctx", Sets.newHashSet("row1"), lockValue("g2"));
+        verify(redisTemplate, times(2)).execute(any(RedisCallback.class));
+    }
+
+    private static LockValue lockValue(String groupId) {
+        LockValue lockValue = new LockValue();
+        lockValue.setGroupId(groupId);
+        lockValue.setLockType(DTXLocks.X_LOCK);
+        return lockValue;
+    }
+}
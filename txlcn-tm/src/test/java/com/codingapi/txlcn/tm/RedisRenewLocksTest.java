@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisKeys;
+import com.codingapi.txlcn.tm.core.storage.redis.RedisStorage;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: renewing DTX locks of many groups looks up lock tags and held locks in one pipelined round
+ * trip each, and declares every key it extends.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class RedisRenewLocksTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void renewLocksPerLockTag() throws Exception {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        TxManagerConfig managerConfig = new TxManagerConfig(serverProperties);
+        managerConfig.setRedisKeySchema(RedisKeys.HASH_TAG);
+        managerConfig.setRedisLegacyRead(false);
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(
+                // lock tags of g1, g2, each followed by PEXPIRE reply
+                Arrays.<Object>asList(Sets.newHashSet("c:t1"), true, Sets.newHashSet("c:t1", "c:t2"), true),
+                // held locks of indexes, ordered by lock tag
+                Arrays.<Object>asList(Sets.newHashSet("k1"), Sets.newHashSet("k2"), Collections.emptySet()));
+        RedisStorage redisStorage = new RedisStorage(redisTemplate, stringRedisTemplate, managerConfig);
+
+        redisStorage.renewLocks(new LinkedHashSet<>(Arrays.asList("g1", "g2")));
+
+        verify(stringRedisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+        // c:t2 holds nothing, one script for c:t1
+        ArgumentCaptor<RedisCallback> script = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate, times(1)).execute(script.capture());
+        RedisConnection connection = mock(RedisConnection.class);
+        script.getValue().doInRedis(connection);
+        ArgumentCaptor<byte[]> keysAndArgs = ArgumentCaptor.forClass(byte[].class);
+        verify(connection).evalSha(anyString(), eq(ReturnType.INTEGER), eq(4), keysAndArgs.capture());
+        List<String> keys = keysAndArgs.getAllValues().stream()
+                .map(bytes -> new String(bytes, StandardCharsets.UTF_8)).collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList("tm:lock:{c:t1}:group:g1", "k1", "tm:lock:{c:t1}:group:g2", "k2",
+                String.valueOf(managerConfig.getDtxLockTime())), keys);
+    }
+}
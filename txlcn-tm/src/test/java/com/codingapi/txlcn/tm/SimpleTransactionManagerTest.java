@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm;
+
+import com.codingapi.txlcn.logger.TxLogger;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import com.codingapi.txlcn.tm.core.DTXContext;
+import com.codingapi.txlcn.tm.core.DTXContextRegistry;
+import com.codingapi.txlcn.tm.core.NotifyLatencyHistogram;
+import com.codingapi.txlcn.tm.core.SimpleTransactionManager;
+import com.codingapi.txlcn.tm.core.storage.TransactionUnit;
+import com.codingapi.txlcn.tm.support.restapi.vo.NotifyLatency;
+import com.codingapi.txlcn.tm.support.service.TxExceptionService;
+import com.codingapi.txlcn.tm.txmsg.RpcExceptionHandler;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.RpcClient;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Description: units of a group are notified in parallel under one deadline, every failure is handled once.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class SimpleTransactionManagerTest {
+
+    private RpcClient rpcClient;
+
+    private RpcExceptionHandler rpcExceptionHandler;
+
+    private NotifyLatencyHistogram histogram;
+
+    private SimpleTransactionManager transactionManager;
+
+    /**
+     * remoteKey -> pending response
+     */
+    private final Map<String, CompletableFuture<MessageDto>> responses = new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        TxManagerConfig managerConfig = new TxManagerConfig(serverProperties);
+        managerConfig.setNotifyTimeout(5000);
+        rpcClient = mock(RpcClient.class);
+        for (String modId : Arrays.asList("m1", "m2", "m3")) {
+            when(rpcClient.remoteKeys(modId)).thenReturn(Collections.singletonList("/" + modId));
+        }
+        when(rpcClient.remoteKeys("offline")).thenReturn(Collections.emptyList());
+        when(rpcClient.requestAsync(anyString(), any(), anyLong())).thenAnswer(invocation -> {
+            CompletableFuture<MessageDto> response = new CompletableFuture<>();
+            responses.put(invocation.getArgument(0), response);
+            return response;
+        });
+        rpcExceptionHandler = mock(RpcExceptionHandler.class);
+        histogram = new NotifyLatencyHistogram();
+        transactionManager = new SimpleTransactionManager(rpcExceptionHandler, rpcClient, mock(TxLogger.class),
+                mock(TxExceptionService.class), mock(DTXContextRegistry.class), managerConfig, histogram);
+    }
+
+    @Test
+    public void notifiesUnitsInParallel() throws Exception {
+        DTXContext dtxContext = dtxContext(unit("u1", "m1"), unit("u2", "m2"), unit("u3", "m3"));
+        CompletableFuture<Void> commit = CompletableFuture.runAsync(() -> {
+            try {
+                transactionManager.commit(dtxContext);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        // every unit is requested while none has responded
+        verify(rpcClient, timeout(1000)).requestAsync(eq("/m1"), any(), longThat(remaining -> remaining <= 5000));
+        verify(rpcClient, timeout(1000)).requestAsync(eq("/m2"), any(), anyLong());
+        verify(rpcClient, timeout(1000)).requestAsync(eq("/m3"), any(), anyLong());
+        Assert.assertFalse(commit.isDone());
+
+        responses.get("/m3").complete(ok());
+        responses.get("/m1").complete(ok());
+        responses.get("/m2").complete(ok());
+        commit.get(1, TimeUnit.SECONDS);
+        verify(rpcExceptionHandler, never()).handleNotifyUnitMessageException(any(), any());
+        verify(rpcExceptionHandler, never()).handleNotifyUnitBusinessException(any(), any());
+
+        List<NotifyLatency> latencies = histogram.snapshot();
+        Assert.assertEquals(1, latencies.size());
+        Assert.assertEquals(3, latencies.get(0).getParticipants());
+        Assert.assertEquals(1, latencies.get(0).getCount());
+    }
+
+    @Test
+    public void everyFailureIsHandledOnce() throws Exception {
+        DTXContext dtxContext = dtxContext(unit("u1", "m1"), unit("u2", "m2"), unit("u3", "offline"));
+        CompletableFuture<Void> rollback = CompletableFuture.runAsync(() -> {
+            try {
+                transactionManager.rollback(dtxContext);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        verify(rpcClient, timeout(1000)).requestAsync(eq("/m2"), any(), anyLong());
+        verify(rpcClient, timeout(1000)).requestAsync(eq("/m1"), any(), anyLong());
+        MessageDto failed = new MessageDto();
+        failed.setState(MessageConstants.STATE_EXCEPTION);
+        failed.setData(new IllegalStateException("rollback fail"));
+        responses.get("/m1").complete(failed);
+        responses.get("/m2").completeExceptionally(new RpcException("timeout"));
+        rollback.get(1, TimeUnit.SECONDS);
+
+        verify(rpcExceptionHandler).handleNotifyUnitBusinessException(any(), isA(IllegalStateException.class));
+        verify(rpcExceptionHandler, times(2)).handleNotifyUnitMessageException(any(), isA(RpcException.class));
+    }
+
+    private static DTXContext dtxContext(TransactionUnit... units) throws Exception {
+        DTXContext dtxContext = mock(DTXContext.class);
+        when(dtxContext.getGroupId()).thenReturn("g1");
+        when(dtxContext.transactionUnits()).thenReturn(Arrays.asList(units));
+        return dtxContext;
+    }
+
+    private static MessageDto ok() {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setState(MessageConstants.STATE_OK);
+        return messageDto;
+    }
+
+    private static TransactionUnit unit(String unitId, String modId) {
+        TransactionUnit unit = new TransactionUnit();
+        unit.setUnitId(unitId);
+        unit.setModId(modId);
+        unit.setUnitType("lcn");
+        return unit;
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.tm.core.storage.raft;
+
+import com.codingapi.txlcn.common.exception.SerializerException;
+import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import com.codingapi.txlcn.tm.config.TxManagerConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Description: raft members on a simulated clock and an in-memory network with partitions.
+ * every loop task runs on the test thread, election timeouts come from seeded randoms, so runs are repeatable.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class RaftNodeTest {
+
+    private static final long STEP = 10;
+
+    private static final List<String> MEMBERS = Arrays.asList("127.0.0.1:8070", "127.0.0.1:8071", "127.0.0.1:8072");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TxManagerConfig managerConfig;
+
+    /**
+     * simulated nanos
+     */
+    private long now = TimeUnit.HOURS.toNanos(1);
+
+    private SimulatedLoop[] loops;
+
+    private SimulatedTransport[] transports;
+
+    private RaftNode[] nodes;
+
+    /**
+     * side of partition of every member, members talk on the same side only
+     */
+    private final int[] sides = new int[MEMBERS.size()];
+
+    @Before
+    public void setUp() throws Exception {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.setPort(7970);
+        managerConfig = new TxManagerConfig(serverProperties);
+        managerConfig.setDtxTime(60000);
+        managerConfig.setJournalSegmentSize(1024 * 1024);
+        managerConfig.setRaftTimeout(1000);
+        managerConfig.setRaftSnapshotThreshold(20);
+        loops = new SimulatedLoop[MEMBERS.size()];
+        transports = new SimulatedTransport[MEMBERS.size()];
+        nodes = new RaftNode[MEMBERS.size()];
+        for (int id = 0; id < MEMBERS.size(); id++) {
+            int member = id;
+            loops[id] = new SimulatedLoop(new Random(31 + id));
+            nodes[id] = new RaftNode(id, MEMBERS, managerConfig, folder.newFolder("raft-" + id).toPath(),
+                    handler -> transports[member] = new SimulatedTransport(member, handler), loops[id]);
+            nodes[id].start();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (RaftNode node : nodes) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void electsOneLeaderAndReplicates() {
+        int leader = awaitLeader(0, 1, 2);
+        advance(1000);
+        Assert.assertEquals(1, IntStream.range(0, nodes.length).filter(id -> nodes[id].isLeader()).count());
+        Assert.assertTrue(nodes[leader].isLeader());
+
+        Assert.assertEquals(RaftResult.OK, await(nodes[leader].submit(initGroup("g1"))).getCode());
+        // followers apply on the next heartbeat
+        advance(100);
+        for (RaftNode node : nodes) {
+            Assert.assertTrue(node.stateMachine().containsGroup("g1"));
+            Assert.assertEquals(nodes[leader].lastApplied(), node.lastApplied());
+        }
+    }
+
+    @Test
+    public void reelectsWhenLeaderIsPartitioned() {
+        int old = awaitLeader(0, 1, 2);
+        partition(old);
+        int leader = awaitLeader(others(old));
+        Assert.assertTrue(nodes[leader].raftLog().term() > nodes[old].raftLog().term());
+        // old leader keeps its role alone, but commits nothing
+        CompletableFuture<RaftResult> write = nodes[old].submit(initGroup("g1"));
+        advance(500);
+        Assert.assertFalse(write.isDone());
+
+        heal();
+        Assert.assertEquals(RaftResult.NOT_LEADER, await(write).getCode());
+        advance(500);
+        Assert.assertFalse(nodes[old].isLeader());
+        Assert.assertEquals(nodes[leader].raftLog().term(), nodes[old].raftLog().term());
+    }
+
+    @Test
+    public void truncatesUncommittedEntriesOnConflict() {
+        int old = awaitLeader(0, 1, 2);
+        Assert.assertEquals(RaftResult.OK, await(nodes[old].submit(initGroup("g0"))).getCode());
+        partition(old);
+        CompletableFuture<RaftResult> orphan = nodes[old].submit(initGroup("orphan"));
+        advance(100);
+        long orphanIndex = nodes[old].raftLog().lastIndex();
+        long orphanTerm = nodes[old].raftLog().termOf(orphanIndex);
+        int leader = awaitLeader(others(old));
+        Assert.assertEquals(RaftResult.OK, await(nodes[leader].submit(initGroup("g1"))).getCode());
+
+        heal();
+        Assert.assertEquals(RaftResult.NOT_LEADER, await(orphan).getCode());
+        awaitTrue(() -> nodes[old].lastApplied() == nodes[leader].lastApplied());
+        RaftLog oldLog = nodes[old].raftLog();
+        RaftLog leaderLog = nodes[leader].raftLog();
+        Assert.assertEquals(leaderLog.lastIndex(), oldLog.lastIndex());
+        Assert.assertNotEquals(orphanTerm, oldLog.termOf(orphanIndex));
+        for (long index = orphanIndex; index <= leaderLog.lastIndex(); index++) {
+            Assert.assertEquals(leaderLog.termOf(index), oldLog.termOf(index));
+        }
+        Assert.assertTrue(nodes[old].stateMachine().containsGroup("g0"));
+        Assert.assertTrue(nodes[old].stateMachine().containsGroup("g1"));
+        Assert.assertFalse(nodes[old].stateMachine().containsGroup("orphan"));
+    }
+
+    @Test
+    public void laggingFollowerInstallsSnapshot() {
+        int leader = awaitLeader(0, 1, 2);
+        int lagging = others(leader)[0];
+        partition(lagging);
+        for (int i = 0; i < 30; i++) {
+            Assert.assertEquals(RaftResult.OK, await(nodes[leader].submit(initGroup("g" + i))).getCode());
+        }
+        // past the compaction check
+        advance(11000);
+        Assert.assertTrue(nodes[leader].raftLog().snapshotIndex() > 0);
+        Assert.assertEquals(0, nodes[lagging].raftLog().snapshotIndex());
+
+        heal();
+        awaitTrue(() -> nodes[lagging].raftLog().snapshotIndex() > 0);
+        int current = awaitLeader(0, 1, 2);
+        awaitTrue(() -> nodes[lagging].lastApplied() == nodes[current].lastApplied());
+        for (int i = 0; i < 30; i++) {
+            Assert.assertTrue(nodes[lagging].stateMachine().containsGroup("g" + i));
+        }
+    }
+
+    @Test
+    public void readsOnlyWithinLeaderLease() {
+        int leader = awaitLeader(0, 1, 2);
+        Assert.assertEquals(RaftResult.OK, await(nodes[leader].submit(initGroup("g1"))).getCode());
+        // served at once by the caller, no log entry
+        long lastIndex = nodes[leader].raftLog().lastIndex();
+        CompletableFuture<RaftResult> read = nodes[leader].submit(containsGroup("g1"));
+        Assert.assertTrue(read.isDone());
+        Assert.assertEquals(1, read.getNow(null).getValue());
+        Assert.assertEquals(lastIndex, nodes[leader].raftLog().lastIndex());
+
+        partition(leader);
+        // a new leader may be elected after the lease expires, reads of the old one would be stale
+        advance(300);
+        Assert.assertTrue(nodes[leader].isLeader());
+        Assert.assertEquals(RaftResult.NOT_LEADER, await(nodes[leader].submit(containsGroup("g1"))).getCode());
+    }
+
+    @Test
+    public void followerForwardsToLeader() {
+        int leader = awaitLeader(0, 1, 2);
+        int follower = others(leader)[0];
+        Assert.assertEquals(RaftResult.OK, await(nodes[follower].submit(initGroup("g1"))).getCode());
+        Assert.assertTrue(nodes[leader].stateMachine().containsGroup("g1"));
+        Assert.assertEquals(1, await(nodes[follower].submit(containsGroup("g1"))).getValue());
+    }
+
+    @Test
+    public void forwardedCommandTimesOutWithoutLeader() {
+        int leader = awaitLeader(0, 1, 2);
+        int follower = others(leader)[0];
+        partition(follower);
+        Assert.assertEquals(RaftResult.NOT_LEADER, await(nodes[follower].submit(initGroup("g1"))).getCode());
+        Assert.assertFalse(nodes[leader].stateMachine().containsGroup("g1"));
+    }
+
+    @Test
+    public void syncedIndexExcludesUnflushedEntries() throws IOException {
+        try (RaftLog raftLog = new RaftLog(folder.newFolder("log").toPath(), 1024 * 1024)) {
+            raftLog.load();
+            raftLog.append(new RaftEntry(1, 1, 1, Collections.emptyList()));
+            Assert.assertEquals(0, raftLog.syncedIndex());
+            raftLog.sync();
+            Assert.assertEquals(1, raftLog.syncedIndex());
+            raftLog.append(new RaftEntry(2, 1, 2, Collections.emptyList()));
+            raftLog.truncateFrom(1);
+            Assert.assertEquals(0, raftLog.syncedIndex());
+        }
+    }
+
+    private static RaftCommand initGroup(String groupId) {
+        return RaftCommand.of(RaftCommand.INIT_GROUP, groupId);
+    }
+
+    private static RaftCommand containsGroup(String groupId) {
+        return RaftCommand.of(RaftCommand.CONTAINS_GROUP, groupId);
+    }
+
+    private static int[] others(int id) {
+        return IntStream.range(0, MEMBERS.size()).filter(member -> member != id).toArray();
+    }
+
+    /**
+     * isolates members from the rest
+     */
+    private void partition(int... isolated) {
+        for (int id : isolated) {
+            sides[id] = 1;
+        }
+    }
+
+    private void heal() {
+        Arrays.fill(sides, 0);
+    }
+
+    /**
+     * @return the leader among candidates, in the highest term
+     */
+    private int awaitLeader(int... candidates) {
+        int[] leader = {-1};
+        awaitTrue(() -> {
+            leader[0] = Arrays.stream(candidates).filter(id -> nodes[id].isLeader())
+                    .boxed().max(Comparator.comparingLong(id -> nodes[id].raftLog().term())).orElse(-1);
+            return leader[0] >= 0;
+        });
+        return leader[0];
+    }
+
+    private RaftResult await(CompletableFuture<RaftResult> future) {
+        runTasks();
+        awaitTrue(future::isDone);
+        return future.getNow(null);
+    }
+
+    private void awaitTrue(BooleanSupplier condition) {
+        for (long waited = 0; !condition.getAsBoolean(); waited += STEP) {
+            Assert.assertTrue("not reached in simulated 5s", waited < 5000);
+            advance(STEP);
+        }
+    }
+
+    /**
+     * moves the clock, runs due ticks and every task they cause
+     */
+    private void advance(long millis) {
+        for (long elapsed = 0; elapsed < millis; elapsed += STEP) {
+            now += TimeUnit.MILLISECONDS.toNanos(STEP);
+            for (SimulatedLoop loop : loops) {
+                loop.tickIfDue();
+            }
+            runTasks();
+        }
+    }
+
+    private void runTasks() {
+        boolean ran = true;
+        while (ran) {
+            ran = false;
+            for (SimulatedLoop loop : loops) {
+                ran |= loop.runOne();
+            }
+        }
+    }
+
+    private class SimulatedLoop implements RaftScheduler {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        private final Random random;
+
+        private Runnable tick;
+
+        private long interval;
+
+        private long nextTick;
+
+        private boolean closed;
+
+        private SimulatedLoop(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (!closed) {
+                tasks.add(task);
+            }
+        }
+
+        @Override
+        public void scheduleTick(Runnable tick, long interval) {
+            this.tick = tick;
+            this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
+            this.nextTick = now + this.interval;
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public long electionTimeout(long min, long max) {
+            return min + random.nextInt((int) (max - min));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            tasks.clear();
+        }
+
+        private void tickIfDue() {
+            if (Objects.nonNull(tick) && now - nextTick >= 0) {
+                nextTick = now + interval;
+                execute(tick);
+            }
+        }
+
+        private boolean runOne() {
+            Runnable task = tasks.poll();
+            if (Objects.isNull(task)) {
+                return false;
+            }
+            task.run();
+            return true;
+        }
+    }
+
+    private class SimulatedTransport implements RaftTransport {
+
+        private final int id;
+
+        private final Consumer<RaftMessage> handler;
+
+        private SimulatedTransport(int id, Consumer<RaftMessage> handler) {
+            this.id = id;
+            this.handler = handler;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void send(int peer, RaftMessage message) {
+            if (sides[id] != sides[peer]) {
+                return;
+            }
+            // a copy as netty delivers it, members never share objects
+            try {
+                SerializerContext serializer = SerializerContext.getInstance();
+                transports[peer].handler.accept(serializer.deSerialize(serializer.serialize(message), RaftMessage.class));
+            } catch (SerializerException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
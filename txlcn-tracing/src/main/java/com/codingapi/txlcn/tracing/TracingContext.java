@@ -53,6 +53,11 @@ public class TracingContext {
 
     private Map<String, String> fields;
 
+    /**
+     * 延迟创建事务组时的创建动作，事务组首次随远程调用传递前执行
+     */
+    private Runnable groupCreator;
+
     public void beginTransactionGroup() {  //分布式事务开始
         if (hasGroup()) {
             return;
@@ -129,6 +134,35 @@ public class TracingContext {
         return JSON.parseObject("{}");
     }
 
+    /**
+     * 延迟创建事务组，事务组首次随远程调用传递前创建
+     *
+     * @param groupCreator 创建事务组
+     */
+    public void lazyCreateGroup(Runnable groupCreator) {
+        this.groupCreator = groupCreator;
+    }
+
+    /**
+     * 事务组是否仍未创建（延迟创建且未传递过）
+     *
+     * @return result
+     */
+    public boolean isGroupCreationPending() {
+        return Objects.nonNull(groupCreator);
+    }
+
+    /**
+     * 事务组随远程调用传递前调用，延迟创建的事务组在此创建.
+     * 创建失败时远程调用不会发出，事务组仍视为未创建，下次传递时重试
+     */
+    public void beforeGroupPropagation() {
+        if (Objects.nonNull(groupCreator)) {
+            groupCreator.run();
+            groupCreator = null;
+        }
+    }
+
     public void destroy() {
         if (Objects.nonNull(tracingContextThreadLocal.get())) {
             tracingContextThreadLocal.set(null);
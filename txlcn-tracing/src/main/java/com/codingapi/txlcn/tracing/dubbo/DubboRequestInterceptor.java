@@ -34,6 +34,7 @@ public class DubboRequestInterceptor implements Filter {
     @Override
     public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException {
         if (TracingContext.tracing().hasGroup()) {
+            TracingContext.tracing().beforeGroupPropagation();
             RpcContext.getContext().setAttachment(TracingConstants.HEADER_KEY_GROUP_ID, TracingContext.tracing().groupId());
             RpcContext.getContext().setAttachment(TracingConstants.HEADER_KEY_APP_MAP, TracingContext.tracing().appMapBase64String());
         }
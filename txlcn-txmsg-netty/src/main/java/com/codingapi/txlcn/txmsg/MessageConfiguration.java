@@ -17,6 +17,7 @@ package com.codingapi.txlcn.txmsg;
 
 import com.codingapi.txlcn.txmsg.listener.*;
 import com.codingapi.txlcn.txmsg.loadbalance.RpcLoadBalance;
+import com.codingapi.txlcn.txmsg.netty.loadbalance.ConsistentHashLoadBalance;
 import com.codingapi.txlcn.txmsg.netty.loadbalance.RandomLoadBalance;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -55,7 +56,10 @@ public class MessageConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public RpcLoadBalance rpcLoadBalance() {
+    public RpcLoadBalance rpcLoadBalance(RpcConfig rpcConfig) {
+        if ("consistent-hash".equals(rpcConfig.getLoadBalance())) {
+            return new ConsistentHashLoadBalance();
+        }
         return new RandomLoadBalance();
     }
 
@@ -17,7 +17,6 @@ package com.codingapi.txlcn.txmsg.netty;
 
 import com.codingapi.txlcn.common.runner.TxLcnInitializer;
 import com.codingapi.txlcn.txmsg.RpcConfig;
-import com.codingapi.txlcn.txmsg.netty.bean.RpcCmdContext;
 import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -37,7 +36,6 @@ public class RpcNettyInitializer implements TxLcnInitializer {
 
     @Override
     public void init() throws Exception {
-        RpcCmdContext.getInstance().setRpcConfig(rpcConfig);
         SocketManager.getInstance().setRpcConfig(rpcConfig);
     }
 }
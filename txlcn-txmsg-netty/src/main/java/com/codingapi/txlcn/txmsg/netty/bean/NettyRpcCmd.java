@@ -15,14 +15,11 @@
  */
 package com.codingapi.txlcn.txmsg.netty.bean;
 
-import com.codingapi.txlcn.common.util.id.RandomUtils;
 import com.codingapi.txlcn.txmsg.dto.MessageDto;
 import com.codingapi.txlcn.txmsg.dto.RpcCmd;
 import com.codingapi.txlcn.txmsg.exception.RpcException;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Objects;
-
 /**
  * Description:
  * Company: CodingApi
@@ -33,47 +30,19 @@ import java.util.Objects;
 @Slf4j
 public class NettyRpcCmd extends RpcCmd {
 
-    private volatile transient RpcContent rpcContent;
+    private volatile transient MessageDto res;
 
-    public String randomKey() {
-        String key = RandomUtils.randomKey();
-        if (RpcCmdContext.getInstance().hasKey(key)) {
-            return randomKey();
-        } else {
-            rpcContent = RpcCmdContext.getInstance().addKey(key);
-        }
-        return key;
+    void setRes(MessageDto res) {
+        this.res = res;
     }
 
     @Override
     public MessageDto loadResult() throws RpcException {
-        MessageDto msg = rpcContent.getRes();
-        if (msg == null) {
+        if (res == null) {
             throw new RpcException("request timeout.");
         }
-        log.debug("got response. {} ", getKey());
-        return msg;
-    }
-
-    public RpcContent loadRpcContent() {
-        if (rpcContent == null) {
-            rpcContent = RpcCmdContext.getInstance().getKey(getKey());
-        }
-        return rpcContent;
-    }
-
-    public void await() {
-        if (Objects.nonNull(rpcContent.getRes())) {
-            return;
-        }
-        rpcContent.await();
-    }
-
-    public void await(long timeout) {
-        if (Objects.nonNull(rpcContent.getRes())) {
-            return;
-        }
-        rpcContent.await(timeout);
+        log.debug("got response. {} ", getSeq());
+        return res;
     }
 
 }
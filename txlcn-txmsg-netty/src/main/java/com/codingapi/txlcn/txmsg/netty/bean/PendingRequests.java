@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.bean;
+
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Description: requests of one connection waiting for response. lock-free open addressing table of pooled slots.
+ * request key is (connection sequence &lt;&lt; index bits) | slot index, a response finds its slot without probing.
+ * slot state: 0 free, key pending, -key responded or cancelled (owned by the thread which did it until released).
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class PendingRequests {
+
+    private static final AttributeKey<PendingRequests> PENDING_REQUESTS = AttributeKey.valueOf("pendingRequests");
+
+    private final int capacity;
+
+    private final int indexBits;
+
+    private final int mask;
+
+    private final AtomicLongArray keys;
+
+    private final RpcContent[] contents;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    public PendingRequests(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.capacity = size;
+        this.indexBits = Integer.numberOfTrailingZeros(size);
+        this.mask = size - 1;
+        this.keys = new AtomicLongArray(size);
+        this.contents = new RpcContent[size];
+        for (int i = 0; i < size; i++) {
+            contents[i] = new RpcContent();
+        }
+    }
+
+    /**
+     * 连接的请求表
+     *
+     * @param channel  连接
+     * @param capacity 等待响应的请求数上限
+     * @return PendingRequests
+     */
+    public static PendingRequests of(Channel channel, int capacity) {
+        PendingRequests pendingRequests = channel.attr(PENDING_REQUESTS).get();
+        if (pendingRequests == null) {
+            PendingRequests created = new PendingRequests(capacity);
+            pendingRequests = channel.attr(PENDING_REQUESTS).setIfAbsent(created);
+            if (pendingRequests == null) {
+                pendingRequests = created;
+            }
+        }
+        return pendingRequests;
+    }
+
+    /**
+     * 连接的请求表
+     *
+     * @param channel 连接
+     * @return null when no request sent by this connection
+     */
+    public static PendingRequests get(Channel channel) {
+        return channel.attr(PENDING_REQUESTS).get();
+    }
+
+    /**
+     * 登记请求
+     *
+     * @param future 异步请求的响应，同步请求为空
+     * @return request key
+     * @throws RpcException table is full
+     */
+    public long register(CompletableFuture<MessageDto> future) throws RpcException {
+        long seq = sequence.incrementAndGet();
+        int start = (int) seq & mask;
+        for (int n = 0; n < capacity; n++) {
+            int index = (start + n) & mask;
+            if (keys.get(index) == 0) {
+                long key = (seq << indexBits) | index;
+                if (keys.compareAndSet(index, 0, key)) {
+                    size.incrementAndGet();
+                    contents[index].init(future);
+                    return key;
+                }
+            }
+        }
+        throw new RpcException("too many pending requests. capacity: " + capacity);
+    }
+
+    /**
+     * 响应请求
+     *
+     * @param key request key
+     * @param res response
+     * @return false when request not found (timeout or cancelled)
+     */
+    public boolean complete(long key, MessageDto res) {
+        if (key <= 0) {
+            return false;
+        }
+        int index = (int) key & mask;
+        if (!keys.compareAndSet(index, key, -key)) {
+            return false;
+        }
+        RpcContent content = contents[index];
+        CompletableFuture<MessageDto> future = content.getFuture();
+        if (future == null) {
+            // 同步请求由等待线程释放
+            content.signal(res);
+            return true;
+        }
+        release(index);
+        future.complete(res);
+        return true;
+    }
+
+    /**
+     * 请求失败. 同步请求的等待线程立即被唤醒
+     *
+     * @param key request key
+     * @param ex  cause
+     * @return false when request completed already
+     */
+    public boolean fail(long key, Throwable ex) {
+        int index = (int) key & mask;
+        if (!keys.compareAndSet(index, key, -key)) {
+            return false;
+        }
+        RpcContent content = contents[index];
+        CompletableFuture<MessageDto> future = content.getFuture();
+        if (future == null) {
+            // 同步请求由等待线程释放
+            content.fail(ex);
+            return true;
+        }
+        release(index);
+        future.completeExceptionally(ex);
+        return true;
+    }
+
+    /**
+     * 同步请求等待响应
+     *
+     * @param key     request key
+     * @param timeout 超时时间 (ms)
+     * @return null when timeout
+     * @throws RpcException request failed, e.g. write failure
+     */
+    public MessageDto await(long key, long timeout) throws RpcException {
+        int index = (int) key & mask;
+        RpcContent content = contents[index];
+        content.await(timeout);
+        if (keys.compareAndSet(index, key, -key)) {
+            release(index);
+            return null;
+        }
+        // 已被响应或失败, 等待对方线程写入
+        MessageDto res = content.getRes();
+        Throwable cause = content.getCause();
+        while (res == null && cause == null) {
+            Thread.yield();
+            res = content.getRes();
+            cause = content.getCause();
+        }
+        release(index);
+        if (res != null) {
+            return res;
+        }
+        throw cause instanceof RpcException ? (RpcException) cause : new RpcException(cause);
+    }
+
+    /**
+     * 等待响应的请求数
+     *
+     * @return size
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private void release(int index) {
+        contents[index].clear();
+        keys.set(index, 0);
+        size.decrementAndGet();
+    }
+}
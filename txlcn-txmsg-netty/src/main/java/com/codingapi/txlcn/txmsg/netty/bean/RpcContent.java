@@ -17,92 +17,95 @@ package com.codingapi.txlcn.txmsg.netty.bean;
 
 import com.codingapi.txlcn.txmsg.dto.MessageDto;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Description:
+ * Description: pooled response slot of PendingRequests
  * Company: CodingApi
  * Date: 2018/12/10
- * 全局事务所
+ *
  * @author ujued
  */
 public class RpcContent {
 
-
-    private long milliseconds;
-
     private volatile MessageDto res;
 
-    private Condition condition;
-
-    private Lock lock;
-
-    private volatile boolean used = false;
-
-
-    public void init() {
-        used = true;
+    /**
+     * 同步请求发送失败的原因
+     */
+    private volatile Throwable cause;
+
+    /**
+     * 异步请求的响应，同步请求为空
+     */
+    private volatile CompletableFuture<MessageDto> future;
+
+    /**
+     * 同步请求的等待线程
+     */
+    private volatile Thread waiter;
+
+    void init(CompletableFuture<MessageDto> future) {
+        this.res = null;
+        this.cause = null;
+        this.future = future;
     }
 
-    public void clear() {
-        used = false;
+    void clear() {
         res = null;
+        cause = null;
+        future = null;
+        waiter = null;
     }
 
-
-    public boolean isUsed() {
-        return used;
+    public MessageDto getRes() {
+        return res;
     }
 
-    public RpcContent(long milliseconds) {
-        this.milliseconds = milliseconds;
-        lock = new ReentrantLock(true);
-        condition = lock.newCondition();
+    Throwable getCause() {
+        return cause;
     }
 
-    public void await() {
-        await(milliseconds);
+    CompletableFuture<MessageDto> getFuture() {
+        return future;
     }
 
-    public void await(long timeout) {
+    void await(long timeout) {
+        if (res != null || cause != null) {
+            return;
+        }
+        Thread current = Thread.currentThread();
+        waiter = current;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
         try {
-            lock.lock();
-            try {
-                condition.await(timeout, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            while (res == null && cause == null && !current.isInterrupted()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
             }
         } finally {
-            lock.unlock();
+            waiter = null;
         }
     }
 
-    public void signal() {
-        try {
-            lock.lock();
-            condition.signal();
-        } finally {
-            lock.unlock();
-        }
+    void signal(MessageDto res) {
+        this.res = res;
+        wakeup();
     }
 
-
-    public MessageDto getRes() {
-        synchronized (this) {
-            return res;
-        }
+    void fail(Throwable cause) {
+        this.cause = cause;
+        wakeup();
     }
 
-    public void setRes(MessageDto res) {
-        synchronized (this) {
-            this.res = res;
+    private void wakeup() {
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
         }
     }
-
-    public void setMilliseconds(int milliseconds) {
-        this.milliseconds = milliseconds;
-    }
 }
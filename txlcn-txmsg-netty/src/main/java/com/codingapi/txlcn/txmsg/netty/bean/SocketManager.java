@@ -22,18 +22,18 @@ import com.codingapi.txlcn.txmsg.dto.MessageDto;
 import com.codingapi.txlcn.txmsg.dto.RpcCmd;
 import com.codingapi.txlcn.txmsg.dto.RpcResponseState;
 import com.codingapi.txlcn.txmsg.exception.RpcException;
+import com.codingapi.txlcn.txmsg.netty.codec.WireProtocol;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelFuture;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.SocketAddress;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
 
 /**
@@ -48,14 +48,54 @@ public class SocketManager {
 
     private ChannelGroup channels;
 
+    /**
+     * remoteKey 到连接的索引. 客户端到同一TM的多个连接共用一个 remoteKey
+     */
+    private final Map<String, Channel[]> channelIndex;
+
+    /**
+     * 模块名称到 remoteKey 的索引
+     */
+    private final Map<String, Set<String>> moduleIndex;
+
+    /**
+     * 在线的 remoteKey 快照，连接变化时重建
+     */
+    private volatile List<String> remoteKeys = Collections.emptyList();
+
+    private static final AttributeKey<String> REMOTE_KEY = AttributeKey.valueOf("remoteKey");
+
+    /**
+     * 客户端到同一TM开启了多个连接时, 连接上的消息按连接自己的标识 (remoteKey#channelId) 响应
+     */
+    public static final AttributeKey<Boolean> POOLED = AttributeKey.valueOf("pooled");
+
+    private static final char MEMBER_SEPARATOR = '#';
+
     private static SocketManager manager = null;
 
     private long attrDelayTime = 1000 * 60;
 
+    private long waitTime = 500;
+
+    private int cacheSize = 1024;
+
+    /**
+     * 异步请求超时
+     */
+    private final HashedWheelTimer requestTimer;
+
     private SocketManager() {
         channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
         appNames = new ConcurrentHashMap<>();
+        channelIndex = new ConcurrentHashMap<>();
+        moduleIndex = new ConcurrentHashMap<>();
         executorService = Executors.newSingleThreadScheduledExecutor();
+        requestTimer = new HashedWheelTimer(r -> {
+            Thread thread = new Thread(r, "rpc-request-timer");
+            thread.setDaemon(true);
+            return thread;
+        }, 10, TimeUnit.MILLISECONDS);
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             executorService.shutdown();
@@ -80,76 +120,287 @@ public class SocketManager {
 
 
     public void addChannel(Channel channel) {
+        String key = channel.remoteAddress().toString();
+        channel.attr(REMOTE_KEY).set(key);
         channels.add(channel);
+        synchronized (channelIndex) {
+            Channel[] pool = channelIndex.get(key);
+            if (pool == null) {
+                channelIndex.put(key, new Channel[]{channel});
+                refreshRemoteKeys();
+                return;
+            }
+            Channel[] grown = Arrays.copyOf(pool, pool.length + 1);
+            grown[pool.length] = channel;
+            channelIndex.put(key, grown);
+        }
     }
 
-    public void removeChannel(Channel channel) {
+    /**
+     * 移除连接
+     *
+     * @param channel 连接
+     * @return 远程已离线: 同一 remoteKey 与同一模块都没有其它在线的连接
+     */
+    public boolean removeChannel(Channel channel) {
         channels.remove(channel);
-        String key = channel.remoteAddress().toString();
-
+        String key = channel.attr(REMOTE_KEY).get();
+        if (key == null) {
+            key = channel.remoteAddress().toString();
+        }
+        boolean offline;
+        synchronized (channelIndex) {
+            Channel[] pool = channelIndex.get(key);
+            if (pool == null || Arrays.stream(pool).noneMatch(member -> member == channel)) {
+                // 已移除
+                return false;
+            }
+            Channel[] rest = Arrays.stream(pool).filter(member -> member != channel).toArray(Channel[]::new);
+            if (rest.length > 0) {
+                // 同一远程的其它连接仍在线
+                channelIndex.put(key, rest);
+                return false;
+            }
+            channelIndex.remove(key);
+            refreshRemoteKeys();
+            offline = !moduleOnline(key);
+            removeModuleKey(key);
+        }
         // 未设置过期时间，立即过期
         if (attrDelayTime < 0) {
             appNames.remove(key);
-            return;
+            return offline;
         }
 
-        // 设置了过期时间，到时间后清除
+        // 设置了过期时间，到时间后清除（期间重连的不清除）
+        String removeKey = key;
         try {
             executorService.schedule(() -> {
-                appNames.remove(key);
+                if (!channelIndex.containsKey(removeKey)) {
+                    appNames.remove(removeKey);
+                }
             }, attrDelayTime, TimeUnit.MILLISECONDS);
         } catch (RejectedExecutionException ignored) {
             // caused down server.
         }
+        return offline;
+    }
+
+    /**
+     * 移出模块索引
+     */
+    private void removeModuleKey(String key) {
+        AppInfo appInfo = appNames.get(key);
+        if (appInfo == null || appInfo.getName() == null) {
+            return;
+        }
+        Set<String> moduleKeys = moduleIndex.get(appInfo.getName());
+        if (moduleKeys != null) {
+            moduleKeys.remove(key);
+        }
+    }
+
+    /**
+     * 模块是否还有其它在线的 remoteKey
+     */
+    private boolean moduleOnline(String key) {
+        AppInfo appInfo = appNames.get(key);
+        if (appInfo == null || appInfo.getName() == null) {
+            return false;
+        }
+        Set<String> moduleKeys = moduleIndex.get(appInfo.getName());
+        if (moduleKeys == null) {
+            return false;
+        }
+        for (String moduleKey : moduleKeys) {
+            if (!moduleKey.equals(key) && channelIndex.containsKey(moduleKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void refreshRemoteKeys() {
+        remoteKeys = Collections.unmodifiableList(new ArrayList<>(channelIndex.keySet()));
     }
 
 
     private Channel getChannel(String key) throws RpcException {
-        for (Channel channel : channels) {
-            String val = channel.remoteAddress().toString();
-            if (key.equals(val)) {
+        Channel[] pool = channelIndex.get(key);
+        if (pool == null) {
+            Channel member = member(key);
+            if (member == null) {
+                throw new RpcException("channel not online.");
+            }
+            return member;
+        }
+        if (pool.length == 1) {
+            return pool[0];
+        }
+        Channel channel = leastInFlight(pool);
+        if (channel == null) {
+            throw new RpcException("channel not online.");
+        }
+        return channel;
+    }
+
+    /**
+     * 等待响应的请求最少的连接, 随机起点使相同时不总落在同一个连接
+     *
+     * @return null when no channel of the pool is active
+     */
+    private Channel leastInFlight(Channel[] pool) {
+        int start = ThreadLocalRandom.current().nextInt(pool.length);
+        Channel selected = null;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < pool.length && min > 0; i++) {
+            Channel channel = pool[(start + i) % pool.length];
+            if (!channel.isActive()) {
+                continue;
+            }
+            int inFlight = inFlight(channel);
+            if (inFlight < min) {
+                min = inFlight;
+                selected = channel;
+            }
+        }
+        return selected;
+    }
+
+    private static int inFlight(Channel channel) {
+        PendingRequests pendingRequests = PendingRequests.get(channel);
+        return pendingRequests == null ? 0 : pendingRequests.size();
+    }
+
+    /**
+     * 按连接标识 (remoteKey#channelId) 查找连接
+     */
+    private Channel member(String key) {
+        int separator = key.lastIndexOf(MEMBER_SEPARATOR);
+        if (separator < 0) {
+            return null;
+        }
+        Channel[] pool = channelIndex.get(key.substring(0, separator));
+        if (pool == null) {
+            return null;
+        }
+        String channelId = key.substring(separator + 1);
+        for (Channel channel : pool) {
+            if (channel.id().asShortText().equals(channelId)) {
                 return channel;
             }
         }
-        throw new RpcException("channel not online.");
+        return null;
+    }
+
+    private static String logicalKey(String key) {
+        int separator = key.lastIndexOf(MEMBER_SEPARATOR);
+        return separator < 0 ? key : key.substring(0, separator);
     }
 
+    /**
+     * 连接的标识. 发往该标识的消息只经过这个连接
+     *
+     * @param channel 连接
+     * @return remoteKey, 同一远程有多个连接时为 remoteKey#channelId
+     */
+    public String channelKey(Channel channel) {
+        String key = channel.attr(REMOTE_KEY).get();
+        if (key == null) {
+            key = channel.remoteAddress().toString();
+        }
+        if (Boolean.TRUE.equals(channel.attr(POOLED).get())) {
+            return key + MEMBER_SEPARATOR + channel.id().asShortText();
+        }
+        return key;
+    }
 
+    /**
+     * 异步发送, 不等待写完成. 写失败时记录日志
+     *
+     * @param key 远程标识
+     * @param cmd 指令, 发送后不可再修改
+     * @return success: 已提交到连接
+     * @throws RpcException 连接不在线
+     */
     public RpcResponseState send(String key, RpcCmd cmd) throws RpcException {
         Channel channel = getChannel(key);
-        ChannelFuture future = channel.writeAndFlush(cmd).syncUninterruptibly();
-        return future.isSuccess() ? RpcResponseState.success : RpcResponseState.fail;
+        channel.writeAndFlush(cmd).addListener(future -> {
+            if (!future.isSuccess()) {
+                log.error("send cmd to {} fail. cmd: {}", key, cmd, future.cause());
+            }
+        });
+        return RpcResponseState.success;
     }
 
     public MessageDto request(String key, RpcCmd cmd, long timeout) throws RpcException {
         NettyRpcCmd nettyRpcCmd = (NettyRpcCmd) cmd;
         log.debug("get channel, key:{}", key);
         Channel channel = getChannel(key);
-        channel.writeAndFlush(nettyRpcCmd);
+        PendingRequests pendingRequests = PendingRequests.of(channel, cacheSize);
+        long requestKey = pendingRequests.register(null);
+        nettyRpcCmd.setSeq(requestKey);
+        channel.writeAndFlush(nettyRpcCmd).addListener(f -> {
+            if (!f.isSuccess()) {
+                pendingRequests.fail(requestKey, new RpcException("send request fail.", f.cause()));
+            }
+        });
         log.debug("await response");
-        if (timeout < 1) {
-            //发送消息后阻塞
-            nettyRpcCmd.await();  //在cmd解码器那边唤醒
-        } else {
-            nettyRpcCmd.await(timeout);
-        }
+        //发送消息后阻塞, 在cmd解码器那边唤醒
+        nettyRpcCmd.setRes(pendingRequests.await(requestKey, timeout < 1 ? waitTime : timeout));
         MessageDto res = cmd.loadResult();
         log.debug("response is: {}", res);
-        nettyRpcCmd.loadRpcContent().clear();
         return res;
     }
 
+    /**
+     * 异步请求
+     *
+     * @param key     远程标识
+     * @param cmd     请求
+     * @param future  响应
+     * @param timeout 超时时间 (ms)
+     */
+    public void requestAsync(String key, RpcCmd cmd, CompletableFuture<MessageDto> future, long timeout) {
+        Channel channel;
+        PendingRequests pendingRequests;
+        long requestKey;
+        try {
+            channel = getChannel(key);
+            pendingRequests = PendingRequests.of(channel, cacheSize);
+            requestKey = pendingRequests.register(future);
+        } catch (RpcException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        cmd.setSeq(requestKey);
+        Timeout requestTimeout = requestTimer.newTimeout(
+                t -> pendingRequests.fail(requestKey, new RpcException("request timeout.")),
+                timeout < 1 ? waitTime : timeout, TimeUnit.MILLISECONDS);
+        future.whenComplete((res, e) -> requestTimeout.cancel());
+        channel.writeAndFlush(cmd).addListener(f -> {
+            if (!f.isSuccess()) {
+                pendingRequests.fail(requestKey, new RpcException("send request fail.", f.cause()));
+            }
+        });
+    }
+
     public MessageDto request(String key, RpcCmd cmd) throws RpcException {
         return request(key, cmd, -1);
     }
 
 
     public List<String> loadAllRemoteKey() {
-        List<String> allKeys = new ArrayList<>();
-        for (Channel channel : channels) {
-            allKeys.add(channel.remoteAddress().toString());
-        }
-        return allKeys;
+        return new ArrayList<>(remoteKeys);
+    }
+
+    /**
+     * 在线的 remoteKey, 不可修改. 连接未变化时返回同一个实例
+     *
+     * @return remoteKeys
+     */
+    public List<String> remoteKeys() {
+        return remoteKeys;
     }
 
     public ChannelGroup getChannels() {
@@ -157,35 +408,69 @@ public class SocketManager {
     }
 
     public int currentSize() {
-        return channels.size();
+        return remoteKeys.size();
     }
 
 
     public boolean noConnect(SocketAddress socketAddress) {
-        for (Channel channel : channels) {
-            if (channel.remoteAddress().toString().equals(socketAddress.toString())) {
-                return false;
-            }
-        }
-        return true;
+        return !channelIndex.containsKey(socketAddress.toString());
     }
 
     /**
-     * 获取模块的远程标识keys
+     * 到远程地址的在线连接数
+     *
+     * @param socketAddress 远程地址
+     * @return 连接数
+     */
+    public int connectionCount(SocketAddress socketAddress) {
+        Channel[] pool = channelIndex.get(socketAddress.toString());
+        return pool == null ? 0 : pool.length;
+    }
+
+    /**
+     * 获取模块的远程标识keys, 等待响应的请求最少的在首位
      *
      * @param moduleName 模块名称
      * @return remoteKeys
      */
     public List<String> removeKeys(String moduleName) {
-        List<String> allKeys = new ArrayList<>();
-        for (Channel channel : channels) {
-            if (getModuleName(channel).equals(moduleName)) {
-                allKeys.add(channel.remoteAddress().toString());
+        Set<String> moduleKeys = moduleIndex.get(moduleName);
+        if (moduleKeys == null) {
+            return new ArrayList<>();
+        }
+        List<String> allKeys = new ArrayList<>(moduleKeys.size());
+        for (String key : moduleKeys) {
+            if (channelIndex.containsKey(key)) {
+                allKeys.add(key);
             }
         }
+        // 模块的多个连接之间按等待响应数分散
+        int least = 0;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < allKeys.size() && min > 0; i++) {
+            int inFlight = keyInFlight(allKeys.get(i));
+            if (inFlight < min) {
+                min = inFlight;
+                least = i;
+            }
+        }
+        if (least > 0) {
+            Collections.swap(allKeys, 0, least);
+        }
         return allKeys;
     }
 
+    private int keyInFlight(String key) {
+        Channel[] pool = channelIndex.get(key);
+        int inFlight = 0;
+        if (pool != null) {
+            for (Channel channel : pool) {
+                inFlight += inFlight(channel);
+            }
+        }
+        return inFlight;
+    }
+
 
     /**
      * 绑定连接数据
@@ -194,14 +479,60 @@ public class SocketManager {
      * @param moduleName 模块名称
      */
     public void bindModuleName(String remoteKey, String moduleName) {
+        remoteKey = logicalKey(remoteKey);
         AppInfo appInfo = new AppInfo();
         appInfo.setName(moduleName);
         appInfo.setCreateTime(new Date());
-        appNames.put(remoteKey, appInfo);
+        AppInfo old = appNames.put(remoteKey, appInfo);
+        if (old != null && old.getName() != null && !old.getName().equals(moduleName)) {
+            Set<String> moduleKeys = moduleIndex.get(old.getName());
+            if (moduleKeys != null) {
+                moduleKeys.remove(remoteKey);
+            }
+        }
+        if (moduleName != null) {
+            moduleIndex.computeIfAbsent(moduleName, k -> ConcurrentHashMap.newKeySet()).add(remoteKey);
+        }
+    }
+
+    /**
+     * 设置连接的通讯协议版本
+     *
+     * @param remoteKey   远程标识
+     * @param wireVersion version
+     */
+    public void bindWireVersion(String remoteKey, int wireVersion) {
+        Channel[] pool = channelIndex.get(remoteKey);
+        if (pool == null) {
+            Channel member = member(remoteKey);
+            pool = member == null ? new Channel[0] : new Channel[]{member};
+        }
+        for (Channel channel : pool) {
+            channel.attr(WireProtocol.WIRE_VERSION).set(wireVersion);
+        }
+    }
+
+    /**
+     * 连接的通讯协议版本
+     *
+     * @param remoteKey 远程标识
+     * @return version, 连接不在线时为 0
+     */
+    public int wireVersion(String remoteKey) {
+        Channel[] pool = channelIndex.get(remoteKey);
+        Channel channel = pool == null ? member(remoteKey) : pool[0];
+        return channel == null ? 0 : WireProtocol.wireVersion(channel);
     }
 
     public void setRpcConfig(RpcConfig rpcConfig) {
         attrDelayTime = rpcConfig.getAttrDelayTime();
+        cacheSize = rpcConfig.getCacheSize();
+        // TC or TX init after
+        waitTime = rpcConfig.getWaitTime() == -1 ? 500 : rpcConfig.getWaitTime();
+    }
+
+    public long getWaitTime() {
+        return waitTime;
     }
 
     /**
@@ -211,7 +542,10 @@ public class SocketManager {
      * @return 模块名称
      */
     public String getModuleName(Channel channel) {
-        String key = channel.remoteAddress().toString();
+        String key = channel.attr(REMOTE_KEY).get();
+        if (key == null) {
+            key = channel.remoteAddress().toString();
+        }
         return getModuleName(key);
     }
 
@@ -222,7 +556,7 @@ public class SocketManager {
      * @return 模块名称
      */
     public String getModuleName(String remoteKey) {
-        AppInfo appInfo = appNames.get(remoteKey);
+        AppInfo appInfo = appNames.get(logicalKey(remoteKey));
         return appInfo == null ? null : appInfo.getName();
     }
 
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.codec;
+
+import com.codingapi.txlcn.common.exception.SerializerException;
+import io.netty.buffer.ByteBuf;
+
+import java.io.Serializable;
+
+/**
+ * Description: typed body codec of MessageDto data in binary frames.
+ * bodies carry no length, changing the fields of a codec needs a new WireProtocol VERSION.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+interface PayloadCodec<T extends Serializable> {
+
+    /**
+     * payload type written before the body
+     *
+     * @return type
+     */
+    int type();
+
+    Class<T> payloadClass();
+
+    void write(ByteBuf out, T payload) throws SerializerException;
+
+    T read(ByteBuf in) throws SerializerException;
+}
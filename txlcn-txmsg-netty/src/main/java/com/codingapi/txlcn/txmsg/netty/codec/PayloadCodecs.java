@@ -0,0 +1,324 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.codec;
+
+import com.codingapi.txlcn.common.exception.SerializerException;
+import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.params.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static com.codingapi.txlcn.txmsg.netty.codec.WireProtocol.*;
+
+/**
+ * Description: payload codecs of binary frames. data without a typed codec is written by protostuff
+ * with its class name (SERIALIZED), as MessageDto#data is written in version 0.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+final class PayloadCodecs {
+
+    private static final int NULL = 0;
+
+    private static final int SERIALIZED = 1;
+
+    private static final PayloadCodec<?>[] BY_TYPE = new PayloadCodec<?>[64];
+
+    private static final Map<Class<?>, PayloadCodec<?>> BY_CLASS = new HashMap<>();
+
+    static {
+        register(codec(2, Integer.class, WireProtocol::writeInt, WireProtocol::readInt));
+        register(codec(3, Long.class, WireProtocol::writeLong, WireProtocol::readLong));
+        register(codec(4, String.class, WireProtocol::writeString, WireProtocol::readString));
+        register(codec(5, Boolean.class, ByteBuf::writeBoolean, ByteBuf::readBoolean));
+
+        register(codec(16, InitClientParams.class, (out, params) -> {
+            writeString(out, params.getAppName());
+            writeLong(out, params.getDtxTime());
+            writeLong(out, params.getTmRpcTimeout());
+            writeInt(out, params.getSeqLen());
+            writeInt(out, params.getMachineId());
+            writeInt(out, params.getWireVersion());
+            writeLong(out, params.getDtxLockTime());
+            out.writeBoolean(params.isTableScopedLockId());
+        }, in -> {
+            InitClientParams params = new InitClientParams();
+            params.setAppName(readString(in));
+            params.setDtxTime(readLong(in));
+            params.setTmRpcTimeout(readLong(in));
+            params.setSeqLen(readInt(in));
+            params.setMachineId(readInt(in));
+            params.setWireVersion(readInt(in));
+            params.setDtxLockTime(readLong(in));
+            params.setTableScopedLockId(in.readBoolean());
+            return params;
+        }));
+        register(codec(17, JoinGroupParams.class, (out, params) -> {
+            writeString(out, params.getGroupId());
+            writeString(out, params.getUnitId());
+            writeString(out, params.getUnitType());
+            writeString(out, params.getRemoteKey());
+            writeInt(out, params.getTransactionState());
+        }, in -> {
+            JoinGroupParams params = new JoinGroupParams();
+            params.setGroupId(readString(in));
+            params.setUnitId(readString(in));
+            params.setUnitType(readString(in));
+            params.setRemoteKey(readString(in));
+            params.setTransactionState(readInt(in));
+            return params;
+        }));
+        register(codec(18, NotifyGroupParams.class, (out, params) -> {
+            writeString(out, params.getGroupId());
+            writeInt(out, params.getState());
+        }, in -> new NotifyGroupParams(readString(in), readInt(in))));
+        register(codec(19, NotifyUnitParams.class, PayloadCodecs::writeNotifyUnit, PayloadCodecs::readNotifyUnit));
+        register(codec(20, AskTransactionStateParams.class, (out, params) -> {
+            writeString(out, params.getGroupId());
+            writeString(out, params.getUnitId());
+        }, in -> new AskTransactionStateParams(readString(in), readString(in))));
+        register(codec(21, TxExceptionParams.class, (out, params) -> {
+            writeString(out, params.getGroupId());
+            writeString(out, params.getUnitId());
+            writeNullableInt(out, params.getRegistrar() == null ? null : params.getRegistrar().intValue());
+            writeNullableInt(out, params.getTransactionState());
+        }, in -> {
+            TxExceptionParams params = new TxExceptionParams();
+            params.setGroupId(readString(in));
+            params.setUnitId(readString(in));
+            Integer registrar = readNullableInt(in);
+            params.setRegistrar(registrar == null ? null : registrar.shortValue());
+            params.setTransactionState(readNullableInt(in));
+            return params;
+        }));
+        register(codec(22, GetAspectLogParams.class, (out, params) -> {
+            writeString(out, params.getGroupId());
+            writeString(out, params.getUnitId());
+        }, in -> new GetAspectLogParams(readString(in), readString(in))));
+        register(codec(23, DTXLockParams.class, (out, params) -> {
+            writeString(out, params.getGroupId());
+            writeString(out, params.getContextId());
+            writeStrings(out, params.getLocks());
+            writeInt(out, params.getLockType());
+            writeLong(out, params.getFencingToken());
+            writeLong(out, params.getWaitTime());
+        }, in -> {
+            DTXLockParams params = new DTXLockParams();
+            params.setGroupId(readString(in));
+            params.setContextId(readString(in));
+            params.setLocks(readStrings(in));
+            params.setLockType(readInt(in));
+            params.setFencingToken(readLong(in));
+            params.setWaitTime(readLong(in));
+            return params;
+        }));
+        register(codec(24, HeartbeatParams.class, (out, params) -> {
+            writeInt(out, params.getMachineId());
+            writeStrings(out, params.getLockGroups());
+        }, in -> new HeartbeatParams(readInt(in), readStrings(in))));
+        register(codec(25, NotifyConnectParams.class, (out, params) -> {
+            writeString(out, params.getHost());
+            writeInt(out, params.getPort());
+        }, in -> new NotifyConnectParams(readString(in), readInt(in))));
+        register(codec(26, RelayNotifyUnitParams.class, (out, params) -> {
+            out.writeBoolean(params.getNotifyUnitParams() != null);
+            if (params.getNotifyUnitParams() != null) {
+                writeNotifyUnit(out, params.getNotifyUnitParams());
+            }
+            writeString(out, params.getModId());
+        }, in -> {
+            RelayNotifyUnitParams params = new RelayNotifyUnitParams();
+            if (in.readBoolean()) {
+                params.setNotifyUnitParams(readNotifyUnit(in));
+            }
+            params.setModId(readString(in));
+            return params;
+        }));
+    }
+
+    private PayloadCodecs() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static void write(ByteBuf out, Serializable data) throws SerializerException {
+        if (data == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        PayloadCodec<Serializable> codec = (PayloadCodec<Serializable>) BY_CLASS.get(data.getClass());
+        if (codec == null) {
+            byte[] bytes = SerializerContext.getInstance().serialize(new MessageDto(null, null, data, 0));
+            out.writeByte(SERIALIZED);
+            writeVarInt(out, bytes.length);
+            out.writeBytes(bytes);
+            return;
+        }
+        out.writeByte(codec.type());
+        codec.write(out, data);
+    }
+
+    static Serializable read(ByteBuf in) throws SerializerException {
+        int type = in.readUnsignedByte();
+        if (type == NULL) {
+            return null;
+        }
+        if (type == SERIALIZED) {
+            int length = readVarInt(in);
+            MessageDto messageDto;
+            if (in.hasArray()) {
+                messageDto = SerializerContext.getInstance().deSerialize(in.array(),
+                        in.arrayOffset() + in.readerIndex(), length, MessageDto.class);
+                in.skipBytes(length);
+            } else {
+                messageDto = SerializerContext.getInstance().deSerialize(new ByteBufInputStream(in, length), MessageDto.class);
+            }
+            return messageDto.getData();
+        }
+        PayloadCodec<?> codec = type < BY_TYPE.length ? BY_TYPE[type] : null;
+        if (codec == null) {
+            throw new SerializerException("unknown payload type: " + type);
+        }
+        return codec.read(in);
+    }
+
+    /**
+     * payload type written for data
+     *
+     * @param data data
+     * @return type
+     */
+    static int typeOf(Serializable data) {
+        if (data == null) {
+            return NULL;
+        }
+        PayloadCodec<?> codec = BY_CLASS.get(data.getClass());
+        return codec == null ? SERIALIZED : codec.type();
+    }
+
+    /**
+     * @return types of typed codecs
+     */
+    static List<Integer> registeredTypes() {
+        List<Integer> types = new ArrayList<>();
+        for (PayloadCodec<?> codec : BY_TYPE) {
+            if (codec != null) {
+                types.add(codec.type());
+            }
+        }
+        return types;
+    }
+
+    private static void register(PayloadCodec<?> codec) {
+        BY_TYPE[codec.type()] = codec;
+        BY_CLASS.put(codec.payloadClass(), codec);
+    }
+
+    private static void writeNotifyUnit(ByteBuf out, NotifyUnitParams params) {
+        writeString(out, params.getGroupId());
+        writeString(out, params.getUnitId());
+        writeString(out, params.getUnitType());
+        writeInt(out, params.getState());
+    }
+
+    private static NotifyUnitParams readNotifyUnit(ByteBuf in) {
+        NotifyUnitParams params = new NotifyUnitParams();
+        params.setGroupId(readString(in));
+        params.setUnitId(readString(in));
+        params.setUnitType(readString(in));
+        params.setState(readInt(in));
+        return params;
+    }
+
+    private static void writeNullableInt(ByteBuf out, Integer value) {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeInt(out, value);
+        }
+    }
+
+    private static Integer readNullableInt(ByteBuf in) {
+        return in.readBoolean() ? readInt(in) : null;
+    }
+
+    /**
+     * varint (size + 1, 0 is null) and strings
+     */
+    private static void writeStrings(ByteBuf out, Collection<String> values) {
+        if (values == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, values.size() + 1);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static HashSet<String> readStrings(ByteBuf in) {
+        int size = readVarInt(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        HashSet<String> values = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static <T extends Serializable> PayloadCodec<T> codec(int type, Class<T> payloadClass,
+                                                                  Writer<T> writer, Reader<T> reader) {
+        return new PayloadCodec<T>() {
+            @Override
+            public int type() {
+                return type;
+            }
+
+            @Override
+            public Class<T> payloadClass() {
+                return payloadClass;
+            }
+
+            @Override
+            public void write(ByteBuf out, T payload) {
+                writer.write(out, payload);
+            }
+
+            @Override
+            public T read(ByteBuf in) {
+                return reader.read(in);
+            }
+        };
+    }
+
+    private interface Writer<T> {
+        void write(ByteBuf out, T payload);
+    }
+
+    private interface Reader<T> {
+        T read(ByteBuf in);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.codec;
+
+import com.codingapi.txlcn.common.exception.SerializerException;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.dto.RpcCmd;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Description: versioned binary frame of RpcCmd, used on a connection after both sides agreed on it by init-client.
+ * frames of protostuff (version 0) start with a protobuf tag which is never 0, binary frames start with MAGIC,
+ * so decoders read both and only the encoding is negotiated.
+ * <pre>
+ * magic(1) version(1) opcode(1) state(2) key(8) groupId(str) [action(str) when opcode is OP_ACTION] payload
+ * str: varint (utf-8 length + 1, 0 is null) and utf-8 bytes
+ * payload: type(1) and body of the type's PayloadCodec (untyped data: varint length and protostuff bytes)
+ * </pre>
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class WireProtocol {
+
+    public static final byte MAGIC = 0;
+
+    /**
+     * 当前支持的最高版本. 0 为 protostuff
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * 连接上协商好的版本
+     */
+    public static final AttributeKey<Integer> WIRE_VERSION = AttributeKey.valueOf("wireVersion");
+
+    /**
+     * action string follows
+     */
+    private static final byte OP_ACTION = 0;
+
+    private static final byte OP_NO_MESSAGE = -1;
+
+    private static final String[] ACTIONS = {
+            null,
+            MessageConstants.ACTION_CREATE_GROUP,
+            MessageConstants.ACTION_JOIN_GROUP,
+            MessageConstants.ACTION_NOTIFY_GROUP,
+            MessageConstants.ACTION_NOTIFY_UNIT,
+            MessageConstants.ACTION_ASK_TRANSACTION_STATE,
+            MessageConstants.ACTION_WRITE_EXCEPTION,
+            MessageConstants.ACTION_HEART_CHECK,
+            MessageConstants.ACTION_NEW_TXMANAGER,
+            MessageConstants.ACTION_GET_ASPECT_LOG,
+            MessageConstants.ACTION_INIT_CLIENT,
+            MessageConstants.ACTION_ACQUIRE_DTX_LOCK,
+            MessageConstants.ACTION_RELEASE_DTX_LOCK,
+            MessageConstants.ACTION_CLEAN_INVALID_TM,
+            MessageConstants.ACTION_QUERY_TM_CLUSTER
+    };
+
+    private static final Map<String, Byte> OPCODES = new HashMap<>();
+
+    static {
+        for (int i = 1; i < ACTIONS.length; i++) {
+            OPCODES.put(ACTIONS[i], (byte) i);
+        }
+    }
+
+    private WireProtocol() {
+    }
+
+    /**
+     * 连接上使用的版本
+     *
+     * @param channel 连接
+     * @return version, 0 为 protostuff
+     */
+    public static int wireVersion(Channel channel) {
+        Integer version = channel.attr(WIRE_VERSION).get();
+        return version == null ? 0 : version;
+    }
+
+    public static boolean isBinary(ByteBuf in) {
+        return in.isReadable() && in.getByte(in.readerIndex()) == MAGIC;
+    }
+
+    public static void encode(RpcCmd cmd, ByteBuf out) throws SerializerException {
+        MessageDto msg = cmd.getMsg();
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        if (msg == null) {
+            out.writeByte(OP_NO_MESSAGE);
+            out.writeShort(0);
+            out.writeLong(cmd.getSeq());
+            return;
+        }
+        Byte opcode = msg.getAction() == null ? null : OPCODES.get(msg.getAction());
+        out.writeByte(opcode == null ? OP_ACTION : opcode);
+        out.writeShort(msg.getState());
+        out.writeLong(cmd.getSeq());
+        writeString(out, msg.getGroupId());
+        if (opcode == null) {
+            writeString(out, msg.getAction());
+        }
+        PayloadCodecs.write(out, msg.getData());
+    }
+
+    public static NettyRpcCmd decode(ByteBuf in) throws SerializerException {
+        in.skipBytes(1);
+        int version = in.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new SerializerException("unsupported wire version: " + version);
+        }
+        int opcode = in.readByte();
+        int state = in.readShort();
+        NettyRpcCmd cmd = new NettyRpcCmd();
+        cmd.setSeq(in.readLong());
+        if (opcode == OP_NO_MESSAGE) {
+            return cmd;
+        }
+        if (opcode < 0 || opcode >= ACTIONS.length) {
+            throw new SerializerException("unknown opcode: " + opcode);
+        }
+        MessageDto msg = new MessageDto();
+        msg.setState(state);
+        msg.setGroupId(readString(in));
+        msg.setAction(opcode == OP_ACTION ? readString(in) : ACTIONS[opcode]);
+        msg.setData(PayloadCodecs.read(in));
+        cmd.setMsg(msg);
+        return cmd;
+    }
+
+    static void writeString(ByteBuf out, String value) {
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+        writeVarInt(out, ByteBufUtil.utf8Bytes(value) + 1);
+        ByteBufUtil.writeUtf8(out, value);
+    }
+
+    static String readString(ByteBuf in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * unsigned varint
+     */
+    static void writeVarInt(ByteBuf out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuf in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("malformed varint.");
+    }
+
+    /**
+     * zigzag varint
+     */
+    static void writeInt(ByteBuf out, int value) {
+        writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    static int readInt(ByteBuf in) {
+        int value = readVarInt(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * zigzag varlong
+     */
+    static void writeLong(ByteBuf out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    static long readLong(ByteBuf in) {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IllegalStateException("malformed varlong.");
+    }
+}
@@ -16,7 +16,6 @@
 package com.codingapi.txlcn.txmsg.netty.handler;
 
 import com.codingapi.txlcn.txmsg.MessageConstants;
-import com.codingapi.txlcn.common.util.id.RandomUtils;
 import com.codingapi.txlcn.txmsg.listener.ClientInitCallBack;
 import com.codingapi.txlcn.txmsg.dto.MessageDto;
 import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
@@ -57,7 +56,6 @@ public class NettyClientRetryHandler extends ChannelInboundHandlerAdapter {
         messageDto.setAction(MessageConstants.ACTION_HEART_CHECK);
         heartCmd = new NettyRpcCmd();
         heartCmd.setMsg(messageDto);
-        heartCmd.setKey(RandomUtils.simpleKey());
         this.clientInitCallBack = initCallBack;
     }
 
@@ -66,7 +64,8 @@ public class NettyClientRetryHandler extends ChannelInboundHandlerAdapter {
         super.channelActive(ctx);
         keepSize = NettyContext.currentParam(List.class).size();
 
-        clientInitCallBack.connected(ctx.channel().remoteAddress().toString());
+        // 每个连接各自初始化, TM 按连接绑定模块
+        clientInitCallBack.connected(SocketManager.getInstance().channelKey(ctx.channel()));
     }
 
     @Override
@@ -17,6 +17,7 @@ package com.codingapi.txlcn.txmsg.netty.handler;
 
 import com.codingapi.txlcn.common.util.serializer.SerializerContext;
 import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.netty.codec.WireProtocol;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.ChannelHandlerContext;
@@ -37,8 +38,19 @@ public class ObjectSerializerDecoder extends MessageToMessageDecoder<ByteBuf> {
         if(msg==null){
             return;
         }
-        ByteBufInputStream byteBufInputStream =  new ByteBufInputStream(msg, true);
-        NettyRpcCmd object = SerializerContext.getInstance().deSerialize(byteBufInputStream, NettyRpcCmd.class);
+        // 二进制协议与 protostuff 按首字节区分
+        if (WireProtocol.isBinary(msg)) {
+            out.add(WireProtocol.decode(msg));
+            return;
+        }
+        // 堆内存直接读数组, 直接内存经线程复用的缓冲区读取, 都不复制出中间数组
+        NettyRpcCmd object;
+        if (msg.hasArray()) {
+            object = SerializerContext.getInstance().deSerialize(msg.array(), msg.arrayOffset() + msg.readerIndex(),
+                    msg.readableBytes(), NettyRpcCmd.class);
+        } else {
+            object = SerializerContext.getInstance().deSerialize(new ByteBufInputStream(msg), NettyRpcCmd.class);
+        }
         out.add(object);
     }
 
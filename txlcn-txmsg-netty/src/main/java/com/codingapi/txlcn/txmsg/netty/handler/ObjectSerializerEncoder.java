@@ -16,6 +16,8 @@
 package com.codingapi.txlcn.txmsg.netty.handler;
 
 import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import com.codingapi.txlcn.txmsg.dto.RpcCmd;
+import com.codingapi.txlcn.txmsg.netty.codec.WireProtocol;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelHandlerContext;
@@ -33,6 +35,11 @@ public class ObjectSerializerEncoder extends MessageToByteEncoder<Serializable>
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Serializable msg, ByteBuf out) throws Exception {
+        if (msg instanceof RpcCmd && WireProtocol.wireVersion(ctx.channel()) > 0) {
+            WireProtocol.encode((RpcCmd) msg, out);
+            return;
+        }
+        // out 由 channel 的 allocator 分配 (默认池化直接内存), protostuff 经线程复用的缓冲区直接写入
         ByteBufOutputStream bout = new ByteBufOutputStream(out);
         SerializerContext.getInstance().serialize(msg,bout);
     }
@@ -17,6 +17,7 @@ package com.codingapi.txlcn.txmsg.netty.handler;
 
 import com.codingapi.txlcn.txmsg.RpcAnswer;
 import com.codingapi.txlcn.txmsg.dto.RpcCmd;
+import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -41,7 +42,8 @@ public class RpcAnswerHandler extends SimpleChannelInboundHandler<RpcCmd> {
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RpcCmd cmd) {
-        String remoteKey = ctx.channel().remoteAddress().toString();
+        // 响应回到请求所在的连接
+        String remoteKey = SocketManager.getInstance().channelKey(ctx.channel());
         cmd.setRemoteKey(remoteKey);
         rpcClientAnswer.callback(cmd); //cmd包括 messageDto remote key
     }
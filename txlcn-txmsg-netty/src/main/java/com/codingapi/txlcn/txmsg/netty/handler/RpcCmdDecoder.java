@@ -17,7 +17,8 @@ package com.codingapi.txlcn.txmsg.netty.handler;
 
 import com.codingapi.txlcn.txmsg.listener.HeartbeatListener;
 import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
-import com.codingapi.txlcn.txmsg.netty.bean.RpcContent;
+import com.codingapi.txlcn.txmsg.netty.bean.PendingRequests;
+import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
 import com.codingapi.txlcn.txmsg.MessageConstants;
 import com.codingapi.txlcn.txmsg.netty.em.NettyType;
 import com.codingapi.txlcn.txmsg.netty.impl.NettyContext;
@@ -27,7 +28,6 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 
 /**
@@ -47,13 +47,13 @@ public class RpcCmdDecoder extends SimpleChannelInboundHandler<NettyRpcCmd> {
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, NettyRpcCmd cmd) {
-        String key = cmd.getKey();
         log.debug("cmd->{}", cmd);
 
         //心态数据包直接响应
         if (cmd.getMsg() != null && MessageConstants.ACTION_HEART_CHECK.equals(cmd.getMsg().getAction())) {
             if (NettyContext.currentType().equals(NettyType.client)) {
-                //设置值
+                //设置值, 响应内容取决于TM连接的协议版本
+                cmd.setRemoteKey(SocketManager.getInstance().channelKey(ctx.channel()));
                 heartbeatListener.onTcReceivedHeart(cmd);
                 ctx.writeAndFlush(cmd);
                 return;
@@ -64,17 +64,16 @@ public class RpcCmdDecoder extends SimpleChannelInboundHandler<NettyRpcCmd> {
         }
 
         //需要响应的数据包 跑到这里唤醒阻塞 牛批啊 卧槽
-        if (!StringUtils.isEmpty(key)) { //key 为null 的就要继续执行下个handler
-            RpcContent rpcContent = cmd.loadRpcContent();
-            if (rpcContent != null) {
+        if (cmd.hasKey() && cmd.getMsg() != null && cmd.getMsg().getState() != MessageConstants.STATE_REQUEST) {
+            PendingRequests pendingRequests = PendingRequests.get(ctx.channel());
+            if (pendingRequests != null && pendingRequests.complete(cmd.getSeq(), cmd.getMsg())) {
                 log.debug("got response message[Netty Handler]");
-                rpcContent.setRes(cmd.getMsg());
-                rpcContent.signal(); //不继续执行下个handler
             } else {
-                ctx.fireChannelRead(cmd);
+                // 超时后到达的响应
+                log.debug("drop response of timeout request. key: {}", cmd.getSeq());
             }
-        } else {
-            ctx.fireChannelRead(cmd);
+            return; //不继续执行下个handler
         }
+        ctx.fireChannelRead(cmd);
     }
 }
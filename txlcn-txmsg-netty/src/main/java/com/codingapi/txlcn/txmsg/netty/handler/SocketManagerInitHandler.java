@@ -19,7 +19,6 @@ import com.codingapi.txlcn.txmsg.listener.RpcConnectionListener;
 import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
 import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
 import com.codingapi.txlcn.txmsg.MessageConstants;
-import com.codingapi.txlcn.common.util.id.RandomUtils;
 import com.codingapi.txlcn.txmsg.dto.MessageDto;
 import com.codingapi.txlcn.txmsg.dto.RpcCmd;
 import io.netty.channel.ChannelHandler;
@@ -53,7 +52,6 @@ public class SocketManagerInitHandler extends ChannelInboundHandlerAdapter {
         messageDto.setAction(MessageConstants.ACTION_HEART_CHECK);
         heartCmd = new NettyRpcCmd();
         heartCmd.setMsg(messageDto);
-        heartCmd.setKey(RandomUtils.simpleKey());
     }
 
     @Override
@@ -68,8 +66,10 @@ public class SocketManagerInitHandler extends ChannelInboundHandlerAdapter {
         super.channelInactive(ctx);
         String removeKey = ctx.channel().remoteAddress().toString();
         String appName = SocketManager.getInstance().getModuleName(removeKey);
-        rpcConnectionListener.disconnect(removeKey,appName);
-        SocketManager.getInstance().removeChannel(ctx.channel());
+        // 远程的最后一个连接断开时才算离线
+        if (SocketManager.getInstance().removeChannel(ctx.channel())) {
+            rpcConnectionListener.disconnect(removeKey, appName);
+        }
     }
 
 
@@ -16,6 +16,7 @@
 package com.codingapi.txlcn.txmsg.netty.impl;
 
 import com.codingapi.txlcn.txmsg.RpcClient;
+import com.codingapi.txlcn.txmsg.RpcConfig;
 import com.codingapi.txlcn.txmsg.dto.AppInfo;
 import com.codingapi.txlcn.txmsg.dto.MessageDto;
 import com.codingapi.txlcn.txmsg.dto.RpcCmd;
@@ -23,10 +24,13 @@ import com.codingapi.txlcn.txmsg.dto.RpcResponseState;
 import com.codingapi.txlcn.txmsg.exception.RpcException;
 import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
 import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.netty.codec.WireProtocol;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Description:
@@ -39,6 +43,13 @@ import java.util.List;
 @Slf4j
 public class NettyRpcClient extends RpcClient {
 
+    private final RpcConfig rpcConfig;
+
+    @Autowired
+    public NettyRpcClient(RpcConfig rpcConfig) {
+        this.rpcConfig = rpcConfig;
+    }
+
 
     @Override
     public RpcResponseState send(RpcCmd rpcCmd) throws RpcException {
@@ -60,9 +71,6 @@ public class NettyRpcClient extends RpcClient {
     }
 
     private MessageDto request0(RpcCmd rpcCmd, long timeout) throws RpcException {
-        if (rpcCmd.getKey() == null) {
-            throw new RpcException("key must be not null.");
-        }
         return SocketManager.getInstance().request(rpcCmd.getRemoteKey(), rpcCmd, timeout);
     }
 
@@ -76,8 +84,6 @@ public class NettyRpcClient extends RpcClient {
         long startTime = System.currentTimeMillis();
         NettyRpcCmd rpcCmd = new NettyRpcCmd();
         rpcCmd.setMsg(msg);
-        String key = rpcCmd.randomKey();
-        rpcCmd.setKey(key);
         rpcCmd.setRemoteKey(remoteKey);
         MessageDto result = request0(rpcCmd, timeout);
         log.debug("cmd request used time: {} ms", System.currentTimeMillis() - startTime);
@@ -85,6 +91,16 @@ public class NettyRpcClient extends RpcClient {
     }
 
 
+    @Override
+    public CompletableFuture<MessageDto> requestAsync(String remoteKey, MessageDto msg, long timeout) {
+        CompletableFuture<MessageDto> future = new CompletableFuture<>();
+        NettyRpcCmd rpcCmd = new NettyRpcCmd();
+        rpcCmd.setMsg(msg);
+        rpcCmd.setRemoteKey(remoteKey);
+        SocketManager.getInstance().requestAsync(remoteKey, rpcCmd, future, timeout);
+        return future;
+    }
+
     @Override
     public List<String> loadAllRemoteKey() {
         return SocketManager.getInstance().loadAllRemoteKey();
@@ -111,4 +127,19 @@ public class NettyRpcClient extends RpcClient {
     public List<AppInfo> apps() {
         return SocketManager.getInstance().appInfos();
     }
+
+    @Override
+    public int wireVersion() {
+        return Math.min(rpcConfig.getWireVersion(), WireProtocol.VERSION);
+    }
+
+    @Override
+    public void bindWireVersion(String remoteKey, int wireVersion) {
+        SocketManager.getInstance().bindWireVersion(remoteKey, wireVersion);
+    }
+
+    @Override
+    public int wireVersion(String remoteKey) {
+        return SocketManager.getInstance().wireVersion(remoteKey);
+    }
 }
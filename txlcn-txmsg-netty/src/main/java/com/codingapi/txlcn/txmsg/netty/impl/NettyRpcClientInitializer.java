@@ -23,10 +23,9 @@ import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
 import com.codingapi.txlcn.txmsg.netty.em.NettyType;
 import com.codingapi.txlcn.txmsg.netty.handler.init.NettyRpcClientChannelInitializer;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -63,6 +62,8 @@ public class NettyRpcClientInitializer implements RpcClientInitializer, Disposab
 
     private EventLoopGroup workerGroup;
 
+    private boolean epoll;
+
     @Autowired
     public NettyRpcClientInitializer(NettyRpcClientChannelInitializer nettyRpcClientChannelInitializer, RpcConfig rpcConfig, ClientInitCallBack clientInitCallBack) {
         this.nettyRpcClientChannelInitializer = nettyRpcClientChannelInitializer;
@@ -80,7 +81,8 @@ public class NettyRpcClientInitializer implements RpcClientInitializer, Disposab
     public void init(List<TxManagerHost> hosts, boolean sync) {
         NettyContext.type = NettyType.client;
         NettyContext.params = hosts;
-        workerGroup = new NioEventLoopGroup();
+        epoll = NettyTransport.epoll(rpcConfig);
+        workerGroup = NettyTransport.eventLoopGroup(epoll, rpcConfig.getWorkerThreads());
         for (TxManagerHost host : hosts) {
             Optional<Future> future = connect(new InetSocketAddress(host.getHost(), host.getPort()));
             if (sync && future.isPresent()) {
@@ -97,16 +99,22 @@ public class NettyRpcClientInitializer implements RpcClientInitializer, Disposab
     @Override
     public synchronized Optional<Future> connect(SocketAddress socketAddress) {
         for (int i = 0; i < rpcConfig.getReconnectCount(); i++) {
-            if (SocketManager.getInstance().noConnect(socketAddress)) {
+            int missing = Math.max(rpcConfig.getConnections(), 1) - SocketManager.getInstance().connectionCount(socketAddress);
+            if (missing > 0) {
                 try {
-                    log.info("Try connect socket({}) - count {}", socketAddress, i + 1);
+                    log.info("Try connect socket({}) - count {}, connections {}", socketAddress, i + 1, missing);
                     Bootstrap b = new Bootstrap();
                     b.group(workerGroup);
-                    b.channel(NioSocketChannel.class);
-                    b.option(ChannelOption.SO_KEEPALIVE, true);
+                    NettyTransport.client(b, rpcConfig, epoll);
                     b.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000);
+                    // 多个连接时, 请求在连接间分散, 响应回到请求所在的连接
+                    b.attr(SocketManager.POOLED, rpcConfig.getConnections() > 1);
                     b.handler(nettyRpcClientChannelInitializer);
-                    return Optional.of(b.connect(socketAddress).syncUninterruptibly());
+                    ChannelFuture future = null;
+                    for (int c = 0; c < missing; c++) {
+                        future = b.connect(socketAddress).syncUninterruptibly();
+                    }
+                    return Optional.of(future);
                 } catch (Exception e) {
                     log.warn("Connect socket({}) fail. {}ms latter try again.", socketAddress, rpcConfig.getReconnectDelay());
                     try {
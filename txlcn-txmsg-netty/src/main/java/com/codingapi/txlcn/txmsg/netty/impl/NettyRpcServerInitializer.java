@@ -15,15 +15,13 @@
  */
 package com.codingapi.txlcn.txmsg.netty.impl;
 
+import com.codingapi.txlcn.txmsg.RpcConfig;
 import com.codingapi.txlcn.txmsg.RpcServerInitializer;
 import com.codingapi.txlcn.txmsg.dto.ManagerProperties;
 import com.codingapi.txlcn.txmsg.netty.em.NettyType;
 import com.codingapi.txlcn.txmsg.netty.handler.init.NettyRpcServerChannelInitializer;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import lombok.extern.slf4j.Slf4j;
@@ -43,12 +41,14 @@ import org.springframework.stereotype.Service;
 public class NettyRpcServerInitializer implements RpcServerInitializer, DisposableBean {
 
     private final NettyRpcServerChannelInitializer nettyRpcServerChannelInitializer;
+    private final RpcConfig rpcConfig;
     private EventLoopGroup workerGroup;
-    private NioEventLoopGroup bossGroup;
+    private EventLoopGroup bossGroup;
 
     @Autowired
-    public NettyRpcServerInitializer(NettyRpcServerChannelInitializer nettyRpcServerChannelInitializer) {
+    public NettyRpcServerInitializer(NettyRpcServerChannelInitializer nettyRpcServerChannelInitializer, RpcConfig rpcConfig) {
         this.nettyRpcServerChannelInitializer = nettyRpcServerChannelInitializer;
+        this.rpcConfig = rpcConfig;
     }
 
 
@@ -60,19 +60,19 @@ public class NettyRpcServerInitializer implements RpcServerInitializer, Disposab
         nettyRpcServerChannelInitializer.setManagerProperties(managerProperties);
 
         int port = managerProperties.getRpcPort();
-        bossGroup = new NioEventLoopGroup();
-        workerGroup = new NioEventLoopGroup();
+        boolean epoll = NettyTransport.epoll(rpcConfig);
+        bossGroup = NettyTransport.eventLoopGroup(epoll, rpcConfig.getBossThreads());
+        workerGroup = NettyTransport.eventLoopGroup(epoll, rpcConfig.getWorkerThreads());
         try {
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .option(ChannelOption.SO_BACKLOG, 100)
                     .handler(new LoggingHandler(LogLevel.INFO))
                     .childHandler(nettyRpcServerChannelInitializer);
+            NettyTransport.server(b, rpcConfig, epoll);
 
             // Start the server.
             b.bind(port);
-            log.info("Socket started on port(s): {} (socket)",port);
+            log.info("Socket started on port(s): {} (socket), transport: {}", port, epoll ? "epoll" : "nio");
 
         } catch (Exception e) {
             // Shut down all event loops to terminate all threads.
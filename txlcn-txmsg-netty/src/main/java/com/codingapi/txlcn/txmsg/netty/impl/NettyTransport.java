@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.impl;
+
+import com.codingapi.txlcn.txmsg.RpcConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Description: transport (native epoll or NIO), event loops and socket options of RPC server and client by RpcConfig.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@Slf4j
+final class NettyTransport {
+
+    private NettyTransport() {
+    }
+
+    static boolean epoll(RpcConfig rpcConfig) {
+        return epoll(rpcConfig, Epoll.isAvailable());
+    }
+
+    /**
+     * @param epollAvailable native epoll 是否可用
+     */
+    static boolean epoll(RpcConfig rpcConfig, boolean epollAvailable) {
+        if (!rpcConfig.isNativeTransport()) {
+            return false;
+        }
+        if (!epollAvailable) {
+            log.info("native epoll unavailable, fallback to NIO. cause: {}", String.valueOf(Epoll.unavailabilityCause()));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param threads 0 为 netty 默认
+     */
+    static EventLoopGroup eventLoopGroup(boolean epoll, int threads) {
+        return epoll ? new EpollEventLoopGroup(threads) : new NioEventLoopGroup(threads);
+    }
+
+    static void server(ServerBootstrap b, RpcConfig rpcConfig, boolean epoll) {
+        b.channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+                .option(ChannelOption.SO_BACKLOG, rpcConfig.getBacklog())
+                .option(ChannelOption.ALLOCATOR, allocator(rpcConfig))
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.TCP_NODELAY, rpcConfig.isTcpNoDelay())
+                .childOption(ChannelOption.ALLOCATOR, allocator(rpcConfig))
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark(rpcConfig));
+        if (rpcConfig.getSendBufferSize() > 0) {
+            b.childOption(ChannelOption.SO_SNDBUF, rpcConfig.getSendBufferSize());
+        }
+        if (rpcConfig.getReceiveBufferSize() > 0) {
+            b.childOption(ChannelOption.SO_RCVBUF, rpcConfig.getReceiveBufferSize());
+        }
+    }
+
+    static void client(Bootstrap b, RpcConfig rpcConfig, boolean epoll) {
+        b.channel(epoll ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.TCP_NODELAY, rpcConfig.isTcpNoDelay())
+                .option(ChannelOption.ALLOCATOR, allocator(rpcConfig))
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark(rpcConfig));
+        if (rpcConfig.getSendBufferSize() > 0) {
+            b.option(ChannelOption.SO_SNDBUF, rpcConfig.getSendBufferSize());
+        }
+        if (rpcConfig.getReceiveBufferSize() > 0) {
+            b.option(ChannelOption.SO_RCVBUF, rpcConfig.getReceiveBufferSize());
+        }
+    }
+
+    private static ByteBufAllocator allocator(RpcConfig rpcConfig) {
+        return rpcConfig.isPooledAllocator() ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT;
+    }
+
+    private static WriteBufferWaterMark waterMark(RpcConfig rpcConfig) {
+        return new WriteBufferWaterMark(rpcConfig.getWriteBufferLowWaterMark(), rpcConfig.getWriteBufferHighWaterMark());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.loadbalance;
+
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import com.codingapi.txlcn.txmsg.loadbalance.RpcLoadBalance;
+import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Description: consistent hash of routing key (groupId) over the connected TMs, so messages of a group
+ * go to one TM. the ring is rebuilt when the connected TMs change (TMSearcher, RpcNotifyConnectService),
+ * only groups of the joined or left TM move. messages without routing key go to a random TM.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class ConsistentHashLoadBalance implements RpcLoadBalance {
+
+    /**
+     * virtual nodes of a TM
+     */
+    private static final int REPLICAS = 160;
+
+    private volatile Ring ring = new Ring(Collections.emptyList());
+
+    @Override
+    public String getRemoteKey() throws RpcException {
+        return getRemoteKey(null);
+    }
+
+    @Override
+    public String getRemoteKey(String routingKey) throws RpcException {
+        Ring ring = currentRing();
+        if (ring.members.isEmpty()) {
+            throw new RpcException(RpcException.NON_TX_MANAGER, "not can used connection");
+        }
+        if (Objects.isNull(routingKey) || routingKey.isEmpty()) {
+            return ring.members.get(ThreadLocalRandom.current().nextInt(ring.members.size()));
+        }
+        Map.Entry<Long, String> node = ring.nodes.ceilingEntry(hash(routingKey));
+        return Objects.isNull(node) ? ring.nodes.firstEntry().getValue() : node.getValue();
+    }
+
+    private Ring currentRing() {
+        List<String> remoteKeys = SocketManager.getInstance().remoteKeys();
+        Ring ring = this.ring;
+        if (ring.remoteKeys != remoteKeys) {
+            ring = new Ring(remoteKeys);
+            this.ring = ring;
+        }
+        return ring;
+    }
+
+    /**
+     * FNV-1a 64 with a final mix, stable across JVMs
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static class Ring {
+
+        /**
+         * snapshot of SocketManager the ring built from
+         */
+        private final List<String> remoteKeys;
+
+        private final List<String> members;
+
+        private final TreeMap<Long, String> nodes = new TreeMap<>();
+
+        Ring(List<String> remoteKeys) {
+            this.remoteKeys = remoteKeys;
+            this.members = new ArrayList<>(remoteKeys);
+            Collections.sort(members);
+            for (String member : members) {
+                for (int i = 0; i < REPLICAS; i++) {
+                    nodes.put(hash(member + "#" + i), member);
+                }
+            }
+        }
+    }
+}
@@ -18,35 +18,21 @@ package com.codingapi.txlcn.txmsg.netty.loadbalance;
 import com.codingapi.txlcn.txmsg.exception.RpcException;
 import com.codingapi.txlcn.txmsg.loadbalance.RpcLoadBalance;
 import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
-import io.netty.channel.Channel;
 
-import java.util.Random;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * @author lorne
  */
 public class RandomLoadBalance implements RpcLoadBalance {
 
-    private Random random;
-
-    public RandomLoadBalance() {
-        random = new Random();
-    }
-
     @Override
     public String getRemoteKey() throws RpcException {
-        int size = SocketManager.getInstance().currentSize();
-        if (size == 0) {
+        List<String> remoteKeys = SocketManager.getInstance().remoteKeys();
+        if (remoteKeys.isEmpty()) {
             throw new RpcException(RpcException.NON_TX_MANAGER, "not can used connection");
         }
-        int randomIndex = random.nextInt(size);
-        int index = 0;
-        for (Channel channel : SocketManager.getInstance().getChannels()) {
-            if (index == randomIndex) {
-                return channel.remoteAddress().toString();
-            }
-            index++;
-        }
-        throw new RpcException("channels was empty.");
+        return remoteKeys.get(ThreadLocalRandom.current().nextInt(remoteKeys.size()));
     }
 }
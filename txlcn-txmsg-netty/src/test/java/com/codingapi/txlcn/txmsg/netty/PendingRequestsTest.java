@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty;
+
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.netty.bean.PendingRequests;
+import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: failures of pending requests are reported at once and free their slot.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class PendingRequestsTest {
+
+    @Test
+    public void failWakesSyncWaiter() throws Exception {
+        PendingRequests pendingRequests = new PendingRequests(16);
+        long key = pendingRequests.register(null);
+        CompletableFuture.runAsync(() -> {
+            sleep(50);
+            pendingRequests.fail(key, new RpcException("send request fail."));
+        });
+        long start = System.nanoTime();
+        try {
+            pendingRequests.await(key, 10000);
+            Assert.fail("failure not reported");
+        } catch (RpcException e) {
+            Assert.assertEquals("send request fail.", e.getMessage());
+        }
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        Assert.assertEquals(0, pendingRequests.size());
+        // 失败后到达的响应被丢弃
+        Assert.assertFalse(pendingRequests.complete(key, new MessageDto()));
+    }
+
+    @Test
+    public void failBeforeAwait() throws Exception {
+        PendingRequests pendingRequests = new PendingRequests(16);
+        long key = pendingRequests.register(null);
+        Assert.assertTrue(pendingRequests.fail(key, new IOException("broken pipe")));
+        Assert.assertFalse(pendingRequests.fail(key, new IOException("broken pipe")));
+        try {
+            pendingRequests.await(key, 10000);
+            Assert.fail("failure not reported");
+        } catch (RpcException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+        Assert.assertEquals(0, pendingRequests.size());
+    }
+
+    @Test
+    public void lateResponseIsDropped() throws Exception {
+        PendingRequests pendingRequests = new PendingRequests(16);
+        long key = pendingRequests.register(null);
+        Assert.assertNull(pendingRequests.await(key, 1));
+        Assert.assertFalse(pendingRequests.complete(key, new MessageDto()));
+
+        CompletableFuture<MessageDto> future = new CompletableFuture<>();
+        key = pendingRequests.register(future);
+        Assert.assertTrue(pendingRequests.fail(key, new RpcException("request timeout.")));
+        Assert.assertFalse(pendingRequests.complete(key, new MessageDto()));
+        Assert.assertTrue(future.isCompletedExceptionally());
+        Assert.assertEquals(0, pendingRequests.size());
+    }
+
+    @Test
+    public void syncRequestWriteFailure() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                ReferenceCountUtil.release(msg);
+                promise.setFailure(new IOException("broken pipe"));
+            }
+        });
+        SocketManager socketManager = SocketManager.getInstance();
+        socketManager.addChannel(channel);
+        String key = socketManager.channelKey(channel);
+        long start = System.nanoTime();
+        try {
+            socketManager.request(key, new NettyRpcCmd(), 10000);
+            Assert.fail("write failure not reported");
+        } catch (RpcException e) {
+            Assert.assertEquals("send request fail.", e.getMessage());
+        } finally {
+            socketManager.removeChannel(channel);
+        }
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        Assert.assertEquals(0, PendingRequests.get(channel).size());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty;
+
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.RpcClient;
+import com.codingapi.txlcn.txmsg.RpcConfig;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.netty.bean.PendingRequests;
+import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
+import com.codingapi.txlcn.txmsg.netty.handler.RpcCmdDecoder;
+import com.codingapi.txlcn.txmsg.netty.impl.NettyRpcClient;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: requestAsync returns at once, the future completes with the response, a timeout or a write failure.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class RequestAsyncTest {
+
+    private final SocketManager socketManager = SocketManager.getInstance();
+
+    private final RpcClient rpcClient = new NettyRpcClient(new RpcConfig());
+
+    private final List<EmbeddedChannel> connected = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        connected.forEach(socketManager::removeChannel);
+    }
+
+    @Test
+    public void responseCompletesFuture() throws Exception {
+        EmbeddedChannel channel = connect(38070, new RpcCmdDecoder());
+        String remoteKey = socketManager.channelKey(channel);
+        List<CompletableFuture<MessageDto>> futures = new ArrayList<>();
+        List<NettyRpcCmd> requests = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(rpcClient.requestAsync(remoteKey, request(i), 10000));
+            requests.add(channel.readOutbound());
+        }
+        Assert.assertTrue(futures.stream().noneMatch(CompletableFuture::isDone));
+
+        // 响应乱序到达
+        for (int i = requests.size() - 1; i >= 0; i--) {
+            channel.writeInbound(response(requests.get(i)));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            Assert.assertEquals(i, futures.get(i).getNow(null).loadBean(Integer.class).intValue());
+        }
+        Assert.assertEquals(0, PendingRequests.get(channel).size());
+        Assert.assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void timeoutCompletesFuture() throws Exception {
+        EmbeddedChannel channel = connect(38071, new RpcCmdDecoder());
+        long start = System.nanoTime();
+        CompletableFuture<MessageDto> future = rpcClient.requestAsync(socketManager.channelKey(channel), request(1), 50);
+        try {
+            RpcClient.awaitResponse(future);
+            Assert.fail("timeout not reported");
+        } catch (RpcException e) {
+            Assert.assertEquals("request timeout.", e.getMessage());
+        }
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        Assert.assertEquals(0, PendingRequests.get(channel).size());
+
+        // 超时后到达的响应被丢弃, 不交给业务处理
+        channel.writeInbound(response(channel.readOutbound()));
+        Assert.assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void writeFailureCompletesFuture() throws Exception {
+        EmbeddedChannel channel = connect(38072, new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                ReferenceCountUtil.release(msg);
+                promise.setFailure(new IOException("broken pipe"));
+            }
+        });
+        CompletableFuture<MessageDto> future = rpcClient.requestAsync(socketManager.channelKey(channel), request(1), 10000);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("write failure not reported");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("send request fail.", e.getCause().getMessage());
+            Assert.assertTrue(e.getCause().getCause() instanceof IOException);
+        }
+        Assert.assertEquals(0, PendingRequests.get(channel).size());
+    }
+
+    @Test
+    public void unknownRemoteCompletesFuture() {
+        CompletableFuture<MessageDto> future = rpcClient.requestAsync("/127.0.0.1:38079", request(1), 10000);
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+
+    private EmbeddedChannel connect(int port, ChannelHandler handler) {
+        EmbeddedChannel channel = new RemoteChannel(port, handler);
+        socketManager.addChannel(channel);
+        connected.add(channel);
+        return channel;
+    }
+
+    private static MessageDto request(int data) {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction("test");
+        messageDto.setData(data);
+        return messageDto;
+    }
+
+    private static NettyRpcCmd response(NettyRpcCmd request) {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setData(request.getMsg().getData());
+        messageDto.setState(MessageConstants.STATE_OK);
+        NettyRpcCmd response = new NettyRpcCmd();
+        response.setSeq(request.getSeq());
+        response.setMsg(messageDto);
+        return response;
+    }
+
+    private static class RemoteChannel extends EmbeddedChannel {
+
+        private final InetSocketAddress remoteAddress;
+
+        RemoteChannel(int port, ChannelHandler handler) {
+            super(handler);
+            this.remoteAddress = new InetSocketAddress("127.0.0.1", port);
+        }
+
+        @Override
+        protected SocketAddress remoteAddress0() {
+            return remoteAddress;
+        }
+    }
+}
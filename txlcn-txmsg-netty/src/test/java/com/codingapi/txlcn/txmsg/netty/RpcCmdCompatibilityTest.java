@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty;
+
+import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+
+/**
+ * Description: protostuff frames of RpcCmd between this version and peers whose key is a random string.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class RpcCmdCompatibilityTest {
+
+    @Test
+    public void oldRequestIsAnsweredWithItsKey() throws Exception {
+        LegacyRpcCmd request = new LegacyRpcCmd();
+        request.key = "4f2c1d0e9b8a";
+        request.msg = message(MessageConstants.STATE_REQUEST);
+
+        NettyRpcCmd received = SerializerContext.getInstance()
+                .deSerialize(SerializerContext.getInstance().serialize(request), NettyRpcCmd.class);
+        Assert.assertTrue(received.hasKey());
+        Assert.assertEquals(MessageConstants.ACTION_NOTIFY_UNIT, received.getMsg().getAction());
+
+        // 响应复用请求指令
+        received.setMsg(message(MessageConstants.STATE_OK));
+        LegacyRpcCmd response = SerializerContext.getInstance()
+                .deSerialize(SerializerContext.getInstance().serialize(received), LegacyRpcCmd.class);
+        Assert.assertEquals("4f2c1d0e9b8a", response.key);
+        Assert.assertEquals(MessageConstants.STATE_OK, response.msg.getState());
+    }
+
+    @Test
+    public void newRequestIsMatchedByOldResponse() throws Exception {
+        NettyRpcCmd request = new NettyRpcCmd();
+        request.setSeq(123456789L << 10 | 17);
+        request.setMsg(message(MessageConstants.STATE_REQUEST));
+
+        LegacyRpcCmd received = SerializerContext.getInstance()
+                .deSerialize(SerializerContext.getInstance().serialize(request), LegacyRpcCmd.class);
+        Assert.assertEquals(Long.toString(123456789L << 10 | 17), received.key);
+
+        // 旧版本对端解码时丢弃了新增字段, 只回传字符串 key
+        received.msg = message(MessageConstants.STATE_OK);
+        NettyRpcCmd response = SerializerContext.getInstance()
+                .deSerialize(SerializerContext.getInstance().serialize(received), NettyRpcCmd.class);
+        Assert.assertTrue(response.hasKey());
+        Assert.assertEquals(123456789L << 10 | 17, response.getSeq());
+    }
+
+    @Test
+    public void noKey() throws Exception {
+        NettyRpcCmd cmd = new NettyRpcCmd();
+        cmd.setMsg(message(MessageConstants.STATE_REQUEST));
+        LegacyRpcCmd received = SerializerContext.getInstance()
+                .deSerialize(SerializerContext.getInstance().serialize(cmd), LegacyRpcCmd.class);
+        Assert.assertNull(received.key);
+
+        NettyRpcCmd decoded = SerializerContext.getInstance()
+                .deSerialize(SerializerContext.getInstance().serialize(received), NettyRpcCmd.class);
+        Assert.assertFalse(decoded.hasKey());
+        Assert.assertEquals(0, decoded.getSeq());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void stringKeyAccessors() {
+        NettyRpcCmd cmd = new NettyRpcCmd();
+        cmd.setSeq(42);
+        Assert.assertEquals("42", cmd.getKey());
+
+        cmd.setKey("4f2c1d0e9b8a");
+        Assert.assertTrue(cmd.hasKey());
+        Assert.assertEquals(0, cmd.getSeq());
+        cmd.setKey("43");
+        Assert.assertEquals(43, cmd.getSeq());
+        cmd.setKey(null);
+        Assert.assertFalse(cmd.hasKey());
+    }
+
+    private static MessageDto message(int state) {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction(MessageConstants.ACTION_NOTIFY_UNIT);
+        messageDto.setGroupId("5c7f3a2b9e1d4c6a8b0f");
+        messageDto.setState(state);
+        return messageDto;
+    }
+
+    /**
+     * RpcCmd of the former version: fields in declaration order are the protostuff field numbers.
+     */
+    public static class LegacyRpcCmd implements Serializable {
+
+        private String key;
+
+        private MessageDto msg;
+
+        private String remoteKey;
+    }
+}
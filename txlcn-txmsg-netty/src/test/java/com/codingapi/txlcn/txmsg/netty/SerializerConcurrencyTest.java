@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty;
+
+import com.codingapi.txlcn.common.exception.SerializerException;
+import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.params.NotifyUnitParams;
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.runtime.RuntimeSchema;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: encodes sharing the thread reused protostuff buffers do not see each other's bytes.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class SerializerConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ROUNDS = 5000;
+
+    private static final Schema<NettyRpcCmd> SCHEMA = RuntimeSchema.getSchema(NettyRpcCmd.class);
+
+    @Test
+    public void concurrentEncodes() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(256);
+                    try {
+                        for (int i = 0; i < ROUNDS; i++) {
+                            // 超过一个 LinkedBuffer 的大小时使用链式缓冲区
+                            NettyRpcCmd cmd = cmd(thread, i, i % 10 == 0 ? 4096 : 16);
+
+                            byte[] bytes = SerializerContext.getInstance().serialize(cmd);
+                            assertSame(cmd, SerializerContext.getInstance().deSerialize(bytes, NettyRpcCmd.class));
+
+                            buf.clear();
+                            SerializerContext.getInstance().serialize(cmd, new ByteBufOutputStream(buf));
+                            assertSame(cmd, SerializerContext.getInstance()
+                                    .deSerialize(new ByteBufInputStream(buf), NettyRpcCmd.class));
+                        }
+                    } finally {
+                        buf.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedEncodeLeavesBufferClean() throws Exception {
+        // 第一次 flush 写出成功, 之后的写出失败, 失败时缓冲区内还有未写出的字节
+        NettyRpcCmd cmd = cmd(1, 1, 4096);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        try {
+            SerializerContext.getInstance().serialize(cmd, new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (written.size() > 0) {
+                        throw new IOException("broken pipe");
+                    }
+                    written.write(b, off, len);
+                }
+            });
+            Assert.fail("write failure not reported");
+        } catch (SerializerException ignored) {
+        }
+        Assert.assertTrue(written.size() > 0);
+
+        NettyRpcCmd next = cmd(2, 2, 16);
+        byte[] expected = ProtostuffIOUtil.toByteArray(next, SCHEMA, LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+        Assert.assertArrayEquals(expected, SerializerContext.getInstance().serialize(next));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializerContext.getInstance().serialize(next, out);
+        Assert.assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void failedDecodeLeavesBufferClean() throws Exception {
+        byte[] bytes = SerializerContext.getInstance().serialize(cmd(1, 1, 4096));
+        try {
+            SerializerContext.getInstance().deSerialize(
+                    new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 100)), NettyRpcCmd.class);
+            Assert.fail("truncated frame decoded");
+        } catch (SerializerException ignored) {
+        }
+        NettyRpcCmd next = cmd(2, 2, 16);
+        assertSame(next, SerializerContext.getInstance().deSerialize(
+                new ByteArrayInputStream(SerializerContext.getInstance().serialize(next)), NettyRpcCmd.class));
+    }
+
+    private static void assertSame(NettyRpcCmd expected, NettyRpcCmd actual) {
+        Assert.assertEquals(expected.getSeq(), actual.getSeq());
+        Assert.assertEquals(expected.getMsg(), actual.getMsg());
+    }
+
+    private static NettyRpcCmd cmd(int thread, int round, int unitIdLength) {
+        StringBuilder unitId = new StringBuilder(unitIdLength);
+        while (unitId.length() < unitIdLength) {
+            unitId.append(thread).append('-').append(round).append(';');
+        }
+        String groupId = "group-" + thread + "-" + round;
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction(MessageConstants.ACTION_NOTIFY_UNIT);
+        messageDto.setGroupId(groupId);
+        messageDto.setData(new NotifyUnitParams(groupId, unitId.toString(), "lcn", round % 2));
+        NettyRpcCmd cmd = new NettyRpcCmd();
+        cmd.setSeq(((long) thread << 32) | (round + 1));
+        cmd.setMsg(messageDto);
+        return cmd;
+    }
+}
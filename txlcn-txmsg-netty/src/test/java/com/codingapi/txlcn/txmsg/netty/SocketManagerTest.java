@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty;
+
+import com.codingapi.txlcn.txmsg.RpcConfig;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: a remote goes offline only with the last connection of its remoteKey and of its module.
+ * channels are found by remoteKey, modules by name.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class SocketManagerTest {
+
+    private final SocketManager socketManager = SocketManager.getInstance();
+
+    @Test
+    public void pooledConnectionsToTm() {
+        // TC 到同一TM的多个连接共用一个 remoteKey
+        RemoteChannel first = new RemoteChannel(18070);
+        RemoteChannel second = new RemoteChannel(18070);
+        socketManager.addChannel(first);
+        socketManager.addChannel(second);
+
+        Assert.assertFalse(socketManager.removeChannel(first));
+        Assert.assertTrue(socketManager.remoteKeys().contains(second.remoteAddress().toString()));
+        Assert.assertTrue(socketManager.removeChannel(second));
+        Assert.assertFalse(socketManager.remoteKeys().contains(second.remoteAddress().toString()));
+    }
+
+    @Test
+    public void connectionsOfModule() {
+        // TM 看到同一TC的多个连接, 各自的 remoteKey 绑定同一模块
+        RemoteChannel first = new RemoteChannel(41001);
+        RemoteChannel second = new RemoteChannel(41002);
+        socketManager.addChannel(first);
+        socketManager.addChannel(second);
+        socketManager.bindModuleName(first.remoteAddress().toString(), "order-service:8081");
+        socketManager.bindModuleName(second.remoteAddress().toString(), "order-service:8081");
+        Assert.assertEquals(2, socketManager.removeKeys("order-service:8081").size());
+
+        Assert.assertFalse(socketManager.removeChannel(first));
+        Assert.assertEquals(1, socketManager.removeKeys("order-service:8081").size());
+        Assert.assertTrue(socketManager.removeChannel(second));
+        Assert.assertTrue(socketManager.removeKeys("order-service:8081").isEmpty());
+    }
+
+    @Test
+    public void removedTwice() {
+        RemoteChannel channel = new RemoteChannel(41003);
+        socketManager.addChannel(channel);
+        Assert.assertTrue(socketManager.removeChannel(channel));
+        Assert.assertFalse(socketManager.removeChannel(channel));
+    }
+
+    @Test
+    public void channelFoundByRemoteKey() throws RpcException {
+        RemoteChannel first = new RemoteChannel(41004);
+        RemoteChannel second = new RemoteChannel(41005);
+        socketManager.addChannel(first);
+        socketManager.addChannel(second);
+        try {
+            Assert.assertFalse(socketManager.noConnect(first.remoteAddress()));
+            Assert.assertEquals(1, socketManager.connectionCount(first.remoteAddress()));
+
+            NettyRpcCmd cmd = new NettyRpcCmd();
+            socketManager.send(second.remoteAddress().toString(), cmd);
+            Assert.assertSame(cmd, second.readOutbound());
+            Assert.assertNull(first.readOutbound());
+        } finally {
+            socketManager.removeChannel(first);
+            socketManager.removeChannel(second);
+        }
+        Assert.assertTrue(socketManager.noConnect(first.remoteAddress()));
+        Assert.assertEquals(0, socketManager.connectionCount(first.remoteAddress()));
+        try {
+            socketManager.send(first.remoteAddress().toString(), new NettyRpcCmd());
+            Assert.fail();
+        } catch (RpcException e) {
+            Assert.assertEquals("channel not online.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void inactiveConnectionsOfPool() throws Exception {
+        // 连接已断开, 但尚未从连接池移除
+        RemoteChannel closed = new RemoteChannel(41009);
+        RemoteChannel active = new RemoteChannel(41009);
+        socketManager.addChannel(closed);
+        socketManager.addChannel(active);
+        String remoteKey = active.remoteAddress().toString();
+        try {
+            closed.close();
+            for (int i = 0; i < 20; i++) {
+                NettyRpcCmd cmd = new NettyRpcCmd();
+                socketManager.send(remoteKey, cmd);
+                Assert.assertSame(cmd, active.readOutbound());
+            }
+
+            active.close();
+            try {
+                socketManager.send(remoteKey, new NettyRpcCmd());
+                Assert.fail();
+            } catch (RpcException e) {
+                Assert.assertEquals("channel not online.", e.getMessage());
+            }
+            CompletableFuture<MessageDto> future = new CompletableFuture<>();
+            socketManager.requestAsync(remoteKey, new NettyRpcCmd(), future, 1000);
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertEquals("channel not online.", e.getCause().getMessage());
+            }
+        } finally {
+            socketManager.removeChannel(closed);
+            socketManager.removeChannel(active);
+        }
+    }
+
+    @Test
+    public void remoteKeysSnapshot() {
+        // 负载均衡按快照实例判断在线TM是否变化
+        List<String> before = socketManager.remoteKeys();
+        Assert.assertSame(before, socketManager.remoteKeys());
+        RemoteChannel first = new RemoteChannel(41006);
+        socketManager.addChannel(first);
+        List<String> connected = socketManager.remoteKeys();
+        Assert.assertNotSame(before, connected);
+        Assert.assertTrue(connected.contains(first.remoteAddress().toString()));
+
+        // 同一 remoteKey 的连接池扩容, 在线 remoteKey 不变
+        RemoteChannel second = new RemoteChannel(41006);
+        socketManager.addChannel(second);
+        Assert.assertSame(connected, socketManager.remoteKeys());
+        socketManager.removeChannel(second);
+        Assert.assertSame(connected, socketManager.remoteKeys());
+
+        socketManager.removeChannel(first);
+        Assert.assertFalse(socketManager.remoteKeys().contains(first.remoteAddress().toString()));
+    }
+
+    @Test
+    public void moduleRebound() {
+        RemoteChannel channel = new RemoteChannel(41007);
+        socketManager.addChannel(channel);
+        String remoteKey = channel.remoteAddress().toString();
+        socketManager.bindModuleName(remoteKey, "order-service:8081");
+        socketManager.bindModuleName(remoteKey, "stock-service:8082");
+
+        Assert.assertTrue(socketManager.removeKeys("order-service:8081").isEmpty());
+        Assert.assertEquals(Collections.singletonList(remoteKey), socketManager.removeKeys("stock-service:8082"));
+        Assert.assertEquals("stock-service:8082", socketManager.getModuleName(channel));
+        socketManager.removeChannel(channel);
+    }
+
+    @Test
+    public void reconnectKeepsModuleName() throws InterruptedException {
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.setAttrDelayTime(100);
+        socketManager.setRpcConfig(rpcConfig);
+        try {
+            RemoteChannel channel = new RemoteChannel(41008);
+            socketManager.addChannel(channel);
+            socketManager.bindModuleName(channel.remoteAddress().toString(), "order-service:8081");
+            socketManager.removeChannel(channel);
+            // 延迟删除前以同一 remoteKey 重连
+            RemoteChannel reconnected = new RemoteChannel(41008);
+            socketManager.addChannel(reconnected);
+            Thread.sleep(500);
+            Assert.assertEquals("order-service:8081", socketManager.getModuleName(reconnected));
+
+            socketManager.removeChannel(reconnected);
+            Thread.sleep(500);
+            Assert.assertNull(socketManager.getModuleName(reconnected));
+        } finally {
+            rpcConfig.setAttrDelayTime(1000 * 60);
+            socketManager.setRpcConfig(rpcConfig);
+        }
+    }
+
+    private static class RemoteChannel extends EmbeddedChannel {
+
+        private final InetSocketAddress remoteAddress;
+
+        RemoteChannel(int port) {
+            this.remoteAddress = new InetSocketAddress("127.0.0.1", port);
+        }
+
+        @Override
+        protected SocketAddress remoteAddress0() {
+            return remoteAddress;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty;
+
+import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.RpcConfig;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.netty.codec.WireProtocol;
+import com.codingapi.txlcn.txmsg.netty.handler.ObjectSerializerDecoder;
+import com.codingapi.txlcn.txmsg.netty.handler.ObjectSerializerEncoder;
+import com.codingapi.txlcn.txmsg.netty.impl.NettyRpcClient;
+import com.codingapi.txlcn.txmsg.params.InitClientParams;
+import com.codingapi.txlcn.txmsg.params.NotifyUnitParams;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+
+/**
+ * Description: wire version negotiation at init-client, and the frames a connection writes and reads
+ * for the negotiated version.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class WireNegotiationTest {
+
+    @Test
+    public void peerWithoutVersionStaysOnProtostuff() throws Exception {
+        // 旧版本 InitClientParams 没有 wireVersion 字段
+        LegacyInitClientParams legacy = new LegacyInitClientParams();
+        legacy.appName = "order-service:8080";
+        legacy.machineId = 3;
+        InitClientParams params = SerializerContext.getInstance()
+                .deSerialize(SerializerContext.getInstance().serialize(legacy), InitClientParams.class);
+        Assert.assertEquals("order-service:8080", params.getAppName());
+        Assert.assertEquals(0, params.getWireVersion());
+
+        NettyRpcClient rpcClient = new NettyRpcClient(new RpcConfig());
+        int wireVersion = rpcClient.negotiateWireVersion(params.getWireVersion());
+        Assert.assertEquals(0, wireVersion);
+
+        EmbeddedChannel channel = channel(wireVersion);
+        NettyRpcCmd cmd = cmd();
+        Assert.assertTrue(channel.writeOutbound(cmd));
+        ByteBuf frame = channel.readOutbound();
+        Assert.assertFalse(WireProtocol.isBinary(frame));
+
+        // 旧版本对端能解码
+        RpcCmdCompatibilityTest.LegacyRpcCmd decoded = SerializerContext.getInstance()
+                .deSerialize(ByteBufUtil.getBytes(frame), RpcCmdCompatibilityTest.LegacyRpcCmd.class);
+        Assert.assertNotNull(decoded);
+
+        // 旧版本对端的帧能解码
+        Assert.assertTrue(channel.writeInbound(frame));
+        NettyRpcCmd received = channel.readInbound();
+        Assert.assertEquals(cmd.getMsg(), received.getMsg());
+        Assert.assertEquals(cmd.getSeq(), received.getSeq());
+    }
+
+    @Test
+    public void negotiatedBinary() throws Exception {
+        NettyRpcClient rpcClient = new NettyRpcClient(new RpcConfig());
+        Assert.assertEquals(1, rpcClient.negotiateWireVersion(1));
+        Assert.assertEquals(WireProtocol.VERSION, rpcClient.negotiateWireVersion(WireProtocol.VERSION + 1));
+        Assert.assertEquals(0, rpcClient.negotiateWireVersion(-1));
+
+        EmbeddedChannel channel = channel(1);
+        NettyRpcCmd cmd = cmd();
+        Assert.assertTrue(channel.writeOutbound(cmd));
+        ByteBuf frame = channel.readOutbound();
+        Assert.assertTrue(WireProtocol.isBinary(frame));
+        Assert.assertTrue(channel.writeInbound(frame));
+        NettyRpcCmd received = channel.readInbound();
+        Assert.assertEquals(cmd.getMsg(), received.getMsg());
+
+        // 协商前对端发出的 protostuff 帧仍可解码
+        Assert.assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(SerializerContext.getInstance().serialize(cmd))));
+        received = channel.readInbound();
+        Assert.assertEquals(cmd.getMsg(), received.getMsg());
+    }
+
+    @Test
+    public void optOut() {
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.setWireVersion(0);
+        NettyRpcClient rpcClient = new NettyRpcClient(rpcConfig);
+        Assert.assertEquals(0, rpcClient.wireVersion());
+        Assert.assertEquals(0, rpcClient.negotiateWireVersion(1));
+    }
+
+    private static EmbeddedChannel channel(int wireVersion) {
+        EmbeddedChannel channel = new EmbeddedChannel(new ObjectSerializerEncoder(), new ObjectSerializerDecoder());
+        channel.attr(WireProtocol.WIRE_VERSION).set(wireVersion);
+        return channel;
+    }
+
+    private static NettyRpcCmd cmd() {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction(MessageConstants.ACTION_NOTIFY_UNIT);
+        messageDto.setGroupId("5c7f3a2b9e1d4c6a8b0f");
+        messageDto.setData(new NotifyUnitParams("5c7f3a2b9e1d4c6a8b0f", "9a8b7c6d5e4f3a2b1c0d", "lcn", 1));
+        NettyRpcCmd cmd = new NettyRpcCmd();
+        cmd.setSeq(99);
+        cmd.setMsg(messageDto);
+        return cmd;
+    }
+
+    /**
+     * InitClientParams of the former version.
+     */
+    public static class LegacyInitClientParams implements Serializable {
+
+        private String appName;
+
+        private long dtxTime;
+
+        private long tmRpcTimeout;
+
+        private int seqLen;
+
+        private int machineId;
+    }
+}
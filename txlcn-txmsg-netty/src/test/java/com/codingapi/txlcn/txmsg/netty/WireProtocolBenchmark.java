@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty;
+
+import com.codingapi.txlcn.common.util.serializer.SerializerContext;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.netty.codec.WireProtocol;
+import com.codingapi.txlcn.txmsg.params.DTXLockParams;
+import com.codingapi.txlcn.txmsg.params.JoinGroupParams;
+import com.codingapi.txlcn.txmsg.params.NotifyUnitParams;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Description: frame size and encode + decode cost of protostuff (version 0) and binary (version 1) frames.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class WireProtocolBenchmark {
+
+    private static final int ROUNDS = 200000;
+
+    private static final String GROUP_ID = "5c7f3a2b9e1d4c6a8b0f";
+
+    @Test
+    public void codec() throws Exception {
+        Map<String, NettyRpcCmd> cmds = new LinkedHashMap<>();
+        cmds.put("notify-unit", cmd(MessageConstants.ACTION_NOTIFY_UNIT, MessageConstants.STATE_REQUEST,
+                new NotifyUnitParams(GROUP_ID, "9a8b7c6d5e4f3a2b1c0d", "lcn", 1)));
+        cmds.put("join-group", cmd(MessageConstants.ACTION_JOIN_GROUP, MessageConstants.STATE_REQUEST,
+                new JoinGroupParams(GROUP_ID, "9a8b7c6d5e4f3a2b1c0d", "txc", "/127.0.0.1:52034", 1)));
+        cmds.put("dtx-lock", cmd(MessageConstants.ACTION_ACQUIRE_DTX_LOCK, MessageConstants.STATE_REQUEST,
+                new DTXLockParams(GROUP_ID, "t_order", new HashSet<>(Arrays.asList("t_order:1", "t_order:2")),
+                        2, System.currentTimeMillis() * 1000, 3000)));
+        cmds.put("ok-response", cmd(MessageConstants.ACTION_NOTIFY_UNIT, MessageConstants.STATE_OK, 1));
+        cmds.put("custom-action", cmd("customAction", MessageConstants.STATE_REQUEST, null));
+
+        for (Map.Entry<String, NettyRpcCmd> entry : cmds.entrySet()) {
+            NettyRpcCmd cmd = entry.getValue();
+            byte[] bytes = SerializerContext.getInstance().serialize(cmd);
+            NettyRpcCmd protostuff = SerializerContext.getInstance().deSerialize(bytes, NettyRpcCmd.class);
+            Assert.assertEquals(cmd.getMsg(), protostuff.getMsg());
+
+            ByteBuf buf = Unpooled.buffer(256);
+            WireProtocol.encode(cmd, buf);
+            int binarySize = buf.readableBytes();
+            Assert.assertTrue(WireProtocol.isBinary(buf));
+            NettyRpcCmd binary = WireProtocol.decode(buf);
+            Assert.assertEquals(cmd.getSeq(), binary.getSeq());
+            Assert.assertEquals(cmd.getMsg(), binary.getMsg());
+
+            System.out.println(String.format("%-14s protostuff bytes: %d, ns/op: %.0f | binary bytes: %d, ns/op: %.0f",
+                    entry.getKey(), bytes.length, protostuff(cmd), binarySize, binary(cmd, buf)));
+        }
+    }
+
+    private double protostuff(NettyRpcCmd cmd) throws Exception {
+        for (int i = 0; i < ROUNDS; i++) {
+            SerializerContext.getInstance().deSerialize(SerializerContext.getInstance().serialize(cmd), NettyRpcCmd.class);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            SerializerContext.getInstance().deSerialize(SerializerContext.getInstance().serialize(cmd), NettyRpcCmd.class);
+        }
+        return (System.nanoTime() - start) / (double) ROUNDS;
+    }
+
+    private double binary(NettyRpcCmd cmd, ByteBuf buf) throws Exception {
+        for (int i = 0; i < ROUNDS; i++) {
+            buf.clear();
+            WireProtocol.encode(cmd, buf);
+            WireProtocol.decode(buf);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            buf.clear();
+            WireProtocol.encode(cmd, buf);
+            WireProtocol.decode(buf);
+        }
+        return (System.nanoTime() - start) / (double) ROUNDS;
+    }
+
+    private static NettyRpcCmd cmd(String action, int state, Serializable data) {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction(action);
+        messageDto.setGroupId(GROUP_ID);
+        messageDto.setState(state);
+        messageDto.setData(data);
+        NettyRpcCmd cmd = new NettyRpcCmd();
+        cmd.setSeq(123456789L << 10 | 17);
+        cmd.setMsg(messageDto);
+        return cmd;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.codec;
+
+import com.codingapi.txlcn.common.exception.SerializerException;
+import com.codingapi.txlcn.txmsg.MessageConstants;
+import com.codingapi.txlcn.txmsg.dto.MessageDto;
+import com.codingapi.txlcn.txmsg.netty.bean.NettyRpcCmd;
+import com.codingapi.txlcn.txmsg.params.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Description: encode + decode of binary frames for every registered payload type.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class WireProtocolTest {
+
+    @Test
+    public void everyRegisteredPayloadType() throws Exception {
+        Set<Integer> covered = new TreeSet<>();
+        for (Serializable payload : payloads()) {
+            covered.add(PayloadCodecs.typeOf(payload));
+            NettyRpcCmd cmd = cmd(MessageConstants.ACTION_NOTIFY_UNIT, payload);
+            NettyRpcCmd decoded = roundTrip(cmd);
+            Assert.assertEquals(cmd.getSeq(), decoded.getSeq());
+            Assert.assertEquals(cmd.getMsg(), decoded.getMsg());
+        }
+        Set<Integer> expected = new TreeSet<>(PayloadCodecs.registeredTypes());
+        expected.add(0);
+        expected.add(1);
+        Assert.assertEquals(expected, covered);
+    }
+
+    @Test
+    public void nullFieldsAndEdgeValues() throws Exception {
+        TxExceptionParams txExceptionParams = new TxExceptionParams();
+        DTXLockParams dtxLockParams = new DTXLockParams();
+        dtxLockParams.setFencingToken(Long.MIN_VALUE);
+        dtxLockParams.setWaitTime(Long.MAX_VALUE);
+        dtxLockParams.setLockType(-1);
+        List<Serializable> payloads = Arrays.asList(txExceptionParams, dtxLockParams, new RelayNotifyUnitParams(),
+                new JoinGroupParams(), new HeartbeatParams(0, null), Integer.MIN_VALUE, "", "中文 group");
+        for (Serializable payload : payloads) {
+            NettyRpcCmd cmd = cmd(MessageConstants.ACTION_NOTIFY_UNIT, payload);
+            Assert.assertEquals(cmd.getMsg(), roundTrip(cmd).getMsg());
+        }
+    }
+
+    @Test
+    public void customActionAndNoMessage() throws Exception {
+        NettyRpcCmd cmd = cmd("customAction", null);
+        cmd.getMsg().setGroupId(null);
+        Assert.assertEquals(cmd.getMsg(), roundTrip(cmd).getMsg());
+
+        NettyRpcCmd empty = new NettyRpcCmd();
+        empty.setSeq(42);
+        NettyRpcCmd decoded = roundTrip(empty);
+        Assert.assertNull(decoded.getMsg());
+        Assert.assertEquals(42, decoded.getSeq());
+    }
+
+    @Test(expected = SerializerException.class)
+    public void unsupportedVersion() throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        WireProtocol.encode(cmd(MessageConstants.ACTION_NOTIFY_UNIT, 1), buf);
+        buf.setByte(1, WireProtocol.VERSION + 1);
+        WireProtocol.decode(buf);
+    }
+
+    @Test(expected = SerializerException.class)
+    public void unknownPayloadType() throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        WireProtocol.encode(cmd(MessageConstants.ACTION_NOTIFY_UNIT, null), buf);
+        // 最后一个字节为 payload type
+        buf.setByte(buf.writerIndex() - 1, 63);
+        WireProtocol.decode(buf);
+    }
+
+    private static NettyRpcCmd roundTrip(NettyRpcCmd cmd) throws SerializerException {
+        ByteBuf buf = Unpooled.buffer();
+        WireProtocol.encode(cmd, buf);
+        Assert.assertTrue(WireProtocol.isBinary(buf));
+        NettyRpcCmd decoded = WireProtocol.decode(buf);
+        Assert.assertFalse(buf.isReadable());
+        return decoded;
+    }
+
+    private static List<Serializable> payloads() {
+        InitClientParams initClientParams = new InitClientParams();
+        initClientParams.setAppName("order-service:8080");
+        initClientParams.setDtxTime(36000);
+        initClientParams.setTmRpcTimeout(2000);
+        initClientParams.setSeqLen(12);
+        initClientParams.setMachineId(3);
+        initClientParams.setWireVersion(1);
+        initClientParams.setDtxLockTime(36000);
+        initClientParams.setTableScopedLockId(true);
+
+        RelayNotifyUnitParams relayNotifyUnitParams = new RelayNotifyUnitParams();
+        relayNotifyUnitParams.setNotifyUnitParams(new NotifyUnitParams("g1", "u1", "lcn", 0));
+        relayNotifyUnitParams.setModId("order-service:8080");
+
+        return Arrays.asList(
+                null,
+                new ArrayList<>(Arrays.asList("untyped", "data")),
+                -7,
+                -7L << 40,
+                "group",
+                true,
+                initClientParams,
+                new JoinGroupParams("g1", "u1", "txc", "/127.0.0.1:52034", 1),
+                new NotifyGroupParams("g1", 1),
+                new NotifyUnitParams("g1", "u1", "lcn", 1),
+                new AskTransactionStateParams("g1", "u1"),
+                new TxExceptionParams("g1", "u1", (short) 1, 0),
+                new GetAspectLogParams("g1", "u1"),
+                new DTXLockParams("g1", "t_order", new HashSet<>(Arrays.asList("t_order:1", "t_order:2")),
+                        2, 1024L, 3000),
+                new HeartbeatParams(5, new HashSet<>(Collections.singletonList("g1"))),
+                new NotifyConnectParams("127.0.0.1", 8070),
+                relayNotifyUnitParams);
+    }
+
+    private static NettyRpcCmd cmd(String action, Serializable data) {
+        MessageDto messageDto = new MessageDto();
+        messageDto.setAction(action);
+        messageDto.setGroupId("5c7f3a2b9e1d4c6a8b0f");
+        messageDto.setState(MessageConstants.STATE_REQUEST);
+        messageDto.setData(data);
+        NettyRpcCmd cmd = new NettyRpcCmd();
+        cmd.setSeq(123456789L << 10 | 17);
+        cmd.setMsg(messageDto);
+        return cmd;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.impl;
+
+import com.codingapi.txlcn.txmsg.RpcConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description: echo throughput over loopback of NIO and native epoll transports,
+ * framed as RPC messages are. each connection keeps WINDOW frames in flight.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class LoopbackTransportBenchmark {
+
+    private static final int CONNECTIONS = 8;
+
+    private static final int WINDOW = 64;
+
+    private static final int FRAME_SIZE = 96;
+
+    private static final long DURATION_MILLIS = 3000;
+
+    @Test
+    public void throughput() throws Exception {
+        RpcConfig nio = new RpcConfig();
+        nio.setNativeTransport(false);
+        RpcConfig epoll = new RpcConfig();
+        for (int i = 0; i < 2; i++) {
+            run("nio", nio);
+            run("epoll", epoll);
+        }
+    }
+
+    private void run(String name, RpcConfig rpcConfig) throws Exception {
+        boolean epoll = NettyTransport.epoll(rpcConfig);
+        EventLoopGroup bossGroup = NettyTransport.eventLoopGroup(epoll, rpcConfig.getBossThreads());
+        EventLoopGroup workerGroup = NettyTransport.eventLoopGroup(epoll, rpcConfig.getWorkerThreads());
+        EventLoopGroup clientGroup = NettyTransport.eventLoopGroup(epoll, CONNECTIONS);
+        AtomicLong received = new AtomicLong();
+        try {
+            ServerBootstrap server = new ServerBootstrap().group(bossGroup, workerGroup)
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast(new LengthFieldPrepender(4, false));
+                            ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4));
+                            ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    ctx.writeAndFlush(msg);
+                                }
+                            });
+                        }
+                    });
+            NettyTransport.server(server, rpcConfig, epoll);
+            Channel serverChannel = server.bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+
+            Bootstrap client = new Bootstrap().group(clientGroup)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast(new LengthFieldPrepender(4, false));
+                            ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4));
+                            ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    received.incrementAndGet();
+                                    // 收到一个响应再发一个请求, 保持 WINDOW 个在途
+                                    ctx.writeAndFlush(msg);
+                                }
+                            });
+                        }
+                    });
+            NettyTransport.client(client, rpcConfig, epoll);
+            List<Channel> channels = new ArrayList<>();
+            for (int i = 0; i < CONNECTIONS; i++) {
+                channels.add(client.connect(serverChannel.localAddress()).syncUninterruptibly().channel());
+            }
+
+            for (Channel channel : channels) {
+                for (int i = 0; i < WINDOW; i++) {
+                    ByteBuf frame = channel.alloc().buffer(FRAME_SIZE);
+                    frame.writeZero(FRAME_SIZE);
+                    channel.write(frame);
+                }
+                channel.flush();
+            }
+            long start = received.get();
+            TimeUnit.MILLISECONDS.sleep(DURATION_MILLIS);
+            long count = received.get() - start;
+            Assert.assertTrue(count > 0);
+            System.out.println(String.format("%-6s transport: %s, connections: %d, msg/s: %.0f",
+                    name, epoll ? "epoll" : "nio", CONNECTIONS, count / (DURATION_MILLIS / 1000.0)));
+
+            for (Channel channel : channels) {
+                channel.close().syncUninterruptibly();
+            }
+            serverChannel.close().syncUninterruptibly();
+        } finally {
+            clientGroup.shutdownGracefully().syncUninterruptibly();
+            workerGroup.shutdownGracefully().syncUninterruptibly();
+            bossGroup.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.impl;
+
+import com.codingapi.txlcn.txmsg.RpcConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Description: transport selection. NIO is used when native epoll is disabled or unavailable.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class NettyTransportTest {
+
+    @Test
+    public void selection() {
+        RpcConfig rpcConfig = new RpcConfig();
+        Assert.assertTrue(NettyTransport.epoll(rpcConfig, true));
+        Assert.assertFalse(NettyTransport.epoll(rpcConfig, false));
+        Assert.assertEquals(Epoll.isAvailable(), NettyTransport.epoll(rpcConfig));
+
+        rpcConfig.setNativeTransport(false);
+        Assert.assertFalse(NettyTransport.epoll(rpcConfig, true));
+        Assert.assertFalse(NettyTransport.epoll(rpcConfig));
+    }
+
+    @Test
+    public void nioWhenEpollUnavailable() throws Exception {
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.setPooledAllocator(false);
+        boolean epoll = NettyTransport.epoll(rpcConfig, false);
+        EventLoopGroup group = NettyTransport.eventLoopGroup(epoll, 1);
+        try {
+            Assert.assertTrue(group instanceof NioEventLoopGroup);
+
+            ServerBootstrap server = new ServerBootstrap().group(group).childHandler(new ChannelInboundHandlerAdapter());
+            NettyTransport.server(server, rpcConfig, epoll);
+            Channel serverChannel = server.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+            Assert.assertTrue(serverChannel instanceof NioServerSocketChannel);
+
+            Bootstrap client = new Bootstrap().group(group).handler(new ChannelInboundHandlerAdapter());
+            NettyTransport.client(client, rpcConfig, epoll);
+            Channel channel = client.connect(serverChannel.localAddress()).sync().channel();
+            Assert.assertTrue(channel instanceof NioSocketChannel);
+            Assert.assertEquals(rpcConfig.isTcpNoDelay(), channel.config().getOption(ChannelOption.TCP_NODELAY));
+
+            channel.close().sync();
+            serverChannel.close().sync();
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    @Test
+    public void epollWhenAvailable() {
+        if (!Epoll.isAvailable()) {
+            return;
+        }
+        EventLoopGroup group = NettyTransport.eventLoopGroup(NettyTransport.epoll(new RpcConfig()), 1);
+        try {
+            Assert.assertTrue(group instanceof EpollEventLoopGroup);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.netty.loadbalance;
+
+import com.codingapi.txlcn.txmsg.exception.RpcException;
+import com.codingapi.txlcn.txmsg.netty.bean.SocketManager;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description: a groupId goes to one TM, only the groups of a joined or left TM move.
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+public class ConsistentHashLoadBalanceTest {
+
+    private static final int GROUPS = 2000;
+
+    private final SocketManager socketManager = SocketManager.getInstance();
+
+    private final ConsistentHashLoadBalance loadBalance = new ConsistentHashLoadBalance();
+
+    private final List<Channel> connected = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        connected.forEach(socketManager::removeChannel);
+    }
+
+    @Test
+    public void groupGoesToOneTm() throws RpcException {
+        connect(28070);
+        connect(28071);
+        connect(28072);
+        String remoteKey = loadBalance.getRemoteKey("group-1");
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(remoteKey, loadBalance.getRemoteKey("group-1"));
+        }
+        Assert.assertEquals(remoteKey, new ConsistentHashLoadBalance().getRemoteKey("group-1"));
+    }
+
+    @Test
+    public void onlyGroupsOfJoinedTmMove() throws RpcException {
+        connect(28070);
+        connect(28071);
+        connect(28072);
+        Map<String, String> before = route();
+        Channel joined = connect(28073);
+        Map<String, String> after = route();
+
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String now = after.get(entry.getKey());
+            if (!now.equals(entry.getValue())) {
+                Assert.assertEquals(joined.remoteAddress().toString(), now);
+                moved++;
+            }
+        }
+        // 约 1/4 的事务组迁移到新 TM
+        Assert.assertTrue("moved " + moved, moved > GROUPS / 8 && moved < GROUPS / 2);
+
+        socketManager.removeChannel(joined);
+        Assert.assertEquals(before, route());
+    }
+
+    @Test
+    public void messageWithoutGroupGoesToAnyTm() throws RpcException {
+        Channel tm = connect(28070);
+        Assert.assertEquals(tm.remoteAddress().toString(), loadBalance.getRemoteKey());
+        Assert.assertEquals(tm.remoteAddress().toString(), loadBalance.getRemoteKey(""));
+    }
+
+    @Test
+    public void nonTm() {
+        try {
+            loadBalance.getRemoteKey("group-1");
+            Assert.fail();
+        } catch (RpcException e) {
+            Assert.assertEquals(RpcException.NON_TX_MANAGER, e.getCode());
+        }
+    }
+
+    @Test
+    public void hashIsStable() {
+        // 不依赖 String.hashCode, 各 TC 进程得到同一环
+        Assert.assertEquals(ConsistentHashLoadBalance.hash("group-1"), ConsistentHashLoadBalance.hash("group-1"));
+        Assert.assertNotEquals(ConsistentHashLoadBalance.hash("group-1"), ConsistentHashLoadBalance.hash("group-2"));
+        Assert.assertEquals(2954405638696063930L, ConsistentHashLoadBalance.hash("group-1"));
+    }
+
+    private Map<String, String> route() throws RpcException {
+        Map<String, String> routes = new HashMap<>();
+        for (int i = 0; i < GROUPS; i++) {
+            String groupId = "group-" + i;
+            routes.put(groupId, loadBalance.getRemoteKey(groupId));
+        }
+        return routes;
+    }
+
+    private Channel connect(int port) {
+        Channel channel = new RemoteChannel(port);
+        socketManager.addChannel(channel);
+        connected.add(channel);
+        return channel;
+    }
+
+    private static class RemoteChannel extends EmbeddedChannel {
+
+        private final InetSocketAddress remoteAddress;
+
+        RemoteChannel(int port) {
+            this.remoteAddress = new InetSocketAddress("127.0.0.1", port);
+        }
+
+        @Override
+        protected SocketAddress remoteAddress0() {
+            return remoteAddress;
+        }
+    }
+}
@@ -60,6 +60,11 @@ public enum LCNCmdType {
      */
     releaseDTXLock("release-dtx-lock", MessageConstants.ACTION_RELEASE_DTX_LOCK),
 
+    /**
+     * 续租分布式事务锁
+     */
+    renewDTXLock("renew-dtx-lock", MessageConstants.ACTION_RENEW_DTX_LOCK),
+
     /**
      * 响应事务状态
      * 间写 ats
@@ -135,6 +140,8 @@ public enum LCNCmdType {
                 return acquireDTXLock;
             case MessageConstants.ACTION_RELEASE_DTX_LOCK:
                 return releaseDTXLock;
+            case MessageConstants.ACTION_RENEW_DTX_LOCK:
+                return renewDTXLock;
             case MessageConstants.ACTION_ASK_TRANSACTION_STATE:
                 return askTransactionState;
             case MessageConstants.ACTION_WRITE_EXCEPTION:
@@ -87,6 +87,11 @@ public class MessageConstants {
      */
     public static final String ACTION_RELEASE_DTX_LOCK = "rdtxl";
 
+    /**
+     * 续租分布式事务锁
+     */
+    public static final String ACTION_RENEW_DTX_LOCK = "rndtxl";
+
 
     /**
      * 发起请求状态
@@ -24,6 +24,8 @@ import com.codingapi.txlcn.txmsg.exception.RpcException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Description:
@@ -38,7 +40,7 @@ public abstract class RpcClient {
     private RpcLoadBalance rpcLoadBalance;
 
     /**
-     * 发送指令不需要返回数据，需要知道返回的状态
+     * 发送指令不需要返回数据，异步发送，写失败时记录日志. 发送后指令不可再修改
      *
      * @param rpcCmd 指令内容
      * @return 指令状态
@@ -48,7 +50,7 @@ public abstract class RpcClient {
 
 
     /**
-     * 发送指令不需要返回数据，需要知道返回的状态
+     * 发送指令不需要返回数据，异步发送，写失败时记录日志
      *
      * @param remoteKey 远程标识关键字
      * @param msg       指令内容
@@ -89,6 +91,37 @@ public abstract class RpcClient {
      */
     public abstract MessageDto request(String remoteKey, MessageDto msg, long timeout) throws RpcException;
 
+    /**
+     * 异步发送请求，不阻塞调用线程. 响应在IO线程完成，回调中不可阻塞
+     *
+     * @param remoteKey 远程标识关键字
+     * @param msg       请求内容
+     * @param timeout   超时时间 (ms)，小于1时为默认等待时间
+     * @return 响应消息，超时或通讯失败时以RpcException异常完成
+     */
+    public abstract CompletableFuture<MessageDto> requestAsync(String remoteKey, MessageDto msg, long timeout);
+
+    /**
+     * 等待异步请求的响应
+     *
+     * @param response requestAsync的结果
+     * @return 响应消息
+     * @throws RpcException 超时或通讯失败
+     */
+    public static MessageDto awaitResponse(CompletableFuture<MessageDto> response) throws RpcException {
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RpcException) {
+                throw (RpcException) e.getCause();
+            }
+            throw new RpcException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpcException(e);
+        }
+    }
+
 
     /**
      * 获取一个远程标识关键字
@@ -100,6 +133,17 @@ public abstract class RpcClient {
         return rpcLoadBalance.getRemoteKey();
     }
 
+    /**
+     * 按路由关键字获取一个远程标识关键字
+     *
+     * @param routingKey 路由关键字（如事务组ID）
+     * @return 远程标识关键字
+     * @throws RpcException 远程调用请求异常
+     */
+    public String loadRemoteKey(String routingKey) throws RpcException {
+        return rpcLoadBalance.getRemoteKey(routingKey);
+    }
+
 
     /**
      * 获取所有的远程连接对象
@@ -143,4 +187,37 @@ public abstract class RpcClient {
      */
     public abstract List<AppInfo> apps();
 
+    /**
+     * 与对方协商通讯协议版本. 未声明版本的旧版本对端为 0
+     *
+     * @param remoteVersion 对方支持的最高版本
+     * @return 双方都支持的最高版本, 0 为 protostuff
+     */
+    public int negotiateWireVersion(int remoteVersion) {
+        return Math.max(0, Math.min(remoteVersion, wireVersion()));
+    }
+
+    /**
+     * 支持的最高通讯协议版本
+     *
+     * @return version, 0 为 protostuff
+     */
+    public abstract int wireVersion();
+
+    /**
+     * 设置连接协商好的通讯协议版本
+     *
+     * @param remoteKey   远程标识
+     * @param wireVersion version
+     */
+    public abstract void bindWireVersion(String remoteKey, int wireVersion);
+
+    /**
+     * 连接协商的通讯协议版本
+     *
+     * @param remoteKey 远程标识
+     * @return version, 未协商或旧版本对端为 0
+     */
+    public abstract int wireVersion(String remoteKey);
+
 }
@@ -33,7 +33,7 @@ public class RpcConfig {
     private long waitTime = -1;
 
     /**
-     * 最大缓存锁的数量
+     * 每个连接等待响应的请求数上限
      */
     private int cacheSize = 1024;
 
@@ -42,6 +42,11 @@ public class RpcConfig {
      */
     private long attrDelayTime = -1;
 
+    /**
+     * 每个TM的连接数. 大于1时请求按等待响应数分散到各连接
+     */
+    private int connections = 1;
+
     /**
      * 断线重连次数
      */
@@ -52,4 +57,61 @@ public class RpcConfig {
      */
     private long reconnectDelay = 10000;
 
+    /**
+     * 负载均衡. random: 随机, consistent-hash: 按事务组ID一致性哈希，同一事务组的消息发往同一TM
+     */
+    private String loadBalance = "random";
+
+    /**
+     * 最高使用的通讯协议版本，连接初始化时与对方协商. 0: protostuff, 1: 二进制协议
+     */
+    private int wireVersion = 1;
+
+    /**
+     * 优先使用 native epoll, 不可用时回退 NIO
+     */
+    private boolean nativeTransport = true;
+
+    /**
+     * 服务端 accept 线程数
+     */
+    private int bossThreads = 1;
+
+    /**
+     * IO 线程数. 0: netty 默认 (CPU核数 * 2)
+     */
+    private int workerThreads = 0;
+
+    /**
+     * 使用池化内存分配
+     */
+    private boolean pooledAllocator = true;
+
+    private boolean tcpNoDelay = true;
+
+    /**
+     * SO_SNDBUF (byte). 0: 系统默认
+     */
+    private int sendBufferSize = 0;
+
+    /**
+     * SO_RCVBUF (byte). 0: 系统默认
+     */
+    private int receiveBufferSize = 0;
+
+    /**
+     * 写缓冲低水位 (byte)
+     */
+    private int writeBufferLowWaterMark = 32 * 1024;
+
+    /**
+     * 写缓冲高水位 (byte)，超过后 channel 不可写
+     */
+    private int writeBufferHighWaterMark = 64 * 1024;
+
+    /**
+     * 服务端 SO_BACKLOG
+     */
+    private int backlog = 1024;
+
 }
@@ -31,7 +31,8 @@ public abstract class RpcCmd implements Serializable {
     
     /**
      * 指令唯一标识
-     * 当存在key时需要对方相应指令
+     * 当存在key时需要对方相应指令. 与旧版本对端兼容的字段 (protostuff 字段号 1), 旧版本对端原样回传,
+     * 本端请求时为 {@link #seq} 的十进制
      */
     private String key;
     
@@ -45,13 +46,64 @@ public abstract class RpcCmd implements Serializable {
      */
     private String remoteKey;
     
+    /**
+     * 连接内的请求序号. 0 为不需要响应. 新增字段追加在最后, 旧版本对端解码时忽略
+     */
+    private long seq;
+    
+    
+    /**
+     * 连接内的请求序号
+     *
+     * @return 0 when no response expected or key is not a sequence (request of an old peer)
+     */
+    public long getSeq() {
+        if (seq != 0 || key == null) {
+            return seq;
+        }
+        // 旧版本对端回传的响应只有字符串 key
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    public void setSeq(long seq) {
+        this.seq = seq;
+        this.key = seq == 0 ? null : Long.toString(seq);
+    }
     
+    /**
+     * 指令唯一标识
+     *
+     * @return key
+     * @deprecated 请求与响应按 {@link #getSeq()} 匹配
+     */
+    @Deprecated
     public String getKey() {
         return key;
     }
     
+    /**
+     * 设置指令唯一标识
+     *
+     * @param key key
+     * @deprecated use {@link #setSeq(long)}
+     */
+    @Deprecated
     public void setKey(String key) {
         this.key = key;
+        this.seq = 0;
+    }
+    
+    /**
+     * 是否需要对方响应
+     *
+     * @return hasKey
+     */
+    public boolean hasKey() {
+        return seq != 0 || (key != null && !key.isEmpty());
     }
     
     public MessageDto getMsg() {
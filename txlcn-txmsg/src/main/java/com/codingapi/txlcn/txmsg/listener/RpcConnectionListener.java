@@ -27,8 +27,8 @@ public interface RpcConnectionListener {
     void connect(String remoteKey);
 
     /**
-     * 断开连接监听
-     * @param remoteKey 远程key
+     * 断开连接监听. 远程 (同一 remoteKey 或同一模块) 的最后一个连接断开时回调
+     * @param remoteKey 最后断开的远程key
      * @param appName   模块名称
      */
     void disconnect(String remoteKey,String appName);
@@ -29,5 +29,15 @@ public interface RpcLoadBalance {
      */
     String getRemoteKey()throws RpcException;
 
+    /**
+     * 按路由关键字（如事务组ID）获取一个远程标识关键字，默认忽略路由关键字
+     * @param routingKey 路由关键字，可为空
+     * @return 远程key
+     * @throws RpcException 远程调用请求异常
+     */
+    default String getRemoteKey(String routingKey) throws RpcException {
+        return getRemoteKey();
+    }
+
 
 }
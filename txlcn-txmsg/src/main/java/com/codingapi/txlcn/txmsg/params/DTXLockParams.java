@@ -36,4 +36,6 @@ public class DTXLockParams implements Serializable {
     private String contextId;
     private Set<String> locks;
     private int lockType;
+    private long fencingToken;
+    private long waitTime;
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-2019 CodingApi .
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.codingapi.txlcn.txmsg.params;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.HashSet;
+
+/**
+ * Description: TC对TM心跳的响应数据
+ * Date: 2026/10/18
+ *
+ * @author agent
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class HeartbeatParams implements Serializable {
+
+    /**
+     * TC的MachineID
+     */
+    private int machineId;
+
+    /**
+     * TC持有DTX锁的事务组，TM续租这些锁
+     */
+    private HashSet<String> lockGroups;
+}
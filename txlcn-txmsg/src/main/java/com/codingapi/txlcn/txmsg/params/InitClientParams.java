@@ -53,4 +53,19 @@ public class InitClientParams implements Serializable {
      * 分配的机器ID
      */
     private int machineId;
+
+    /**
+     * 通讯协议版本. TC 请求时为支持的最高版本，TM 响应协商的版本. 0 为 protostuff
+     */
+    private int wireVersion;
+
+    /**
+     * DTX锁租期 (ms). TC 在租期内向TM续租持有的锁, 旧版本TM为0
+     */
+    private long dtxLockTime;
+
+    /**
+     * DTX锁ID是否带表名. TM为hash-tag key结构时为true, 旧版本TM为false
+     */
+    private boolean tableScopedLockId;
 }